@@ -0,0 +1,93 @@
+package com.monitoring.bench;
+
+import com.monitoring.server.logging.Log;
+import com.monitoring.server.model.SystemMetrics;
+import com.monitoring.server.rmi.MonitoringServiceImpl;
+import com.monitoring.server.storage.DataManager;
+import java.rmi.NoSuchObjectException;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mise à jour d'un agent et de son historique de métriques.
+ *
+ * updateAgent mesure le chemin RMI complet côté serveur (registre des agents,
+ * flux de changements, historique en colonnes) ; addMetrics isole l'ajout à
+ * l'historique. Les agents sont répartis entre les threads comme des agents
+ * réels qui envoient leurs métriques en parallèle.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class AgentUpdateBenchmark {
+
+    @Param({"16", "1024"})
+    public int agents;
+
+    private DataManager dataManager;
+    private MonitoringServiceImpl service;
+    private String[] agentIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws RemoteException {
+        Log.setLevels("WARN", "");
+        dataManager = new DataManager();
+        service = new MonitoringServiceImpl(dataManager);
+        agentIds = new String[agents];
+        for (int i = 0; i < agents; i++) {
+            agentIds[i] = String.format("AGENT-%04d", i);
+            service.updateAgent(new SystemMetrics(agentIds[i], 10, 20, 30), "10.0.0." + (i & 255));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws NoSuchObjectException {
+        service.shutdown();
+        UnicastRemoteObject.unexportObject(service, true);
+    }
+
+    /**
+     * Agent courant de chaque thread
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+        double value;
+
+        int nextIndex(int agents) {
+            value = value >= 99 ? 1 : value + 0.7;
+            return next++ % agents;
+        }
+    }
+
+    @Benchmark
+    public void updateAgent(Cursor cursor) {
+        int index = cursor.nextIndex(agents);
+        service.updateAgent(new SystemMetrics(agentIds[index], cursor.value, 50, 40), "10.0.0." + (index & 255));
+    }
+
+    @Benchmark
+    public long addMetrics(Cursor cursor) {
+        int index = cursor.nextIndex(agents);
+        return dataManager.addMetrics(agentIds[index], System.currentTimeMillis(), cursor.value, 50, 40);
+    }
+}
@@ -0,0 +1,106 @@
+package com.monitoring.bench;
+
+import com.monitoring.server.logging.Log;
+import com.monitoring.server.model.Alert;
+import com.monitoring.server.receiver.AlertFrameParser;
+import com.monitoring.server.rules.RuleEngine;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Décodage d'une ligne d'alerte "AGENT_ID|CPU|85.5|MEMORY|92.3|DISK|78.9".
+ *
+ * parseFrame mesure le chemin réel des deux récepteurs (TCPAlertReceiver et
+ * NioAlertReceiver) : décodage direct des octets par AlertFrameParser. Les
+ * méthodes baseline* conservent l'ancien découpage (String.split puis
+ * Double.parseDouble), qui n'est plus utilisé par le serveur, comme point de
+ * comparaison. Toutes construisent l'alerte et passent par le moteur de règles :
+ * seule la manière de découper la trame diffère.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AlertParsingBenchmark {
+
+    // Nombre de trames différentes parcourues (puissance de 2)
+    private static final int FRAMES = 64;
+
+    private final String[] lines = new String[FRAMES];
+    private final byte[][] frames = new byte[FRAMES][];
+    private RuleEngine rules;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Log.setLevels("WARN", "");
+        rules = new RuleEngine();
+        String[] metrics = {"CPU", "MEMORY", "DISK"};
+        for (int i = 0; i < FRAMES; i++) {
+            String metric = metrics[i % metrics.length];
+            double value = 50 + (i * 7.3) % 50;
+            lines[i] = String.format(Locale.ROOT, "AGENT-%03d|%s|%.1f|MEMORY|%.1f|DISK|%.1f",
+                                     i % 16, metric, value, value / 2, value / 3);
+            frames[i] = lines[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    /**
+     * Référence : ancien découpage d'une ligne déjà décodée en String
+     */
+    @Benchmark
+    public Alert baselineSplitLine() {
+        String line = lines[next++ & (FRAMES - 1)];
+        String[] parts = line.split("\\|");
+        if (parts.length < AlertFrameParser.MIN_FIELDS) {
+            return null;
+        }
+        String agentId = parts[0];
+        String metricType = parts[1];
+        double metricValue = Double.parseDouble(parts[2]);
+        String severity = rules.classify(agentId, metricType, metricValue);
+        return new Alert(agentId, metricType, "[" + metricType + "] Dépasse le seuil: " + metricValue + "%",
+                         LocalDateTime.now(), severity);
+    }
+
+    /**
+     * Référence : même ligne reçue en octets puis décodée en String avant le
+     * découpage (ancien BufferedReader du récepteur TCP)
+     */
+    @Benchmark
+    public Alert baselineDecodeAndSplitLine() {
+        byte[] frame = frames[next++ & (FRAMES - 1)];
+        String[] parts = new String(frame, StandardCharsets.UTF_8).split("\\|");
+        if (parts.length < AlertFrameParser.MIN_FIELDS) {
+            return null;
+        }
+        double metricValue = Double.parseDouble(parts[2]);
+        String severity = rules.classify(parts[0], parts[1], metricValue);
+        return new Alert(parts[0], parts[1], "[" + parts[1] + "] Dépasse le seuil: " + metricValue + "%",
+                         LocalDateTime.now(), severity);
+    }
+
+    /**
+     * Décodage direct des octets (récepteurs TCP et NIO)
+     */
+    @Benchmark
+    public Alert parseFrame() {
+        byte[] frame = frames[next++ & (FRAMES - 1)];
+        return AlertFrameParser.parse(frame, 0, frame.length, rules);
+    }
+}
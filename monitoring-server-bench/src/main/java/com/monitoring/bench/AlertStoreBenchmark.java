@@ -0,0 +1,91 @@
+package com.monitoring.bench;
+
+import com.monitoring.server.logging.Log;
+import com.monitoring.server.model.Alert;
+import com.monitoring.server.storage.DataManager;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * DataManager.addAlert / getAllAlerts sous contention.
+ *
+ * Le stockage est rempli à sa capacité avant la mesure : chaque ajout écrase
+ * la plus ancienne alerte et chaque lecture copie un tampon plein, comme sur un
+ * serveur en régime établi. Le groupe "mixed" fait travailler trois écrivains
+ * (récepteurs TCP) contre un lecteur (client RMI qui rafraîchit sa liste).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AlertStoreBenchmark {
+
+    @Param({"1024", "65536"})
+    public int capacity;
+
+    private DataManager dataManager;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Log.setLevels("WARN", "");
+        dataManager = new DataManager(capacity, 0, DataManager.DEFAULT_METRICS_DEPTH,
+                                      DataManager.DEFAULT_MINUTE_BUCKETS, DataManager.DEFAULT_HOUR_BUCKETS);
+        for (int i = 0; i < capacity; i++) {
+            dataManager.addAlert(newAlert(i));
+        }
+    }
+
+    /**
+     * État propre à chaque thread écrivain (agent simulé)
+     */
+    @State(Scope.Thread)
+    public static class Writer {
+        int next;
+    }
+
+    private static Alert newAlert(int i) {
+        return new Alert("AGENT-" + (i & 15), "CPU", "[CPU] Dépasse le seuil: 91.5%", LocalDateTime.now(),
+                         (i & 7) == 0 ? "CRITICAL" : "WARNING");
+    }
+
+    /**
+     * Écritures seules, quatre threads
+     */
+    @Benchmark
+    @Threads(4)
+    public void addAlert(Writer writer) {
+        dataManager.addAlert(newAlert(writer.next++));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public void mixedAdd(Writer writer) {
+        dataManager.addAlert(newAlert(writer.next++));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public List<Alert> mixedGetAll() {
+        return dataManager.getAllAlerts();
+    }
+}
@@ -0,0 +1,238 @@
+package com.monitoring.bench;
+
+import com.monitoring.server.config.ServerConfig;
+import com.monitoring.server.instrumentation.Instrumentation;
+import com.monitoring.server.instrumentation.LatencyHistogram;
+import com.monitoring.server.logging.Log;
+import com.monitoring.server.receiver.AlertProtocol;
+import com.monitoring.server.receiver.AlertReceiver;
+import com.monitoring.server.receiver.NioAlertReceiver;
+import com.monitoring.server.receiver.TCPAlertReceiver;
+import com.monitoring.server.rules.RuleEngine;
+import com.monitoring.server.storage.DataManager;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Générateur de charge de bout en bout : N agents simulés ouvrent chacun une
+ * session TCP persistante et envoient des alertes, puis on mesure le débit
+ * acquitté et la latence alerte → acquittement.
+ *
+ * Chaque agent garde au plus "window" alertes en vol. Avec un débit imposé
+ * (rate > 0), la latence est comptée depuis l'instant d'envoi prévu et non
+ * réel : un serveur qui prend du retard voit ce retard dans ses percentiles
+ * (pas d'omission coordonnée).
+ *
+ * Réglages (propriétés système) :
+ *   -Dmonitoring.loadgen.host=127.0.0.1 -Dmonitoring.loadgen.port=9877
+ *   -Dmonitoring.loadgen.agents=20 -Dmonitoring.loadgen.durationSec=10 -Dmonitoring.loadgen.warmupSec=2
+ *   -Dmonitoring.loadgen.rate=0 (alertes/s par agent, 0 = au plus vite) -Dmonitoring.loadgen.window=1
+ *   -Dmonitoring.loadgen.embedded=none|classic|nio (récepteur démarré dans ce processus, sur la boucle locale)
+ */
+public final class LoadGenerator {
+
+    private static final String HOST = ServerConfig.getString("loadgen.host", "127.0.0.1");
+    private static final int PORT = ServerConfig.getInt("loadgen.port", 9877);
+    private static final int AGENTS = ServerConfig.getInt("loadgen.agents", 20);
+    private static final int DURATION_SEC = ServerConfig.getInt("loadgen.durationSec", 10);
+    private static final int WARMUP_SEC = ServerConfig.getInt("loadgen.warmupSec", 2);
+    private static final int RATE = ServerConfig.getInt("loadgen.rate", 0);
+    private static final int WINDOW = Math.max(1, ServerConfig.getInt("loadgen.window", 1));
+    private static final String EMBEDDED = ServerConfig.getString("loadgen.embedded", "none");
+
+    private static final String[] METRICS = {"CPU", "MEMORY", "DISK"};
+
+    // Mesures de la phase mesurée (l'échauffement n'est pas compté)
+    private static final LatencyHistogram ACK_LATENCY =
+            Instrumentation.histogram("loadgen_ack_seconds", "Latence alerte -> acquittement (générateur de charge)");
+    private static final AtomicLong ACKED = new AtomicLong();
+    private static final AtomicLong INVALID = new AtomicLong();
+    private static final AtomicLong FAILED_AGENTS = new AtomicLong();
+
+    private static volatile long measureStartNanos;
+    private static volatile long endNanos;
+
+    private LoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        AlertReceiver receiver = startEmbeddedReceiver();
+
+        System.out.printf(Locale.ROOT, "Charge: %d agent(s) -> %s:%d, %s, fenêtre %d, %d s (+%d s d'échauffement)%n",
+                          AGENTS, HOST, PORT, RATE > 0 ? RATE + " alerte(s)/s par agent" : "débit maximal",
+                          WINDOW, DURATION_SEC, WARMUP_SEC);
+
+        long start = System.nanoTime();
+        measureStartNanos = start + TimeUnit.SECONDS.toNanos(WARMUP_SEC);
+        endNanos = measureStartNanos + TimeUnit.SECONDS.toNanos(DURATION_SEC);
+
+        List<Thread> threads = new ArrayList<>(AGENTS);
+        for (int i = 0; i < AGENTS; i++) {
+            String agentId = String.format(Locale.ROOT, "LOAD-%04d", i);
+            Thread thread = new Thread(() -> runAgent(agentId), "agent-" + agentId);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        report(Math.min(System.nanoTime(), endNanos) - measureStartNanos);
+        if (receiver != null) {
+            receiver.stop();
+        }
+        Log.shutdown();
+    }
+
+    /**
+     * Démarre un récepteur dans ce processus si demandé (stockage direct dans un DataManager)
+     */
+    private static AlertReceiver startEmbeddedReceiver() throws InterruptedException {
+        if ("none".equalsIgnoreCase(EMBEDDED)) {
+            return null;
+        }
+        // Une ligne de journal par alerte fausserait la mesure
+        Log.setLevels("WARN", "");
+        DataManager dataManager = new DataManager();
+        AlertReceiver receiver;
+        if ("nio".equalsIgnoreCase(EMBEDDED)) {
+            receiver = new NioAlertReceiver(PORT, dataManager, Runtime.getRuntime().availableProcessors(),
+                                            AlertProtocol.DEFAULT_IDLE_TIMEOUT_MS, new RuleEngine());
+        } else {
+            receiver = new TCPAlertReceiver(PORT, dataManager, AlertProtocol.DEFAULT_IDLE_TIMEOUT_MS,
+                                            new RuleEngine());
+        }
+        Thread thread = new Thread(receiver, "embedded-receiver");
+        thread.setDaemon(true);
+        thread.start();
+
+        // Attendre que le port soit ouvert
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            try (Socket probe = new Socket()) {
+                probe.connect(new InetSocketAddress(HOST, PORT), 200);
+                break;
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        System.out.println("Récepteur " + EMBEDDED + " démarré dans le processus sur le port " + PORT);
+        return receiver;
+    }
+
+    /**
+     * Un agent : une session, des alertes jusqu'à la fin de la durée, puis FIN
+     */
+    private static void runAgent(String agentId) {
+        long interval = RATE > 0 ? TimeUnit.SECONDS.toNanos(1) / RATE : 0;
+        // Instants d'envoi des alertes en vol, dans l'ordre des acquittements
+        long[] sentAt = new long[WINDOW];
+        int head = 0;
+        int inFlight = 0;
+        long count = 0;
+        long nextSend = System.nanoTime();
+
+        try (Socket socket = new Socket()) {
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(HOST, PORT), 5000);
+            OutputStream out = socket.getOutputStream();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                                                                         StandardCharsets.US_ASCII));
+            out.write((AlertProtocol.SESSION_START + "\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            String hello = in.readLine();
+            if (hello == null || !hello.startsWith(AlertProtocol.SESSION_OK)) {
+                throw new IOException("Session refusée: " + hello);
+            }
+
+            while (true) {
+                // Envoyer tant que la fenêtre le permet
+                boolean sent = false;
+                while (inFlight < WINDOW && System.nanoTime() < endNanos) {
+                    if (interval > 0) {
+                        long wait = nextSend - System.nanoTime();
+                        if (wait > 0) {
+                            if (inFlight > 0) {
+                                break;
+                            }
+                            LockSupport.parkNanos(wait);
+                        }
+                    }
+                    long scheduled = interval > 0 ? nextSend : System.nanoTime();
+                    out.write(alertLine(agentId, count++));
+                    sentAt[(head + inFlight) % WINDOW] = scheduled;
+                    inFlight++;
+                    nextSend += interval;
+                    sent = true;
+                }
+                if (sent) {
+                    out.flush();
+                }
+                if (inFlight == 0) {
+                    break;
+                }
+
+                // Attendre l'acquittement le plus ancien
+                String reply = in.readLine();
+                if (reply == null) {
+                    throw new IOException("Connexion fermée par le serveur");
+                }
+                long now = System.nanoTime();
+                long sentTime = sentAt[head];
+                head = (head + 1) % WINDOW;
+                inFlight--;
+                if (sentTime >= measureStartNanos) {
+                    if (reply.startsWith(AlertProtocol.ACK)) {
+                        ACKED.incrementAndGet();
+                        ACK_LATENCY.record(now - sentTime);
+                    } else {
+                        INVALID.incrementAndGet();
+                    }
+                }
+            }
+
+            out.write((AlertProtocol.SESSION_END + "\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            in.readLine();
+        } catch (IOException e) {
+            FAILED_AGENTS.incrementAndGet();
+            System.err.println(agentId + ": " + e.getMessage());
+        }
+    }
+
+    private static byte[] alertLine(String agentId, long n) {
+        double value = 80 + (n * 7) % 20;
+        String line = agentId + AlertProtocol.FIELD_SEPARATOR + METRICS[(int) (n % METRICS.length)]
+                      + AlertProtocol.FIELD_SEPARATOR + value + "|MEMORY|50.0|DISK|40.0\n";
+        return line.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void report(long measuredNanos) {
+        LatencyHistogram.Snapshot latency = ACK_LATENCY.snapshot();
+        double seconds = Math.max(1, measuredNanos) / 1e9;
+        System.out.println("========================================");
+        System.out.printf(Locale.ROOT, "Alertes acquittées : %d (%d invalide(s), %d agent(s) en échec)%n",
+                          ACKED.get(), INVALID.get(), FAILED_AGENTS.get());
+        System.out.printf(Locale.ROOT, "Débit              : %.0f alertes/s%n", ACKED.get() / seconds);
+        System.out.printf(Locale.ROOT, "Latence (µs)       : moy %.1f | p50 %.1f | p90 %.1f | p99 %.1f | p99.9 %.1f"
+                                       + " | max %.1f%n",
+                          latency.getMean() / 1000.0, micros(latency, 0.5), micros(latency, 0.9),
+                          micros(latency, 0.99), micros(latency, 0.999), latency.getMax() / 1000.0);
+        System.out.println("========================================");
+    }
+
+    private static double micros(LatencyHistogram.Snapshot snapshot, double quantile) {
+        return snapshot.valueAtQuantile(quantile) / 1000.0;
+    }
+}
@@ -0,0 +1,150 @@
+package com.monitoring.bench;
+
+import com.monitoring.server.model.Agent;
+import com.monitoring.server.model.Alert;
+import com.monitoring.server.model.AlertList;
+import com.monitoring.server.model.MetricsHistory;
+import com.monitoring.server.model.SystemMetrics;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Coût de la sérialisation Java des listes renvoyées par RMI
+ * (getAllAgents, getMetricsHistory et getAllAlerts).
+ *
+ * Chaque appel RMI sérialise le résultat dans un nouveau flux objet : les
+ * benchmarks font de même, en écriture seule puis en lecture. Les historiques
+ * et alertes sont mesurés en liste d'objets (ArrayList) et sous la forme
+ * compacte effectivement renvoyée par le serveur (MetricsHistory, AlertList).
+ * La taille produite est affichée au début de chaque essai.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"10", "1000"})
+    public int size;
+
+    private List<Agent> agents;
+    private List<SystemMetrics> history;
+    private MetricsHistory packedHistory;
+    private List<Alert> alerts;
+    private AlertList packedAlerts;
+    private byte[] agentsBytes;
+    private byte[] historyBytes;
+    private byte[] packedHistoryBytes;
+    private byte[] packedAlertsBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        agents = new ArrayList<>(size);
+        history = new ArrayList<>(size);
+        packedHistory = new MetricsHistory("AGENT-0001", size);
+        alerts = new ArrayList<>(size);
+        packedAlerts = new AlertList(size);
+        long now = System.currentTimeMillis();
+        LocalDateTime start = LocalDateTime.now().minusSeconds(size);
+        for (int i = 0; i < size; i++) {
+            String agentId = String.format("AGENT-%04d", i);
+            agents.add(new Agent(agentId, "10.0." + (i >> 8 & 255) + "." + (i & 255),
+                                 new SystemMetrics(agentId, 40 + i % 60, 55, 70)));
+            history.add(new SystemMetrics("AGENT-0001", 40 + i % 60, 55, 70, now - (size - i) * 1000L));
+            packedHistory.append(now - (size - i) * 1000L, 40 + i % 60, 55, 70);
+            Alert alert = new Alert("AGENT-" + (i % 16), "CPU", "[CPU] Dépasse le seuil: " + (80 + i % 20) + "%",
+                                    start.plusSeconds(i), i % 4 == 0 ? "CRITICAL" : "HIGH");
+            alert.setSequence(i + 1);
+            alerts.add(alert);
+            packedAlerts.add(alert);
+        }
+        agentsBytes = serialize(agents);
+        historyBytes = serialize(history);
+        packedHistoryBytes = serialize(packedHistory);
+        packedAlertsBytes = serialize(packedAlerts);
+        System.out.println("Taille sérialisée (" + size + " éléments) : agents " + agentsBytes.length
+                           + ", historique " + historyBytes.length + " / compact " + packedHistoryBytes.length
+                           + ", alertes " + serialize(alerts).length + " / compact " + packedAlertsBytes.length
+                           + " octets");
+    }
+
+    private static byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(4096);
+        try (ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+            out.writeObject(value);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+
+    @Benchmark
+    public byte[] writeAgents() throws IOException {
+        return serialize(agents);
+    }
+
+    @Benchmark
+    public byte[] writeMetricsHistory() throws IOException {
+        return serialize(history);
+    }
+
+    @Benchmark
+    public byte[] writePackedMetricsHistory() throws IOException {
+        return serialize(packedHistory);
+    }
+
+    @Benchmark
+    public byte[] writeAlerts() throws IOException {
+        return serialize(alerts);
+    }
+
+    @Benchmark
+    public byte[] writePackedAlerts() throws IOException {
+        return serialize(packedAlerts);
+    }
+
+    @Benchmark
+    public Object readAgents() throws IOException, ClassNotFoundException {
+        return deserialize(agentsBytes);
+    }
+
+    @Benchmark
+    public Object readMetricsHistory() throws IOException, ClassNotFoundException {
+        return deserialize(historyBytes);
+    }
+
+    @Benchmark
+    public Object readPackedMetricsHistory() throws IOException, ClassNotFoundException {
+        return deserialize(packedHistoryBytes);
+    }
+
+    @Benchmark
+    public Object readPackedAlerts() throws IOException, ClassNotFoundException {
+        return deserialize(packedAlertsBytes);
+    }
+}
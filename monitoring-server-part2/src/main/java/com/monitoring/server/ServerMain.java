@@ -1,69 +1,451 @@
 package com.monitoring.server;
 
+import com.monitoring.server.cluster.AlertRouter;
+import com.monitoring.server.cluster.ClusterManager;
+import com.monitoring.server.cluster.ClusterMember;
+import com.monitoring.server.cluster.ClusterNode;
+import com.monitoring.server.cluster.FederatedMonitoringService;
+import com.monitoring.server.concurrent.ConcurrencyLimiter;
+import com.monitoring.server.concurrent.TaskThreads;
+import com.monitoring.server.config.ServerConfig;
+import com.monitoring.server.instrumentation.Instrumentation;
+import com.monitoring.server.instrumentation.InstrumentationExporter;
+import com.monitoring.server.liveness.LivenessTracker;
+import com.monitoring.server.logging.Log;
+import com.monitoring.server.model.AgentIds;
+import com.monitoring.server.model.Alert;
+import com.monitoring.server.pipeline.AlertPipeline;
+import com.monitoring.server.pipeline.AlertSink;
+import com.monitoring.server.pipeline.IngestQueue;
+import com.monitoring.server.receiver.AlertProtocol;
+import com.monitoring.server.receiver.AlertReceiver;
+import com.monitoring.server.receiver.MetricsProtocol;
+import com.monitoring.server.receiver.NioAlertReceiver;
 import com.monitoring.server.receiver.TCPAlertReceiver;
+import com.monitoring.server.receiver.UDPMetricsReceiver;
 import com.monitoring.server.rmi.MonitoringServiceImpl;
+import com.monitoring.server.rmi.ReadCache;
+import com.monitoring.server.rmi.RmiTimeouts;
+import com.monitoring.server.rules.AnomalyDetector;
+import com.monitoring.server.rules.RuleEngine;
+import com.monitoring.server.storage.Archive;
 import com.monitoring.server.storage.DataManager;
+import com.monitoring.server.storage.FleetWindows;
+import com.monitoring.server.storage.MetricsSeries;
+import com.monitoring.server.storage.PersistenceManager;
+import com.monitoring.server.subscription.ChangeFeed;
+import java.io.IOException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Point d'entrée principal du serveur de monitoring
  */
 public class ServerMain {
     
-    // Ports de configuration
-    private static final int RMI_PORT = 1099;
-    private static final int TCP_ALERT_PORT = 9877;
+    // Ports de configuration : -Dmonitoring.rmi.port=1099 -Dmonitoring.tcp.port=9877
+    private static final int RMI_PORT = ServerConfig.getInt("rmi.port", 1099);
+    private static final int TCP_ALERT_PORT = ServerConfig.getInt("tcp.port", 9877);
     private static final String RMI_SERVICE_NAME = "MonitoringService";
     
+    // Mode du récepteur TCP : "classic" (un thread par connexion) ou "nio" (Selector)
+    // Sélection au démarrage : -Dmonitoring.tcp.mode=nio -Dmonitoring.tcp.ioThreads=4
+    private static final String TCP_MODE = ServerConfig.getString("tcp.mode", "classic");
+    private static final boolean NIO_RECEIVER = "nio".equalsIgnoreCase(TCP_MODE);
+    private static final int TCP_IO_THREADS = ServerConfig.getInt("tcp.ioThreads",
+            Math.min(4, Runtime.getRuntime().availableProcessors()));
+    
+    // Threads des connexions du mode classique : -Dmonitoring.threads=platform|virtual (virtual : Java 21+, profil java21)
+    // Limites (0 = illimité) : -Dmonitoring.threads.maxConnections=50000 -Dmonitoring.threads.maxIngest=1024
+    // Par défaut : illimité en threads classiques (comportement historique), bornées en threads virtuels
+    private static final String THREAD_MODE = TaskThreads.resolveMode(
+            ServerConfig.getString("threads", TaskThreads.PLATFORM));
+    private static final boolean VIRTUAL_THREADS = TaskThreads.VIRTUAL.equals(THREAD_MODE);
+    private static final int TCP_MAX_CONNECTIONS = ServerConfig.getInt("threads.maxConnections",
+            VIRTUAL_THREADS ? 50000 : 0);
+    private static final int TCP_MAX_INGEST = ServerConfig.getInt("threads.maxIngest",
+            VIRTUAL_THREADS ? 1024 : 0);
+    
+    // Délai d'inactivité des sessions TCP persistantes : -Dmonitoring.tcp.sessionIdleTimeoutMs=60000
+    private static final int TCP_SESSION_IDLE_TIMEOUT_MS = ServerConfig.getInt("tcp.sessionIdleTimeoutMs",
+            AlertProtocol.DEFAULT_IDLE_TIMEOUT_MS);
+    
+    // Rétention des alertes : -Dmonitoring.alerts.capacity=65536 -Dmonitoring.alerts.maxAgeMinutes=1440 (0 = illimité)
+    private static final int ALERT_CAPACITY = ServerConfig.getInt("alerts.capacity",
+            DataManager.DEFAULT_ALERT_CAPACITY);
+    private static final long ALERT_MAX_AGE_MS = ServerConfig.getLong("alerts.maxAgeMinutes",
+            DataManager.DEFAULT_ALERT_MAX_AGE_MS / 60000) * 60000;
+    
+    // Regroupement des alertes identiques (agent, métrique, sévérité) : -Dmonitoring.alerts.coalesceWindowMs=10000
+    // Limitation en rafale, désactivée par défaut (0 = illimité) : -Dmonitoring.alerts.agentRatePerSec=5
+    // -Dmonitoring.alerts.agentBurst=20 -Dmonitoring.alerts.globalRatePerSec=500 -Dmonitoring.alerts.globalBurst=2000
+    // Les alertes écartées ne sont pas enregistrées : l'agent reçoit ALERTE_LIMITEE au lieu de ALERTE_RECUE
+    private static final long ALERT_COALESCE_WINDOW_MS = ServerConfig.getLong("alerts.coalesceWindowMs", 10000);
+    private static final int ALERT_AGENT_RATE = ServerConfig.getInt("alerts.agentRatePerSec", 0);
+    private static final int ALERT_AGENT_BURST = ServerConfig.getInt("alerts.agentBurst", 20);
+    private static final int ALERT_GLOBAL_RATE = ServerConfig.getInt("alerts.globalRatePerSec", 0);
+    private static final int ALERT_GLOBAL_BURST = ServerConfig.getInt("alerts.globalBurst", 2000);
+    
+    // Profondeur de l'historique des métriques par agent : -Dmonitoring.metrics.depth=4096
+    private static final int METRICS_DEPTH = ServerConfig.getInt("metrics.depth",
+            DataManager.DEFAULT_METRICS_DEPTH);
+    
+    // Avance maximale d'un horodatage d'échantillon sur l'horloge du serveur (au-delà, ramené à celle-ci) :
+    // -Dmonitoring.metrics.maxFutureSkewMs=300000
+    private static final long METRICS_MAX_FUTURE_SKEW_MS = ServerConfig.getLong("metrics.maxFutureSkewMs",
+            MetricsSeries.DEFAULT_MAX_FUTURE_SKEW_MS);
+    
+    // Agents enregistrés numérotés (String canonique partagée, état de la détection d'anomalies) ; au-delà,
+    // les nouveaux agents restent de simples String : -Dmonitoring.agents.maxIds=65536
+    private static final int AGENT_IDS_CAPACITY = ServerConfig.getInt("agents.maxIds", AgentIds.DEFAULT_CAPACITY);
+    
+    // Agrégats conservés par agent : -Dmonitoring.metrics.minuteBuckets=1440 -Dmonitoring.metrics.hourBuckets=720
+    private static final int METRICS_MINUTE_BUCKETS = ServerConfig.getInt("metrics.minuteBuckets",
+            DataManager.DEFAULT_MINUTE_BUCKETS);
+    private static final int METRICS_HOUR_BUCKETS = ServerConfig.getInt("metrics.hourBuckets",
+            DataManager.DEFAULT_HOUR_BUCKETS);
+    
+    // Activité récente de la flotte (getFleetWindow) : tranches de 10 s sur 1 h
+    // -Dmonitoring.fleet.windowSlotSec=10 -Dmonitoring.fleet.windowSlots=360
+    private static final long FLEET_WINDOW_SLOT_MS = ServerConfig.getLong("fleet.windowSlotSec", 10) * 1000;
+    private static final int FLEET_WINDOW_SLOTS = ServerConfig.getInt("fleet.windowSlots", 360);
+    
+    // Persistance (journal + snapshots, désactivée par défaut) : -Dmonitoring.storage.enabled=true -Dmonitoring.storage.dir=data
+    // -Dmonitoring.storage.segmentMb=64 -Dmonitoring.storage.snapshotIntervalSec=300 -Dmonitoring.storage.snapshotLogMb=256
+    // Synchronisation : "async" (force() toutes les syncIntervalMs, l'arrêt brutal du processus ne perd que les
+    // alertes encore dans la file d'ingestion) ou "group" (chaque alerte est sur disque avant son acquittement,
+    // force() groupés par lot de la file d'ingestion)
+    private static final boolean STORAGE_ENABLED = ServerConfig.getBoolean("storage.enabled", false);
+    private static final String STORAGE_DIR = ServerConfig.getString("storage.dir", "data");
+    private static final int STORAGE_SEGMENT_BYTES = ServerConfig.getInt("storage.segmentMb", 64) * 1024 * 1024;
+    private static final String STORAGE_SYNC = ServerConfig.getString("storage.sync", "async");
+    private static final long STORAGE_SYNC_INTERVAL_MS = ServerConfig.getLong("storage.syncIntervalMs", 1000);
+    private static final long STORAGE_SNAPSHOT_INTERVAL_MS = ServerConfig.getLong("storage.snapshotIntervalSec", 300) * 1000;
+    private static final long STORAGE_SNAPSHOT_LOG_BYTES = ServerConfig.getLong("storage.snapshotLogMb", 256) * 1024 * 1024;
+    
+    // Archive compressée au-delà de la mémoire (avec la persistance, désactivée par défaut) : -Dmonitoring.archive.enabled=true
+    // -Dmonitoring.archive.dir=data/archive -Dmonitoring.archive.sealIntervalSec=300 -Dmonitoring.archive.retentionDays=90
+    // L'intervalle de scellement doit rester inférieur à la durée retenue en mémoire (metrics.depth échantillons par agent)
+    private static final boolean ARCHIVE_ENABLED = ServerConfig.getBoolean("archive.enabled", false);
+    private static final String ARCHIVE_DIR = ServerConfig.getString("archive.dir", STORAGE_DIR + "/archive");
+    private static final long ARCHIVE_SEAL_INTERVAL_MS = ServerConfig.getLong("archive.sealIntervalSec", 300) * 1000;
+    private static final long ARCHIVE_RETENTION_MS = ServerConfig.getLong("archive.retentionDays", 90) * 24 * 3600 * 1000;
+    
+    // File d'ingestion entre les récepteurs et le stockage : -Dmonitoring.ingest.capacity=16384
+    // Politique quand elle est pleine : -Dmonitoring.ingest.policy=block|drop-low|nack
+    // Acquittement après enregistrement (par défaut en synchronisation "group") : -Dmonitoring.ingest.waitForStorage=true
+    // En mode tcp.mode=nio, les threads d'E/S ne doivent jamais attendre : politique nack et acquittement
+    // sans attendre le stockage, imposés même si la configuration demande autre chose
+    private static final int INGEST_CAPACITY = ServerConfig.getInt("ingest.capacity", IngestQueue.DEFAULT_CAPACITY);
+    private static final String INGEST_POLICY = ServerConfig.getString("ingest.policy",
+            NIO_RECEIVER ? IngestQueue.NACK : IngestQueue.BLOCK);
+    private static final boolean INGEST_WAIT_FOR_STORAGE = ServerConfig.getBoolean("ingest.waitForStorage",
+            !NIO_RECEIVER && STORAGE_ENABLED && "group".equalsIgnoreCase(STORAGE_SYNC));
+    
+    // Changements poussés aux clients : -Dmonitoring.push.batchIntervalMs=100 -Dmonitoring.push.deliveryThreads=4
+    // Abonné résilié si une livraison dépasse (délai des appels RMI sortants hors cluster) :
+    // -Dmonitoring.push.callbackTimeoutMs=10000
+    private static final long PUSH_BATCH_INTERVAL_MS = ServerConfig.getLong("push.batchIntervalMs", 100);
+    private static final int PUSH_DELIVERY_THREADS = ServerConfig.getInt("push.deliveryThreads", 4);
+    private static final int PUSH_CALLBACK_TIMEOUT_MS = ServerConfig.getInt("push.callbackTimeoutMs",
+            ChangeFeed.DEFAULT_DELIVERY_TIMEOUT_MS);
+    
+    // Registre des agents réparti (un thread écrivain par shard) : -Dmonitoring.registry.shards=<cœurs>
+    private static final int REGISTRY_SHARDS = ServerConfig.getInt("registry.shards",
+                                                                   Runtime.getRuntime().availableProcessors());
+    
+    // Détection des agents silencieux (désactivée par défaut) : -Dmonitoring.liveness.enabled=true
+    // -Dmonitoring.liveness.heartbeatIntervalMs=5000 -Dmonitoring.liveness.graceMs=10000 -Dmonitoring.liveness.tickMs=100
+    // Instabilité : plus de flapThreshold changements d'état en flapWindowSec secondes suspendent les alertes (0 = jamais)
+    // -Dmonitoring.liveness.flapWindowSec=300 -Dmonitoring.liveness.flapThreshold=4
+    private static final boolean LIVENESS_ENABLED = ServerConfig.getBoolean("liveness.enabled", false);
+    private static final long LIVENESS_HEARTBEAT_INTERVAL_MS = ServerConfig.getLong("liveness.heartbeatIntervalMs", 5000);
+    private static final long LIVENESS_GRACE_MS = ServerConfig.getLong("liveness.graceMs", 10000);
+    private static final long LIVENESS_TICK_MS = ServerConfig.getLong("liveness.tickMs", 100);
+    private static final long LIVENESS_FLAP_WINDOW_MS = ServerConfig.getLong("liveness.flapWindowSec", 300) * 1000;
+    private static final int LIVENESS_FLAP_THRESHOLD = ServerConfig.getInt("liveness.flapThreshold", 4);
+    
+    // Règles d'évaluation (rechargées à chaud, voir RuleSet pour le format) :
+    // -Dmonitoring.rules.file=rules.properties -Dmonitoring.rules.reloadIntervalMs=2000
+    // Évaluation de chaque échantillon de métriques (désactivée par défaut, les règles ne classent alors que les
+    // alertes reçues des agents) : -Dmonitoring.rules.evaluateMetrics=true
+    // Alertes levées en attente (au-delà, perdues et comptées) : -Dmonitoring.rules.alertQueueCapacity=8192
+    private static final String RULES_FILE = ServerConfig.getString("rules.file", "rules.properties");
+    private static final long RULES_RELOAD_INTERVAL_MS = ServerConfig.getLong("rules.reloadIntervalMs", 2000);
+    private static final boolean RULES_EVALUATE_METRICS = ServerConfig.getBoolean("rules.evaluateMetrics", false);
+    private static final int RULES_ALERT_QUEUE_CAPACITY = ServerConfig.getInt("rules.alertQueueCapacity",
+            RuleEngine.DEFAULT_ALERT_QUEUE_CAPACITY);
+    
+    // Détection d'anomalies par agent (moyenne et variance glissantes, avec l'évaluation des métriques),
+    // désactivée par défaut : -Dmonitoring.anomaly.enabled=true -Dmonitoring.anomaly.alpha=0.05 -Dmonitoring.anomaly.zScore=4
+    // -Dmonitoring.anomaly.highZScore=6 -Dmonitoring.anomaly.warmupSamples=30 -Dmonitoring.anomaly.minStdDev=1
+    private static final boolean ANOMALY_ENABLED = ServerConfig.getBoolean("anomaly.enabled", false);
+    private static final double ANOMALY_ALPHA = ServerConfig.getDouble("anomaly.alpha", 0.05);
+    private static final double ANOMALY_Z_SCORE = ServerConfig.getDouble("anomaly.zScore", 4);
+    private static final double ANOMALY_HIGH_Z_SCORE = ServerConfig.getDouble("anomaly.highZScore", 6);
+    private static final int ANOMALY_WARMUP_SAMPLES = ServerConfig.getInt("anomaly.warmupSamples", 30);
+    private static final double ANOMALY_MIN_STD_DEV = ServerConfig.getDouble("anomaly.minStdDev", 1);
+    
+    // Cache des lectures RMI (réponses servies tant que les données n'ont pas changé) :
+    // -Dmonitoring.cache.enabled=true -Dmonitoring.cache.historyEntries=1024 -Dmonitoring.cache.preSerialize=true
+    private static final boolean CACHE_ENABLED = ServerConfig.getBoolean("cache.enabled", true);
+    private static final int CACHE_HISTORY_ENTRIES = ServerConfig.getInt("cache.historyEntries", 1024);
+    private static final boolean CACHE_PRE_SERIALIZE = ServerConfig.getBoolean("cache.preSerialize", true);
+    
+    // Réception UDP des métriques, port ouvert seulement sur demande : -Dmonitoring.udp.enabled=true -Dmonitoring.udp.port=9876
+    // -Dmonitoring.udp.receiveBufferBytes=4194304 -Dmonitoring.udp.maxAgents=65536
+    private static final boolean UDP_ENABLED = ServerConfig.getBoolean("udp.enabled", false);
+    private static final int UDP_METRICS_PORT = ServerConfig.getInt("udp.port", MetricsProtocol.DEFAULT_PORT);
+    private static final int UDP_RECEIVE_BUFFER_BYTES = ServerConfig.getInt("udp.receiveBufferBytes", 4 * 1024 * 1024);
+    private static final int UDP_MAX_AGENTS = ServerConfig.getInt("udp.maxAgents", 65536);
+    
+    // Journalisation asynchrone, console seulement par défaut : -Dmonitoring.logging.file=logs/server.log
+    // -Dmonitoring.logging.maxFileMb=64 -Dmonitoring.logging.maxFiles=5 -Dmonitoring.logging.console=true
+    // Niveaux : -Dmonitoring.logging.level=INFO -Dmonitoring.logging.levels=RMI=DEBUG,TCP.connexions=WARN
+    // Échantillonnage des événements fréquents (1 sur N) : -Dmonitoring.logging.sampling=TCP.alertes=100,NIO.alertes=100
+    private static final String LOGGING_FILE = ServerConfig.getString("logging.file", "");
+    private static final long LOGGING_MAX_FILE_BYTES = ServerConfig.getLong("logging.maxFileMb", 64) * 1024 * 1024;
+    private static final int LOGGING_MAX_FILES = ServerConfig.getInt("logging.maxFiles", 5);
+    private static final boolean LOGGING_CONSOLE = ServerConfig.getBoolean("logging.console", true);
+    private static final String LOGGING_LEVEL = ServerConfig.getString("logging.level", "INFO");
+    private static final String LOGGING_LEVELS = ServerConfig.getString("logging.levels", "");
+    private static final String LOGGING_SAMPLING = ServerConfig.getString("logging.sampling", "");
+    
+    // Cluster (agents répartis par hachage cohérent, vue fédérée sous MonitoringService) :
+    // -Dmonitoring.cluster.enabled=true -Dmonitoring.cluster.host=10.0.0.1 -Dmonitoring.cluster.seeds=10.0.0.2:1099,10.0.0.3:1099
+    // -Dmonitoring.cluster.heartbeatMs=2000 -Dmonitoring.cluster.timeoutMs=5000
+    // Plusieurs nœuds sur une machine : ports rmi/tcp/udp, storage.dir, logging.file et instrumentation.httpPort distincts
+    private static final boolean CLUSTER_ENABLED = ServerConfig.getBoolean("cluster.enabled", false);
+    private static final String CLUSTER_HOST = ServerConfig.getString("cluster.host", "127.0.0.1");
+    private static final String CLUSTER_SEEDS = ServerConfig.getString("cluster.seeds", "");
+    private static final long CLUSTER_HEARTBEAT_MS = ServerConfig.getLong("cluster.heartbeatMs", 2000);
+    private static final int CLUSTER_TIMEOUT_MS = ServerConfig.getInt("cluster.timeoutMs", 5000);
+    
+    // Mesures internes : JMX (-Dmonitoring.instrumentation.jmx=true) et texte Prometheus sur HTTP, désactivé par
+    // défaut : -Dmonitoring.instrumentation.httpHost=127.0.0.1 -Dmonitoring.instrumentation.httpPort=9464 (0 = désactivé)
+    private static final boolean INSTRUMENTATION_JMX = ServerConfig.getBoolean("instrumentation.jmx", true);
+    private static final String INSTRUMENTATION_HTTP_HOST = ServerConfig.getString("instrumentation.httpHost", "127.0.0.1");
+    private static final int INSTRUMENTATION_HTTP_PORT = ServerConfig.getInt("instrumentation.httpPort", 0);
+    
+    private static final Log LOG = Log.get("Server");
+    
     // Composants du serveur
     private static DataManager dataManager;
-    private static TCPAlertReceiver tcpAlertReceiver;
+    private static PersistenceManager persistence;
+    private static Archive archive;
+    private static IngestQueue ingestQueue;
+    private static AlertPipeline alertPipeline;
+    private static RuleEngine ruleEngine;
+    private static AnomalyDetector anomalyDetector;
+    private static ReadCache readCache;
+    private static AlertReceiver tcpAlertReceiver;
     private static MonitoringServiceImpl rmiService;
+    private static ClusterManager clusterManager;
+    private static AlertRouter alertRouter;
+    private static FederatedMonitoringService federatedService;
+    private static LivenessTracker livenessTracker;
     private static Thread tcpThread;
+    private static UDPMetricsReceiver udpMetricsReceiver;
+    private static Thread udpThread;
+    private static InstrumentationExporter instrumentationExporter;
     
     public static void main(String[] args) {
+        Log.configure(LOGGING_FILE, LOGGING_MAX_FILE_BYTES, LOGGING_MAX_FILES, LOGGING_CONSOLE);
+        Log.setLevels(LOGGING_LEVEL, LOGGING_LEVELS);
+        Log.setSampling(LOGGING_SAMPLING);
         System.out.println("=== DÉMARRAGE DU SERVEUR DE MONITORING ===");
         
         try {
             // 1. Initialiser le gestionnaire de données
-            System.out.println("[1/4] Initialisation du DataManager...");
-            dataManager = new DataManager();
+            System.out.println("[1/5] Initialisation du DataManager...");
+            dataManager = new DataManager(ALERT_CAPACITY, ALERT_MAX_AGE_MS, METRICS_DEPTH,
+                    METRICS_MINUTE_BUCKETS, METRICS_HOUR_BUCKETS, AGENT_IDS_CAPACITY);
+            dataManager.setFleetWindows(new FleetWindows(FLEET_WINDOW_SLOT_MS, FLEET_WINDOW_SLOTS));
+            dataManager.getMetricsStore().setMaxFutureSkew(METRICS_MAX_FUTURE_SKEW_MS);
+            if (STORAGE_ENABLED) {
+                // Restaurer l'état persisté avant de recevoir quoi que ce soit
+                persistence = new PersistenceManager(STORAGE_DIR, STORAGE_SEGMENT_BYTES,
+                        "group".equalsIgnoreCase(STORAGE_SYNC), STORAGE_SYNC_INTERVAL_MS,
+                        STORAGE_SNAPSHOT_INTERVAL_MS, STORAGE_SNAPSHOT_LOG_BYTES);
+                persistence.open(dataManager);
+                if (ARCHIVE_ENABLED) {
+                    archive = new Archive(ARCHIVE_DIR, ARCHIVE_SEAL_INTERVAL_MS, ARCHIVE_RETENTION_MS);
+                    archive.open(dataManager);
+                }
+            }
+            // Toutes les alertes passent par l'étage de regroupement et de limitation,
+            // puis par la file d'ingestion dont un seul thread alimente le stockage
+            String ingestPolicy = INGEST_POLICY;
+            boolean ingestWaitForStorage = INGEST_WAIT_FOR_STORAGE;
+            if (NIO_RECEIVER) {
+                if (!IngestQueue.NACK.equalsIgnoreCase(ingestPolicy)) {
+                    LOG.warn("Politique de file d'ingestion {} bloquante en mode nio : nack utilisée", ingestPolicy);
+                    ingestPolicy = IngestQueue.NACK;
+                }
+                if (ingestWaitForStorage) {
+                    LOG.warn("ingest.waitForStorage ignoré en mode nio : acquittement dès la mise en file");
+                    ingestWaitForStorage = false;
+                }
+            }
+            ingestQueue = new IngestQueue(dataManager, INGEST_CAPACITY, ingestPolicy, ingestWaitForStorage);
+            ingestQueue.start();
+            alertPipeline = new AlertPipeline(ingestQueue, ALERT_COALESCE_WINDOW_MS, ALERT_AGENT_RATE,
+                    ALERT_AGENT_BURST, ALERT_GLOBAL_RATE, ALERT_GLOBAL_BURST);
+            alertPipeline.start();
+            ruleEngine = new RuleEngine(RULES_FILE, RULES_RELOAD_INTERVAL_MS,
+                    RULES_EVALUATE_METRICS ? alertPipeline::submit : null, RULES_ALERT_QUEUE_CAPACITY);
+            if (ANOMALY_ENABLED && ruleEngine.isEvaluatingMetrics()) {
+                anomalyDetector = new AnomalyDetector(ANOMALY_ALPHA, ANOMALY_Z_SCORE, ANOMALY_HIGH_Z_SCORE,
+                        ANOMALY_WARMUP_SAMPLES, ANOMALY_MIN_STD_DEV);
+                ruleEngine.setAnomalyDetector(anomalyDetector);
+                ruleEngine.setAgentIds(dataManager.getAgentIds());
+            }
+            ruleEngine.start();
+            if (CLUSTER_ENABLED) {
+                // Les alertes des agents d'autres nœuds leur sont transférées
+                ClusterManager.configureRmi(CLUSTER_HOST, CLUSTER_TIMEOUT_MS);
+                clusterManager = new ClusterManager(
+                        new ClusterMember(CLUSTER_HOST, RMI_PORT, TCP_ALERT_PORT, UDP_METRICS_PORT),
+                        parseList(CLUSTER_SEEDS), CLUSTER_HEARTBEAT_MS, alertPipeline);
+                alertRouter = new AlertRouter(clusterManager, alertPipeline);
+            } else {
+                // Un abonné bloqué ne doit pas retenir indéfiniment un thread de livraison
+                RmiTimeouts.configure(PUSH_CALLBACK_TIMEOUT_MS);
+            }
             
             // 2. Démarrer le récepteur TCP pour les alertes
-            System.out.println("[2/4] Démarrage du TCP Alert Receiver...");
-            tcpAlertReceiver = new TCPAlertReceiver(TCP_ALERT_PORT, dataManager);
+            System.out.println("[2/5] Démarrage du TCP Alert Receiver...");
+            tcpAlertReceiver = createAlertReceiver();
             tcpThread = new Thread(tcpAlertReceiver);
             tcpThread.start();
             
             // 3. Démarrer le service RMI
-            System.out.println("[3/4] Démarrage du service RMI...");
+            System.out.println("[3/5] Démarrage du service RMI...");
             startRMIService();
+            if (LIVENESS_ENABLED) {
+                livenessTracker = new LivenessTracker(LIVENESS_HEARTBEAT_INTERVAL_MS, LIVENESS_GRACE_MS,
+                        LIVENESS_TICK_MS, LIVENESS_FLAP_WINDOW_MS, LIVENESS_FLAP_THRESHOLD,
+                        rmiService::onLivenessChange, livenessAlertSink());
+                rmiService.setLivenessTracker(livenessTracker);
+                livenessTracker.start();
+            }
+            if (ruleEngine.isEvaluatingMetrics()) {
+                rmiService.setRuleEngine(ruleEngine);
+            }
+            if (CACHE_ENABLED) {
+                readCache = new ReadCache(CACHE_HISTORY_ENTRIES, CACHE_PRE_SERIALIZE);
+                rmiService.setReadCache(readCache);
+            }
+            
+            // 4. Démarrer le récepteur UDP des métriques (alimente le registre des agents)
+            if (UDP_ENABLED) {
+                System.out.println("[4/5] Démarrage du UDP Metrics Receiver...");
+                udpMetricsReceiver = new UDPMetricsReceiver(UDP_METRICS_PORT, dataManager.getMetricsStore(),
+                        rmiService::onUdpMetrics, UDP_RECEIVE_BUFFER_BYTES, UDP_MAX_AGENTS, ruleEngine,
+                        clusterManager);
+                udpMetricsReceiver.setAgentIds(dataManager.getAgentIds());
+                udpThread = new Thread(udpMetricsReceiver, "udp-metrics-receiver");
+                udpThread.start();
+            } else {
+                System.out.println("[4/5] UDP Metrics Receiver désactivé");
+            }
+            
+            startInstrumentation();
             
-            // 4. Le serveur est prêt
-            System.out.println("[4/4] Serveur démarré avec succès !");
+            // 5. Le serveur est prêt
+            System.out.println("[5/5] Serveur démarré avec succès !");
             System.out.println("\n=== SERVEUR EN ÉCOUTE ===");
             System.out.println("• RMI sur le port: " + RMI_PORT);
-            System.out.println("• TCP Alert sur le port: " + TCP_ALERT_PORT);
+            System.out.println("• TCP Alert sur le port: " + TCP_ALERT_PORT + " (mode " + TCP_MODE
+                    + (NIO_RECEIVER ? "" : ", threads " + THREAD_MODE) + ")");
+            if (UDP_ENABLED) {
+                System.out.println("• UDP Metrics sur le port: " + UDP_METRICS_PORT);
+            }
             System.out.println("• Service RMI disponible sous le nom: " + RMI_SERVICE_NAME);
+            if (clusterManager != null) {
+                System.out.println("• Cluster: nœud " + clusterManager.getSelf().getId() + ", " +
+                                   clusterManager.getStatsSummary() + " (service du nœud seul: " +
+                                   ClusterManager.NODE_SERVICE_BINDING + ")");
+            }
+            if (persistence != null) {
+                System.out.println("• Données persistées dans: " + STORAGE_DIR + " (synchronisation " + STORAGE_SYNC + ")");
+            }
+            if (archive != null) {
+                System.out.println("• Archive dans: " + ARCHIVE_DIR + " (scellement toutes les "
+                                   + ARCHIVE_SEAL_INTERVAL_MS / 1000 + " s)");
+            }
+            if (!LOGGING_FILE.isEmpty()) {
+                System.out.println("• Journal: " + LOGGING_FILE);
+            }
+            if (INSTRUMENTATION_HTTP_PORT > 0) {
+                System.out.println("• Mesures internes: http://" + INSTRUMENTATION_HTTP_HOST + ":" +
+                                   INSTRUMENTATION_HTTP_PORT + "/metrics");
+            }
             System.out.println("\nAppuyez sur Ctrl+C pour arrêter le serveur...\n");
             
             // Garder le serveur actif
             keepServerRunning();
             
         } catch (Exception e) {
-            System.err.println("Erreur lors du démarrage du serveur: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Erreur lors du démarrage du serveur: {}", e.getMessage(), e);
             shutdown();
         }
     }
     
+    /**
+     * Crée le récepteur d'alertes TCP selon le mode configuré
+     */
+    private static AlertReceiver createAlertReceiver() {
+        AlertSink agentAlerts = alertRouter != null ? alertRouter : alertPipeline;
+        if (NIO_RECEIVER) {
+            NioAlertReceiver receiver = new NioAlertReceiver(TCP_ALERT_PORT, agentAlerts, TCP_IO_THREADS,
+                    TCP_SESSION_IDLE_TIMEOUT_MS, ruleEngine, ingestQueue);
+            receiver.setAgentIds(dataManager.getAgentIds());
+            return receiver;
+        }
+        TCPAlertReceiver receiver = new TCPAlertReceiver(TCP_ALERT_PORT, agentAlerts, TCP_SESSION_IDLE_TIMEOUT_MS,
+                ruleEngine, TaskThreads.factory("tcp-client", THREAD_MODE),
+                new ConcurrencyLimiter("tcp_connections", TCP_MAX_CONNECTIONS),
+                new ConcurrencyLimiter("tcp_ingest", TCP_MAX_INGEST), ingestQueue);
+        receiver.setAgentIds(dataManager.getAgentIds());
+        return receiver;
+    }
+    
+    /**
+     * Alertes de changement d'état des agents silencieux : en cluster, un agent
+     * devenu silencieux parce qu'il appartient désormais à un autre nœud n'en produit pas
+     */
+    private static Consumer<Alert> livenessAlertSink() {
+        if (clusterManager == null) {
+            return alertPipeline::submit;
+        }
+        return alert -> {
+            if (clusterManager.ownsAgent(alert.getAgentId())) {
+                alertPipeline.submit(alert);
+            }
+        };
+    }
+    
+    private static List<String> parseList(String value) {
+        List<String> items = new ArrayList<>();
+        for (String item : value.split(",")) {
+            if (!item.trim().isEmpty()) {
+                items.add(item.trim());
+            }
+        }
+        return items;
+    }
+    
     /**
      * Démarre le service RMI
      */
     private static void startRMIService() throws Exception {
         // Créer le service RMI
-        rmiService = new MonitoringServiceImpl(dataManager);
+        rmiService = new MonitoringServiceImpl(dataManager, PUSH_BATCH_INTERVAL_MS, PUSH_DELIVERY_THREADS,
+                                              PUSH_CALLBACK_TIMEOUT_MS, REGISTRY_SHARDS);
         
         // Créer ou récupérer le registre RMI
         Registry registry;
@@ -77,8 +459,83 @@ public class ServerMain {
         }
         
         // Enregistrer le service dans le registre
-        registry.rebind(RMI_SERVICE_NAME, rmiService);
-        System.out.println("  Service RMI enregistré sous le nom: " + RMI_SERVICE_NAME);
+        if (clusterManager == null) {
+            registry.rebind(RMI_SERVICE_NAME, rmiService);
+            System.out.println("  Service RMI enregistré sous le nom: " + RMI_SERVICE_NAME);
+            return;
+        }
+        
+        // En cluster : service du nœud, interface entre nœuds, puis vue fédérée pour les clients
+        registry.rebind(ClusterManager.NODE_SERVICE_BINDING, rmiService);
+        registry.rebind(ClusterNode.BINDING, clusterManager);
+        federatedService = new FederatedMonitoringService(clusterManager, rmiService, CLUSTER_TIMEOUT_MS,
+                                                          TaskThreads.factory("cluster-fanout", THREAD_MODE));
+        registry.rebind(RMI_SERVICE_NAME, federatedService);
+        clusterManager.start();
+        System.out.println("  Service RMI fédéré enregistré sous le nom: " + RMI_SERVICE_NAME);
+    }
+    
+    /**
+     * Publie les compteurs tenus par les composants et démarre l'export JMX / HTTP
+     */
+    private static void startInstrumentation() {
+        Instrumentation.monotonic("alert_pipeline_received_total", "Alertes reçues par l'étage d'ingestion",
+                alertPipeline::getReceivedCount);
+        Instrumentation.monotonic("alert_pipeline_forwarded_total", "Alertes transmises au DataManager",
+                alertPipeline::getForwardedCount);
+        Instrumentation.monotonic("alert_pipeline_coalesced_total", "Alertes regroupées",
+                alertPipeline::getCoalescedCount);
+        Instrumentation.monotonic("alert_pipeline_suppressed_total", "Alertes écartées par limitation",
+                alertPipeline::getSuppressedCount);
+        Instrumentation.gauge("alert_pipeline_windows", "Fenêtres de regroupement ouvertes",
+                alertPipeline::getOpenWindowCount);
+        Instrumentation.gauge("ingest_queue_depth", "Alertes en attente dans la file d'ingestion",
+                ingestQueue::getDepth);
+        Instrumentation.gauge("ingest_queue_capacity", "Capacité de la file d'ingestion",
+                ingestQueue::getCapacity);
+        Instrumentation.monotonic("ingest_queue_dropped_total", "Alertes LOW perdues, file d'ingestion pleine",
+                ingestQueue::getDroppedCount);
+        Instrumentation.monotonic("ingest_queue_nacked_total", "Alertes refusées aux agents, file d'ingestion pleine",
+                ingestQueue::getNackedCount);
+        Instrumentation.monotonic("ingest_queue_blocked_total", "Attentes d'une place dans la file d'ingestion",
+                ingestQueue::getBlockedCount);
+        Instrumentation.monotonic("ingest_queue_batches_total", "Lots transmis au stockage",
+                ingestQueue::getBatchCount);
+        Instrumentation.gauge("log_queue_depth", "Messages en attente d'écriture dans le journal",
+                Log::getQueueDepth);
+        Instrumentation.monotonic("log_dropped_total", "Messages de journal perdus (file pleine)",
+                Log::getDroppedCount);
+        if (persistence != null) {
+            Instrumentation.gauge("storage_unsynced_bytes", "Octets du journal pas encore sur disque",
+                    () -> persistence.getWrittenLsn() - persistence.getDurableLsn());
+        }
+        if (clusterManager != null && udpMetricsReceiver != null) {
+            Instrumentation.monotonic("udp_relayed_total", "Datagrammes relayés au nœud propriétaire de l'agent",
+                    udpMetricsReceiver::getRelayedCount);
+        }
+        if (udpMetricsReceiver != null) {
+            Instrumentation.monotonic("udp_datagrams_total", "Datagrammes de métriques reçus",
+                    udpMetricsReceiver::getDatagramCount);
+            Instrumentation.monotonic("udp_samples_total", "Échantillons de métriques reçus par UDP",
+                    udpMetricsReceiver::getSampleCount);
+            Instrumentation.monotonic("udp_malformed_total", "Datagrammes invalides",
+                    udpMetricsReceiver::getMalformedCount);
+            Instrumentation.monotonic("udp_lost_total", "Datagrammes perdus (trous de séquence)",
+                    udpMetricsReceiver::getLostCount);
+        }
+        
+        instrumentationExporter = new InstrumentationExporter();
+        if (INSTRUMENTATION_JMX) {
+            instrumentationExporter.registerMBean();
+        }
+        if (INSTRUMENTATION_HTTP_PORT > 0) {
+            try {
+                instrumentationExporter.startHttpServer(INSTRUMENTATION_HTTP_HOST, INSTRUMENTATION_HTTP_PORT);
+            } catch (IOException e) {
+                LOG.error("Impossible de démarrer le serveur HTTP des mesures sur le port {}: {}",
+                          INSTRUMENTATION_HTTP_PORT, e.getMessage());
+            }
+        }
     }
     
     /**
@@ -96,6 +553,29 @@ public class ServerMain {
                 System.out.println("• TCP Alert Receiver: " + 
                     (tcpAlertReceiver.isRunning() ? "ACTIF" : "INACTIF"));
                 System.out.println("• Alertes reçues: " + dataManager.getAlertCount());
+                System.out.println("• Ingestion des alertes: " + alertPipeline.getStatsSummary());
+                System.out.println("• File d'ingestion: " + ingestQueue.getStatsSummary());
+                if (clusterManager != null) {
+                    System.out.println("• Cluster: " + clusterManager.getStatsSummary() + ", " +
+                                       alertRouter.getStatsSummary());
+                }
+                if (udpMetricsReceiver != null) {
+                    System.out.println("• Métriques UDP: " + udpMetricsReceiver.getStatsSummary());
+                }
+                if (livenessTracker != null) {
+                    System.out.println("• Agents: " + livenessTracker.getStatsSummary());
+                }
+                System.out.println("• Règles: " + ruleEngine.getStatsSummary());
+                if (anomalyDetector != null) {
+                    System.out.println("• Anomalies: " + anomalyDetector.getStatsSummary());
+                }
+                if (archive != null) {
+                    System.out.println("• Archive: " + archive.getStatsSummary());
+                }
+                if (readCache != null) {
+                    System.out.println("• Cache RMI: " + readCache.getStatsSummary());
+                }
+                System.out.println("• Journal: " + Log.getStatsSummary());
                 System.out.println("• En attente de connexions...");
             }
             
@@ -116,6 +596,60 @@ public class ServerMain {
             tcpAlertReceiver.stop();
         }
         
+        // Arrêter l'export des mesures
+        if (instrumentationExporter != null) {
+            instrumentationExporter.stop();
+        }
+        
+        // Arrêter le récepteur UDP
+        if (udpMetricsReceiver != null) {
+            udpMetricsReceiver.stop();
+        }
+        
+        // Arrêter la détection des agents silencieux
+        if (livenessTracker != null) {
+            livenessTracker.stop();
+        }
+        
+        // Arrêter la surveillance des règles
+        if (ruleEngine != null) {
+            ruleEngine.stop();
+        }
+        
+        // Annoncer le départ du nœud puis transférer les alertes en attente
+        if (clusterManager != null) {
+            clusterManager.stop();
+        }
+        if (alertRouter != null) {
+            alertRouter.stop();
+        }
+        if (federatedService != null) {
+            federatedService.shutdown();
+        }
+        
+        // Arrêter la diffusion des changements
+        if (rmiService != null) {
+            rmiService.shutdown();
+        }
+        
+        // Émettre les résumés d'alertes en attente
+        if (alertPipeline != null) {
+            alertPipeline.stop();
+        }
+        
+        // Enregistrer les alertes encore dans la file d'ingestion
+        if (ingestQueue != null) {
+            ingestQueue.stop();
+        }
+        
+        // Dernier scellement de l'archive, puis snapshot final et fermeture du journal
+        if (archive != null) {
+            archive.close();
+        }
+        if (persistence != null) {
+            persistence.close();
+        }
+        
         // Arrêter le thread TCP
         if (tcpThread != null && tcpThread.isAlive()) {
             try {
@@ -130,12 +664,19 @@ public class ServerMain {
         try {
             Registry registry = LocateRegistry.getRegistry(RMI_PORT);
             registry.unbind(RMI_SERVICE_NAME);
+            if (clusterManager != null) {
+                registry.unbind(ClusterManager.NODE_SERVICE_BINDING);
+                registry.unbind(ClusterNode.BINDING);
+            }
             System.out.println("  Service RMI désenregistré");
         } catch (Exception e) {
             System.err.println("  Erreur lors du désenregistrement RMI: " + e.getMessage());
         }
         
         System.out.println("=== SERVEUR ARRÊTÉ ===");
+        
+        // Écrire les derniers messages du journal
+        Log.shutdown();
     }
     
     /**
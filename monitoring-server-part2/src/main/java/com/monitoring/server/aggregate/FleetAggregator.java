@@ -0,0 +1,187 @@
+package com.monitoring.server.aggregate;
+
+import com.monitoring.server.model.Agent;
+import com.monitoring.server.model.FleetSummary;
+import com.monitoring.server.model.MetricsBucket;
+import com.monitoring.server.model.SystemMetrics;
+import com.monitoring.server.registry.AgentRegistry;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Agrégats sur l'ensemble des agents du registre, calculés côté serveur pour
+ * ne renvoyer au client qu'un petit résultat (quelques agents, un résumé).
+ *
+ * Chaque requête est découpée en une tâche par shard du registre, exécutée
+ * dans un pool fork-join dédié : chaque tâche parcourt l'état publié de son
+ * shard (sans verrou) et produit un résultat partiel (tas borné des N
+ * premiers, résumé de distribution), fusionné ensuite deux à deux.
+ */
+public final class FleetAggregator {
+
+    /** Agents retournés au plus par getTopAgents */
+    public static final int MAX_TOP_AGENTS = 1000;
+
+    private final AgentRegistry registry;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param registry Registre des agents
+     * @param parallelism Nombre de threads du pool (au plus un par shard utile)
+     */
+    public FleetAggregator(AgentRegistry registry, int parallelism) {
+        this.registry = registry;
+        this.pool = new ForkJoinPool(Math.max(1, Math.min(parallelism, registry.getShardCount())),
+                pool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName("fleet-aggregate-" + thread.getPoolIndex());
+                    thread.setDaemon(true);
+                    return thread;
+                }, null, false);
+    }
+
+    /**
+     * Agents dont la dernière valeur de la métrique est la plus élevée, par ordre décroissant
+     * @param metricType "CPU", "MEMORY" ou "DISK" (liste vide si inconnue)
+     * @param limit Nombre d'agents (plafonné à MAX_TOP_AGENTS)
+     */
+    public List<Agent> topAgents(String metricType, int limit) {
+        int metric = MetricsBucket.metricIndex(metricType);
+        int n = Math.min(limit, MAX_TOP_AGENTS);
+        if (metric < 0 || n <= 0) {
+            return new ArrayList<>();
+        }
+        PriorityQueue<Agent> top = pool.invoke(new TopTask(metric, n, 0, registry.getShardCount()));
+        List<Agent> result = new ArrayList<>(top);
+        result.sort(byValue(metric).reversed());
+        return result;
+    }
+
+    /**
+     * Nombre d'agents par état et distribution des dernières valeurs de chaque métrique
+     */
+    public FleetSummary summary() {
+        return pool.invoke(new SummaryTask(System.currentTimeMillis(), 0, registry.getShardCount()));
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Dernière valeur d'une métrique d'un agent (NaN sans échantillon)
+     */
+    public static double value(Agent agent, int metric) {
+        SystemMetrics metrics = agent.getLastMetrics();
+        if (metrics == null) {
+            return Double.NaN;
+        }
+        switch (metric) {
+            case MetricsBucket.CPU:
+                return metrics.getCpuUsage();
+            case MetricsBucket.MEMORY:
+                return metrics.getMemoryUsage();
+            default:
+                return metrics.getDiskUsage();
+        }
+    }
+
+    /**
+     * Ordre croissant de la dernière valeur d'une métrique (agents sans échantillon en premier)
+     */
+    public static Comparator<Agent> byValue(int metric) {
+        return Comparator.comparingDouble((Agent agent) -> {
+            double value = value(agent, metric);
+            return Double.isNaN(value) ? Double.NEGATIVE_INFINITY : value;
+        }).thenComparing(Agent::getAgentId, Comparator.reverseOrder());
+    }
+
+    /**
+     * N premiers agents des shards [from, to[ : tas minimal borné à N
+     */
+    private final class TopTask extends RecursiveTask<PriorityQueue<Agent>> {
+        private static final long serialVersionUID = 1L;
+
+        private final int metric;
+        private final int limit;
+        private final int from;
+        private final int to;
+
+        TopTask(int metric, int limit, int from, int to) {
+            this.metric = metric;
+            this.limit = limit;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected PriorityQueue<Agent> compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                TopTask right = new TopTask(metric, limit, middle, to);
+                right.fork();
+                PriorityQueue<Agent> top = new TopTask(metric, limit, from, middle).compute();
+                for (Agent agent : right.join()) {
+                    offer(top, agent);
+                }
+                return top;
+            }
+            Comparator<Agent> order = byValue(metric);
+            PriorityQueue<Agent> top = new PriorityQueue<>(limit + 1, order);
+            for (Agent agent : registry.getShardAgents(from)) {
+                if (!Double.isNaN(value(agent, metric))) {
+                    offer(top, agent);
+                }
+            }
+            return top;
+        }
+
+        private void offer(PriorityQueue<Agent> top, Agent agent) {
+            if (top.size() < limit) {
+                top.add(agent);
+            } else if (top.comparator().compare(agent, top.peek()) > 0) {
+                top.poll();
+                top.add(agent);
+            }
+        }
+    }
+
+    /**
+     * Résumé des shards [from, to[
+     */
+    private final class SummaryTask extends RecursiveTask<FleetSummary> {
+        private static final long serialVersionUID = 1L;
+
+        private final long timestampMillis;
+        private final int from;
+        private final int to;
+
+        SummaryTask(long timestampMillis, int from, int to) {
+            this.timestampMillis = timestampMillis;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected FleetSummary compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                SummaryTask right = new SummaryTask(timestampMillis, middle, to);
+                right.fork();
+                FleetSummary summary = new SummaryTask(timestampMillis, from, middle).compute();
+                summary.merge(right.join());
+                return summary;
+            }
+            FleetSummary summary = new FleetSummary(timestampMillis);
+            for (Agent agent : registry.getShardAgents(from)) {
+                summary.addAgent(agent);
+            }
+            return summary;
+        }
+    }
+}
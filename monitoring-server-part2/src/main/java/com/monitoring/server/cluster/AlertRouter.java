@@ -0,0 +1,158 @@
+package com.monitoring.server.cluster;
+
+import com.monitoring.server.instrumentation.Counter;
+import com.monitoring.server.instrumentation.Instrumentation;
+import com.monitoring.server.logging.Log;
+import com.monitoring.server.model.Alert;
+import com.monitoring.server.model.AlertList;
+import com.monitoring.server.pipeline.AlertSink;
+import java.rmi.RemoteException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aiguillage des alertes reçues des agents vers le nœud propriétaire de l'agent.
+ *
+ * Les alertes des agents de ce nœud vont directement à l'étage local ; les autres
+ * sont déposées dans la file du nœud propriétaire, qu'un thread par nœud vide
+ * par lots (un appel RMI par lot). Une alerte qui ne peut pas être transférée
+ * (file pleine, nœud injoignable) est enregistrée localement : elle n'est pas
+ * perdue et reste visible dans la vue fédérée.
+ */
+public class AlertRouter implements AlertSink {
+
+    private static final Log LOG = Log.get("Cluster");
+
+    /** Alertes en attente au plus par nœud destinataire */
+    private static final int QUEUE_CAPACITY = 8192;
+
+    /** Alertes transférées au plus par appel */
+    private static final int BATCH_SIZE = 512;
+
+    private static final Counter FORWARDED = Instrumentation.counter("cluster_alerts_forwarded_total",
+            "Alertes transférées au nœud propriétaire de l'agent");
+    private static final Counter FALLBACKS = Instrumentation.counter("cluster_alerts_kept_locally_total",
+            "Alertes d'agents d'autres nœuds enregistrées localement faute de transfert");
+
+    private final ClusterManager cluster;
+    private final AlertSink local;
+    private final Map<String, Forwarder> forwarders = new ConcurrentHashMap<>();
+    private volatile boolean running = true;
+
+    /**
+     * @param cluster Composition du cluster et anneau de répartition
+     * @param local Étage local (regroupement puis stockage)
+     */
+    public AlertRouter(ClusterManager cluster, AlertSink local) {
+        this.cluster = cluster;
+        this.local = local;
+        Instrumentation.gauge("cluster_forward_pending", "Alertes en attente de transfert vers d'autres nœuds",
+                              this::getPendingCount);
+    }
+
+    @Override
+    public Result submit(Alert alert) {
+        ClusterMember owner = cluster.ownerOf(alert.getAgentId());
+        if (cluster.isSelf(owner)) {
+            return local.submit(alert);
+        }
+        Forwarder forwarder = forwarders.computeIfAbsent(owner.getId(), id -> new Forwarder(owner));
+        if (running && forwarder.queue.offer(alert)) {
+            return Result.STORED;
+        }
+        FALLBACKS.increment();
+        return local.submit(alert);
+    }
+
+    /**
+     * Transfère les alertes en attente puis arrête les threads de transfert
+     */
+    public void stop() {
+        running = false;
+        for (Forwarder forwarder : forwarders.values()) {
+            forwarder.thread.interrupt();
+        }
+        for (Forwarder forwarder : forwarders.values()) {
+            try {
+                forwarder.thread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public long getPendingCount() {
+        long pending = 0;
+        for (Forwarder forwarder : forwarders.values()) {
+            pending += forwarder.queue.size();
+        }
+        return pending;
+    }
+
+    /**
+     * Résumé lisible (pour le statut périodique du serveur)
+     */
+    public String getStatsSummary() {
+        return FORWARDED.get() + " alerte(s) transférée(s), " + FALLBACKS.get() + " gardée(s) localement, " +
+               getPendingCount() + " en attente";
+    }
+
+    /**
+     * File et thread de transfert vers un nœud
+     */
+    private final class Forwarder implements Runnable {
+        final ClusterMember member;
+        final BlockingQueue<Alert> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        final Thread thread;
+
+        Forwarder(ClusterMember member) {
+            this.member = member;
+            this.thread = new Thread(this, "cluster-forward-" + member.getId());
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        @Override
+        public void run() {
+            AlertList batch = new AlertList(BATCH_SIZE);
+            while (true) {
+                try {
+                    Alert first = running ? queue.poll(1, TimeUnit.SECONDS) : queue.poll();
+                    if (first == null) {
+                        if (!running) {
+                            break;
+                        }
+                        continue;
+                    }
+                    batch.add(first);
+                } catch (InterruptedException e) {
+                    // Arrêt demandé : vider la file avant de sortir
+                    if (running) {
+                        continue;
+                    }
+                }
+                queue.drainTo(batch, BATCH_SIZE - batch.size());
+                if (!batch.isEmpty()) {
+                    send(batch);
+                    batch.clear();
+                }
+            }
+        }
+
+        private void send(AlertList batch) {
+            try {
+                cluster.node(member).forwardAlerts(batch);
+                FORWARDED.add(batch.size());
+            } catch (RemoteException e) {
+                cluster.forget(member.getId());
+                LOG.warn("Transfert de {} alerte(s) vers {} impossible, enregistrées localement: {}",
+                         batch.size(), member.getId(), e.getMessage());
+                FALLBACKS.add(batch.size());
+                local.submitAll(batch);
+            }
+        }
+    }
+}
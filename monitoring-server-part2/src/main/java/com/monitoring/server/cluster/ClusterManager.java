@@ -0,0 +1,378 @@
+package com.monitoring.server.cluster;
+
+import com.monitoring.server.instrumentation.Counter;
+import com.monitoring.server.instrumentation.Instrumentation;
+import com.monitoring.server.logging.Log;
+import com.monitoring.server.model.AlertList;
+import com.monitoring.server.pipeline.AlertSink;
+import com.monitoring.server.receiver.UDPMetricsReceiver;
+import com.monitoring.server.rmi.MonitoringService;
+import com.monitoring.server.rmi.RmiTimeouts;
+import java.net.InetSocketAddress;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Composition du cluster et répartition des agents entre les nœuds.
+ *
+ * Chaque nœud connaît tous les autres : il rejoint le cluster en s'annonçant à
+ * un ou plusieurs nœuds d'amorçage, puis interroge chaque nœud connu à chaque
+ * battement. Un nœud découvert dans la liste d'un autre n'est ajouté qu'après
+ * s'être annoncé à lui directement (il est donc joignable) ; un nœud qui ne
+ * répond pas à MAX_MISSED_HEARTBEATS battements consécutifs est retiré. Un nœud
+ * arrêté proprement annonce son départ.
+ *
+ * Chaque changement de composition reconstruit l'anneau de hachage cohérent
+ * (voir {@link HashRing}) qui désigne le propriétaire de chaque agent : le
+ * propriétaire enregistre les alertes et les métriques de l'agent.
+ */
+public class ClusterManager extends UnicastRemoteObject implements ClusterNode, UDPMetricsReceiver.Router {
+    private static final long serialVersionUID = 1L;
+
+    private static final Log LOG = Log.get("Cluster");
+
+    /** Nom du service de monitoring propre à chaque nœud (sans fédération) */
+    public static final String NODE_SERVICE_BINDING = "MonitoringNode";
+
+    /** Battements manqués avant de retirer un nœud */
+    static final int MAX_MISSED_HEARTBEATS = 3;
+
+    private static final Counter FORWARDED_IN = Instrumentation.counter("cluster_alerts_received_total",
+            "Alertes reçues d'autres nœuds pour des agents de ce nœud");
+    private static final Counter MEMBERSHIP_CHANGES = Instrumentation.counter("cluster_membership_changes_total",
+            "Changements de composition du cluster");
+
+    private final transient ClusterMember self;
+    private final transient List<String> seeds;
+    private final transient long heartbeatMillis;
+    private final transient AlertSink localSink;
+
+    private final transient Map<String, ClusterMember> members = new ConcurrentHashMap<>();
+    private final transient Map<String, Integer> missed = new ConcurrentHashMap<>();
+    private final transient Map<String, ClusterNode> nodes = new ConcurrentHashMap<>();
+    private final transient Map<String, MonitoringService> services = new ConcurrentHashMap<>();
+    private transient volatile HashRing ring;
+
+    private final transient Thread heartbeat;
+    private transient volatile boolean running;
+
+    /**
+     * @param self Ce nœud
+     * @param seeds Nœuds d'amorçage "hôte:port RMI" (ce nœud peut y figurer)
+     * @param heartbeatMillis Intervalle entre deux interrogations des autres nœuds
+     * @param localSink Destination des alertes transférées par les autres nœuds
+     */
+    public ClusterManager(ClusterMember self, List<String> seeds, long heartbeatMillis, AlertSink localSink)
+            throws RemoteException {
+        this.self = self;
+        this.seeds = new ArrayList<>(seeds);
+        this.heartbeatMillis = heartbeatMillis;
+        this.localSink = localSink;
+        this.members.put(self.getId(), self);
+        this.ring = new HashRing(1, members.values());
+        this.heartbeat = new Thread(this::heartbeatLoop, "cluster-heartbeat");
+        this.heartbeat.setDaemon(true);
+
+        Instrumentation.gauge("cluster_members", "Nœuds connus du cluster (celui-ci compris)", members::size);
+        Instrumentation.gauge("cluster_ring_version", "Version de l'anneau de répartition des agents",
+                              () -> ring.getVersion());
+    }
+
+    /**
+     * Adresse annoncée dans les stubs exportés par cette JVM, et délais des appels
+     * RMI sortants (voir {@link RmiTimeouts}) : sans eux, un nœud injoignable
+     * bloquerait l'appelant plusieurs minutes. À appeler avant le premier export
+     * RMI ; les propriétés java.rmi / sun.rmi déjà définies sont conservées.
+     */
+    public static void configureRmi(String host, int timeoutMillis) {
+        if (System.getProperty("java.rmi.server.hostname") == null) {
+            System.setProperty("java.rmi.server.hostname", host);
+        }
+        RmiTimeouts.configure(timeoutMillis);
+    }
+
+    /**
+     * Rejoint le cluster via les nœuds d'amorçage joignables, puis démarre les battements
+     * (les nœuds d'amorçage absents sont réessayés à chaque battement)
+     */
+    public void start() {
+        running = true;
+        joinSeeds();
+        heartbeat.start();
+        LOG.info("Nœud {} démarré ({} nœud(s) connu(s))", self.getId(), members.size());
+    }
+
+    /**
+     * Annonce le départ de ce nœud aux autres puis arrête les battements
+     */
+    public void stop() {
+        running = false;
+        heartbeat.interrupt();
+        for (ClusterMember member : peers()) {
+            try {
+                node(member).leave(self.getId());
+            } catch (RemoteException e) {
+                LOG.debug("Départ non annoncé à {}: {}", member.getId(), e.getMessage());
+            }
+        }
+        try {
+            UnicastRemoteObject.unexportObject(this, true);
+        } catch (RemoteException e) {
+            LOG.debug("Désexportation du nœud: {}", e.getMessage());
+        }
+    }
+
+    // ---------------------------------------------------------------- ClusterNode
+
+    @Override
+    public List<ClusterMember> join(ClusterMember member) throws RemoteException {
+        if (!running) {
+            throw new RemoteException("Nœud " + self.getId() + " en cours d'arrêt");
+        }
+        if (!member.getId().equals(self.getId())) {
+            ClusterMember previous = members.put(member.getId(), member);
+            missed.remove(member.getId());
+            if (!member.equals(previous)) {
+                forget(member.getId());
+                LOG.info("Nœud {} ajouté au cluster", member);
+                rebuildRing();
+            }
+        }
+        return getMembers();
+    }
+
+    @Override
+    public void leave(String memberId) throws RemoteException {
+        if (members.remove(memberId) != null) {
+            LOG.info("Nœud {} parti du cluster", memberId);
+            missed.remove(memberId);
+            forget(memberId);
+            rebuildRing();
+        }
+    }
+
+    @Override
+    public List<ClusterMember> getMembers() throws RemoteException {
+        return new ArrayList<>(members.values());
+    }
+
+    @Override
+    public void forwardAlerts(AlertList alerts) throws RemoteException {
+        FORWARDED_IN.add(alerts.size());
+        localSink.submitAll(alerts);
+    }
+
+    // ---------------------------------------------------------------- Répartition
+
+    public ClusterMember getSelf() {
+        return self;
+    }
+
+    public HashRing getRing() {
+        return ring;
+    }
+
+    /**
+     * Nœud propriétaire d'un agent selon l'anneau courant
+     */
+    public ClusterMember ownerOf(String agentId) {
+        return ring.ownerOf(agentId);
+    }
+
+    /**
+     * true si ce nœud est le propriétaire de l'agent
+     */
+    public boolean ownsAgent(String agentId) {
+        return isSelf(ring.ownerOf(agentId));
+    }
+
+    public boolean isSelf(ClusterMember member) {
+        return member == null || member.getId().equals(self.getId());
+    }
+
+    /**
+     * Autres nœuds connus
+     */
+    public List<ClusterMember> peers() {
+        List<ClusterMember> peers = new ArrayList<>(members.size());
+        for (ClusterMember member : members.values()) {
+            if (!isSelf(member)) {
+                peers.add(member);
+            }
+        }
+        return peers;
+    }
+
+    @Override
+    public long getVersion() {
+        return ring.getVersion();
+    }
+
+    @Override
+    public InetSocketAddress ownerAddress(String agentId) {
+        ClusterMember owner = ring.ownerOf(agentId);
+        return isSelf(owner) ? null : new InetSocketAddress(owner.getHost(), owner.getUdpPort());
+    }
+
+    // ---------------------------------------------------------------- Stubs RMI
+
+    /**
+     * Interface de cluster d'un autre nœud (stub mis en cache)
+     */
+    public ClusterNode node(ClusterMember member) throws RemoteException {
+        ClusterNode node = nodes.get(member.getId());
+        if (node == null) {
+            node = (ClusterNode) lookup(member.getHost(), member.getRmiPort(), BINDING);
+            nodes.put(member.getId(), node);
+        }
+        return node;
+    }
+
+    /**
+     * Service de monitoring propre à un autre nœud (stub mis en cache)
+     */
+    public MonitoringService service(ClusterMember member) throws RemoteException {
+        MonitoringService service = services.get(member.getId());
+        if (service == null) {
+            service = (MonitoringService) lookup(member.getHost(), member.getRmiPort(), NODE_SERVICE_BINDING);
+            services.put(member.getId(), service);
+        }
+        return service;
+    }
+
+    /**
+     * Oublie les stubs d'un nœud après un échec (le nœud a pu redémarrer)
+     */
+    public void forget(String memberId) {
+        nodes.remove(memberId);
+        services.remove(memberId);
+    }
+
+    private static Object lookup(String host, int port, String name) throws RemoteException {
+        try {
+            return LocateRegistry.getRegistry(host, port).lookup(name);
+        } catch (NotBoundException e) {
+            throw new RemoteException(name + " absent du registre " + host + ":" + port, e);
+        }
+    }
+
+    // ---------------------------------------------------------------- Battements
+
+    private void heartbeatLoop() {
+        while (running) {
+            try {
+                Thread.sleep(heartbeatMillis);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    break;
+                }
+            }
+            for (ClusterMember member : peers()) {
+                probe(member);
+            }
+            joinSeeds();
+        }
+    }
+
+    /**
+     * Interroge un nœud : apprend les nœuds qu'il connaît, ou le retire
+     * après MAX_MISSED_HEARTBEATS échecs consécutifs
+     */
+    private void probe(ClusterMember member) {
+        try {
+            List<ClusterMember> known = node(member).getMembers();
+            missed.remove(member.getId());
+            boolean knowsSelf = false;
+            for (ClusterMember other : known) {
+                if (isSelf(other)) {
+                    knowsSelf = true;
+                } else if (!members.containsKey(other.getId())) {
+                    announceTo(other);
+                }
+            }
+            if (!knowsSelf) {
+                // L'autre nœud nous a retirés (coupure passagère) : se réannoncer
+                announceTo(member);
+            }
+        } catch (RemoteException e) {
+            forget(member.getId());
+            int count = missed.merge(member.getId(), 1, Integer::sum);
+            if (count >= MAX_MISSED_HEARTBEATS && members.remove(member.getId(), member)) {
+                missed.remove(member.getId());
+                LOG.warn("Nœud {} injoignable ({} battements manqués), retiré du cluster: {}",
+                         member.getId(), count, e.getMessage());
+                rebuildRing();
+            }
+        }
+    }
+
+    /**
+     * S'annonce à un nœud et l'ajoute si l'annonce réussit
+     */
+    private void announceTo(ClusterMember member) {
+        try {
+            node(member).join(self);
+            join(member);
+        } catch (RemoteException e) {
+            forget(member.getId());
+            LOG.debug("Nœud {} injoignable: {}", member.getId(), e.getMessage());
+        }
+    }
+
+    private void joinSeeds() {
+        for (String seed : seeds) {
+            if (isKnownAddress(seed)) {
+                continue;
+            }
+            int separator = seed.lastIndexOf(':');
+            try {
+                String host = seed.substring(0, separator);
+                int port = Integer.parseInt(seed.substring(separator + 1));
+                ClusterNode node = (ClusterNode) lookup(host, port, BINDING);
+                for (ClusterMember member : node.join(self)) {
+                    if (isSelf(member)) {
+                        continue;
+                    }
+                    if (member.getHost().equals(host) && member.getRmiPort() == port) {
+                        join(member);
+                    } else if (!members.containsKey(member.getId())) {
+                        announceTo(member);
+                    }
+                }
+            } catch (RemoteException e) {
+                LOG.debug("Nœud d'amorçage {} injoignable: {}", seed, e.getMessage());
+            } catch (RuntimeException e) {
+                LOG.warn("Nœud d'amorçage invalide (hôte:port attendu): {}", seed);
+            }
+        }
+    }
+
+    private boolean isKnownAddress(String address) {
+        for (ClusterMember member : members.values()) {
+            if (member.getId().equals(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized void rebuildRing() {
+        ring = new HashRing(ring.getVersion() + 1, members.values());
+        MEMBERSHIP_CHANGES.increment();
+        LOG.info("Anneau version {} : {} nœud(s)", ring.getVersion(), ring.getMembers().size());
+    }
+
+    /**
+     * Résumé lisible (pour le statut périodique du serveur)
+     */
+    public String getStatsSummary() {
+        return members.size() + " nœud(s), anneau v" + ring.getVersion() + ", " +
+               FORWARDED_IN.get() + " alerte(s) reçue(s) d'autres nœuds";
+    }
+}
@@ -0,0 +1,53 @@
+package com.monitoring.server.cluster;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Nœud du cluster : adresse de son registre RMI et ports de réception des agents.
+ * L'identifiant "hôte:port RMI" est unique et sert de clé sur l'anneau.
+ */
+public final class ClusterMember implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String host;
+    private final int rmiPort;
+    private final int tcpPort;
+    private final int udpPort;
+
+    public ClusterMember(String host, int rmiPort, int tcpPort, int udpPort) {
+        this.host = host;
+        this.rmiPort = rmiPort;
+        this.tcpPort = tcpPort;
+        this.udpPort = udpPort;
+    }
+
+    public String getId() {
+        return host + ":" + rmiPort;
+    }
+
+    public String getHost() { return host; }
+    public int getRmiPort() { return rmiPort; }
+    public int getTcpPort() { return tcpPort; }
+    public int getUdpPort() { return udpPort; }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof ClusterMember)) {
+            return false;
+        }
+        ClusterMember member = (ClusterMember) other;
+        return rmiPort == member.rmiPort && tcpPort == member.tcpPort && udpPort == member.udpPort
+                && host.equals(member.host);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(host, rmiPort, tcpPort, udpPort);
+    }
+
+    @Override
+    public String toString() {
+        return getId() + " (tcp " + tcpPort + ", udp " + udpPort + ")";
+    }
+}
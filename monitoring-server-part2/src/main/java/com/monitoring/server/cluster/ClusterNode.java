@@ -0,0 +1,45 @@
+package com.monitoring.server.cluster;
+
+import com.monitoring.server.model.AlertList;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.List;
+
+/**
+ * Interface RMI entre les nœuds d'un cluster (composition et transfert des alertes)
+ */
+public interface ClusterNode extends Remote {
+
+    /** Nom de l'objet dans le registre RMI de chaque nœud */
+    String BINDING = "MonitoringCluster";
+
+    /**
+     * Annonce un nœud (nouveau ou déjà connu)
+     * @param member Nœud qui rejoint le cluster
+     * @return Nœuds connus de l'appelé, lui compris
+     * @throws RemoteException
+     */
+    List<ClusterMember> join(ClusterMember member) throws RemoteException;
+
+    /**
+     * Annonce le départ volontaire d'un nœud
+     * @param memberId Identifiant du nœud (ClusterMember.getId())
+     * @throws RemoteException
+     */
+    void leave(String memberId) throws RemoteException;
+
+    /**
+     * Nœuds connus (sert aussi de test de présence)
+     * @return Nœuds connus de l'appelé, lui compris
+     * @throws RemoteException
+     */
+    List<ClusterMember> getMembers() throws RemoteException;
+
+    /**
+     * Alertes reçues par un autre nœud pour des agents dont l'appelé est propriétaire ;
+     * elles sont enregistrées par l'appelé sans être retransmises
+     * @param alerts Lot d'alertes
+     * @throws RemoteException
+     */
+    void forwardAlerts(AlertList alerts) throws RemoteException;
+}
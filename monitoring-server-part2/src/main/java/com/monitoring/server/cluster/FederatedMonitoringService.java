@@ -0,0 +1,444 @@
+package com.monitoring.server.cluster;
+
+import com.monitoring.server.aggregate.FleetAggregator;
+import com.monitoring.server.instrumentation.Counter;
+import com.monitoring.server.instrumentation.Instrumentation;
+import com.monitoring.server.logging.Log;
+import com.monitoring.server.model.Agent;
+import com.monitoring.server.model.Alert;
+import com.monitoring.server.model.AlertList;
+import com.monitoring.server.model.AlertPage;
+import com.monitoring.server.model.AlertQuery;
+import com.monitoring.server.model.ChangeSet;
+import com.monitoring.server.model.FleetSummary;
+import com.monitoring.server.model.FleetWindow;
+import com.monitoring.server.model.MetricsBucket;
+import com.monitoring.server.model.SystemMetrics;
+import com.monitoring.server.rmi.MonitoringCallback;
+import com.monitoring.server.rmi.MonitoringService;
+import com.monitoring.server.storage.DataManager;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Vue fédérée du cluster, exposée aux clients sous le nom habituel du service.
+ *
+ * Les lectures globales (agents, alertes, compteurs) sont envoyées en parallèle
+ * à tous les nœuds puis fusionnées ; un nœud qui ne répond pas dans le délai est
+ * ignoré (résultat partiel, signalé dans le journal). Les lectures d'un agent
+ * sont envoyées à son nœud propriétaire, puis aux autres nœuds si le
+ * propriétaire n'a rien : après un changement de composition, l'historique d'un
+ * agent reste sur son ancien nœud.
+ *
+ * Pagination : le curseur d'une page fédérée est un identifiant de curseur
+ * composite conservé par ce nœud (une séquence par nœud), à repasser tel quel
+ * en afterSequence. Ces identifiants ont le bit de poids fort à 1 (valeurs
+ * négatives) et ne peuvent donc pas être confondus avec une séquence d'alerte ;
+ * une séquence brute (propre à un nœud, ou getLastSequence() qui les additionne)
+ * est refusée, seul 0 désigne le début. Les curseurs les moins récemment
+ * utilisés sont oubliés au-delà de MAX_CURSORS ; un curseur oublié est refusé.
+ *
+ * Le flux de changements (getChangeVersion, awaitChanges, subscribe) reste celui
+ * de ce nœud : un client qui veut suivre tout le cluster s'abonne à chaque nœud
+ * (service MonitoringNode).
+ */
+public class FederatedMonitoringService extends UnicastRemoteObject implements MonitoringService {
+    private static final long serialVersionUID = 1L;
+
+    private static final Log LOG = Log.get("Cluster");
+
+    /** Curseurs composites conservés au plus */
+    private static final int MAX_CURSORS = 4096;
+
+    /** Marque des identifiants de curseur composite, distincts des séquences d'alertes (positives) */
+    private static final long CURSOR_FLAG = Long.MIN_VALUE;
+
+    private static final Counter PARTIAL_RESULTS = Instrumentation.counter("cluster_partial_results_total",
+            "Réponses fédérées construites sans un ou plusieurs nœuds");
+
+    /**
+     * Appel d'un service de nœud
+     */
+    private interface NodeCall<T> {
+        T call(String memberId, MonitoringService service) throws RemoteException;
+    }
+
+    private final transient ClusterManager cluster;
+    private final transient MonitoringService local;
+    private final transient long timeoutMillis;
+    private final transient ExecutorService fanOut;
+
+    // Curseurs composites : identifiant -> dernière séquence lue par nœud (ordre d'accès, LRU)
+    private final transient Map<Long, Map<String, Long>> cursors =
+            new LinkedHashMap<Long, Map<String, Long>>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Map<String, Long>> eldest) {
+                    return size() > MAX_CURSORS;
+                }
+            };
+    private transient long nextCursorId = 1;
+
+    /**
+     * @param cluster Composition du cluster
+     * @param local Service de ce nœud (appelé directement, sans RMI)
+     * @param timeoutMillis Délai de réponse accordé à chaque nœud
+     * @param threads Fabrique des threads d'appel aux nœuds
+     */
+    public FederatedMonitoringService(ClusterManager cluster, MonitoringService local, long timeoutMillis,
+                                      ThreadFactory threads) throws RemoteException {
+        this.cluster = cluster;
+        this.local = local;
+        this.timeoutMillis = timeoutMillis;
+        this.fanOut = Executors.newCachedThreadPool(threads);
+    }
+
+    public void shutdown() {
+        fanOut.shutdownNow();
+        try {
+            UnicastRemoteObject.unexportObject(this, true);
+        } catch (RemoteException e) {
+            LOG.debug("Désexportation de la vue fédérée: {}", e.getMessage());
+        }
+    }
+
+    // ---------------------------------------------------------------- Lectures globales
+
+    @Override
+    public List<Agent> getAllAgents() throws RemoteException {
+        // Un agent déplacé peut figurer sur deux nœuds : garder l'état le plus récent
+        Map<String, Agent> merged = new HashMap<>();
+        for (List<Agent> agents : fanOut((id, service) -> service.getAllAgents()).values()) {
+            for (Agent agent : agents) {
+                merged.merge(agent.getAgentId(), agent, FederatedMonitoringService::newest);
+            }
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    @Override
+    public List<Alert> getAllAlerts() throws RemoteException {
+        List<Alert> all = new ArrayList<>();
+        for (List<Alert> alerts : fanOut((id, service) -> service.getAllAlerts()).values()) {
+            all.addAll(alerts);
+        }
+        all.sort(BY_TIMESTAMP);
+        return all;
+    }
+
+    @Override
+    public AlertPage queryAlerts(AlertQuery query) throws RemoteException {
+        Map<String, Long> positions = cursorPositions(query.getAfterSequence());
+        int limit = query.getLimit() <= 0 ? AlertQuery.DEFAULT_LIMIT
+                                          : Math.min(query.getLimit(), DataManager.MAX_PAGE_SIZE);
+
+        Map<String, AlertPage> pages = fanOut((id, service) -> {
+            // Chaque nœud reçoit la requête avec sa propre position
+            AlertQuery nodeQuery = copy(query);
+            nodeQuery.setAfterSequence(positions.getOrDefault(id, 0L));
+            return service.queryAlerts(nodeQuery);
+        });
+
+        // Fusion par horodatage qui conserve l'ordre de chaque nœud : les alertes retenues
+        // d'un nœud forment un début de sa page, son curseur avance jusqu'à la dernière
+        List<String> ids = new ArrayList<>(pages.keySet());
+        List<List<Alert>> lists = new ArrayList<>(ids.size());
+        int[] heads = new int[ids.size()];
+        boolean hasMore = false;
+        long lastSequence = 0;
+        for (String id : ids) {
+            AlertPage page = pages.get(id);
+            lists.add(page.getAlerts());
+            hasMore |= page.hasMore();
+            // Somme des dernières séquences des nœuds : croît à chaque nouvelle alerte du cluster
+            lastSequence += page.getLastSequence();
+        }
+        Map<String, Long> next = new HashMap<>(positions);
+        AlertList alerts = new AlertList(limit);
+        while (alerts.size() < limit) {
+            int best = -1;
+            for (int i = 0; i < lists.size(); i++) {
+                if (heads[i] < lists.get(i).size() && (best < 0 || BY_TIMESTAMP.compare(
+                        lists.get(i).get(heads[i]), lists.get(best).get(heads[best])) < 0)) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            Alert alert = lists.get(best).get(heads[best]++);
+            alerts.add(alert);
+            next.put(ids.get(best), alert.getSequence());
+        }
+        for (int i = 0; i < lists.size(); i++) {
+            hasMore |= heads[i] < lists.get(i).size();
+        }
+        return new AlertPage(alerts, saveCursor(next), hasMore, lastSequence);
+    }
+
+    @Override
+    public AlertPage getAlertsSince(long sequence, int maxResults) throws RemoteException {
+        return queryAlerts(AlertQuery.since(sequence, maxResults));
+    }
+
+    @Override
+    public List<Agent> getTopAgents(String metricType, int limit) throws RemoteException {
+        // Les N premiers du cluster sont parmi les N premiers de chaque nœud
+        Map<String, Agent> merged = new HashMap<>();
+        for (List<Agent> agents : fanOut((id, service) -> service.getTopAgents(metricType, limit)).values()) {
+            for (Agent agent : agents) {
+                merged.merge(agent.getAgentId(), agent, FederatedMonitoringService::newest);
+            }
+        }
+        int metric = MetricsBucket.metricIndex(metricType);
+        if (metric < 0) {
+            return new ArrayList<>();
+        }
+        List<Agent> top = new ArrayList<>(merged.values());
+        top.sort(FleetAggregator.byValue(metric).reversed());
+        int n = Math.max(0, Math.min(Math.min(limit, FleetAggregator.MAX_TOP_AGENTS), top.size()));
+        return new ArrayList<>(top.subList(0, n));
+    }
+
+    @Override
+    public FleetSummary getFleetSummary() throws RemoteException {
+        // Chaque agent est compté par son nœud propriétaire ; résumés fusionnés sans perte
+        FleetSummary merged = new FleetSummary(0);
+        for (FleetSummary summary : fanOut((id, service) -> service.getFleetSummary()).values()) {
+            merged.merge(summary);
+        }
+        return merged;
+    }
+
+    @Override
+    public FleetWindow getFleetWindow(long windowMillis) throws RemoteException {
+        FleetWindow merged = null;
+        for (FleetWindow window : fanOut((id, service) -> service.getFleetWindow(windowMillis)).values()) {
+            if (merged == null) {
+                merged = window;
+            } else {
+                merged.merge(window);
+            }
+        }
+        return merged != null ? merged : local.getFleetWindow(windowMillis);
+    }
+
+    @Override
+    public int getAgentCount() throws RemoteException {
+        int count = 0;
+        for (int nodeCount : fanOut((id, service) -> service.getAgentCount()).values()) {
+            count += nodeCount;
+        }
+        return count;
+    }
+
+    @Override
+    public int getAlertCount() throws RemoteException {
+        int count = 0;
+        for (int nodeCount : fanOut((id, service) -> service.getAlertCount()).values()) {
+            count += nodeCount;
+        }
+        return count;
+    }
+
+    @Override
+    public String ping() throws RemoteException {
+        return "Cluster de monitoring actif - " + cluster.getRing().getMembers().size() + " nœud(s) - " +
+               "ce nœud : " + local.ping();
+    }
+
+    // ---------------------------------------------------------------- Lectures d'un agent
+
+    @Override
+    public List<SystemMetrics> getMetricsHistory(String agentId) throws RemoteException {
+        return fromOwner(agentId, (id, service) -> service.getMetricsHistory(agentId));
+    }
+
+    @Override
+    public List<SystemMetrics> getMetricsHistory(String agentId, long fromMillis, long toMillis)
+            throws RemoteException {
+        return fromOwner(agentId, (id, service) -> service.getMetricsHistory(agentId, fromMillis, toMillis));
+    }
+
+    @Override
+    public List<MetricsBucket> getMetricsRollup(String agentId, long fromMillis, long toMillis,
+                                                long resolutionMillis) throws RemoteException {
+        return fromOwner(agentId, (id, service) -> service.getMetricsRollup(agentId, fromMillis, toMillis,
+                                                                      resolutionMillis));
+    }
+
+    @Override
+    public List<SystemMetrics> getArchivedMetrics(String agentId, long fromMillis, long toMillis)
+            throws RemoteException {
+        return fromOwner(agentId, (id, service) -> service.getArchivedMetrics(agentId, fromMillis, toMillis));
+    }
+
+    @Override
+    public List<Alert> getArchivedAlerts(String agentId, long fromMillis, long toMillis) throws RemoteException {
+        if (agentId != null) {
+            return fromOwner(agentId, (id, service) -> service.getArchivedAlerts(agentId, fromMillis, toMillis));
+        }
+        List<Alert> all = new ArrayList<>();
+        for (List<Alert> alerts : fanOut((id, service) -> service.getArchivedAlerts(null, fromMillis,
+                                                                                    toMillis)).values()) {
+            all.addAll(alerts);
+        }
+        all.sort(BY_TIMESTAMP);
+        // Les plus récentes, comme sur un nœud seul
+        return all.size() > DataManager.MAX_PAGE_SIZE
+                ? new ArrayList<>(all.subList(all.size() - DataManager.MAX_PAGE_SIZE, all.size())) : all;
+    }
+
+    @Override
+    public Agent getAgent(String agentId) throws RemoteException {
+        return fromOwner(agentId, (id, service) -> service.getAgent(agentId));
+    }
+
+    // ---------------------------------------------------------------- Flux de changements (ce nœud)
+
+    @Override
+    public long getChangeVersion() throws RemoteException {
+        return local.getChangeVersion();
+    }
+
+    @Override
+    public ChangeSet awaitChanges(long sinceVersion, long timeoutMillis) throws RemoteException {
+        return local.awaitChanges(sinceVersion, timeoutMillis);
+    }
+
+    @Override
+    public long subscribe(MonitoringCallback callback, long sinceVersion) throws RemoteException {
+        return local.subscribe(callback, sinceVersion);
+    }
+
+    @Override
+    public boolean unsubscribe(long subscriptionId) throws RemoteException {
+        return local.unsubscribe(subscriptionId);
+    }
+
+    // ---------------------------------------------------------------- Appels aux nœuds
+
+    /**
+     * Appelle tous les nœuds en parallèle (ce nœud directement)
+     * @return Réponse de chaque nœud ayant répondu, par identifiant de nœud
+     */
+    private <T> Map<String, T> fanOut(NodeCall<T> call) throws RemoteException {
+        List<ClusterMember> peers = cluster.peers();
+        Map<String, Future<T>> futures = new LinkedHashMap<>();
+        for (ClusterMember member : peers) {
+            futures.put(member.getId(), fanOut.submit(() -> call.call(member.getId(), cluster.service(member))));
+        }
+        Map<String, T> results = new LinkedHashMap<>();
+        results.put(cluster.getSelf().getId(), call.call(cluster.getSelf().getId(), local));
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (Map.Entry<String, Future<T>> entry : futures.entrySet()) {
+            try {
+                results.put(entry.getKey(),
+                            entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (ExecutionException | TimeoutException e) {
+                entry.getValue().cancel(true);
+                cluster.forget(entry.getKey());
+                PARTIAL_RESULTS.increment();
+                Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                LOG.warn("Nœud {} sans réponse, résultat partiel: {}", entry.getKey(), String.valueOf(cause));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RemoteException("Appel fédéré interrompu", e);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Interroge le propriétaire de l'agent, puis les autres nœuds tant que la
+     * réponse est vide (null ou liste vide)
+     */
+    private <T> T fromOwner(String agentId, NodeCall<T> call) throws RemoteException {
+        ClusterMember owner = cluster.ownerOf(agentId);
+        List<ClusterMember> order = new ArrayList<>();
+        order.add(owner);
+        for (ClusterMember member : cluster.getRing().getMembers()) {
+            if (!member.getId().equals(owner.getId())) {
+                order.add(member);
+            }
+        }
+        T result = null;
+        for (ClusterMember member : order) {
+            try {
+                result = call.call(member.getId(), cluster.isSelf(member) ? local : cluster.service(member));
+            } catch (RemoteException e) {
+                cluster.forget(member.getId());
+                LOG.warn("Nœud {} sans réponse pour l'agent {}: {}", member.getId(), agentId, e.getMessage());
+                continue;
+            }
+            if (result != null && !(result instanceof List && ((List<?>) result).isEmpty())) {
+                return result;
+            }
+        }
+        return result;
+    }
+
+    // ---------------------------------------------------------------- Curseurs composites
+
+    private Map<String, Long> cursorPositions(long cursorId) throws RemoteException {
+        if (cursorId == 0) {
+            return Collections.emptyMap();
+        }
+        if ((cursorId & CURSOR_FLAG) == 0) {
+            throw new RemoteException("Séquence " + cursorId + " refusée par la vue fédérée : passer 0 ou le " +
+                                      "curseur d'une page précédente (getNextCursor)");
+        }
+        synchronized (cursors) {
+            Map<String, Long> positions = cursors.get(cursorId);
+            if (positions == null) {
+                throw new RemoteException("Curseur fédéré inconnu ou expiré: " + cursorId);
+            }
+            return positions;
+        }
+    }
+
+    private long saveCursor(Map<String, Long> positions) {
+        synchronized (cursors) {
+            long id = CURSOR_FLAG | nextCursorId++;
+            cursors.put(id, Collections.unmodifiableMap(positions));
+            return id;
+        }
+    }
+
+    private static AlertQuery copy(AlertQuery query) {
+        AlertQuery copy = new AlertQuery();
+        copy.setAgentId(query.getAgentId());
+        copy.setSeverity(query.getSeverity());
+        copy.setFromMillis(query.getFromMillis());
+        copy.setToMillis(query.getToMillis());
+        copy.setLimit(query.getLimit());
+        return copy;
+    }
+
+    private static Agent newest(Agent a, Agent b) {
+        LocalDateTime first = a.getLastUpdate();
+        LocalDateTime second = b.getLastUpdate();
+        if (first == null) {
+            return b;
+        }
+        return second != null && second.isAfter(first) ? b : a;
+    }
+
+    private static final Comparator<Alert> BY_TIMESTAMP =
+            Comparator.comparing(Alert::getTimestamp, Comparator.nullsFirst(Comparator.naturalOrder()));
+}
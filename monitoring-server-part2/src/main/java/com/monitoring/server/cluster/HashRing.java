@@ -0,0 +1,97 @@
+package com.monitoring.server.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Anneau de hachage cohérent (immuable) répartissant les agents entre les nœuds.
+ *
+ * Chaque nœud occupe VIRTUAL_NODES positions pseudo-aléatoires de l'anneau ; un
+ * agent appartient au nœud de la première position qui suit le hachage de son
+ * identifiant. L'arrivée ou le départ d'un nœud ne déplace que les agents des
+ * intervalles qu'il gagne ou perd (environ 1/N des agents), les autres gardent
+ * leur nœud.
+ */
+public final class HashRing {
+
+    /** Positions par nœud : écart de charge entre nœuds de quelques pourcents */
+    static final int VIRTUAL_NODES = 160;
+
+    private final long version;
+    private final List<ClusterMember> members;
+    private final long[] positions;
+    private final ClusterMember[] owners;
+
+    /**
+     * @param version Numéro de l'anneau (croît à chaque changement de composition)
+     * @param members Nœuds du cluster (au moins un)
+     */
+    public HashRing(long version, Collection<ClusterMember> members) {
+        List<ClusterMember> sorted = new ArrayList<>(members);
+        sorted.sort(Comparator.comparing(ClusterMember::getId));
+        this.version = version;
+        this.members = Collections.unmodifiableList(sorted);
+
+        int count = sorted.size() * VIRTUAL_NODES;
+        long[] keys = new long[count];
+        Integer[] order = new Integer[count];
+        for (int m = 0, k = 0; m < sorted.size(); m++) {
+            for (int v = 0; v < VIRTUAL_NODES; v++, k++) {
+                keys[k] = hash(sorted.get(m).getId() + "#" + v);
+                order[k] = k;
+            }
+        }
+        // Tri des positions (les égalités, improbables, sont départagées par l'ordre des nœuds)
+        Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+        this.positions = new long[count];
+        this.owners = new ClusterMember[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = keys[order[i]];
+            owners[i] = sorted.get(order[i] / VIRTUAL_NODES);
+        }
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<ClusterMember> getMembers() {
+        return members;
+    }
+
+    /**
+     * Nœud propriétaire d'un agent (null si l'anneau est vide)
+     */
+    public ClusterMember ownerOf(String agentId) {
+        if (positions.length == 0) {
+            return null;
+        }
+        int index = Arrays.binarySearch(positions, hash(agentId));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == positions.length ? 0 : index];
+    }
+
+    /**
+     * FNV-1a 64 bits sur l'UTF-8, suivi du mélange final de MurmurHash3
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,62 @@
+package com.monitoring.server.concurrent;
+
+import com.monitoring.server.instrumentation.Counter;
+import com.monitoring.server.instrumentation.Instrumentation;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Borne le nombre de tâches simultanées sur une ressource.
+ *
+ * Avec des threads virtuels, le nombre de threads ne limite plus rien : c'est
+ * ce limiteur qui protège la ressource (connexions ouvertes, écritures en
+ * attente du stockage). Un appelant au-delà de la limite attend une place ;
+ * une limite nulle ou négative ne limite rien.
+ */
+public final class ConcurrencyLimiter {
+
+    private final int limit;
+    private final Semaphore permits;
+    private final Counter waits;
+
+    /**
+     * @param name Nom des mesures exportées (name_limit, name_waits_total...)
+     * @param limit Nombre maximal de tâches simultanées (0 = illimité)
+     */
+    public ConcurrencyLimiter(String name, int limit) {
+        this.limit = Math.max(0, limit);
+        this.permits = this.limit > 0 ? new Semaphore(this.limit) : null;
+        this.waits = Instrumentation.counter(name + "_waits_total", "Attentes d'une place libre (" + name + ")");
+        Instrumentation.gauge(name + "_limit", "Tâches simultanées autorisées (0 = illimité)", () -> this.limit);
+        Instrumentation.gauge(name + "_in_use", "Tâches simultanées en cours", this::getInUse);
+    }
+
+    /**
+     * Réserve une place, en attendant qu'une se libère si besoin
+     */
+    public void acquire() throws InterruptedException {
+        if (permits != null && !permits.tryAcquire()) {
+            waits.increment();
+            permits.acquire();
+        }
+    }
+
+    /**
+     * Libère une place réservée par acquire()
+     */
+    public void release() {
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Places occupées (toujours 0 sans limite)
+     */
+    public int getInUse() {
+        return permits == null ? 0 : limit - permits.availablePermits();
+    }
+}
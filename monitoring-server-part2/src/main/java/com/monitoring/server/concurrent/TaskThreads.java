@@ -0,0 +1,82 @@
+package com.monitoring.server.concurrent;
+
+import com.monitoring.server.logging.Log;
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fabriques des threads qui exécutent du travail bloquant (une connexion, une écriture
+ * attendant le disque...) : threads classiques, ou threads virtuels à partir de Java 21.
+ *
+ * Le serveur reste compilé pour Java 11 : l'API des threads virtuels est appelée
+ * par réflexion, une seule fois, à la création de la fabrique. Un thread virtuel
+ * bloqué sur une socket ou un verrou java.util.concurrent libère son thread porteur ;
+ * des dizaines de milliers de connexions ne coûtent alors que leur pile sur le tas.
+ */
+public final class TaskThreads {
+
+    private static final Log LOG = Log.get("Threads");
+
+    /** Mode des threads classiques (comportement historique) */
+    public static final String PLATFORM = "platform";
+    /** Mode des threads virtuels (Java 21+) */
+    public static final String VIRTUAL = "virtual";
+
+    private TaskThreads() {
+    }
+
+    /**
+     * Vrai si la JVM courante sait créer des threads virtuels
+     */
+    public static boolean virtualThreadsSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Mode effectif : "virtual" n'est retenu que si la JVM le permet
+     * @param requested Mode configuré ("platform" ou "virtual")
+     */
+    public static String resolveMode(String requested) {
+        if (VIRTUAL.equalsIgnoreCase(requested)) {
+            if (virtualThreadsSupported()) {
+                return VIRTUAL;
+            }
+            LOG.warn("Threads virtuels indisponibles sur Java {} : threads classiques utilisés",
+                     System.getProperty("java.specification.version"));
+        }
+        return PLATFORM;
+    }
+
+    /**
+     * Fabrique de threads nommés name-0, name-1...
+     * @param mode "virtual" (threads virtuels, toujours démons) ou "platform" (threads classiques non démons)
+     */
+    public static ThreadFactory factory(String name, String mode) {
+        if (VIRTUAL.equals(resolveMode(mode))) {
+            try {
+                return virtualFactory(name);
+            } catch (ReflectiveOperationException e) {
+                LOG.error("Création des threads virtuels impossible: {}", e.getMessage(), e);
+            }
+        }
+        AtomicLong counter = new AtomicLong();
+        return runnable -> new Thread(runnable, name + "-" + counter.getAndIncrement());
+    }
+
+    /**
+     * Équivaut à Thread.ofVirtual().name(name + "-", 0).factory()
+     */
+    private static ThreadFactory virtualFactory(String name) throws ReflectiveOperationException {
+        Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+        Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+        Method naming = builderType.getMethod("name", String.class, long.class);
+        builder = naming.invoke(builder, name + "-", 0L);
+        return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+    }
+}
@@ -0,0 +1,85 @@
+package com.monitoring.server.config;
+
+import com.monitoring.server.logging.Log;
+
+/**
+ * Accès centralisé à la configuration du serveur.
+ * Les valeurs sont lues depuis les propriétés système (-Dmonitoring.xxx=...)
+ * avec une valeur par défaut si la propriété est absente ou invalide.
+ */
+public final class ServerConfig {
+
+    private static final String PREFIX = "monitoring.";
+
+    private static final Log LOG = Log.get("Config");
+
+    private ServerConfig() {
+    }
+
+    /**
+     * Lit une propriété texte
+     * @param key Clé sans le préfixe "monitoring."
+     * @param defaultValue Valeur par défaut
+     * @return Valeur configurée ou valeur par défaut
+     */
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(PREFIX + key);
+        return (value == null || value.trim().isEmpty()) ? defaultValue : value.trim();
+    }
+
+    /**
+     * Lit une propriété entière
+     */
+    public static int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            LOG.warn("Valeur entière invalide pour {}{}: {}", PREFIX, key, value);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Lit une propriété entière longue
+     */
+    public static long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            LOG.warn("Valeur entière invalide pour {}{}: {}", PREFIX, key, value);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Lit une propriété décimale
+     */
+    public static double getDouble(String key, double defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            LOG.warn("Valeur décimale invalide pour {}{}: {}", PREFIX, key, value);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Lit une propriété booléenne ("true"/"false")
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
\ No newline at end of file
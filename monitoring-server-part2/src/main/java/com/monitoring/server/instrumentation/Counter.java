@@ -0,0 +1,27 @@
+package com.monitoring.server.instrumentation;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compteur monotone réparti en cellules (LongAdder) : les incréments concurrents
+ * ne se disputent pas une même ligne de cache
+ */
+public final class Counter {
+
+    private final LongAdder adder = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        adder.increment();
+    }
+
+    public void add(long delta) {
+        adder.add(delta);
+    }
+
+    public long get() {
+        return adder.sum();
+    }
+}
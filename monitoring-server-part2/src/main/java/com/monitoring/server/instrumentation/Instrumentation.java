@@ -0,0 +1,185 @@
+package com.monitoring.server.instrumentation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Registre des mesures internes du serveur (compteurs, histogrammes de durées, jauges).
+ *
+ * Les compteurs et histogrammes sont créés une fois (champ statique du composant)
+ * puis alimentés sans verrou ni allocation. Une même famille peut avoir plusieurs
+ * séries distinguées par une étiquette (ex. method="getAllAgents"). Les jauges
+ * sont lues à la demande ; enregistrer une jauge existante remplace la précédente
+ * (un composant recréé publie ainsi son propre état).
+ *
+ * Export : texte Prometheus ({@link #toPrometheus()}), JMX et HTTP
+ * ({@link InstrumentationExporter}).
+ */
+public final class Instrumentation {
+
+    /** Préfixe de toutes les familles exportées */
+    public static final String PREFIX = "monitoring_";
+
+    /** Quantiles publiés pour les histogrammes */
+    static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    static final String COUNTER = "counter";
+    static final String GAUGE = "gauge";
+    static final String SUMMARY = "summary";
+
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    // Familles dans l'ordre d'enregistrement (protégées par le verrou de la classe)
+    private static final Map<String, Family> FAMILIES = new LinkedHashMap<>();
+
+    private Instrumentation() {
+    }
+
+    public static Counter counter(String name, String help) {
+        return counter(name, help, null, null);
+    }
+
+    /**
+     * Compteur d'une série étiquetée (le même objet est retourné pour les mêmes nom et étiquette)
+     */
+    public static synchronized Counter counter(String name, String help, String label, String value) {
+        return (Counter) family(name, help, COUNTER).series.computeIfAbsent(labels(label, value),
+                                                                            key -> new Counter());
+    }
+
+    public static LatencyHistogram histogram(String name, String help) {
+        return histogram(name, help, null, null);
+    }
+
+    /**
+     * Histogramme de durées d'une série étiquetée, exporté en secondes
+     */
+    public static synchronized LatencyHistogram histogram(String name, String help, String label, String value) {
+        return (LatencyHistogram) family(name, help, SUMMARY).series.computeIfAbsent(labels(label, value),
+                                                                                     key -> new LatencyHistogram());
+    }
+
+    public static void gauge(String name, String help, LongSupplier supplier) {
+        gauge(name, help, null, null, supplier);
+    }
+
+    /**
+     * Jauge lue à chaque export (la fonction doit être rapide et ne pas bloquer)
+     */
+    public static synchronized void gauge(String name, String help, String label, String value,
+                                          LongSupplier supplier) {
+        family(name, help, GAUGE).series.put(labels(label, value), supplier);
+    }
+
+    /**
+     * Compteur tenu par le composant lui-même (lu à chaque export, exporté en counter)
+     */
+    public static synchronized void monotonic(String name, String help, LongSupplier supplier) {
+        family(name, help, COUNTER).series.put("", supplier);
+    }
+
+    private static Family family(String name, String help, String type) {
+        Family family = FAMILIES.computeIfAbsent(PREFIX + name, key -> new Family(key, help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Mesure " + name + " déjà enregistrée en tant que " + family.type);
+        }
+        return family;
+    }
+
+    private static String labels(String label, String value) {
+        if (label == null) {
+            return "";
+        }
+        return label + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    /**
+     * Copie de la liste des familles (lecture hors verrou)
+     */
+    static synchronized List<Family> families() {
+        List<Family> copy = new ArrayList<>(FAMILIES.size());
+        for (Family family : FAMILIES.values()) {
+            copy.add(family.copy());
+        }
+        return copy;
+    }
+
+    /**
+     * Toutes les mesures au format texte de Prometheus (version 0.0.4)
+     */
+    public static String toPrometheus() {
+        StringBuilder out = new StringBuilder(16 * 1024);
+        StringBuilder maxima = new StringBuilder();
+        for (Family family : families()) {
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+            maxima.setLength(0);
+            for (Map.Entry<String, Object> series : family.series.entrySet()) {
+                String labels = series.getKey();
+                Object metric = series.getValue();
+                if (metric instanceof Counter) {
+                    sample(out, family.name, labels, null, ((Counter) metric).get());
+                } else if (metric instanceof LongSupplier) {
+                    sample(out, family.name, labels, null, ((LongSupplier) metric).getAsLong());
+                } else {
+                    LatencyHistogram.Snapshot snapshot = ((LatencyHistogram) metric).snapshot();
+                    for (double quantile : QUANTILES) {
+                        // NaN tant qu'aucune durée n'a été enregistrée (convention Prometheus)
+                        sample(out, family.name, labels, "quantile=\"" + quantile + "\"",
+                               snapshot.getCount() == 0 ? Double.NaN
+                                                        : snapshot.valueAtQuantile(quantile) / NANOS_PER_SECOND);
+                    }
+                    sample(out, family.name + "_sum", labels, null, snapshot.getSum() / NANOS_PER_SECOND);
+                    sample(out, family.name + "_count", labels, null, snapshot.getCount());
+                    sample(maxima, family.name + "_max", labels, null, snapshot.getMax() / NANOS_PER_SECOND);
+                }
+            }
+            if (maxima.length() > 0) {
+                // Maximum depuis le démarrage, absent du type summary : famille à part
+                out.append("# TYPE ").append(family.name).append("_max ").append(GAUGE).append('\n').append(maxima);
+            }
+        }
+        return out.toString();
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, String extra, Object value) {
+        out.append(name);
+        if (!labels.isEmpty() || extra != null) {
+            out.append('{').append(labels);
+            if (extra != null) {
+                out.append(labels.isEmpty() ? "" : ",").append(extra);
+            }
+            out.append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Famille de séries de même nom et même type
+     */
+    static final class Family {
+        final String name;
+        final String help;
+        final String type;
+        // Étiquettes ("" si aucune) -> Counter, LatencyHistogram ou LongSupplier
+        final Map<String, Object> series;
+
+        Family(String name, String help, String type) {
+            this(name, help, type, new LinkedHashMap<>());
+        }
+
+        private Family(String name, String help, String type, Map<String, Object> series) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.series = series;
+        }
+
+        Family copy() {
+            return new Family(name, help, type, new LinkedHashMap<>(series));
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.monitoring.server.instrumentation;
+
+import com.monitoring.server.logging.Log;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongSupplier;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Publication des mesures du {@link Instrumentation} :
+ * un MBean JMX dont chaque valeur est un attribut en lecture seule, et un petit
+ * serveur HTTP local qui sert le texte Prometheus sur /metrics.
+ */
+public final class InstrumentationExporter {
+
+    private static final Log LOG = Log.get("Instrumentation");
+
+    /** Nom du MBean publié */
+    public static final String MBEAN_NAME = "com.monitoring.server:type=Instrumentation";
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private HttpServer httpServer;
+    private ExecutorService httpExecutor;
+    private ObjectName mbeanName;
+
+    /**
+     * Enregistre le MBean auprès du serveur JMX de la plateforme
+     */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(new InstrumentationMBean(), name);
+            mbeanName = name;
+            LOG.info("MBean JMX publié: {}", MBEAN_NAME);
+        } catch (JMException e) {
+            LOG.error("Impossible de publier le MBean JMX: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Démarre le serveur HTTP des mesures
+     * @param host Adresse d'écoute (127.0.0.1 pour un accès local uniquement)
+     * @param port Port d'écoute
+     */
+    public void startHttpServer(String host, int port) throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress(host, port), 0);
+        httpServer.createContext("/metrics", this::handleMetrics);
+        httpExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "instrumentation-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        httpServer.setExecutor(httpExecutor);
+        httpServer.start();
+        LOG.info("Mesures Prometheus sur http://{}:{}/metrics", host, port);
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = Instrumentation.toPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Arrête le serveur HTTP et retire le MBean
+     */
+    public void stop() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpExecutor.shutdown();
+        }
+        if (mbeanName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+            } catch (JMException e) {
+                LOG.warn("Impossible de retirer le MBean JMX: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Valeurs à plat pour JMX : "famille[.étiquette]" pour les compteurs et jauges,
+     * suivi de ".count", ".p50"... (durées en microsecondes) pour les histogrammes
+     */
+    static Map<String, Object> flatten() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        List<Instrumentation.Family> families = Instrumentation.families();
+        for (Instrumentation.Family family : families) {
+            for (Map.Entry<String, Object> series : family.series.entrySet()) {
+                String key = family.name + labelSuffix(series.getKey());
+                Object metric = series.getValue();
+                if (metric instanceof Counter) {
+                    values.put(key, ((Counter) metric).get());
+                } else if (metric instanceof LongSupplier) {
+                    values.put(key, ((LongSupplier) metric).getAsLong());
+                } else {
+                    LatencyHistogram.Snapshot snapshot = ((LatencyHistogram) metric).snapshot();
+                    values.put(key + ".count", snapshot.getCount());
+                    values.put(key + ".meanMicros", snapshot.getMean() / 1000.0);
+                    for (double quantile : Instrumentation.QUANTILES) {
+                        String name = Double.toString(quantile * 100).replace(".0", "").replace('.', '_');
+                        values.put(key + ".p" + name + "Micros", snapshot.valueAtQuantile(quantile) / 1000.0);
+                    }
+                    values.put(key + ".maxMicros", snapshot.getMax() / 1000.0);
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * method="getAllAgents" -> ".getAllAgents"
+     */
+    private static String labelSuffix(String labels) {
+        if (labels.isEmpty()) {
+            return "";
+        }
+        int start = labels.indexOf('"');
+        return "." + labels.substring(start + 1, labels.length() - 1);
+    }
+
+    /**
+     * MBean dynamique : la liste des attributs suit le contenu du registre
+     */
+    private static final class InstrumentationMBean implements DynamicMBean {
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Object value = flatten().get(attribute);
+            if (value == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            return value;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Attribut en lecture seule: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            Map<String, Object> values = flatten();
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                Object value = values.get(attribute);
+                if (value != null) {
+                    list.add(new Attribute(attribute, value));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) {
+            throw new UnsupportedOperationException(actionName);
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            Map<String, Object> values = flatten();
+            MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[values.size()];
+            int i = 0;
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                attributes[i++] = new MBeanAttributeInfo(entry.getKey(), entry.getValue().getClass().getName(),
+                                                         entry.getKey(), true, false, false);
+            }
+            return new MBeanInfo(InstrumentationMBean.class.getName(), "Mesures internes du serveur de monitoring",
+                                 attributes, null, null, null);
+        }
+    }
+}
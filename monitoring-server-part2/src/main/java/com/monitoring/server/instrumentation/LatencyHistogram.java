@@ -0,0 +1,153 @@
+package com.monitoring.server.instrumentation;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogramme de durées en nanosecondes, à précision relative constante
+ * (à la manière de HdrHistogram).
+ *
+ * Chaque puissance de 2 est découpée en 32 cases de même largeur : l'erreur sur
+ * un quantile est au plus de 1/32 (~3 %) de la valeur. Les durées au-delà de
+ * 2^36 ns (~69 s) tombent dans la dernière case. L'enregistrement ne fait que
+ * des incréments atomiques, sans allocation ; les threads sont répartis sur
+ * plusieurs bandes pour limiter la contention, fusionnées à la lecture.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 36;
+
+    /** Nombre de cases : valeurs de 0 à 2^MAX_EXPONENT - 1 */
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    // Après les cases de chaque bande : somme et maximum
+    private static final int SUM = BUCKETS;
+    private static final int MAX = BUCKETS + 1;
+    private static final int STRIDE = BUCKETS + 2;
+
+    private static final int STRIPES =
+            Integer.highestOneBit(Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors())));
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * STRIDE);
+
+    LatencyHistogram() {
+    }
+
+    /**
+     * Enregistre une durée
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        int base = (int) (Thread.currentThread().getId() & (STRIPES - 1)) * STRIDE;
+        cells.incrementAndGet(base + indexOf(value));
+        cells.addAndGet(base + SUM, value);
+        long max = cells.get(base + MAX);
+        while (value > max && !cells.compareAndSet(base + MAX, max, value)) {
+            max = cells.get(base + MAX);
+        }
+    }
+
+    /**
+     * Enregistre la durée écoulée depuis startNanos (valeur de System.nanoTime())
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Plus grande valeur comptée dans la case
+     */
+    static long highestValueIn(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long lowest = (long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1))) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Copie cohérente à une case près des bandes fusionnées
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        long sum = 0;
+        long max = 0;
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            int base = stripe * STRIDE;
+            for (int i = 0; i < BUCKETS; i++) {
+                long count = cells.get(base + i);
+                counts[i] += count;
+                total += count;
+            }
+            sum += cells.get(base + SUM);
+            max = Math.max(max, cells.get(base + MAX));
+        }
+        return new Snapshot(counts, total, sum, max);
+    }
+
+    /**
+     * État figé de l'histogramme (durées en nanosecondes)
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * Valeur sous laquelle se trouve la fraction quantile des durées (0 si vide)
+         */
+        public long valueAtQuantile(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueIn(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.monitoring.server.liveness;
+
+import com.monitoring.server.logging.Log;
+import com.monitoring.server.model.Alert;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Détection des agents silencieux par roue temporelle hachée.
+ *
+ * Un battement de cœur ne fait qu'écrire l'heure de réception dans l'entrée
+ * de l'agent (O(1), sans verrou ni déplacement dans la roue). Seul le thread
+ * de la roue manipule les cases : quand il atteint la case d'une échéance, il
+ * relit l'heure du dernier battement et, si l'agent a parlé depuis, le replace
+ * dans la case de sa nouvelle échéance. Un agent actif est donc revu une fois
+ * par délai d'expiration, quel que soit son nombre de battements, et un tick
+ * ne coûte que les entrées de sa case. Le retour d'un agent expiré (rare)
+ * dépose un nouveau minuteur ; l'ancien, s'il est encore dans la roue, est
+ * ignoré quand sa case est atteinte.
+ *
+ * Un agent expiré passe OFFLINE et une alerte synthétique est émise. Les
+ * agents qui changent d'état trop souvent sont déclarés instables : une seule
+ * alerte est alors émise, puis une autre lorsque l'état s'est stabilisé.
+ */
+public class LivenessTracker {
+
+    private static final Log LOG = Log.get("Liveness");
+
+    /** Nombre de cases de la roue (puissance de 2) */
+    private static final int WHEEL_SIZE = 512;
+
+    // Sévérités des alertes synthétiques
+    private static final String OFFLINE_SEVERITY = "HIGH";
+    private static final String FLAPPING_SEVERITY = "MEDIUM";
+    private static final String ONLINE_SEVERITY = "LOW";
+
+    /** Métrique des alertes synthétiques (clé de regroupement) */
+    private static final String LIVENESS_METRIC = "LIVENESS";
+
+    /**
+     * Reçoit les changements d'état d'un agent. Appelé sous le verrou de l'agent
+     * (les appels d'un même agent sont ordonnés) : doit rester bref.
+     */
+    public interface StatusListener {
+        void onStatusChange(String agentId, boolean online);
+    }
+
+    private final long timeoutMillis;
+    private final long tickMillis;
+    private final long flapWindowMillis;
+    private final int flapThreshold;
+    private final StatusListener statusListener;
+    private final Consumer<Alert> alertSink;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Entrées à (ré)insérer dans la roue, déposées par les threads d'ingestion
+    private final Queue<Timer> pendingArm = new ConcurrentLinkedQueue<>();
+    // Alertes émises par le thread de la roue (l'ajout peut attendre le disque)
+    private final Queue<Alert> pendingAlerts = new ConcurrentLinkedQueue<>();
+
+    // Roue : listes simplement chaînées, manipulées par le seul thread de la roue
+    private final Timer[] wheel = new Timer[WHEEL_SIZE];
+    private long processedTick;
+
+    // Compteurs (les retours sont détectés par les threads d'ingestion)
+    private volatile long expiredCount;
+    private final AtomicLong recoveredCount = new AtomicLong();
+    private final AtomicLong suppressedAlerts = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread ticker;
+
+    /**
+     * @param heartbeatIntervalMillis Intervalle d'envoi attendu des agents
+     * @param graceMillis Délai supplémentaire toléré avant de déclarer un agent OFFLINE
+     * @param tickMillis Résolution de la roue
+     * @param flapWindowMillis Fenêtre d'observation des changements d'état (0 = pas de détection)
+     * @param flapThreshold Nombre de changements d'état dans la fenêtre au-delà duquel l'agent est instable
+     * @param statusListener Reçoit les passages ONLINE / OFFLINE
+     * @param alertSink Reçoit les alertes synthétiques (appelé par le thread de la roue)
+     */
+    public LivenessTracker(long heartbeatIntervalMillis, long graceMillis, long tickMillis,
+                           long flapWindowMillis, int flapThreshold,
+                           StatusListener statusListener, Consumer<Alert> alertSink) {
+        this.timeoutMillis = Math.max(1, heartbeatIntervalMillis + Math.max(0, graceMillis));
+        this.tickMillis = Math.max(1, tickMillis);
+        this.flapWindowMillis = Math.max(0, flapWindowMillis);
+        this.flapThreshold = Math.max(1, flapThreshold);
+        this.statusListener = statusListener;
+        this.alertSink = alertSink;
+    }
+
+    /**
+     * Démarre le thread de la roue
+     */
+    public void start() {
+        processedTick = System.currentTimeMillis() / tickMillis;
+        running = true;
+        ticker = new Thread(this::tickLoop, "liveness-wheel");
+        ticker.setDaemon(true);
+        ticker.start();
+        LOG.info("Expiration après {} ms de silence (tick {} ms)", timeoutMillis, tickMillis);
+    }
+
+    public void stop() {
+        running = false;
+        if (ticker != null) {
+            ticker.interrupt();
+        }
+    }
+
+    /**
+     * Enregistre un signe de vie de l'agent (appelé sur le chemin d'ingestion)
+     */
+    public void heartbeat(String agentId) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(agentId);
+        if (entry == null) {
+            entry = entries.computeIfAbsent(agentId, Entry::new);
+        }
+        long previous = entry.lastSeen;
+        entry.lastSeen = now;
+        if (!entry.online) {
+            // Retour d'un agent expiré : rare, on peut prendre le verrou
+            synchronized (entry) {
+                if (!entry.online) {
+                    entry.online = true;
+                    // L'échéance en place (fin d'instabilité) peut être plus lointaine que l'expiration
+                    arm(entry);
+                    statusListener.onStatusChange(agentId, true);
+                    if (entry.expiredAt != 0) {
+                        recoveredCount.incrementAndGet();
+                        emit(entry, recordTransition(entry, now),
+                             "Agent " + agentId + " de nouveau en ligne après " +
+                             (now - previous) + " ms de silence",
+                             ONLINE_SEVERITY, now);
+                    }
+                }
+            }
+        }
+        if (entry.timer == null) {
+            synchronized (entry) {
+                if (entry.timer == null) {
+                    arm(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * true si l'agent est suivi et en ligne
+     */
+    public boolean isOnline(String agentId) {
+        Entry entry = entries.get(agentId);
+        return entry != null && entry.online;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Résumé lisible des compteurs (pour le statut périodique du serveur)
+     */
+    public String getStatsSummary() {
+        int online = 0;
+        int flapping = 0;
+        for (Entry entry : entries.values()) {
+            if (entry.online) {
+                online++;
+            }
+            if (entry.flapping) {
+                flapping++;
+            }
+        }
+        return online + "/" + entries.size() + " en ligne, " + flapping + " instable(s), " +
+               expiredCount + " expiration(s), " + recoveredCount + " retour(s), " +
+               suppressedAlerts + " alerte(s) supprimée(s)";
+    }
+
+    private void tickLoop() {
+        while (running) {
+            try {
+                Thread.sleep(tickMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            advance(System.currentTimeMillis());
+            drainAlerts();
+        }
+    }
+
+    /**
+     * Traite toutes les cases dont la période est écoulée
+     */
+    private void advance(long now) {
+        Timer timer;
+        while ((timer = pendingArm.poll()) != null) {
+            schedule(timer, nextCheck(timer.entry));
+        }
+        long currentTick = now / tickMillis;
+        // Rattrapage borné à un tour : au-delà, toutes les cases sont revues une fois
+        if (currentTick - processedTick > WHEEL_SIZE) {
+            processedTick = currentTick - WHEEL_SIZE;
+        }
+        while (processedTick < currentTick) {
+            int slot = (int) (processedTick & (WHEEL_SIZE - 1));
+            processedTick++;
+            Timer head = wheel[slot];
+            wheel[slot] = null;
+            while (head != null) {
+                Timer next = head.next;
+                head.next = null;
+                process(head, now);
+                head = next;
+            }
+        }
+    }
+
+    /**
+     * Revoit une entrée arrivée à échéance : expiration, fin d'instabilité ou replacement
+     */
+    private void process(Timer timer, long now) {
+        Entry entry = timer.entry;
+        synchronized (entry) {
+            if (entry.timer != timer) {
+                // Minuteur remplacé lors d'un retour en ligne
+                return;
+            }
+            if (entry.online && entry.lastSeen + timeoutMillis <= now) {
+                entry.online = false;
+                entry.expiredAt = now;
+                expiredCount++;
+                statusListener.onStatusChange(entry.agentId, false);
+                emit(entry, recordTransition(entry, now),
+                     "Agent " + entry.agentId + " hors ligne: aucune donnée depuis " +
+                     (now - entry.lastSeen) + " ms",
+                     OFFLINE_SEVERITY, now);
+            }
+            if (entry.flapping && now - entry.lastTransition >= flapWindowMillis) {
+                entry.flapping = false;
+                entry.transitions = 0;
+                queueAlert(entry.agentId, "Agent " + entry.agentId + " stabilisé " +
+                           (entry.online ? "en ligne" : "hors ligne"),
+                           entry.online ? ONLINE_SEVERITY : OFFLINE_SEVERITY, now);
+            }
+            if (!entry.online && !entry.flapping) {
+                // Plus rien à surveiller : le prochain battement réarmera l'entrée
+                entry.timer = null;
+                return;
+            }
+        }
+        schedule(timer, nextCheck(entry));
+    }
+
+    private long nextCheck(Entry entry) {
+        long check = entry.online ? entry.lastSeen + timeoutMillis : Long.MAX_VALUE;
+        if (entry.flapping) {
+            check = Math.min(check, entry.lastTransition + flapWindowMillis);
+        }
+        return check;
+    }
+
+    /**
+     * Dépose un nouveau minuteur pour l'entrée (sous son verrou)
+     */
+    private void arm(Entry entry) {
+        Timer timer = new Timer(entry);
+        entry.timer = timer;
+        pendingArm.offer(timer);
+    }
+
+    private void schedule(Timer timer, long dueMillis) {
+        // Une échéance passée (ou dans la case en cours) est traitée au prochain tick ;
+        // une échéance au-delà d'un tour reviendra dans la même case au tour suivant
+        long dueTick = Math.max(dueMillis / tickMillis, processedTick);
+        int slot = (int) (dueTick & (WHEEL_SIZE - 1));
+        timer.next = wheel[slot];
+        wheel[slot] = timer;
+    }
+
+    /**
+     * Compte un changement d'état dans la fenêtre d'instabilité
+     * @return true si l'alerte correspondante doit être émise
+     */
+    private boolean recordTransition(Entry entry, long now) {
+        if (flapWindowMillis == 0) {
+            return true;
+        }
+        if (now - entry.windowStart > flapWindowMillis) {
+            entry.windowStart = now;
+            entry.transitions = 0;
+        }
+        entry.transitions++;
+        entry.lastTransition = now;
+        if (entry.flapping) {
+            return false;
+        }
+        if (entry.transitions > flapThreshold) {
+            entry.flapping = true;
+            queueAlert(entry.agentId, "Agent " + entry.agentId + " instable: " + entry.transitions +
+                       " changements d'état en " + (now - entry.windowStart) / 1000 +
+                       " s, alertes suspendues", FLAPPING_SEVERITY, now);
+            return false;
+        }
+        return true;
+    }
+
+    private void emit(Entry entry, boolean notify, String message, String severity, long now) {
+        if (notify) {
+            queueAlert(entry.agentId, message, severity, now);
+        } else {
+            suppressedAlerts.incrementAndGet();
+        }
+    }
+
+    private void queueAlert(String agentId, String message, String severity, long now) {
+        LocalDateTime timestamp = LocalDateTime.ofInstant(Instant.ofEpochMilli(now), ZoneId.systemDefault());
+        pendingAlerts.offer(new Alert(agentId, LIVENESS_METRIC, message, timestamp, severity));
+    }
+
+    private void drainAlerts() {
+        Alert alert;
+        while ((alert = pendingAlerts.poll()) != null) {
+            try {
+                alertSink.accept(alert);
+            } catch (RuntimeException e) {
+                LOG.error("Erreur lors de l'émission d'une alerte: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * État de vie d'un agent. lastSeen est écrit sans verrou par les battements ;
+     * les transitions et le remplacement du minuteur se font sous le verrou de
+     * l'entrée. Une entrée sans minuteur n'est pas surveillée (hors ligne et stable).
+     */
+    private static final class Entry {
+        final String agentId;
+        volatile long lastSeen;
+        volatile boolean online = true;
+        volatile Timer timer;
+        volatile boolean flapping;
+        long expiredAt;
+        long windowStart;
+        long lastTransition;
+        int transitions;
+
+        Entry(String agentId) {
+            this.agentId = agentId;
+        }
+    }
+
+    /**
+     * Position d'une entrée dans la roue (next n'est touché que par le thread de la roue)
+     */
+    private static final class Timer {
+        final Entry entry;
+        Timer next;
+
+        Timer(Entry entry) {
+            this.entry = entry;
+        }
+    }
+}
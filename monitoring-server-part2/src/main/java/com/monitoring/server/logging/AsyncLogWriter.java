@@ -0,0 +1,305 @@
+package com.monitoring.server.logging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * File sans verrou (plusieurs producteurs, un consommateur) et thread d'écriture
+ * des journaux.
+ *
+ * Un producteur réserve une case par CAS sur la queue puis publie l'événement
+ * en avançant le numéro de séquence de la case. Si la file est pleine,
+ * l'événement est compté comme perdu plutôt que de bloquer l'appelant.
+ *
+ * Le thread d'écriture vide la file par lots : chaque lot est formaté dans un
+ * seul tampon puis écrit en un appel dans le fichier (et sur la console si
+ * demandé). Le fichier est renommé en ".1", ".2"... quand il dépasse sa taille
+ * maximale.
+ */
+final class AsyncLogWriter implements Runnable {
+
+    /** Événements formatés au plus par écriture */
+    private static final int BATCH_SIZE = 512;
+
+    /** Attente du thread d'écriture quand la file est vide */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private final LogEvent[] slots;
+    // sequences[i] == position : case libre pour cette position ; position + 1 : événement publié
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    // Pertes depuis le dernier lot (signalées dans le journal) et depuis le démarrage
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong droppedTotal = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+
+    private volatile Destination destination;
+    private volatile boolean running = true;
+    private final Thread thread;
+
+    // État du fichier, propre au thread d'écriture
+    private Destination active;
+    private FileChannel channel;
+    private long fileSize;
+
+    /**
+     * @param capacity Capacité de la file (arrondie à la puissance de 2 supérieure)
+     * @param destination Destination initiale
+     */
+    AsyncLogWriter(int capacity, Destination destination) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new LogEvent[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.destination = destination;
+        this.thread = new Thread(this, "log-writer");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Change la destination ; prise en compte avant le prochain lot
+     */
+    void setDestination(Destination destination) {
+        this.destination = destination;
+    }
+
+    /**
+     * Dépose un événement sans jamais bloquer
+     * @return false si la file est pleine ou le thread arrêté
+     */
+    boolean offer(LogEvent event) {
+        if (!running) {
+            return false;
+        }
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = event;
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+                // Case pas encore libérée par le thread d'écriture : file pleine
+                dropped.increment();
+                return false;
+            }
+            // Sinon un autre producteur a réservé cette position : recommencer
+        }
+    }
+
+    /**
+     * Arrête le thread après avoir écrit les événements en attente
+     */
+    void shutdown(long timeoutMillis) {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    long getWritten() {
+        return written.get();
+    }
+
+    /**
+     * Événements en attente d'écriture (approximatif)
+     */
+    long getDepth() {
+        return Math.max(0, tail.get() - written.get());
+    }
+
+    long getDropped() {
+        return droppedTotal.get() + dropped.sum();
+    }
+
+    @Override
+    public void run() {
+        StringBuilder text = new StringBuilder(64 * 1024);
+        LogEvent.Clock clock = new LogEvent.Clock();
+        while (true) {
+            // Lu avant de vider la file : les événements publiés avant l'arrêt sont écrits
+            boolean stopping = !running;
+            int count = drain(text, clock);
+            if (text.length() > 0) {
+                write(text);
+                text.setLength(0);
+            }
+            if (count < BATCH_SIZE) {
+                if (stopping) {
+                    break;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        closeFile();
+    }
+
+    private int drain(StringBuilder text, LogEvent.Clock clock) {
+        int count = 0;
+        while (count < BATCH_SIZE) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            LogEvent event = slots[index];
+            slots[index] = null;
+            sequences.set(index, head + mask + 1);
+            head++;
+            event.appendTo(text, clock);
+            count++;
+        }
+        written.addAndGet(count);
+        long lost = dropped.sumThenReset();
+        if (lost > 0) {
+            droppedTotal.addAndGet(lost);
+            clock.append(text, System.currentTimeMillis());
+            text.append(" WARN  [Log] (log-writer) ").append(lost)
+                .append(" message(s) perdu(s), file de journalisation pleine\n");
+        }
+        return count;
+    }
+
+    private void write(StringBuilder text) {
+        Destination target = destination;
+        if (target != active) {
+            closeFile();
+            active = target;
+            openFile();
+        }
+        String lines = text.toString();
+        if (active.console) {
+            // Un seul appel par lot, dans l'encodage de la console
+            System.out.print(lines);
+            System.out.flush();
+        }
+        if (channel == null) {
+            return;
+        }
+        byte[] bytes = lines.getBytes(StandardCharsets.UTF_8);
+        try {
+            if (fileSize > 0 && fileSize + bytes.length > active.maxFileBytes) {
+                rotate();
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            fileSize += bytes.length;
+        } catch (IOException e) {
+            System.err.println("[Log] Écriture impossible dans " + active.file + ", fichier abandonné: " +
+                               e.getMessage());
+            closeFile();
+        }
+    }
+
+    private void openFile() {
+        if (active.file == null) {
+            return;
+        }
+        try {
+            Path parent = active.file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            channel = FileChannel.open(active.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                       StandardOpenOption.APPEND);
+            fileSize = channel.size();
+        } catch (IOException e) {
+            System.err.println("[Log] Impossible d'ouvrir " + active.file + ": " + e.getMessage());
+            channel = null;
+        }
+    }
+
+    /**
+     * Décale les fichiers archivés (le plus ancien est supprimé) et repart d'un fichier vide
+     */
+    private void rotate() throws IOException {
+        channel.close();
+        channel = null;
+        Path file = active.file;
+        if (active.maxFiles <= 0) {
+            Files.deleteIfExists(file);
+        } else {
+            Files.deleteIfExists(archive(file, active.maxFiles));
+            for (int i = active.maxFiles - 1; i >= 1; i--) {
+                Path from = archive(file, i);
+                if (Files.exists(from)) {
+                    Files.move(from, archive(file, i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(file, archive(file, 1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                   StandardOpenOption.APPEND);
+        fileSize = 0;
+    }
+
+    private static Path archive(Path file, int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void closeFile() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("[Log] Erreur à la fermeture de " + active.file + ": " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * Destination des journaux (immuable, remplacée d'un bloc)
+     */
+    static final class Destination {
+        final Path file;
+        final long maxFileBytes;
+        final int maxFiles;
+        final boolean console;
+
+        /**
+         * @param file Fichier courant (null = console seulement)
+         * @param maxFileBytes Taille déclenchant la rotation
+         * @param maxFiles Nombre de fichiers archivés conservés
+         * @param console true pour recopier les lignes sur la sortie standard
+         */
+        Destination(Path file, long maxFileBytes, int maxFiles, boolean console) {
+            this.file = file;
+            this.maxFileBytes = Math.max(1024, maxFileBytes);
+            this.maxFiles = maxFiles;
+            this.console = console;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.monitoring.server.logging;
+
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Journalisation asynchrone du serveur, par catégorie ("TCP", "RMI", "Storage"...).
+ *
+ * Le niveau est vérifié avant toute construction du message : un appel désactivé
+ * ne coûte qu'une lecture de champ. Les messages utilisent des "{}" remplacés par
+ * les arguments ; le texte final n'est construit que par le thread d'écriture.
+ * Les arguments doivent donc être immuables (ou leur état au moment de
+ * l'écriture convient).
+ *
+ * Les catégories sont hiérarchiques : "TCP.alertes" hérite du niveau et de
+ * l'échantillonnage de "TCP" sauf réglage propre. Pour les événements très
+ * fréquents, l'échantillonnage "1/N" n'en conserve qu'un sur N en moyenne
+ * (DEBUG et INFO seulement : WARN et ERROR sont toujours écrits).
+ */
+public final class Log {
+
+    static final int DEBUG = 0;
+    static final int INFO = 1;
+    static final int WARN = 2;
+    static final int ERROR = 3;
+    static final int OFF = 4;
+
+    private static final String[] LEVEL_NAMES = {"DEBUG", "INFO", "WARN", "ERROR", "OFF"};
+
+    /** Capacité de la file entre les threads appelants et le thread d'écriture */
+    private static final int QUEUE_CAPACITY = 16384;
+
+    private static final Map<String, Log> LOGGERS = new ConcurrentHashMap<>();
+
+    // Réglages par catégorie (protégés par le verrou de la classe)
+    private static final Map<String, Integer> LEVELS = new HashMap<>();
+    private static final Map<String, Integer> SAMPLING = new HashMap<>();
+    private static int defaultLevel = INFO;
+
+    private static final AsyncLogWriter WRITER =
+            new AsyncLogWriter(QUEUE_CAPACITY, new AsyncLogWriter.Destination(null, Long.MAX_VALUE, 0, true));
+
+    static {
+        WRITER.start();
+    }
+
+    final String category;
+    private volatile int threshold;
+    volatile int sampleEvery;
+
+    private Log(String category) {
+        this.category = category;
+    }
+
+    /**
+     * Journal d'une catégorie (une instance par catégorie, à conserver dans un champ statique)
+     */
+    public static Log get(String category) {
+        Log log = LOGGERS.get(category);
+        if (log == null) {
+            synchronized (Log.class) {
+                log = LOGGERS.get(category);
+                if (log == null) {
+                    log = new Log(category);
+                    log.applySettings();
+                    LOGGERS.put(category, log);
+                }
+            }
+        }
+        return log;
+    }
+
+    /**
+     * Fixe la destination des journaux
+     * @param file Fichier courant (null ou vide = console seulement)
+     * @param maxFileBytes Taille au-delà de laquelle le fichier est archivé
+     * @param maxFiles Nombre de fichiers archivés conservés (file.1 ... file.N)
+     * @param console true pour recopier les lignes sur la sortie standard
+     */
+    public static void configure(String file, long maxFileBytes, int maxFiles, boolean console) {
+        boolean hasFile = file != null && !file.trim().isEmpty();
+        WRITER.setDestination(new AsyncLogWriter.Destination(hasFile ? Paths.get(file.trim()) : null,
+                                                             maxFileBytes, maxFiles, console || !hasFile));
+    }
+
+    /**
+     * Fixe les niveaux
+     * @param level Niveau par défaut (DEBUG, INFO, WARN, ERROR, OFF)
+     * @param overrides Niveaux par catégorie, ex. "RMI=DEBUG, TCP.alertes=WARN" (peut être vide)
+     */
+    public static synchronized void setLevels(String level, String overrides) {
+        defaultLevel = parseLevel(level, INFO);
+        LEVELS.clear();
+        for (Map.Entry<String, String> entry : parsePairs(overrides).entrySet()) {
+            LEVELS.put(entry.getKey(), parseLevel(entry.getValue(), defaultLevel));
+        }
+        refresh();
+    }
+
+    /**
+     * Fixe l'échantillonnage par catégorie
+     * @param sampling Ex. "TCP.alertes=100, UDP.agents=10" : un message sur N conservé
+     */
+    public static synchronized void setSampling(String sampling) {
+        SAMPLING.clear();
+        for (Map.Entry<String, String> entry : parsePairs(sampling).entrySet()) {
+            try {
+                SAMPLING.put(entry.getKey(), Math.max(1, Integer.parseInt(entry.getValue())));
+            } catch (NumberFormatException e) {
+                get("Log").warn("Échantillonnage invalide pour {}: {}", entry.getKey(), entry.getValue());
+            }
+        }
+        refresh();
+    }
+
+    private static void refresh() {
+        for (Log log : LOGGERS.values()) {
+            log.applySettings();
+        }
+    }
+
+    /**
+     * Applique le réglage le plus précis (la catégorie, puis ses parents, puis le défaut)
+     */
+    private void applySettings() {
+        Integer level = lookup(LEVELS);
+        Integer sampling = lookup(SAMPLING);
+        threshold = level != null ? level : defaultLevel;
+        sampleEvery = sampling != null ? sampling : 1;
+    }
+
+    private <T> T lookup(Map<String, T> settings) {
+        String name = category;
+        while (true) {
+            T value = settings.get(name);
+            if (value != null) {
+                return value;
+            }
+            int dot = name.lastIndexOf('.');
+            if (dot < 0) {
+                return null;
+            }
+            name = name.substring(0, dot);
+        }
+    }
+
+    private static int parseLevel(String name, int defaultValue) {
+        if (name != null) {
+            String upper = name.trim().toUpperCase(Locale.ROOT);
+            for (int i = 0; i < LEVEL_NAMES.length; i++) {
+                if (LEVEL_NAMES[i].equals(upper)) {
+                    return i;
+                }
+            }
+            get("Log").warn("Niveau inconnu: {}", name);
+        }
+        return defaultValue;
+    }
+
+    private static Map<String, String> parsePairs(String spec) {
+        Map<String, String> pairs = new HashMap<>();
+        if (spec == null) {
+            return pairs;
+        }
+        for (String item : spec.split(",")) {
+            int equals = item.indexOf('=');
+            if (equals > 0) {
+                pairs.put(item.substring(0, equals).trim(), item.substring(equals + 1).trim());
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Écrit les messages en attente et arrête le thread d'écriture.
+     * Les messages suivants sont écrits directement sur la sortie d'erreur.
+     */
+    public static void shutdown() {
+        WRITER.shutdown(2000);
+    }
+
+    /**
+     * Résumé lisible (pour le statut périodique du serveur)
+     */
+    public static String getStatsSummary() {
+        return WRITER.getWritten() + " ligne(s) écrite(s), " + WRITER.getDropped() + " perdue(s)";
+    }
+
+    /**
+     * Messages en attente dans la file du thread d'écriture
+     */
+    public static long getQueueDepth() {
+        return WRITER.getDepth();
+    }
+
+    /**
+     * Messages perdus depuis le démarrage (file pleine)
+     */
+    public static long getDroppedCount() {
+        return WRITER.getDropped();
+    }
+
+    public boolean isDebugEnabled() {
+        return threshold <= DEBUG;
+    }
+
+    public boolean isInfoEnabled() {
+        return threshold <= INFO;
+    }
+
+    public void debug(String message) {
+        if (threshold <= DEBUG) {
+            log(DEBUG, message, null);
+        }
+    }
+
+    public void debug(String format, Object arg) {
+        if (threshold <= DEBUG) {
+            log(DEBUG, format, new Object[] {arg});
+        }
+    }
+
+    public void debug(String format, Object arg1, Object arg2) {
+        if (threshold <= DEBUG) {
+            log(DEBUG, format, new Object[] {arg1, arg2});
+        }
+    }
+
+    public void debug(String format, Object... args) {
+        if (threshold <= DEBUG) {
+            log(DEBUG, format, args);
+        }
+    }
+
+    public void info(String message) {
+        if (threshold <= INFO) {
+            log(INFO, message, null);
+        }
+    }
+
+    public void info(String format, Object arg) {
+        if (threshold <= INFO) {
+            log(INFO, format, new Object[] {arg});
+        }
+    }
+
+    public void info(String format, Object arg1, Object arg2) {
+        if (threshold <= INFO) {
+            log(INFO, format, new Object[] {arg1, arg2});
+        }
+    }
+
+    public void info(String format, Object... args) {
+        if (threshold <= INFO) {
+            log(INFO, format, args);
+        }
+    }
+
+    public void warn(String message) {
+        if (threshold <= WARN) {
+            log(WARN, message, null);
+        }
+    }
+
+    public void warn(String format, Object arg) {
+        if (threshold <= WARN) {
+            log(WARN, format, new Object[] {arg});
+        }
+    }
+
+    public void warn(String format, Object arg1, Object arg2) {
+        if (threshold <= WARN) {
+            log(WARN, format, new Object[] {arg1, arg2});
+        }
+    }
+
+    public void warn(String format, Object... args) {
+        if (threshold <= WARN) {
+            log(WARN, format, args);
+        }
+    }
+
+    public void error(String message) {
+        if (threshold <= ERROR) {
+            log(ERROR, message, null);
+        }
+    }
+
+    public void error(String format, Object arg) {
+        if (threshold <= ERROR) {
+            log(ERROR, format, new Object[] {arg});
+        }
+    }
+
+    public void error(String format, Object arg1, Object arg2) {
+        if (threshold <= ERROR) {
+            log(ERROR, format, new Object[] {arg1, arg2});
+        }
+    }
+
+    public void error(String format, Object... args) {
+        if (threshold <= ERROR) {
+            log(ERROR, format, args);
+        }
+    }
+
+    private void log(int level, String format, Object[] args) {
+        int sampling = sampleEvery;
+        if (sampling > 1 && level < WARN && ThreadLocalRandom.current().nextInt(sampling) != 0) {
+            return;
+        }
+        LogEvent event = new LogEvent(System.currentTimeMillis(), level, this,
+                                      Thread.currentThread().getName(), format, args);
+        if (!WRITER.offer(event) && !WRITER.isRunning()) {
+            // Après l'arrêt du thread d'écriture : écriture directe
+            StringBuilder line = new StringBuilder(128);
+            event.appendTo(line, new LogEvent.Clock());
+            System.err.print(line);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.monitoring.server.logging;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Message en attente d'écriture. Le texte n'est construit que par le thread
+ * d'écriture : l'appelant ne paie que la capture des références.
+ */
+final class LogEvent {
+
+    private static final DateTimeFormatter SECOND_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private static final String[] LEVEL_LABELS = {"DEBUG", "INFO ", "WARN ", "ERROR"};
+
+    final long timeMillis;
+    final int level;
+    final Log logger;
+    final String thread;
+    final String format;
+    final Object[] args;
+
+    LogEvent(long timeMillis, int level, Log logger, String thread, String format, Object[] args) {
+        this.timeMillis = timeMillis;
+        this.level = level;
+        this.logger = logger;
+        this.thread = thread;
+        this.format = format;
+        this.args = args;
+    }
+
+    /**
+     * Ajoute la ligne "date niveau [catégorie] (thread) message" au tampon
+     * @param clock Cache de la partie date/heure (propre au thread appelant)
+     */
+    void appendTo(StringBuilder out, Clock clock) {
+        clock.append(out, timeMillis);
+        out.append(' ').append(LEVEL_LABELS[level]).append(" [").append(logger.category).append("] (")
+           .append(thread).append(") ");
+        Throwable error = appendMessage(out, format, args);
+        int sampling = logger.sampleEvery;
+        if (sampling > 1 && level < Log.WARN) {
+            out.append(" (1/").append(sampling).append(')');
+        }
+        out.append('\n');
+        if (error != null) {
+            StringWriter trace = new StringWriter();
+            error.printStackTrace(new PrintWriter(trace));
+            out.append(trace);
+        }
+    }
+
+    /**
+     * Remplace chaque "{}" par l'argument suivant. Un Throwable en dernier argument,
+     * sans "{}" correspondant, est retourné pour que sa pile soit écrite.
+     */
+    static Throwable appendMessage(StringBuilder out, String format, Object[] args) {
+        int used = 0;
+        int from = 0;
+        if (args != null) {
+            int mark;
+            while (used < args.length && (mark = format.indexOf("{}", from)) >= 0) {
+                out.append(format, from, mark);
+                appendArgument(out, args[used++]);
+                from = mark + 2;
+            }
+        }
+        out.append(format, from, format.length());
+        if (args != null && used < args.length && args[args.length - 1] instanceof Throwable) {
+            return (Throwable) args[args.length - 1];
+        }
+        return null;
+    }
+
+    private static void appendArgument(StringBuilder out, Object argument) {
+        try {
+            out.append(argument);
+        } catch (RuntimeException e) {
+            out.append("[toString() en erreur: ").append(e).append(']');
+        }
+    }
+
+    /**
+     * Formatage de la date à la seconde mis en cache : seules les millisecondes
+     * sont recalculées tant que la seconde ne change pas
+     */
+    static final class Clock {
+        private long second = Long.MIN_VALUE;
+        private String prefix;
+
+        void append(StringBuilder out, long timeMillis) {
+            long current = Math.floorDiv(timeMillis, 1000);
+            if (current != second) {
+                second = current;
+                prefix = SECOND_FORMAT.format(Instant.ofEpochSecond(current));
+            }
+            int millis = Math.floorMod(timeMillis, 1000);
+            out.append(prefix).append('.');
+            if (millis < 100) {
+                out.append('0');
+            }
+            if (millis < 10) {
+                out.append('0');
+            }
+            out.append(millis);
+        }
+    }
+}
@@ -1,14 +1,39 @@
 package com.monitoring.server.model;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.time.LocalDateTime;
 
-public class Agent {
+/**
+ * Agent connu du serveur et son dernier échantillon.
+ *
+ * Format d'échange compact : les chaînes, la dernière mise à jour en millisecondes
+ * puis l'échantillon sans répéter l'identifiant de l'agent (voir WireFormat).
+ */
+public class Agent implements Externalizable {
+    private static final long serialVersionUID = 2L;
+    
+    // Indicateurs du format d'échange
+    private static final int HAS_METRICS = 1;
+    private static final int METRICS_OTHER_AGENT = 2;
+    private static final int HAS_LAST_UPDATE = 4;
+    
     private String agentId;
     private String ipAddress;
     private SystemMetrics lastMetrics;
     private LocalDateTime lastUpdate;
     private String status;
     
+    /**
+     * Réservé à la désérialisation
+     */
+    public Agent() {
+    }
+    
     public Agent(String agentId, String ipAddress, SystemMetrics lastMetrics) {
         this.agentId = agentId;
         this.ipAddress = ipAddress;
@@ -32,6 +57,55 @@ public class Agent {
         this.lastUpdate = LocalDateTime.now();
     }
     public void setStatus(String status) { this.status = status; }
+    public void setLastUpdate(LocalDateTime lastUpdate) { this.lastUpdate = lastUpdate; }
+    
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        writeTo(out, new WireFormat.Context());
+    }
+    
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        readFrom(in, new WireFormat.Context());
+    }
+    
+    void writeTo(DataOutput out, WireFormat.Context context) throws IOException {
+        SystemMetrics metrics = lastMetrics;
+        boolean otherAgent = metrics != null && metrics.getAgentId() != null
+                && !metrics.getAgentId().equals(agentId);
+        out.writeByte((metrics != null ? HAS_METRICS : 0) | (otherAgent ? METRICS_OTHER_AGENT : 0)
+                      | (lastUpdate != null ? HAS_LAST_UPDATE : 0));
+        context.writeShared(out, agentId);
+        WireFormat.writeString(out, ipAddress);
+        context.writeShared(out, status);
+        if (lastUpdate != null) {
+            out.writeLong(WireFormat.toMillis(lastUpdate));
+        }
+        if (metrics != null) {
+            if (otherAgent) {
+                context.writeShared(out, metrics.getAgentId());
+            }
+            out.writeLong(metrics.getTimestampMillis());
+            out.writeDouble(metrics.getCpuUsage());
+            out.writeDouble(metrics.getMemoryUsage());
+            out.writeDouble(metrics.getDiskUsage());
+        }
+    }
+    
+    void readFrom(DataInput in, WireFormat.Context context) throws IOException {
+        int flags = in.readUnsignedByte();
+        agentId = context.readShared(in);
+        ipAddress = WireFormat.readString(in);
+        status = context.readShared(in);
+        lastUpdate = (flags & HAS_LAST_UPDATE) != 0 ? WireFormat.fromMillis(in.readLong()) : null;
+        lastMetrics = null;
+        if ((flags & HAS_METRICS) != 0) {
+            String metricsAgentId = (flags & METRICS_OTHER_AGENT) != 0 ? context.readShared(in) : agentId;
+            long timestampMillis = in.readLong();
+            lastMetrics = new SystemMetrics(metricsAgentId, in.readDouble(), in.readDouble(), in.readDouble(),
+                                            timestampMillis);
+        }
+    }
     
     @Override
     public String toString() {
@@ -0,0 +1,186 @@
+package com.monitoring.server.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Table des identités d'agent : chaque identifiant reçoit un numéro dense
+ * (0, 1, 2...) et une String canonique, partagée par toutes les alertes et
+ * métriques de l'agent au lieu d'une copie par trame.
+ *
+ * Seuls les agents enregistrés (voir DataManager.registerAgent) sont numérotés :
+ * les récepteurs se contentent de rechercher les octets reçus, sans construire
+ * de String pour un agent connu, et ne peuvent donc pas remplir la table avec
+ * des identifiants arbitraires. Les lectures se font sans verrou sur la table
+ * publiée ; les ajouts, rares, sont faits sous verrou. Les identités ne sont
+ * jamais retirées (pas plus que les agents connus du DataManager) ; au-delà de
+ * la capacité, les nouveaux agents ne sont plus numérotés (UNKNOWN).
+ */
+public final class AgentIds {
+
+    /** Numéro d'un agent absent de la table */
+    public static final int UNKNOWN = -1;
+
+    /** Capacité maximale d'une table (les numéros restent inférieurs) */
+    public static final int MAX_AGENTS = 1 << 20;
+
+    /** Capacité par défaut */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final Object lock = new Object();
+    private final int capacity;
+
+    // Adressage ouvert sur le hachage des octets ; remplacée (et non modifiée) quand elle grandit
+    private volatile Entry[] table = new Entry[1024];
+    // Numéro -> String canonique
+    private volatile String[] names = new String[512];
+    private int size; // Protégé par lock
+
+    /**
+     * @param capacity Agents numérotés au plus (borné par MAX_AGENTS)
+     */
+    public AgentIds(int capacity) {
+        this.capacity = Math.max(0, Math.min(capacity, MAX_AGENTS));
+    }
+
+    /**
+     * Numéro de l'agent dont l'identifiant est dans buf[from, from + length[
+     * @return Numéro dense, ou UNKNOWN si l'agent n'est pas enregistré
+     */
+    public int idOf(byte[] buf, int from, int length) {
+        return find(table, hash(buf, from, length), buf, from, length);
+    }
+
+    /**
+     * Numéro d'un agent par sa String (UNKNOWN s'il n'est pas enregistré)
+     */
+    public int idOf(String agentId) {
+        byte[] bytes = agentId.getBytes(StandardCharsets.UTF_8);
+        return idOf(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Numérote un agent enregistré ; sa String devient la String canonique s'il est nouveau
+     * @return Numéro dense, ou UNKNOWN si la table est pleine
+     */
+    public int intern(String agentId) {
+        byte[] bytes = agentId.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(bytes, 0, bytes.length);
+        int id = find(table, hash, bytes, 0, bytes.length);
+        return id != UNKNOWN ? id : add(hash, bytes, agentId);
+    }
+
+    /**
+     * String canonique d'un agent numéroté
+     */
+    public String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * String canonique de l'identifiant situé dans buf[from, from + length[
+     * (une nouvelle String si l'agent n'est pas enregistré)
+     */
+    public String nameOf(byte[] buf, int from, int length) {
+        int id = idOf(buf, from, length);
+        return id != UNKNOWN ? names[id] : new String(buf, from, length, StandardCharsets.UTF_8);
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private static int find(Entry[] entries, int hash, byte[] buf, int from, int length) {
+        int mask = entries.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            Entry entry = entries[i];
+            if (entry == null) {
+                return UNKNOWN;
+            }
+            if (entry.hash == hash && entry.matches(buf, from, length)) {
+                return entry.id;
+            }
+        }
+    }
+
+    private int add(int hash, byte[] bytes, String name) {
+        synchronized (lock) {
+            Entry[] entries = table;
+            int id = find(entries, hash, bytes, 0, bytes.length);
+            if (id != UNKNOWN || size >= capacity) {
+                return id;
+            }
+            id = size;
+            Entry entry = new Entry(id, hash, bytes);
+
+            String[] current = names;
+            if (id == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[id] = name;
+            names = current;
+
+            if ((size + 1) * 2 > entries.length) {
+                Entry[] larger = new Entry[entries.length * 2];
+                for (Entry existing : entries) {
+                    if (existing != null) {
+                        insert(larger, existing);
+                    }
+                }
+                entries = larger;
+            }
+            // Un lecteur qui ne voit pas encore l'entrée l'ignore (champs finals : entrée complète)
+            insert(entries, entry);
+            table = entries;
+            size++;
+            return id;
+        }
+    }
+
+    private static void insert(Entry[] entries, Entry entry) {
+        int mask = entries.length - 1;
+        int i = entry.hash & mask;
+        while (entries[i] != null) {
+            i = (i + 1) & mask;
+        }
+        entries[i] = entry;
+    }
+
+    private static int hash(byte[] buf, int from, int length) {
+        int h = 1;
+        for (int i = from, end = from + length; i < end; i++) {
+            h = 31 * h + buf[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Entry {
+        final int id;
+        final int hash;
+        final byte[] bytes;
+
+        Entry(int id, int hash, byte[] bytes) {
+            this.id = id;
+            this.hash = hash;
+            this.bytes = bytes;
+        }
+
+        boolean matches(byte[] buf, int from, int length) {
+            if (bytes.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (bytes[i] != buf[from + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
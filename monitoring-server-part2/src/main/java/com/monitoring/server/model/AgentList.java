@@ -0,0 +1,123 @@
+package com.monitoring.server.model;
+
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * Liste d'agents transmise d'un bloc plutôt qu'objet par objet : les états,
+ * répétés d'un agent à l'autre, ne sont écrits qu'une fois pour toute la liste.
+ *
+ * Une liste figée par {@link #freeze()} n'est plus modifiable et garde sa forme
+ * sérialisée, comme {@link AlertList}.
+ */
+public final class AgentList extends AbstractList<Agent> implements RandomAccess, Externalizable {
+    private static final long serialVersionUID = 1L;
+
+    private ArrayList<Agent> agents;
+    // Forme sérialisée d'une liste figée (null sinon)
+    private transient byte[] serialized;
+
+    /**
+     * Réservé à la désérialisation
+     */
+    public AgentList() {
+        this.agents = new ArrayList<>();
+    }
+
+    public AgentList(Collection<Agent> agents) {
+        this.agents = new ArrayList<>(agents);
+    }
+
+    @Override
+    public Agent get(int index) {
+        return agents.get(index);
+    }
+
+    @Override
+    public int size() {
+        return agents.size();
+    }
+
+    /**
+     * Fige la liste et encode sa forme sérialisée une fois pour toutes
+     * @return Cette liste
+     */
+    public AgentList freeze() {
+        if (serialized == null) {
+            serialized = WireFormat.encode(this::write);
+        }
+        return this;
+    }
+
+    @Override
+    public void add(int index, Agent agent) {
+        checkMutable();
+        agents.add(index, agent);
+        modCount++;
+    }
+
+    @Override
+    public Agent set(int index, Agent agent) {
+        checkMutable();
+        return agents.set(index, agent);
+    }
+
+    @Override
+    public Agent remove(int index) {
+        checkMutable();
+        modCount++;
+        return agents.remove(index);
+    }
+
+    @Override
+    public void clear() {
+        checkMutable();
+        modCount++;
+        agents.clear();
+    }
+
+    private void checkMutable() {
+        if (serialized != null) {
+            throw new UnsupportedOperationException("Liste d'agents figée");
+        }
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        if (serialized != null) {
+            out.write(serialized);
+        } else {
+            write(out);
+        }
+    }
+
+    private void write(DataOutput out) throws IOException {
+        WireFormat.writeVarInt(out, agents.size());
+        WireFormat.Context context = new WireFormat.Context();
+        for (Agent agent : agents) {
+            agent.writeTo(out, context);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        int count = WireFormat.readCount(in);
+        // Capacité plafonnée : la taille annoncée n'est pas une garantie
+        ArrayList<Agent> read = new ArrayList<>(Math.min(count, 4096));
+        WireFormat.Context context = new WireFormat.Context();
+        for (int i = 0; i < count; i++) {
+            Agent agent = new Agent();
+            agent.readFrom(in, context);
+            read.add(agent);
+        }
+        serialized = null;
+        agents = read;
+    }
+}
@@ -1,12 +1,44 @@
 package com.monitoring.server.model;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.time.LocalDateTime;
 
-public class Alert {
+/**
+ * Alerte reçue d'un agent.
+ *
+ * Format d'échange compact (voir WireFormat) : un octet d'indicateurs, les chaînes,
+ * la sévérité sur un octet, séquence et horodatages en différences par rapport à
+ * l'alerte précédente d'une même liste (AlertList). Les horodatages sont transmis
+ * à la milliseconde.
+ */
+public class Alert implements Externalizable {
+    private static final long serialVersionUID = 2L;
+
+    // Indicateurs du format d'échange
+    private static final int HAS_TIMESTAMP = 1;
+    private static final int HAS_FIRST_TIMESTAMP = 2;
+    private static final int HAS_COUNT = 4;
+    
     private String agentId;
     private String message;
     private LocalDateTime timestamp;
     private String severity;
+    private long sequence; // Attribué par le stockage (0 = pas encore stocké)
+    private String metricType; // Métrique concernée (CPU, MEMORY...), null si inconnue
+    private int count = 1; // Nombre d'occurrences regroupées dans cette alerte
+    private LocalDateTime firstTimestamp; // Première occurrence regroupée (null = timestamp)
+    private int agentIndex = AgentIds.UNKNOWN; // Numéro de l'agent (voir AgentIds), non transmis
+    
+    /**
+     * Réservé à la désérialisation
+     */
+    public Alert() {
+    }
     
     public Alert(String agentId, String message, LocalDateTime timestamp, String severity) {
         this.agentId = agentId;
@@ -15,17 +47,109 @@ public class Alert {
         this.severity = severity;
     }
     
+    public Alert(String agentId, String metricType, String message, LocalDateTime timestamp, String severity) {
+        this(agentId, message, timestamp, severity);
+        this.metricType = metricType;
+    }
+    
+    /**
+     * Alerte d'un agent numéroté : agentId est la String canonique de la table
+     * @param agentIndex Numéro de l'agent dans sa table AgentIds (UNKNOWN si non numéroté)
+     */
+    public Alert(String agentId, int agentIndex, String metricType, String message, LocalDateTime timestamp,
+                 String severity) {
+        this(agentId, metricType, message, timestamp, severity);
+        this.agentIndex = agentIndex;
+    }
+    
     // Getters
     public String getAgentId() { return agentId; }
     public String getMessage() { return message; }
     public LocalDateTime getTimestamp() { return timestamp; }
     public String getSeverity() { return severity; }
+    public long getSequence() { return sequence; }
+    public String getMetricType() { return metricType; }
+    public int getCount() { return count; }
+    public LocalDateTime getFirstTimestamp() { return firstTimestamp != null ? firstTimestamp : timestamp; }
+    
+    /**
+     * Numéro de l'agent dans AgentIds, résolu à la réception ; UNKNOWN si l'agent
+     * n'était pas enregistré, pour une alerte interne ou désérialisée
+     */
+    public int getAgentIndex() {
+        return agentIndex;
+    }
     
     // Setters
-    public void setAgentId(String agentId) { this.agentId = agentId; }
+    public void setAgentId(String agentId) {
+        this.agentId = agentId;
+        this.agentIndex = AgentIds.UNKNOWN;
+    }
     public void setMessage(String message) { this.message = message; }
     public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
     public void setSeverity(String severity) { this.severity = severity; }
+    public void setSequence(long sequence) { this.sequence = sequence; }
+    public void setMetricType(String metricType) { this.metricType = metricType; }
+    public void setCount(int count) { this.count = count; }
+    public void setFirstTimestamp(LocalDateTime firstTimestamp) { this.firstTimestamp = firstTimestamp; }
+    
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        writeTo(out, new WireFormat.Context());
+    }
+    
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        readFrom(in, new WireFormat.Context());
+    }
+    
+    /**
+     * Écrit l'alerte en différences par rapport à la précédente du même contexte
+     */
+    void writeTo(DataOutput out, WireFormat.Context context) throws IOException {
+        int flags = (timestamp != null ? HAS_TIMESTAMP : 0)
+                | (firstTimestamp != null && timestamp != null ? HAS_FIRST_TIMESTAMP : 0)
+                | (count != 1 ? HAS_COUNT : 0);
+        out.writeByte(flags);
+        context.writeShared(out, agentId);
+        context.writeShared(out, metricType);
+        WireFormat.writeSeverity(out, severity);
+        WireFormat.writeString(out, message);
+        WireFormat.writeSignedVarLong(out, sequence - context.previousSequence);
+        context.previousSequence = sequence;
+        if (timestamp != null) {
+            long millis = WireFormat.toMillis(timestamp);
+            WireFormat.writeSignedVarLong(out, millis - context.previousMillis);
+            context.previousMillis = millis;
+            if (firstTimestamp != null) {
+                WireFormat.writeSignedVarLong(out, millis - WireFormat.toMillis(firstTimestamp));
+            }
+        }
+        if (count != 1) {
+            WireFormat.writeVarInt(out, count);
+        }
+    }
+    
+    void readFrom(DataInput in, WireFormat.Context context) throws IOException {
+        int flags = in.readUnsignedByte();
+        agentId = context.readShared(in);
+        metricType = context.readShared(in);
+        severity = WireFormat.readSeverity(in);
+        message = WireFormat.readString(in);
+        sequence = context.previousSequence + WireFormat.readSignedVarLong(in);
+        context.previousSequence = sequence;
+        timestamp = null;
+        firstTimestamp = null;
+        if ((flags & HAS_TIMESTAMP) != 0) {
+            long millis = context.previousMillis + WireFormat.readSignedVarLong(in);
+            context.previousMillis = millis;
+            timestamp = WireFormat.fromMillis(millis);
+            if ((flags & HAS_FIRST_TIMESTAMP) != 0) {
+                firstTimestamp = WireFormat.fromMillis(millis - WireFormat.readSignedVarLong(in));
+            }
+        }
+        count = (flags & HAS_COUNT) != 0 ? WireFormat.readVarInt(in) : 1;
+    }
     
     @Override
     public String toString() {
@@ -34,6 +158,7 @@ public class Alert {
                 ", message='" + message + '\'' +
                 ", timestamp=" + timestamp +
                 ", severity='" + severity + '\'' +
+                (count > 1 ? ", count=" + count + ", firstTimestamp=" + getFirstTimestamp() : "") +
                 '}';
     }
 }
\ No newline at end of file
@@ -0,0 +1,135 @@
+package com.monitoring.server.model;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Liste d'alertes transmise d'un bloc plutôt qu'objet par objet.
+ *
+ * Les identifiants d'agent et types de métrique ne sont écrits qu'une fois
+ * (table de chaînes), les séquences et horodatages en différences par rapport
+ * à l'alerte précédente : une page d'alertes consécutives coûte quelques
+ * octets par alerte en plus du message.
+ *
+ * Une liste figée par {@link #freeze()} n'est plus modifiable et garde sa forme
+ * sérialisée : la même liste envoyée à de nombreux clients n'est encodée qu'une fois.
+ */
+public final class AlertList extends AbstractList<Alert> implements RandomAccess, Externalizable {
+    private static final long serialVersionUID = 1L;
+
+    private ArrayList<Alert> alerts;
+    // Forme sérialisée d'une liste figée (null sinon)
+    private transient byte[] serialized;
+
+    /**
+     * Réservé à la désérialisation
+     */
+    public AlertList() {
+        this(0);
+    }
+
+    public AlertList(int capacity) {
+        this.alerts = new ArrayList<>(capacity);
+    }
+
+    @Override
+    public Alert get(int index) {
+        return alerts.get(index);
+    }
+
+    @Override
+    public int size() {
+        return alerts.size();
+    }
+
+    /**
+     * Fige la liste et encode sa forme sérialisée une fois pour toutes
+     * @return Cette liste
+     */
+    public AlertList freeze() {
+        if (serialized == null) {
+            serialized = WireFormat.encode(out -> write(out, alerts));
+        }
+        return this;
+    }
+
+    @Override
+    public void add(int index, Alert alert) {
+        checkMutable();
+        alerts.add(index, alert);
+        modCount++;
+    }
+
+    @Override
+    public Alert set(int index, Alert alert) {
+        checkMutable();
+        return alerts.set(index, alert);
+    }
+
+    @Override
+    public Alert remove(int index) {
+        checkMutable();
+        modCount++;
+        return alerts.remove(index);
+    }
+
+    @Override
+    public void clear() {
+        checkMutable();
+        modCount++;
+        alerts.clear();
+    }
+
+    private void checkMutable() {
+        if (serialized != null) {
+            throw new UnsupportedOperationException("Liste d'alertes figée");
+        }
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        if (serialized != null) {
+            out.write(serialized);
+        } else {
+            write(out, alerts);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        serialized = null;
+        alerts = read(in).alerts;
+    }
+
+    /**
+     * Écrit une liste d'alertes quelconque au format compact
+     */
+    static void write(DataOutput out, List<Alert> alerts) throws IOException {
+        WireFormat.writeVarInt(out, alerts.size());
+        WireFormat.Context context = new WireFormat.Context();
+        for (Alert alert : alerts) {
+            alert.writeTo(out, context);
+        }
+    }
+
+    static AlertList read(DataInput in) throws IOException {
+        int count = WireFormat.readCount(in);
+        // Capacité plafonnée : la taille annoncée n'est pas une garantie
+        AlertList list = new AlertList(Math.min(count, 4096));
+        WireFormat.Context context = new WireFormat.Context();
+        for (int i = 0; i < count; i++) {
+            Alert alert = new Alert();
+            alert.readFrom(in, context);
+            list.alerts.add(alert);
+        }
+        return list;
+    }
+}
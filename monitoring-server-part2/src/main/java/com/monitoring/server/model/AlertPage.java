@@ -0,0 +1,72 @@
+package com.monitoring.server.model;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.List;
+
+/**
+ * Page de résultats d'une requête sur les alertes.
+ * Pour obtenir la page suivante, relancer la requête avec afterSequence = nextCursor.
+ * Les alertes de la page sont transmises d'un bloc (voir AlertList).
+ */
+public class AlertPage implements Externalizable {
+    private static final long serialVersionUID = 2L;
+
+    private List<Alert> alerts;
+    private long nextCursor;
+    private boolean hasMore;
+    private long lastSequence;
+
+    /**
+     * Réservé à la désérialisation
+     */
+    public AlertPage() {
+    }
+
+    /**
+     * @param alerts Alertes de la page, par séquence croissante
+     * @param nextCursor Curseur à passer en afterSequence pour continuer
+     * @param hasMore true si d'autres alertes correspondent au-delà de cette page
+     * @param lastSequence Dernière séquence publiée sur le serveur au moment de la requête
+     */
+    public AlertPage(List<Alert> alerts, long nextCursor, boolean hasMore, long lastSequence) {
+        this.alerts = alerts;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+        this.lastSequence = lastSequence;
+    }
+
+    // Getters
+    public List<Alert> getAlerts() { return alerts; }
+    public long getNextCursor() { return nextCursor; }
+    public boolean hasMore() { return hasMore; }
+    public long getLastSequence() { return lastSequence; }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        AlertList.write(out, alerts);
+        out.writeLong(nextCursor);
+        out.writeBoolean(hasMore);
+        out.writeLong(lastSequence);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        alerts = AlertList.read(in);
+        nextCursor = in.readLong();
+        hasMore = in.readBoolean();
+        lastSequence = in.readLong();
+    }
+
+    @Override
+    public String toString() {
+        return "AlertPage{" +
+                "alerts=" + alerts.size() +
+                ", nextCursor=" + nextCursor +
+                ", hasMore=" + hasMore +
+                ", lastSequence=" + lastSequence +
+                '}';
+    }
+}
\ No newline at end of file
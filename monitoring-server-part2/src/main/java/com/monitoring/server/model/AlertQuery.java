@@ -0,0 +1,85 @@
+package com.monitoring.server.model;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Critères d'une requête paginée sur les alertes.
+ * Les champs non renseignés (null / 0) ne filtrent pas.
+ */
+public class AlertQuery implements Externalizable {
+    private static final long serialVersionUID = 2L;
+
+    /** Taille de page par défaut */
+    public static final int DEFAULT_LIMIT = 500;
+
+    private String agentId;
+    private String severity;
+    private long fromMillis;            // Horodatage de stockage minimal (epoch ms, inclus)
+    private long toMillis;              // Horodatage de stockage maximal (epoch ms, inclus)
+    private long afterSequence;         // Curseur : ne retourner que les séquences > afterSequence
+    private int limit = DEFAULT_LIMIT;
+
+    public AlertQuery() {
+    }
+
+    /**
+     * Requête incrémentale : alertes publiées après la séquence donnée
+     */
+    public static AlertQuery since(long sequence, int limit) {
+        AlertQuery query = new AlertQuery();
+        query.setAfterSequence(sequence);
+        query.setLimit(limit);
+        return query;
+    }
+
+    // Getters
+    public String getAgentId() { return agentId; }
+    public String getSeverity() { return severity; }
+    public long getFromMillis() { return fromMillis; }
+    public long getToMillis() { return toMillis; }
+    public long getAfterSequence() { return afterSequence; }
+    public int getLimit() { return limit; }
+
+    // Setters
+    public void setAgentId(String agentId) { this.agentId = agentId; }
+    public void setSeverity(String severity) { this.severity = severity; }
+    public void setFromMillis(long fromMillis) { this.fromMillis = fromMillis; }
+    public void setToMillis(long toMillis) { this.toMillis = toMillis; }
+    public void setAfterSequence(long afterSequence) { this.afterSequence = afterSequence; }
+    public void setLimit(int limit) { this.limit = limit; }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeString(out, agentId);
+        WireFormat.writeSeverity(out, severity);
+        out.writeLong(fromMillis);
+        out.writeLong(toMillis);
+        out.writeLong(afterSequence);
+        out.writeInt(limit);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        agentId = WireFormat.readString(in);
+        severity = WireFormat.readSeverity(in);
+        fromMillis = in.readLong();
+        toMillis = in.readLong();
+        afterSequence = in.readLong();
+        limit = in.readInt();
+    }
+
+    @Override
+    public String toString() {
+        return "AlertQuery{" +
+                "agentId='" + agentId + '\'' +
+                ", severity='" + severity + '\'' +
+                ", fromMillis=" + fromMillis +
+                ", toMillis=" + toMillis +
+                ", afterSequence=" + afterSequence +
+                ", limit=" + limit +
+                '}';
+    }
+}
\ No newline at end of file
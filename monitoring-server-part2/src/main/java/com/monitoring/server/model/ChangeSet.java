@@ -0,0 +1,114 @@
+package com.monitoring.server.model;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Changements survenus entre deux versions du serveur : nouvelles alertes
+ * et état courant des agents modifiés (un seul état par agent, même s'il a
+ * changé plusieurs fois). Pour continuer, redemander les changements depuis
+ * getVersion(). Alertes et agents sont transmis d'un bloc, avec une table de
+ * chaînes commune (voir AlertList).
+ */
+public class ChangeSet implements Externalizable {
+    private static final long serialVersionUID = 2L;
+
+    // Indicateurs du format d'échange
+    private static final int ALERTS_TRUNCATED = 1;
+    private static final int RESYNC = 2;
+
+    private long fromVersion;
+    private long version;
+    private List<Alert> alerts;
+    private List<Agent> agents;
+    private boolean alertsTruncated;
+    private boolean resync;
+
+    /**
+     * Réservé à la désérialisation
+     */
+    public ChangeSet() {
+    }
+
+    /**
+     * @param fromVersion Version à partir de laquelle les changements sont donnés
+     * @param version Version atteinte (à repasser lors de l'appel suivant)
+     * @param alerts Nouvelles alertes, par séquence croissante
+     * @param agents Agents modifiés, dans leur état courant
+     * @param alertsTruncated true si des alertes de cet intervalle n'ont pas été incluses
+     *                        (les récupérer avec getAlertsSince à partir de la dernière séquence reçue)
+     * @param resync true si fromVersion est trop ancienne ou inconnue : la liste des agents
+     *               est complète et les alertes doivent être rechargées
+     */
+    public ChangeSet(long fromVersion, long version, List<Alert> alerts, List<Agent> agents,
+                     boolean alertsTruncated, boolean resync) {
+        this.fromVersion = fromVersion;
+        this.version = version;
+        this.alerts = alerts;
+        this.agents = agents;
+        this.alertsTruncated = alertsTruncated;
+        this.resync = resync;
+    }
+
+    // Getters
+    public long getFromVersion() { return fromVersion; }
+    public long getVersion() { return version; }
+    public List<Alert> getAlerts() { return alerts; }
+    public List<Agent> getAgents() { return agents; }
+    public boolean isAlertsTruncated() { return alertsTruncated; }
+    public boolean isResync() { return resync; }
+
+    /**
+     * true si aucun changement n'est inclus
+     */
+    public boolean isEmpty() {
+        return alerts.isEmpty() && agents.isEmpty() && !resync;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeLong(fromVersion);
+        out.writeLong(version);
+        out.writeByte((alertsTruncated ? ALERTS_TRUNCATED : 0) | (resync ? RESYNC : 0));
+        AlertList.write(out, alerts);
+        WireFormat.writeVarInt(out, agents.size());
+        WireFormat.Context context = new WireFormat.Context();
+        for (Agent agent : agents) {
+            agent.writeTo(out, context);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        fromVersion = in.readLong();
+        version = in.readLong();
+        int flags = in.readUnsignedByte();
+        alertsTruncated = (flags & ALERTS_TRUNCATED) != 0;
+        resync = (flags & RESYNC) != 0;
+        alerts = AlertList.read(in);
+        int count = WireFormat.readCount(in);
+        agents = new ArrayList<>(Math.min(count, 4096));
+        WireFormat.Context context = new WireFormat.Context();
+        for (int i = 0; i < count; i++) {
+            Agent agent = new Agent();
+            agent.readFrom(in, context);
+            agents.add(agent);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeSet{" +
+                "fromVersion=" + fromVersion +
+                ", version=" + version +
+                ", alerts=" + alerts.size() +
+                ", agents=" + agents.size() +
+                ", alertsTruncated=" + alertsTruncated +
+                ", resync=" + resync +
+                '}';
+    }
+}
@@ -0,0 +1,138 @@
+package com.monitoring.server.model;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * État courant de la flotte : nombre d'agents par état et distribution des
+ * dernières valeurs de chaque métrique (un échantillon par agent), résumée par
+ * un {@link QuantileSketch}. Quelques kilo-octets au plus, quel que soit le
+ * nombre d'agents ; deux résumés de nœuds différents se fusionnent par {@link #merge}.
+ */
+public class FleetSummary implements Externalizable {
+    private static final long serialVersionUID = 1L;
+
+    private long timestampMillis;
+    private Map<String, Integer> agentsByStatus;
+    private QuantileSketch[] latest;
+
+    /**
+     * Réservé à la désérialisation
+     */
+    public FleetSummary() {
+    }
+
+    /**
+     * Résumé vide, à compléter par {@link #addAgent} et {@link #merge}
+     */
+    public FleetSummary(long timestampMillis) {
+        this.timestampMillis = timestampMillis;
+        this.agentsByStatus = new TreeMap<>();
+        this.latest = new QuantileSketch[MetricsBucket.METRIC_COUNT];
+        for (int metric = 0; metric < latest.length; metric++) {
+            latest[metric] = new QuantileSketch();
+        }
+    }
+
+    /**
+     * Compte un agent et son dernier échantillon
+     */
+    public void addAgent(Agent agent) {
+        agentsByStatus.merge(String.valueOf(agent.getStatus()), 1, Integer::sum);
+        SystemMetrics metrics = agent.getLastMetrics();
+        if (metrics != null) {
+            latest[MetricsBucket.CPU].add(metrics.getCpuUsage());
+            latest[MetricsBucket.MEMORY].add(metrics.getMemoryUsage());
+            latest[MetricsBucket.DISK].add(metrics.getDiskUsage());
+        }
+    }
+
+    /**
+     * Ajoute les agents d'un autre résumé (autre shard, autre nœud)
+     */
+    public void merge(FleetSummary other) {
+        timestampMillis = Math.max(timestampMillis, other.timestampMillis);
+        for (Map.Entry<String, Integer> entry : other.agentsByStatus.entrySet()) {
+            agentsByStatus.merge(entry.getKey(), entry.getValue(), Integer::sum);
+        }
+        for (int metric = 0; metric < latest.length; metric++) {
+            latest[metric].merge(other.latest[metric]);
+        }
+    }
+
+    // Getters
+    public long getTimestampMillis() { return timestampMillis; }
+    public Map<String, Integer> getAgentsByStatus() { return Collections.unmodifiableMap(agentsByStatus); }
+
+    public int getAgentCount() {
+        int total = 0;
+        for (int count : agentsByStatus.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    public int getAgentCount(String status) {
+        return agentsByStatus.getOrDefault(status, 0);
+    }
+
+    /**
+     * Distribution des dernières valeurs d'une métrique ("CPU", "MEMORY", "DISK"), null si inconnue
+     */
+    public QuantileSketch getDistribution(String metricType) {
+        int metric = MetricsBucket.metricIndex(metricType);
+        return metric < 0 ? null : latest[metric];
+    }
+
+    /**
+     * Quantile des dernières valeurs d'une métrique sur la flotte (ex. 0.95 pour le p95)
+     * @return Valeur estimée, NaN si la métrique est inconnue ou sans échantillon
+     */
+    public double getPercentile(String metricType, double q) {
+        QuantileSketch sketch = getDistribution(metricType);
+        return sketch == null ? Double.NaN : sketch.quantile(q);
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeLong(timestampMillis);
+        WireFormat.writeVarInt(out, agentsByStatus.size());
+        for (Map.Entry<String, Integer> entry : agentsByStatus.entrySet()) {
+            WireFormat.writeString(out, entry.getKey());
+            WireFormat.writeVarInt(out, entry.getValue());
+        }
+        for (QuantileSketch sketch : latest) {
+            sketch.writeExternal(out);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        timestampMillis = in.readLong();
+        int statuses = WireFormat.readCount(in);
+        agentsByStatus = new TreeMap<>();
+        for (int i = 0; i < statuses; i++) {
+            agentsByStatus.put(WireFormat.readString(in), WireFormat.readCount(in));
+        }
+        latest = new QuantileSketch[MetricsBucket.METRIC_COUNT];
+        for (int metric = 0; metric < latest.length; metric++) {
+            latest[metric] = new QuantileSketch();
+            latest[metric].readExternal(in);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FleetSummary[Agents=%d %s, CPU p50/p95=%.1f/%.1f%%, RAM p50/p95=%.1f/%.1f%%, " +
+                             "Disk p50/p95=%.1f/%.1f%%]",
+                getAgentCount(), agentsByStatus,
+                latest[MetricsBucket.CPU].quantile(0.5), latest[MetricsBucket.CPU].quantile(0.95),
+                latest[MetricsBucket.MEMORY].quantile(0.5), latest[MetricsBucket.MEMORY].quantile(0.95),
+                latest[MetricsBucket.DISK].quantile(0.5), latest[MetricsBucket.DISK].quantile(0.95));
+    }
+}
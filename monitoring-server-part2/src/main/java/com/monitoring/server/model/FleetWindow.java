@@ -0,0 +1,159 @@
+package com.monitoring.server.model;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Activité récente de la flotte sur une fenêtre [startMillis, endMillis[ :
+ * distribution de tous les échantillons reçus par métrique et nombre
+ * d'alertes enregistrées par sévérité. Tenu à jour au fil de l'eau par le
+ * serveur ; deux fenêtres de nœuds différents se fusionnent par {@link #merge}.
+ */
+public class FleetWindow implements Externalizable {
+    private static final long serialVersionUID = 1L;
+
+    private long startMillis;
+    private long endMillis;
+    private QuantileSketch[] samples;
+    private Map<String, Long> alertsBySeverity;
+
+    /**
+     * Réservé à la désérialisation
+     */
+    public FleetWindow() {
+    }
+
+    /**
+     * Fenêtre vide, à compléter par {@link #add}
+     */
+    public FleetWindow(long startMillis, long endMillis) {
+        this.startMillis = startMillis;
+        this.endMillis = endMillis;
+        this.alertsBySeverity = new TreeMap<>();
+        this.samples = new QuantileSketch[MetricsBucket.METRIC_COUNT];
+        for (int metric = 0; metric < samples.length; metric++) {
+            samples[metric] = new QuantileSketch();
+        }
+    }
+
+    /**
+     * Ajoute les échantillons et alertes d'une tranche de temps
+     * @param sketches Distributions par métrique (indices de MetricsBucket)
+     * @param severities Noms des sévérités
+     * @param alertCounts Nombre d'alertes par sévérité (mêmes indices que severities)
+     */
+    public void add(QuantileSketch[] sketches, String[] severities, long[] alertCounts) {
+        for (int metric = 0; metric < samples.length; metric++) {
+            samples[metric].merge(sketches[metric]);
+        }
+        for (int i = 0; i < severities.length; i++) {
+            if (alertCounts[i] != 0) {
+                alertsBySeverity.merge(severities[i], alertCounts[i], Long::sum);
+            }
+        }
+    }
+
+    /**
+     * Ajoute l'activité d'une autre fenêtre (autre nœud)
+     */
+    public void merge(FleetWindow other) {
+        startMillis = Math.min(startMillis, other.startMillis);
+        endMillis = Math.max(endMillis, other.endMillis);
+        for (int metric = 0; metric < samples.length; metric++) {
+            samples[metric].merge(other.samples[metric]);
+        }
+        for (Map.Entry<String, Long> entry : other.alertsBySeverity.entrySet()) {
+            alertsBySeverity.merge(entry.getKey(), entry.getValue(), Long::sum);
+        }
+    }
+
+    // Getters
+    public long getStartMillis() { return startMillis; }
+    public long getEndMillis() { return endMillis; }
+    public Map<String, Long> getAlertsBySeverity() { return Collections.unmodifiableMap(alertsBySeverity); }
+
+    public long getAlertCount() {
+        long total = 0;
+        for (long count : alertsBySeverity.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    public long getAlertCount(String severity) {
+        return alertsBySeverity.getOrDefault(severity, 0L);
+    }
+
+    /**
+     * Nombre d'échantillons reçus sur la fenêtre
+     */
+    public long getSampleCount() {
+        return samples[MetricsBucket.CPU].getCount();
+    }
+
+    /**
+     * Distribution des échantillons d'une métrique ("CPU", "MEMORY", "DISK"), null si inconnue
+     */
+    public QuantileSketch getDistribution(String metricType) {
+        int metric = MetricsBucket.metricIndex(metricType);
+        return metric < 0 ? null : samples[metric];
+    }
+
+    /**
+     * Quantile des échantillons d'une métrique sur la fenêtre (ex. 0.95 pour le p95)
+     * @return Valeur estimée, NaN si la métrique est inconnue ou sans échantillon
+     */
+    public double getPercentile(String metricType, double q) {
+        QuantileSketch sketch = getDistribution(metricType);
+        return sketch == null ? Double.NaN : sketch.quantile(q);
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeLong(startMillis);
+        WireFormat.writeVarLong(out, endMillis - startMillis);
+        for (QuantileSketch sketch : samples) {
+            sketch.writeExternal(out);
+        }
+        WireFormat.writeVarInt(out, alertsBySeverity.size());
+        for (Map.Entry<String, Long> entry : alertsBySeverity.entrySet()) {
+            WireFormat.writeSeverity(out, entry.getKey());
+            WireFormat.writeVarLong(out, entry.getValue());
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        startMillis = in.readLong();
+        long duration = WireFormat.readVarLong(in);
+        if (duration < 0) {
+            throw new InvalidObjectException("Fenêtre invalide");
+        }
+        endMillis = startMillis + duration;
+        samples = new QuantileSketch[MetricsBucket.METRIC_COUNT];
+        for (int metric = 0; metric < samples.length; metric++) {
+            samples[metric] = new QuantileSketch();
+            samples[metric].readExternal(in);
+        }
+        int severities = WireFormat.readCount(in);
+        alertsBySeverity = new TreeMap<>();
+        for (int i = 0; i < severities; i++) {
+            alertsBySeverity.put(WireFormat.readSeverity(in), WireFormat.readVarLong(in));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FleetWindow[Durée=%dms, Échantillons=%d, CPU p95=%.1f%%, RAM p95=%.1f%%, " +
+                             "Disk p95=%.1f%%, Alertes=%s]",
+                endMillis - startMillis, getSampleCount(), samples[MetricsBucket.CPU].quantile(0.95),
+                samples[MetricsBucket.MEMORY].quantile(0.95), samples[MetricsBucket.DISK].quantile(0.95),
+                alertsBySeverity);
+    }
+}
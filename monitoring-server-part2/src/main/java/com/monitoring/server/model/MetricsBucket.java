@@ -0,0 +1,140 @@
+package com.monitoring.server.model;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Agrégat des métriques d'un agent sur un intervalle de temps :
+ * minimum, maximum, moyenne et dernière valeur de CPU, mémoire et disque.
+ */
+public class MetricsBucket implements Externalizable {
+    private static final long serialVersionUID = 2L;
+
+    /** Indices des métriques dans les tableaux de statistiques */
+    public static final int CPU = 0;
+    public static final int MEMORY = 1;
+    public static final int DISK = 2;
+    public static final int METRIC_COUNT = 3;
+    
+    /** Noms des métriques (types de métrique des alertes), dans l'ordre des indices */
+    public static final String[] METRIC_NAMES = {"CPU", "MEMORY", "DISK"};
+
+    private String agentId;
+    private long startMillis;
+    private long durationMillis;
+    private long count;
+    private double[] min;
+    private double[] max;
+    private double[] avg;
+    private double[] last;
+
+    /**
+     * Réservé à la désérialisation
+     */
+    public MetricsBucket() {
+    }
+
+    /**
+     * @param agentId Identifiant de l'agent
+     * @param startMillis Début de l'intervalle (ms epoch)
+     * @param durationMillis Durée de l'intervalle (0 pour un échantillon brut)
+     * @param count Nombre d'échantillons agrégés
+     * @param min Minimum par métrique (indices CPU, MEMORY, DISK)
+     * @param max Maximum par métrique
+     * @param avg Moyenne par métrique
+     * @param last Dernière valeur par métrique
+     */
+    public MetricsBucket(String agentId, long startMillis, long durationMillis, long count,
+                         double[] min, double[] max, double[] avg, double[] last) {
+        this.agentId = agentId;
+        this.startMillis = startMillis;
+        this.durationMillis = durationMillis;
+        this.count = count;
+        this.min = min;
+        this.max = max;
+        this.avg = avg;
+        this.last = last;
+    }
+
+    // Getters
+    public String getAgentId() { return agentId; }
+    public long getStartMillis() { return startMillis; }
+    public long getDurationMillis() { return durationMillis; }
+    public long getCount() { return count; }
+    public double getMin(int metric) { return min[metric]; }
+    public double getMax(int metric) { return max[metric]; }
+    public double getAvg(int metric) { return avg[metric]; }
+    public double getLast(int metric) { return last[metric]; }
+
+    public double getCpuMin() { return min[CPU]; }
+    public double getCpuMax() { return max[CPU]; }
+    public double getCpuAvg() { return avg[CPU]; }
+    public double getCpuLast() { return last[CPU]; }
+    public double getMemoryMin() { return min[MEMORY]; }
+    public double getMemoryMax() { return max[MEMORY]; }
+    public double getMemoryAvg() { return avg[MEMORY]; }
+    public double getMemoryLast() { return last[MEMORY]; }
+    public double getDiskMin() { return min[DISK]; }
+    public double getDiskMax() { return max[DISK]; }
+    public double getDiskAvg() { return avg[DISK]; }
+    public double getDiskLast() { return last[DISK]; }
+
+    /**
+     * Indice d'une métrique d'après son nom ("CPU", "MEMORY", "DISK"), -1 si inconnue
+     */
+    public static int metricIndex(String metricType) {
+        for (int metric = 0; metric < METRIC_COUNT; metric++) {
+            if (METRIC_NAMES[metric].equalsIgnoreCase(metricType)) {
+                return metric;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeString(out, agentId);
+        out.writeLong(startMillis);
+        WireFormat.writeVarLong(out, durationMillis);
+        WireFormat.writeVarLong(out, count);
+        for (int metric = 0; metric < METRIC_COUNT; metric++) {
+            out.writeDouble(min[metric]);
+            out.writeDouble(max[metric]);
+            out.writeDouble(avg[metric]);
+            out.writeDouble(last[metric]);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        agentId = WireFormat.readString(in);
+        startMillis = in.readLong();
+        durationMillis = WireFormat.readVarLong(in);
+        count = WireFormat.readVarLong(in);
+        if (durationMillis < 0 || count < 0) {
+            throw new InvalidObjectException("Agrégat invalide");
+        }
+        min = new double[METRIC_COUNT];
+        max = new double[METRIC_COUNT];
+        avg = new double[METRIC_COUNT];
+        last = new double[METRIC_COUNT];
+        for (int metric = 0; metric < METRIC_COUNT; metric++) {
+            min[metric] = in.readDouble();
+            max[metric] = in.readDouble();
+            avg[metric] = in.readDouble();
+            last[metric] = in.readDouble();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MetricsBucket[Agent=%s, Start=%d, Durée=%dms, N=%d, CPU=%.1f/%.1f/%.1f%%, " +
+                             "RAM=%.1f/%.1f/%.1f%%, Disk=%.1f/%.1f/%.1f%%]",
+                agentId, startMillis, durationMillis, count,
+                min[CPU], avg[CPU], max[CPU], min[MEMORY], avg[MEMORY], max[MEMORY],
+                min[DISK], avg[DISK], max[DISK]);
+    }
+}
\ No newline at end of file
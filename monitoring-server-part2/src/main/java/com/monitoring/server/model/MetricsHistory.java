@@ -0,0 +1,138 @@
+package com.monitoring.server.model;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Historique des métriques d'un agent, rangé en colonnes primitives.
+ *
+ * Vu comme une List&lt;SystemMetrics&gt; en lecture seule : chaque get(i) construit
+ * l'échantillon à la demande. Transmis d'un bloc : l'identifiant de l'agent une
+ * seule fois, puis pour chaque échantillon l'écart avec l'horodatage précédent en
+ * entier variable (1 à 3 octets à cadence régulière) et les trois valeurs.
+ */
+public final class MetricsHistory extends AbstractList<SystemMetrics> implements RandomAccess, Externalizable {
+    private static final long serialVersionUID = 1L;
+
+    private String agentId;
+    private int size;
+    private long[] timestamps;
+    private double[] cpu;
+    private double[] memory;
+    private double[] disk;
+
+    /**
+     * Réservé à la désérialisation
+     */
+    public MetricsHistory() {
+        this(null, 0);
+    }
+
+    /**
+     * @param agentId Agent de l'historique
+     * @param capacity Nombre d'échantillons prévus
+     */
+    public MetricsHistory(String agentId, int capacity) {
+        this.agentId = agentId;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        timestamps = new long[capacity];
+        cpu = new double[capacity];
+        memory = new double[capacity];
+        disk = new double[capacity];
+    }
+
+    /**
+     * Ajoute un échantillon (par ordre chronologique)
+     */
+    public void append(long timestampMillis, double cpuUsage, double memoryUsage, double diskUsage) {
+        if (size == timestamps.length) {
+            int capacity = Math.max(8, size * 2);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            cpu = Arrays.copyOf(cpu, capacity);
+            memory = Arrays.copyOf(memory, capacity);
+            disk = Arrays.copyOf(disk, capacity);
+        }
+        timestamps[size] = timestampMillis;
+        cpu[size] = cpuUsage;
+        memory[size] = memoryUsage;
+        disk[size] = diskUsage;
+        size++;
+    }
+
+    public String getAgentId() {
+        return agentId;
+    }
+
+    public long getTimestampMillis(int index) {
+        checkIndex(index);
+        return timestamps[index];
+    }
+
+    public double getCpuUsage(int index) {
+        checkIndex(index);
+        return cpu[index];
+    }
+
+    public double getMemoryUsage(int index) {
+        checkIndex(index);
+        return memory[index];
+    }
+
+    public double getDiskUsage(int index) {
+        checkIndex(index);
+        return disk[index];
+    }
+
+    @Override
+    public SystemMetrics get(int index) {
+        checkIndex(index);
+        return new SystemMetrics(agentId, cpu[index], memory[index], disk[index], timestamps[index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " hors de [0, " + size + "[");
+        }
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeString(out, agentId);
+        WireFormat.writeVarInt(out, size);
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            WireFormat.writeSignedVarLong(out, timestamps[i] - previous);
+            previous = timestamps[i];
+            out.writeDouble(cpu[i]);
+            out.writeDouble(memory[i]);
+            out.writeDouble(disk[i]);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        agentId = WireFormat.readString(in);
+        int count = WireFormat.readCount(in);
+        // Les colonnes grandissent avec les données effectivement lues (taille annoncée non fiable)
+        allocate(Math.min(count, 4096));
+        size = 0;
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += WireFormat.readSignedVarLong(in);
+            append(previous, in.readDouble(), in.readDouble(), in.readDouble());
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.monitoring.server.model;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Arrays;
+
+/**
+ * Résumé de distribution fusionnable, à erreur relative bornée : toute valeur
+ * positive tombe dans un seau logarithmique [gamma^(i-1), gamma^i[, et un
+ * quantile est estimé à RELATIVE_ACCURACY près (1 %) quelle que soit la
+ * distribution. Fusionner deux résumés revient à additionner leurs seaux : le
+ * résultat est exactement celui qu'aurait donné l'ensemble des valeurs.
+ *
+ * Les valeurs inférieures à MIN_VALUE (zéro, négatives) sont comptées à part
+ * et les valeurs au-delà de MAX_VALUE dans le dernier seau : au plus quelques
+ * centaines de seaux pour des pourcentages, rangés dans un tableau dense qui
+ * ne couvre que la plage observée. Le nombre, la somme, le minimum et le
+ * maximum sont exacts.
+ *
+ * Non synchronisé : chaque résumé a un seul écrivain à la fois.
+ */
+public class QuantileSketch implements Externalizable {
+    private static final long serialVersionUID = 1L;
+
+    /** Erreur relative maximale d'un quantile */
+    public static final double RELATIVE_ACCURACY = 0.01;
+
+    /** Plus petite valeur distinguée de zéro */
+    public static final double MIN_VALUE = 1e-3;
+
+    /** Valeur au-delà de laquelle les valeurs partagent le dernier seau */
+    public static final double MAX_VALUE = 1e6;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final int MIN_INDEX = index(MIN_VALUE);
+    private static final int MAX_INDEX = index(MAX_VALUE);
+    private static final long[] NO_BUCKETS = new long[0];
+
+    // buckets[i] : nombre de valeurs du seau offset + i
+    private long[] buckets = NO_BUCKETS;
+    private int offset;
+    private long zeroCount;
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public QuantileSketch() {
+    }
+
+    /**
+     * Ajoute une valeur (NaN ignoré)
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        if (value < MIN_VALUE) {
+            zeroCount++;
+            return;
+        }
+        int index = value >= MAX_VALUE ? MAX_INDEX : index(value);
+        cover(index, index);
+        buckets[index - offset]++;
+    }
+
+    /**
+     * Ajoute toutes les valeurs résumées par un autre résumé
+     */
+    public void merge(QuantileSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        zeroCount += other.zeroCount;
+        if (other.buckets.length == 0) {
+            return;
+        }
+        cover(other.offset, other.offset + other.buckets.length - 1);
+        for (int i = 0; i < other.buckets.length; i++) {
+            buckets[other.offset + i - offset] += other.buckets[i];
+        }
+    }
+
+    /**
+     * Vide le résumé (la mémoire des seaux est conservée)
+     */
+    public void clear() {
+        Arrays.fill(buckets, 0);
+        zeroCount = 0;
+        count = 0;
+        sum = 0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Estimation du quantile q (0 = minimum, 0.5 = médiane, 0.95 = p95, 1 = maximum)
+     * @return Valeur estimée, ou NaN si le résumé est vide
+     */
+    public double quantile(double q) {
+        if (count == 0 || Double.isNaN(q)) {
+            return Double.NaN;
+        }
+        if (q <= 0) {
+            return min;
+        }
+        if (q >= 1) {
+            return max;
+        }
+        long rank = (long) (q * (count - 1));
+        if (rank < zeroCount) {
+            return Math.max(min, Math.min(0, max));
+        }
+        long seen = zeroCount;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen > rank) {
+                // Milieu relatif du seau : erreur au plus RELATIVE_ACCURACY
+                double estimate = 2 * Math.pow(GAMMA, offset + i) / (GAMMA + 1);
+                return Math.max(min, Math.min(max, estimate));
+            }
+        }
+        return max;
+    }
+
+    public long getCount() { return count; }
+    public double getSum() { return sum; }
+    public double getMin() { return count == 0 ? Double.NaN : min; }
+    public double getMax() { return count == 0 ? Double.NaN : max; }
+    public double getMean() { return count == 0 ? Double.NaN : sum / count; }
+
+    private static int index(double value) {
+        return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+    }
+
+    /**
+     * Étend le tableau des seaux pour couvrir [low, high]
+     */
+    private void cover(int low, int high) {
+        if (buckets.length == 0) {
+            // Un peu de marge de part et d'autre : les valeurs voisines suivront
+            offset = Math.max(MIN_INDEX, low - 16);
+            buckets = new long[Math.min(MAX_INDEX, high + 16) - offset + 1];
+            return;
+        }
+        int end = offset + buckets.length - 1;
+        if (low >= offset && high <= end) {
+            return;
+        }
+        int newOffset = low < offset ? Math.max(MIN_INDEX, Math.min(low, offset - buckets.length / 2)) : offset;
+        int newEnd = high > end ? Math.min(MAX_INDEX, Math.max(high, end + buckets.length / 2)) : end;
+        long[] grown = new long[newEnd - newOffset + 1];
+        System.arraycopy(buckets, 0, grown, offset - newOffset, buckets.length);
+        buckets = grown;
+        offset = newOffset;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeVarLong(out, count);
+        if (count == 0) {
+            return;
+        }
+        WireFormat.writeVarLong(out, zeroCount);
+        out.writeDouble(sum);
+        out.writeDouble(min);
+        out.writeDouble(max);
+        // Seulement la plage des seaux non vides
+        int first = 0;
+        int last = buckets.length - 1;
+        while (first <= last && buckets[first] == 0) {
+            first++;
+        }
+        while (last >= first && buckets[last] == 0) {
+            last--;
+        }
+        WireFormat.writeSignedVarLong(out, offset + first);
+        WireFormat.writeVarInt(out, last - first + 1);
+        for (int i = first; i <= last; i++) {
+            WireFormat.writeVarLong(out, buckets[i]);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        count = WireFormat.readVarLong(in);
+        if (count == 0) {
+            return;
+        }
+        zeroCount = WireFormat.readVarLong(in);
+        sum = in.readDouble();
+        min = in.readDouble();
+        max = in.readDouble();
+        long first = WireFormat.readSignedVarLong(in);
+        int length = WireFormat.readCount(in);
+        if (length > 0 && (first < MIN_INDEX || first + length - 1 > MAX_INDEX)) {
+            throw new InvalidObjectException("Résumé de distribution invalide");
+        }
+        offset = (int) first;
+        buckets = length == 0 ? NO_BUCKETS : new long[length];
+        long total = zeroCount;
+        for (int i = 0; i < length; i++) {
+            buckets[i] = WireFormat.readVarLong(in);
+            total += buckets[i];
+        }
+        if (total != count) {
+            throw new InvalidObjectException("Résumé de distribution incohérent");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("QuantileSketch[N=%d, min=%.1f, p50=%.1f, p95=%.1f, max=%.1f]",
+                count, getMin(), quantile(0.5), quantile(0.95), getMax());
+    }
+}
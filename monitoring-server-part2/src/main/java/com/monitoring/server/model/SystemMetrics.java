@@ -1,40 +1,110 @@
 package com.monitoring.server.model;
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Échantillon de métriques d'un agent.
+ *
+ * L'horodatage est conservé en millisecondes epoch (converti en LocalDateTime
+ * à la demande) et transmis tel quel ; un historique complet se transmet sous
+ * forme de MetricsHistory, qui n'écrit l'identifiant de l'agent qu'une fois.
+ */
+public class SystemMetrics implements Externalizable {
+    private static final long serialVersionUID = 2L;
 
-public class SystemMetrics implements Serializable {
     private String agentId;
     private double cpuUsage;
     private double memoryUsage;
     private double diskUsage;
-    private LocalDateTime timestamp;
-    
+    private long timestampMillis;
+    private int agentIndex = AgentIds.UNKNOWN; // Numéro de l'agent (voir AgentIds), non transmis
+
+    /**
+     * Réservé à la désérialisation
+     */
+    public SystemMetrics() {
+    }
+
     public SystemMetrics(String agentId, double cpuUsage, double memoryUsage, double diskUsage) {
+        this(agentId, cpuUsage, memoryUsage, diskUsage, System.currentTimeMillis());
+    }
+
+    public SystemMetrics(String agentId, double cpuUsage, double memoryUsage, double diskUsage,
+                         long timestampMillis) {
         this.agentId = agentId;
         this.cpuUsage = cpuUsage;
         this.memoryUsage = memoryUsage;
         this.diskUsage = diskUsage;
-        this.timestamp = LocalDateTime.now();
+        this.timestampMillis = timestampMillis;
     }
-    
+
+    /**
+     * Échantillon d'un agent numéroté : agentId est la String canonique de la table
+     * @param agentIndex Numéro de l'agent dans sa table AgentIds (UNKNOWN si non numéroté)
+     */
+    public SystemMetrics(String agentId, int agentIndex, double cpuUsage, double memoryUsage, double diskUsage,
+                         long timestampMillis) {
+        this(agentId, cpuUsage, memoryUsage, diskUsage, timestampMillis);
+        this.agentIndex = agentIndex;
+    }
+
     // Getters
     public String getAgentId() { return agentId; }
     public double getCpuUsage() { return cpuUsage; }
     public double getMemoryUsage() { return memoryUsage; }
     public double getDiskUsage() { return diskUsage; }
-    public LocalDateTime getTimestamp() { return timestamp; }
+    public LocalDateTime getTimestamp() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(timestampMillis), ZoneId.systemDefault());
+    }
+    public long getTimestampMillis() { return timestampMillis; }
     
+    /**
+     * Numéro de l'agent dans AgentIds, s'il a été résolu à la création ; UNKNOWN sinon
+     */
+    public int getAgentIndex() {
+        return agentIndex;
+    }
+
     // Setters
-    public void setAgentId(String agentId) { this.agentId = agentId; }
+    public void setAgentId(String agentId) {
+        this.agentId = agentId;
+        this.agentIndex = AgentIds.UNKNOWN;
+    }
     public void setCpuUsage(double cpuUsage) { this.cpuUsage = cpuUsage; }
     public void setMemoryUsage(double memoryUsage) { this.memoryUsage = memoryUsage; }
     public void setDiskUsage(double diskUsage) { this.diskUsage = diskUsage; }
-    public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
-    
+    public void setTimestamp(LocalDateTime timestamp) {
+        this.timestampMillis = timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+    public void setTimestampMillis(long timestampMillis) { this.timestampMillis = timestampMillis; }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeString(out, agentId);
+        out.writeLong(timestampMillis);
+        out.writeDouble(cpuUsage);
+        out.writeDouble(memoryUsage);
+        out.writeDouble(diskUsage);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        agentId = WireFormat.readString(in);
+        timestampMillis = in.readLong();
+        cpuUsage = in.readDouble();
+        memoryUsage = in.readDouble();
+        diskUsage = in.readDouble();
+    }
+
     @Override
     public String toString() {
         return String.format("SystemMetrics[Agent=%s, CPU=%.1f%%, RAM=%.1f%%, Disk=%.1f%%, Time=%s]",
-                agentId, cpuUsage, memoryUsage, diskUsage, timestamp);
+                agentId, cpuUsage, memoryUsage, diskUsage, getTimestamp());
     }
-}
\ No newline at end of file
+}
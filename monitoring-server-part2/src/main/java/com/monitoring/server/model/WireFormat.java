@@ -0,0 +1,221 @@
+package com.monitoring.server.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Primitives du format compact des objets échangés par RMI (writeExternal / readExternal).
+ *
+ *   entiers variables : 7 bits par octet, bit de poids fort = suite (zigzag pour les signés)
+ *   chaînes           : longueur UTF-8 + 1 en entier variable (0 = null), puis les octets
+ *   sévérité          : un octet (0 = null, 1..4 = LOW..CRITICAL, 5 = autre suivie de la chaîne)
+ *   LocalDateTime     : millisecondes "murales" (sans fuseau), comme l'heure affichée
+ *
+ * Dans une liste, une table de chaînes évite de répéter les identifiants d'agent
+ * et les types de métrique : la première occurrence est écrite en clair, les
+ * suivantes par leur indice.
+ */
+final class WireFormat {
+
+    // Mêmes valeurs que les sévérités des règles (RuleSet)
+    private static final String[] SEVERITIES = {"LOW", "MEDIUM", "HIGH", "CRITICAL"};
+    private static final int OTHER_SEVERITY = SEVERITIES.length + 1;
+
+    /** Longueur maximale acceptée à la lecture d'une chaîne */
+    private static final int MAX_STRING_BYTES = 1 << 20;
+
+    private WireFormat() {
+    }
+
+    /**
+     * Écriture au format compact (voir encode)
+     */
+    interface Writer {
+        void writeTo(DataOutput out) throws IOException;
+    }
+
+    /**
+     * Octets qu'écrirait writer : recopiés tels quels dans un flux d'objets, ils
+     * donnent exactement la même forme sérialisée
+     */
+    static byte[] encode(Writer writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        try {
+            writer.writeTo(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            // Impossible en mémoire
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new InvalidObjectException("Entier variable trop long");
+    }
+
+    static void writeSignedVarLong(DataOutput out, long value) throws IOException {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    static long readSignedVarLong(DataInput in) throws IOException {
+        long zigzag = readVarLong(in);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    static int readVarInt(DataInput in) throws IOException {
+        return (int) readVarLong(in);
+    }
+
+    /**
+     * Taille d'une collection, vérifiée avant toute allocation
+     */
+    static int readCount(DataInput in) throws IOException {
+        int count = readVarInt(in);
+        if (count < 0) {
+            throw new InvalidObjectException("Taille invalide: " + count);
+        }
+        return count;
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeByte(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = readVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length > MAX_STRING_BYTES) {
+            throw new InvalidObjectException("Chaîne trop longue: " + length + " octets");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeSeverity(DataOutput out, String severity) throws IOException {
+        if (severity == null) {
+            out.writeByte(0);
+            return;
+        }
+        for (int i = 0; i < SEVERITIES.length; i++) {
+            if (SEVERITIES[i].equals(severity)) {
+                out.writeByte(i + 1);
+                return;
+            }
+        }
+        out.writeByte(OTHER_SEVERITY);
+        writeString(out, severity);
+    }
+
+    /**
+     * Les sévérités connues sont rendues sous forme de constantes partagées
+     */
+    static String readSeverity(DataInput in) throws IOException {
+        int code = in.readUnsignedByte();
+        if (code == 0) {
+            return null;
+        }
+        if (code <= SEVERITIES.length) {
+            return SEVERITIES[code - 1];
+        }
+        if (code == OTHER_SEVERITY) {
+            return readString(in);
+        }
+        throw new InvalidObjectException("Sévérité inconnue: " + code);
+    }
+
+    /**
+     * Heure murale en millisecondes (précision ramenée à la milliseconde)
+     */
+    static long toMillis(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1000 + timestamp.getNano() / 1_000_000;
+    }
+
+    static LocalDateTime fromMillis(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L),
+                                           (int) Math.floorMod(millis, 1000L) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * État partagé par les éléments successifs d'une liste : table de chaînes
+     * et valeurs précédentes pour l'encodage en différences
+     */
+    static final class Context {
+        private final Map<String, Integer> written = new HashMap<>();
+        private final List<String> read = new ArrayList<>();
+        long previousSequence;
+        long previousMillis;
+
+        void writeShared(DataOutput out, String value) throws IOException {
+            if (value == null) {
+                out.writeByte(0);
+                return;
+            }
+            Integer index = written.get(value);
+            if (index != null) {
+                writeVarInt(out, index + 2);
+            } else {
+                written.put(value, written.size());
+                out.writeByte(1);
+                writeString(out, value);
+            }
+        }
+
+        String readShared(DataInput in) throws IOException {
+            int code = readVarInt(in);
+            if (code == 0) {
+                return null;
+            }
+            if (code == 1) {
+                String value = readString(in);
+                read.add(value);
+                return value;
+            }
+            int index = code - 2;
+            if (index < 0 || index >= read.size()) {
+                throw new InvalidObjectException("Référence de chaîne invalide: " + index);
+            }
+            return read.get(index);
+        }
+    }
+}
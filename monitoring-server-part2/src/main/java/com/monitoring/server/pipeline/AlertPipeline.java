@@ -0,0 +1,353 @@
+package com.monitoring.server.pipeline;
+
+import com.monitoring.server.logging.Log;
+import com.monitoring.server.model.AgentIds;
+import com.monitoring.server.model.Alert;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Étage d'ingestion placé entre les récepteurs et le DataManager.
+ *
+ * Regroupement : la première alerte d'un triplet (agent, métrique, sévérité)
+ * est transmise immédiatement ; les suivantes arrivant moins de windowMillis
+ * après la précédente sont seulement comptées. À la fin de chaque fenêtre,
+ * une seule alerte résume les occurrences absorbées (nombre, première et
+ * dernière occurrence, dernier message).
+ *
+ * Limitation : chaque alerte transmise consomme un jeton du seau de son agent
+ * puis du seau global. Sans jeton, l'alerte est écartée et comptée (l'agent
+ * reçoit ALERTE_LIMITEE au lieu d'un acquittement) ; un résumé des alertes
+ * écartées est émis pour l'agent dès que les jetons le permettent.
+ */
+public class AlertPipeline implements AlertSink {
+
+    private static final Log LOG = Log.get("Pipeline");
+
+    /** Sévérité des résumés d'alertes écartées par limitation */
+    private static final String SUPPRESSION_SEVERITY = "MEDIUM";
+
+    /** Métrique des résumés d'alertes écartées */
+    private static final String SUPPRESSION_METRIC = "STORM";
+
+    private final AlertSink target;
+    private final long windowMillis;
+    private final double agentRate;
+    private final int agentBurst;
+    private final TokenBucket globalBucket;
+
+    private final Map<Key, Window> windows = new ConcurrentHashMap<>();
+    private final Map<String, AgentLimit> agentLimits = new ConcurrentHashMap<>();
+
+    // Compteurs
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong forwarded = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    /**
+     * @param target Destination des alertes retenues (le DataManager)
+     * @param windowMillis Fenêtre de regroupement des alertes identiques (0 = pas de regroupement)
+     * @param agentRatePerSecond Alertes transmises par seconde et par agent (0 = illimité)
+     * @param agentBurst Rafale autorisée par agent
+     * @param globalRatePerSecond Alertes transmises par seconde, tous agents confondus (0 = illimité)
+     * @param globalBurst Rafale autorisée tous agents confondus
+     */
+    public AlertPipeline(AlertSink target, long windowMillis, double agentRatePerSecond, int agentBurst,
+                         double globalRatePerSecond, int globalBurst) {
+        this.target = target;
+        this.windowMillis = Math.max(0, windowMillis);
+        this.agentRate = agentRatePerSecond;
+        this.agentBurst = Math.max(1, agentBurst);
+        this.globalBucket = globalRatePerSecond > 0 ? new TokenBucket(globalRatePerSecond, Math.max(1, globalBurst)) : null;
+    }
+
+    /**
+     * Démarre le thread qui clôt les fenêtres et émet les résumés
+     */
+    public void start() {
+        running = true;
+        flusher = new Thread(this::flushLoop, "alert-coalescer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Arrête le thread et émet les résumés en attente
+     */
+    public void stop() {
+        running = false;
+        if (flusher != null) {
+            flusher.interrupt();
+            try {
+                flusher.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush(Long.MAX_VALUE, true);
+    }
+
+    @Override
+    public Result submit(Alert alert) {
+        received.incrementAndGet();
+        long now = System.currentTimeMillis();
+        if (windowMillis > 0) {
+            Key key = new Key(alert, alert.getMetricType(), alert.getSeverity());
+            while (true) {
+                Window window = windows.get(key);
+                if (window == null) {
+                    Window created = new Window(now);
+                    window = windows.putIfAbsent(key, created);
+                    if (window == null) {
+                        // Première occurrence : transmise tout de suite
+                        return forward(alert, System.nanoTime());
+                    }
+                }
+                synchronized (window) {
+                    if (window.closed) {
+                        // Fenêtre retirée entre-temps : en ouvrir une nouvelle
+                        continue;
+                    }
+                    if (window.pending == null) {
+                        window.firstPending = alert.getFirstTimestamp();
+                    }
+                    window.pending = alert;
+                    window.pendingCount += alert.getCount();
+                    window.lastSeen = now;
+                }
+                coalesced.incrementAndGet();
+                return Result.MERGED;
+            }
+        }
+        return forward(alert, System.nanoTime());
+    }
+
+    /**
+     * Transmet une alerte si les seaux de l'agent et global le permettent
+     */
+    private Result forward(Alert alert, long nowNanos) {
+        AgentLimit limit = agentRate > 0 || globalBucket != null ? limitFor(alert.getAgentId()) : null;
+        if (!acquire(limit, nowNanos)) {
+            suppressed.incrementAndGet();
+            if (limit != null) {
+                limit.suppressed.incrementAndGet();
+            }
+            return Result.DISCARDED;
+        }
+        return deliver(alert);
+    }
+
+    private boolean acquire(AgentLimit limit, long nowNanos) {
+        if (limit != null && limit.bucket != null && !limit.bucket.tryAcquire(nowNanos)) {
+            return false;
+        }
+        // Un jeton d'agent pris alors que le seau global est vide est perdu : acceptable en pleine tempête
+        return globalBucket == null || globalBucket.tryAcquire(nowNanos);
+    }
+
+    private Result deliver(Alert alert) {
+        forwarded.incrementAndGet();
+        try {
+            return target.submit(alert);
+        } catch (RuntimeException e) {
+            LOG.error("Erreur lors de l'enregistrement d'une alerte: {}", e.getMessage());
+            return Result.DISCARDED;
+        }
+    }
+
+    private AgentLimit limitFor(String agentId) {
+        String key = agentId == null ? "" : agentId;
+        AgentLimit limit = agentLimits.get(key);
+        if (limit == null) {
+            limit = agentLimits.computeIfAbsent(key, id ->
+                    new AgentLimit(agentRate > 0 ? new TokenBucket(agentRate, agentBurst) : null));
+        }
+        return limit;
+    }
+
+    private void flushLoop() {
+        long interval = Math.max(10, Math.min(1000, windowMillis / 4));
+        while (running) {
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                return;
+            }
+            flush(System.currentTimeMillis(), false);
+        }
+    }
+
+    /**
+     * Émet les résumés des fenêtres écoulées et retire les fenêtres inactives
+     * @param force true pour tout émettre (arrêt)
+     */
+    private void flush(long now, boolean force) {
+        for (Iterator<Map.Entry<Key, Window>> it = windows.entrySet().iterator(); it.hasNext(); ) {
+            Window window = it.next().getValue();
+            Alert summary = null;
+            synchronized (window) {
+                if (window.pending != null && (force || now - window.start >= windowMillis)) {
+                    summary = summarize(window, force);
+                    if (summary == null) {
+                        // Pas de jeton : les occurrences restent comptées pour la fenêtre suivante
+                        continue;
+                    }
+                    window.pending = null;
+                    window.pendingCount = 0;
+                    window.start = now;
+                } else if (window.pending == null && (force || now - window.lastSeen >= windowMillis)) {
+                    window.closed = true;
+                    it.remove();
+                }
+            }
+            if (summary != null) {
+                deliver(summary);
+            }
+        }
+        flushSuppressed(force);
+    }
+
+    /**
+     * Construit l'alerte résumant les occurrences absorbées, si un jeton est disponible
+     * @param force true pour ignorer la limitation (arrêt)
+     */
+    private Alert summarize(Window window, boolean force) {
+        Alert last = window.pending;
+        AgentLimit limit = agentRate > 0 ? limitFor(last.getAgentId()) : null;
+        if (!force && !acquire(limit, System.nanoTime())) {
+            return null;
+        }
+        int count = window.pendingCount;
+        Alert summary = new Alert(last.getAgentId(), last.getMetricType(),
+                last.getMessage() + " [" + count + " occurrence(s) regroupée(s)]",
+                last.getTimestamp(), last.getSeverity());
+        summary.setCount(count);
+        summary.setFirstTimestamp(window.firstPending);
+        return summary;
+    }
+
+    /**
+     * Émet, pour chaque agent limité, une alerte indiquant combien d'alertes ont été écartées,
+     * et retire les agents inactifs (seau plein, rien d'écarté)
+     */
+    private void flushSuppressed(boolean force) {
+        long nowNanos = System.nanoTime();
+        for (Map.Entry<String, AgentLimit> entry : agentLimits.entrySet()) {
+            AgentLimit limit = entry.getValue();
+            long count = limit.suppressed.get();
+            if (count == 0) {
+                if ((limit.bucket == null || limit.bucket.isFull(nowNanos))
+                    && agentLimits.remove(entry.getKey(), limit)) {
+                    // Une alerte écartée juste avant le retrait est encore signalée ci-dessous
+                    count = limit.suppressed.get();
+                }
+                if (count == 0) {
+                    continue;
+                }
+            }
+            if (!force && !(globalBucket == null || globalBucket.tryAcquire(System.nanoTime()))) {
+                return;
+            }
+            limit.suppressed.addAndGet(-count);
+            LocalDateTime timestamp = LocalDateTime.ofInstant(Instant.ofEpochMilli(System.currentTimeMillis()),
+                                                              ZoneId.systemDefault());
+            Alert alert = new Alert(entry.getKey(), SUPPRESSION_METRIC,
+                    "Tempête d'alertes: " + count + " alerte(s) écartée(s) par limitation",
+                    timestamp, SUPPRESSION_SEVERITY);
+            alert.setCount((int) Math.min(Integer.MAX_VALUE, count));
+            deliver(alert);
+        }
+    }
+
+    public long getReceivedCount() { return received.get(); }
+    public long getForwardedCount() { return forwarded.get(); }
+    public long getCoalescedCount() { return coalesced.get(); }
+    public long getSuppressedCount() { return suppressed.get(); }
+    public int getOpenWindowCount() { return windows.size(); }
+
+    /**
+     * Résumé lisible des compteurs (pour le statut périodique du serveur)
+     */
+    public String getStatsSummary() {
+        return received.get() + " reçue(s), " + forwarded.get() + " transmise(s), " +
+               coalesced.get() + " regroupée(s), " + suppressed.get() + " écartée(s), " +
+               windows.size() + " fenêtre(s) ouverte(s)";
+    }
+
+    /**
+     * Clé de regroupement (agent, métrique, sévérité)
+     */
+    private static final class Key {
+        // Numéro d'agent interné ; l'identifiant n'est gardé que pour un agent non numéroté
+        final int agentIndex;
+        final String agentId;
+        final String metricType;
+        final String severity;
+        final int hash;
+
+        Key(Alert alert, String metricType, String severity) {
+            this.agentIndex = alert.getAgentIndex();
+            this.agentId = agentIndex == AgentIds.UNKNOWN ? alert.getAgentId() : null;
+            this.metricType = metricType;
+            this.severity = severity;
+            int h = agentIndex != AgentIds.UNKNOWN ? agentIndex : Objects.hashCode(agentId);
+            h = 31 * h + Objects.hashCode(metricType);
+            this.hash = 31 * h + Objects.hashCode(severity);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return agentIndex == key.agentIndex && Objects.equals(agentId, key.agentId)
+                    && Objects.equals(metricType, key.metricType) && Objects.equals(severity, key.severity);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Fenêtre de regroupement d'une clé (modifiée sous son verrou)
+     */
+    private static final class Window {
+        long start;
+        long lastSeen;
+        boolean closed;
+        // Dernière occurrence absorbée et nombre d'occurrences depuis le dernier résumé
+        Alert pending;
+        int pendingCount;
+        LocalDateTime firstPending;
+
+        Window(long now) {
+            this.start = now;
+            this.lastSeen = now;
+        }
+    }
+
+    /**
+     * Seau (null si seule la limite globale s'applique) et alertes écartées d'un agent
+     */
+    private static final class AgentLimit {
+        final TokenBucket bucket;
+        final AtomicLong suppressed = new AtomicLong();
+
+        AgentLimit(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.monitoring.server.pipeline;
+
+import com.monitoring.server.model.Alert;
+import java.util.List;
+
+/**
+ * Destination des alertes reçues (stockage direct ou étage de regroupement)
+ */
+public interface AlertSink {
+
+    /**
+     * Sort d'une alerte transmise
+     */
+    enum Result {
+        /** Enregistrée (ou mise en file) comme nouvelle alerte */
+        STORED,
+        /** Regroupée avec une alerte précédente, qui la résumera */
+        MERGED,
+        /** Écartée sans être enregistrée (limitation du débit, file d'ingestion pleine en drop-low) */
+        DISCARDED
+    }
+
+    /**
+     * Transmet une alerte
+     */
+    Result submit(Alert alert);
+
+    /**
+     * Transmet un lot d'alertes (par défaut une à une)
+     */
+    default void submitAll(List<Alert> alerts) {
+        for (Alert alert : alerts) {
+            submit(alert);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.monitoring.server.pipeline;
+
+import com.monitoring.server.instrumentation.Instrumentation;
+import com.monitoring.server.instrumentation.LatencyHistogram;
+import com.monitoring.server.logging.Log;
+import com.monitoring.server.model.Alert;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * File d'ingestion bornée entre les récepteurs (via l'étage de regroupement) et le stockage.
+ *
+ * Anneau sans verrou à plusieurs producteurs et un consommateur, sur le modèle de
+ * la file de journalisation : un producteur réserve une case par CAS puis publie
+ * l'alerte en avançant le numéro de séquence de la case. Un seul thread vide
+ * l'anneau et transmet les alertes par lots (submitAll) : en synchronisation
+ * "group", un lot entier attend un seul passage sur disque.
+ *
+ * File pleine, selon la politique :
+ *   block    : le producteur attend une case libre
+ *   drop-low : l'alerte LOW la plus ancienne en attente est remplacée par la nouvelle ;
+ *              sans alerte LOW en attente, une nouvelle alerte LOW est perdue et les
+ *              autres attendent (seules des alertes LOW sont jamais perdues)
+ *   nack     : admit() refuse les alertes des agents, qui reçoivent ALERTE_REFUSEE et
+ *              renverront plus tard ; les alertes internes (règles, silences) attendent
+ *
+ * Avec waitForStorage, submit ne rend la main qu'une fois le lot de l'alerte
+ * transmis au stockage : l'acquittement d'un agent garantit alors la durabilité.
+ */
+public class IngestQueue implements AlertSink {
+
+    private static final Log LOG = Log.get("Ingestion");
+
+    public static final String BLOCK = "block";
+    public static final String DROP_LOW = "drop-low";
+    public static final String NACK = "nack";
+
+    /** Capacité par défaut (arrondie à la puissance de 2 supérieure) */
+    public static final int DEFAULT_CAPACITY = 16384;
+
+    /** Alertes transmises au plus par lot */
+    private static final int BATCH_SIZE = 1024;
+
+    /** Cases examinées au plus, depuis la plus ancienne, pour trouver une alerte LOW à remplacer */
+    private static final int MAX_DROP_SCAN = 1024;
+
+    private static final String LOW = "LOW";
+
+    /** Attente d'un producteur bloqué (file pleine ou lot en cours de transmission) */
+    private static final long PRODUCER_PARK_NANOS = 20_000;
+
+    /** Attente maximale du consommateur sans être réveillé */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final LatencyHistogram BATCH_APPLY = Instrumentation.histogram("ingest_batch_seconds",
+            "Transmission d'un lot de la file d'ingestion au stockage");
+
+    private final AlertSink target;
+    private final String policy;
+    private final boolean waitForStorage;
+
+    private final AtomicReferenceArray<Alert> slots;
+    // sequences[i] == position : case libre pour cette position ; position + 1 : alerte publiée
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // Position de la prochaine alerte à lire (écrite par le consommateur seul)
+    private volatile long head;
+    // Alertes transmises au stockage (positions strictement inférieures)
+    private final AtomicLong applied = new AtomicLong();
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder nacked = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    private final Thread consumer;
+    private volatile boolean sleeping;
+    private volatile boolean running;
+
+    /**
+     * @param target Stockage (le DataManager)
+     * @param capacity Capacité de la file (arrondie à la puissance de 2 supérieure)
+     * @param policy Politique quand la file est pleine : "block", "drop-low" ou "nack"
+     * @param waitForStorage true pour que submit attende la transmission au stockage
+     */
+    public IngestQueue(AlertSink target, int capacity, String policy, boolean waitForStorage) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.target = target;
+        this.policy = parsePolicy(policy);
+        this.waitForStorage = waitForStorage;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.consumer = new Thread(this::consumeLoop, "ingest-consumer");
+        this.consumer.setDaemon(true);
+    }
+
+    private static String parsePolicy(String policy) {
+        if (DROP_LOW.equalsIgnoreCase(policy) || NACK.equalsIgnoreCase(policy)) {
+            return policy.toLowerCase();
+        }
+        if (!BLOCK.equalsIgnoreCase(policy)) {
+            LOG.warn("Politique de file d'ingestion inconnue: {} (block utilisée)", policy);
+        }
+        return BLOCK;
+    }
+
+    public void start() {
+        running = true;
+        consumer.start();
+        LOG.info("File d'ingestion démarrée ({} cases, politique {})", mask + 1, policy);
+    }
+
+    /**
+     * Transmet les alertes en attente puis arrête le consommateur
+     */
+    public void stop() {
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Décision d'admission d'une alerte d'agent, avant son décodage
+     * @return false si l'alerte doit être refusée (politique nack et file pleine)
+     */
+    public boolean admit() {
+        if (NACK.equals(policy) && getDepth() > mask) {
+            nacked.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Dépose une alerte ; ne bloque que si la file est pleine (politique block, ou
+     * alerte non LOW en drop-low) ou si l'on attend le stockage
+     * @return false si l'alerte a été perdue (drop-low)
+     */
+    @Override
+    public Result submit(Alert alert) {
+        long position = offer(alert);
+        if (position < 0) {
+            return Result.DISCARDED;
+        }
+        if (waitForStorage) {
+            awaitApplied(position);
+        }
+        return Result.STORED;
+    }
+
+    /**
+     * @return Position de l'alerte dans la file, ou -1 si elle a été perdue
+     */
+    private long offer(Alert alert) {
+        boolean waited = false;
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, alert);
+                    sequences.set(index, position + 1);
+                    if (sleeping) {
+                        LockSupport.unpark(consumer);
+                    }
+                    return position;
+                }
+            } else if (sequence < position) {
+                // Case pas encore libérée par le consommateur : file pleine
+                if (DROP_LOW.equals(policy)) {
+                    long replaced = replaceOldestLow(alert);
+                    if (replaced >= 0) {
+                        dropped.increment();
+                        return replaced;
+                    }
+                    if (LOW.equals(alert.getSeverity())) {
+                        dropped.increment();
+                        return -1;
+                    }
+                }
+                if (!running) {
+                    LOG.warn("File d'ingestion arrêtée et pleine : alerte perdue ({})", alert.getAgentId());
+                    dropped.increment();
+                    return -1;
+                }
+                if (!waited) {
+                    waited = true;
+                    blocked.increment();
+                }
+                LockSupport.parkNanos(PRODUCER_PARK_NANOS);
+            }
+            // Sinon un autre producteur a réservé cette position : recommencer
+        }
+    }
+
+    /**
+     * Remplace par l'alerte donnée la plus ancienne alerte LOW publiée et pas encore lue
+     * @return Position de la case réutilisée, ou -1 si aucune n'a été trouvée
+     */
+    private long replaceOldestLow(Alert alert) {
+        long from = head;
+        long to = Math.min(tail.get(), from + MAX_DROP_SCAN);
+        for (long position = from; position < to; position++) {
+            int index = (int) position & mask;
+            // Contenu lu avant le numéro de séquence : l'alerte lue est bien celle publiée à cette position.
+            // Lue après, elle pourrait appartenir à un tour suivant de l'anneau (case lue, libérée puis
+            // republiée entre-temps) et la position rendue serait déjà transmise : awaitApplied rendrait
+            // la main avant que l'alerte de remplacement n'atteigne le stockage.
+            Alert pending = slots.get(index);
+            if (pending == null || sequences.get(index) != position + 1) {
+                continue;
+            }
+            // Échoue si le consommateur a pris l'alerte entre-temps (la case a changé de contenu)
+            if (LOW.equals(pending.getSeverity()) && slots.compareAndSet(index, pending, alert)) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    private void awaitApplied(long position) {
+        while (applied.get() <= position && running) {
+            LockSupport.parkNanos(PRODUCER_PARK_NANOS);
+        }
+    }
+
+    private void consumeLoop() {
+        List<Alert> batch = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            // Lu avant de vider la file : les alertes publiées avant l'arrêt sont transmises
+            boolean stopping = !running;
+            int count = drain(batch);
+            if (count > 0) {
+                apply(batch);
+                batch.clear();
+            }
+            if (count < BATCH_SIZE) {
+                if (stopping) {
+                    break;
+                }
+                if (count == 0) {
+                    sleeping = true;
+                    // Revérifier après s'être déclaré endormi : un producteur a pu publier entre-temps
+                    if (!hasPublished()) {
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    }
+                    sleeping = false;
+                }
+            }
+        }
+        applied.set(Long.MAX_VALUE);
+    }
+
+    private boolean hasPublished() {
+        long position = head;
+        return sequences.get((int) position & mask) == position + 1;
+    }
+
+    private int drain(List<Alert> batch) {
+        int count = 0;
+        long position = head;
+        while (count < BATCH_SIZE) {
+            int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) {
+                break;
+            }
+            batch.add(slots.getAndSet(index, null));
+            sequences.set(index, position + mask + 1);
+            position++;
+            count++;
+        }
+        head = position;
+        return count;
+    }
+
+    private void apply(List<Alert> batch) {
+        long start = System.nanoTime();
+        try {
+            target.submitAll(batch);
+        } catch (RuntimeException e) {
+            LOG.error("Erreur lors de l'enregistrement d'un lot de {} alerte(s): {}", batch.size(),
+                      e.getMessage(), e);
+        }
+        batches.increment();
+        applied.set(head);
+        BATCH_APPLY.recordSince(start);
+    }
+
+    public String getPolicy() {
+        return policy;
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Alertes en attente de transmission (approximatif)
+     */
+    public long getDepth() {
+        return Math.max(0, tail.get() - head);
+    }
+
+    public long getDroppedCount() { return dropped.sum(); }
+    public long getNackedCount() { return nacked.sum(); }
+    public long getBlockedCount() { return blocked.sum(); }
+    public long getBatchCount() { return batches.sum(); }
+
+    /**
+     * Résumé lisible des compteurs (pour le statut périodique du serveur)
+     */
+    public String getStatsSummary() {
+        return getDepth() + "/" + getCapacity() + " en attente (" + policy + "), " +
+               batches.sum() + " lot(s), " + dropped.sum() + " perdue(s), " +
+               nacked.sum() + " refusée(s), " + blocked.sum() + " attente(s)";
+    }
+}
@@ -0,0 +1,47 @@
+package com.monitoring.server.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Seau à jetons sans verrou (algorithme GCRA) : un seul entier, l'instant
+ * théorique auquel le seau sera de nouveau plein, avancé par CAS à chaque jeton.
+ */
+final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * @param ratePerSecond Jetons rendus par seconde (doit être positif)
+     * @param burst Nombre de jetons disponibles d'un coup
+     */
+    TokenBucket(double ratePerSecond, int burst) {
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / ratePerSecond));
+        this.toleranceNanos = intervalNanos * Math.max(0, burst - 1);
+    }
+
+    /**
+     * Prend un jeton s'il en reste
+     */
+    boolean tryAcquire(long nowNanos) {
+        while (true) {
+            long tat = theoreticalArrival.get();
+            long start = tat == Long.MIN_VALUE || tat - nowNanos < 0 ? nowNanos : tat;
+            if (start - nowNanos > toleranceNanos) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(tat, start + intervalNanos)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Seau plein : aucun jeton pris depuis assez longtemps pour qu'il soit entièrement rendu
+     */
+    boolean isFull(long nowNanos) {
+        long tat = theoreticalArrival.get();
+        return tat == Long.MIN_VALUE || tat - nowNanos <= 0;
+    }
+}
@@ -0,0 +1,173 @@
+package com.monitoring.server.receiver;
+
+import com.monitoring.server.model.AgentIds;
+import com.monitoring.server.model.Alert;
+import com.monitoring.server.rules.RuleEngine;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/**
+ * Décodage des trames d'alerte "AGENT_ID|CPU|85.5|MEMORY|92.3|DISK|78.9"
+ * directement depuis un tableau d'octets (sans split ni regex).
+ *
+ * L'identifiant d'agent est recherché dans {@link AgentIds} sur les octets de la
+ * trame (sans y ajouter d'agent), et le type de métrique parmi les constantes
+ * connues : pour un agent enregistré, seuls l'alerte, son message et son
+ * horodatage sont alloués.
+ */
+public final class AlertFrameParser {
+
+    /** Nombre minimal de champs d'une trame valide */
+    public static final int MIN_FIELDS = 6;
+
+    private static final byte SEPARATOR = '|';
+
+    // Types de métriques connus, réutilisés pour éviter une allocation par trame
+    private static final String[] KNOWN_METRICS = {"CPU", "MEMORY", "DISK"};
+    private static final byte[][] KNOWN_METRIC_BYTES = {
+        "CPU".getBytes(StandardCharsets.US_ASCII),
+        "MEMORY".getBytes(StandardCharsets.US_ASCII),
+        "DISK".getBytes(StandardCharsets.US_ASCII)
+    };
+
+    // Au-delà de 15 chiffres la mantisse n'est plus exacte en double
+    private static final int MAX_FAST_DIGITS = 15;
+
+    // Puissances de 10 exactement représentables en double
+    private static final double[] POWERS_OF_TEN = new double[MAX_FAST_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1.0;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0;
+        }
+    }
+
+    private AlertFrameParser() {
+    }
+
+    /**
+     * Construit une alerte à partir de la trame située dans buf[from, to[, sans table d'agents
+     * @param rules Moteur de règles qui détermine la sévérité
+     * @return L'alerte, ou null si la trame ne contient pas assez de champs
+     * @throws NumberFormatException si la valeur de la métrique est invalide
+     */
+    public static Alert parse(byte[] buf, int from, int to, RuleEngine rules) {
+        return parse(buf, from, to, rules, null);
+    }
+
+    /**
+     * Construit une alerte à partir de la trame située dans buf[from, to[
+     * @param rules Moteur de règles qui détermine la sévérité
+     * @param agentIds Agents enregistrés, dont la String canonique est réutilisée (null = aucun)
+     * @return L'alerte, ou null si la trame ne contient pas assez de champs
+     * @throws NumberFormatException si la valeur de la métrique est invalide
+     */
+    public static Alert parse(byte[] buf, int from, int to, RuleEngine rules, AgentIds agentIds) {
+        // Repérer les trois premiers séparateurs et compter les champs
+        int sep1 = -1;
+        int sep2 = -1;
+        int sep3 = -1;
+        int fields = 1;
+        for (int i = from; i < to; i++) {
+            if (buf[i] == SEPARATOR) {
+                fields++;
+                if (sep1 < 0) {
+                    sep1 = i;
+                } else if (sep2 < 0) {
+                    sep2 = i;
+                } else if (sep3 < 0) {
+                    sep3 = i;
+                }
+            }
+        }
+        if (fields < MIN_FIELDS) {
+            return null;
+        }
+
+        int agent = agentIds != null ? agentIds.idOf(buf, from, sep1 - from) : AgentIds.UNKNOWN;
+        String agentId = agent != AgentIds.UNKNOWN ? agentIds.name(agent)
+                                                   : new String(buf, from, sep1 - from, StandardCharsets.UTF_8);
+        String metricType = metricType(buf, sep1 + 1, sep2);
+        double metricValue = parseDouble(buf, sep2 + 1, sep3);
+        String severity = rules.classify(agentId, metricType, metricValue);
+        String message = "[" + metricType + "] Dépasse le seuil: " + metricValue + "%";
+
+        return new Alert(agentId, agent, metricType, message, LocalDateTime.now(), severity);
+    }
+
+    /**
+     * Décode le type de métrique en réutilisant les constantes connues
+     */
+    static String metricType(byte[] buf, int from, int to) {
+        for (int k = 0; k < KNOWN_METRIC_BYTES.length; k++) {
+            byte[] known = KNOWN_METRIC_BYTES[k];
+            if (known.length == to - from && regionMatches(buf, from, known)) {
+                return KNOWN_METRICS[k];
+            }
+        }
+        return new String(buf, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    private static boolean regionMatches(byte[] buf, int from, byte[] expected) {
+        for (int i = 0; i < expected.length; i++) {
+            if (buf[from + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Convertit un nombre décimal simple ("85.5", "-3", "100.25") sans passer par une String.
+     * Les formes plus rares (exposant, trop de chiffres) sont déléguées à Double.parseDouble.
+     */
+    public static double parseDouble(byte[] buf, int from, int to) {
+        // Ignorer les espaces autour de la valeur, comme Double.parseDouble
+        while (from < to && buf[from] == ' ') {
+            from++;
+        }
+        while (to > from && buf[to - 1] == ' ') {
+            to--;
+        }
+        if (from == to) {
+            throw new NumberFormatException("Valeur vide");
+        }
+
+        int i = from;
+        boolean negative = false;
+        if (buf[i] == '-' || buf[i] == '+') {
+            negative = buf[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < to; i++) {
+            byte b = buf[i];
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                return slowParse(buf, from, to);
+            }
+        }
+        if (digits == 0 || digits > MAX_FAST_DIGITS) {
+            return slowParse(buf, from, to);
+        }
+
+        // Mantisse < 2^53 et puissance de 10 exacte : la division est correctement arrondie
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    private static double slowParse(byte[] buf, int from, int to) {
+        return Double.parseDouble(new String(buf, from, to - from, StandardCharsets.US_ASCII));
+    }
+}
\ No newline at end of file
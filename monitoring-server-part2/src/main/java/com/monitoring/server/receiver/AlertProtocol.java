@@ -0,0 +1,112 @@
+package com.monitoring.server.receiver;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Constantes du protocole TCP d'alertes.
+ *
+ * Mode historique (une alerte par connexion) :
+ *   agent → "AGENT_ID|CPU|85.5|MEMORY|92.3|DISK|78.9"
+ *   serveur → "ALERTE_RECUE" puis fermeture
+ *
+ * Mode session (connexion persistante, acquittements en pipeline) :
+ *   agent → "SESSION"                      serveur → "SESSION_OK|<délai d'inactivité ms>"
+ *   agent → une alerte par ligne, sans attendre les réponses
+ *   serveur → "ALERTE_RECUE|<n>" ou "ALERTE_INVALIDE|<n>" pour la n-ième alerte de la session
+ *   agent → "FIN"                          serveur → "FIN_OK" puis fermeture
+ * Une ligne vide sert de keep-alive et n'est pas acquittée.
+ * Serveur saturé (file d'ingestion pleine, politique nack) : "ALERTE_REFUSEE" (ou
+ * "ALERTE_REFUSEE|<n>") à la place de l'acquittement ; l'alerte n'est pas enregistrée
+ * et l'agent peut la renvoyer plus tard.
+ * Alerte écartée par limitation du débit (monitoring.alerts.*RatePerSec) ou par la
+ * file d'ingestion en drop-low : "ALERTE_LIMITEE" (ou "ALERTE_LIMITEE|<n>") ; elle
+ * n'est pas enregistrée et ne doit pas être renvoyée (un résumé la compte).
+ * La session est fermée par le serveur après le délai d'inactivité.
+ */
+public final class AlertProtocol {
+
+    public static final String SESSION_START = "SESSION";
+    public static final String SESSION_OK = "SESSION_OK";
+    public static final String SESSION_END = "FIN";
+    public static final String SESSION_END_OK = "FIN_OK";
+    public static final String ACK = "ALERTE_RECUE";
+    public static final String INVALID = "ALERTE_INVALIDE";
+    public static final String REFUSED = "ALERTE_REFUSEE";
+    public static final String LIMITED = "ALERTE_LIMITEE";
+    public static final char FIELD_SEPARATOR = '|';
+
+    /** Délai d'inactivité par défaut d'une session (ms) */
+    public static final int DEFAULT_IDLE_TIMEOUT_MS = 60000;
+
+    static final byte[] SESSION_START_BYTES = SESSION_START.getBytes(StandardCharsets.US_ASCII);
+    static final byte[] SESSION_END_BYTES = SESSION_END.getBytes(StandardCharsets.US_ASCII);
+
+    // Réponses encodées une fois pour toutes (partagées par les récepteurs)
+    static final byte[] ACK_LINE = ascii(ACK + "\n");
+    static final byte[] ACK_PREFIX = ascii(ACK + FIELD_SEPARATOR);
+    static final byte[] INVALID_PREFIX = ascii(INVALID + FIELD_SEPARATOR);
+    static final byte[] REFUSED_LINE = ascii(REFUSED + "\n");
+    static final byte[] REFUSED_PREFIX = ascii(REFUSED + FIELD_SEPARATOR);
+    static final byte[] LIMITED_LINE = ascii(LIMITED + "\n");
+    static final byte[] LIMITED_PREFIX = ascii(LIMITED + FIELD_SEPARATOR);
+    static final byte[] SESSION_END_OK_LINE = ascii(SESSION_END_OK + "\n");
+
+    /**
+     * Issue du traitement d'une alerte, avec les réponses encodées correspondantes
+     */
+    enum Reply {
+        ACK(ACK_LINE, ACK_PREFIX),
+        INVALID(null, INVALID_PREFIX),
+        REFUSED(REFUSED_LINE, REFUSED_PREFIX),
+        LIMITED(LIMITED_LINE, LIMITED_PREFIX);
+
+        /** Réponse en mode historique (null : fermeture sans réponse) */
+        final byte[] line;
+        /** Préfixe de l'acquittement en session, suivi du numéro de séquence */
+        final byte[] prefix;
+
+        Reply(byte[] line, byte[] prefix) {
+            this.line = line;
+            this.prefix = prefix;
+        }
+    }
+
+    private AlertProtocol() {
+    }
+
+    /**
+     * Ligne d'ouverture de session avec le délai d'inactivité
+     */
+    static byte[] sessionOkLine(int idleTimeoutMs) {
+        return ascii(SESSION_OK + FIELD_SEPARATOR + idleTimeoutMs + "\n");
+    }
+
+    /**
+     * Écrit un entier positif en décimal dans digits, en partant de la fin
+     * @return Position du premier chiffre
+     */
+    static int formatDecimal(long value, byte[] digits) {
+        int pos = digits.length;
+        do {
+            digits[--pos] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value > 0);
+        return pos;
+    }
+
+    static boolean matches(byte[] buf, int from, int to, byte[] expected) {
+        if (to - from != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buf[from + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.monitoring.server.receiver;
+
+/**
+ * Contrat commun des récepteurs d'alertes TCP
+ * (mode classique un-thread-par-connexion ou mode NIO)
+ */
+public interface AlertReceiver extends Runnable {
+
+    /**
+     * Arrête le récepteur et libère le port
+     */
+    void stop();
+
+    /**
+     * Vérifie si le récepteur est en cours d'exécution
+     */
+    boolean isRunning();
+}
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.monitoring.server.receiver;
+
+import com.monitoring.server.instrumentation.Counter;
+import com.monitoring.server.instrumentation.Instrumentation;
+import com.monitoring.server.instrumentation.LatencyHistogram;
+
+/**
+ * Mesures internes des récepteurs d'alertes TCP, communes aux modes classique et NIO
+ */
+final class AlertReceiverMetrics {
+
+    static final Counter CONNECTIONS_ACCEPTED = Instrumentation.counter("tcp_connections_accepted_total",
+            "Connexions TCP acceptées");
+    static final Counter CONNECTIONS_CLOSED = Instrumentation.counter("tcp_connections_closed_total",
+            "Connexions TCP fermées");
+    static final Counter SESSIONS_OPENED = Instrumentation.counter("tcp_sessions_opened_total",
+            "Sessions persistantes ouvertes");
+    static final Counter ALERTS_RECEIVED = Instrumentation.counter("tcp_alerts_received_total",
+            "Alertes valides reçues par TCP");
+    static final Counter ALERTS_REFUSED = Instrumentation.counter("tcp_alerts_refused_total",
+            "Alertes refusées, file d'ingestion pleine");
+    static final Counter ALERTS_LIMITED = Instrumentation.counter("tcp_alerts_limited_total",
+            "Alertes écartées sans être enregistrées (limitation du débit)");
+    static final Counter PARSE_FAILURES = Instrumentation.counter("tcp_parse_failures_total",
+            "Trames d'alerte invalides");
+    static final LatencyHistogram ALERT_PROCESSING = Instrumentation.histogram("tcp_alert_processing_seconds",
+            "Décodage, classement et transmission d'une alerte");
+
+    private AlertReceiverMetrics() {
+    }
+}
@@ -0,0 +1,96 @@
+package com.monitoring.server.receiver;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Lecture de lignes sur un flux bloquant, sans décodage ni String : après
+ * {@link #next()}, la ligne courante (sans "\n" ni "\r") est
+ * buffer()[start(), end()[ et reste valable jusqu'à l'appel suivant.
+ */
+final class LineInput {
+
+    private final InputStream in;
+    private final byte[] buf;
+    private int position; // Début des octets pas encore rendus
+    private int scanned;  // Octets déjà examinés sans trouver de fin de ligne
+    private int limit;    // Fin des octets lus
+    private int start;
+    private int end;
+
+    /**
+     * @param capacity Taille du tampon, qui borne la longueur d'une ligne
+     */
+    LineInput(InputStream in, int capacity) {
+        this.in = in;
+        this.buf = new byte[capacity];
+    }
+
+    /**
+     * Passe à la ligne suivante, en lisant le flux si nécessaire
+     * @return false en fin de flux (une dernière ligne sans "\n" est rendue avant)
+     * @throws IOException si une ligne dépasse la capacité du tampon
+     */
+    boolean next() throws IOException {
+        while (true) {
+            for (int i = Math.max(position, scanned); i < limit; i++) {
+                if (buf[i] == '\n') {
+                    setLine(position, i);
+                    position = i + 1;
+                    scanned = position;
+                    return true;
+                }
+            }
+            scanned = limit;
+
+            if (position > 0) {
+                // Ramener la ligne incomplète en début de tampon
+                System.arraycopy(buf, position, buf, 0, limit - position);
+                limit -= position;
+                scanned -= position;
+                position = 0;
+            }
+            if (limit == buf.length) {
+                throw new IOException("Trame trop longue");
+            }
+            int read = in.read(buf, limit, buf.length - limit);
+            if (read < 0) {
+                if (position < limit) {
+                    setLine(position, limit);
+                    position = limit;
+                    return true;
+                }
+                return false;
+            }
+            limit += read;
+        }
+    }
+
+    /**
+     * true si des données sont disponibles sans bloquer (dans le tampon ou le flux)
+     */
+    boolean ready() throws IOException {
+        return position < limit || in.available() > 0;
+    }
+
+    byte[] buffer() {
+        return buf;
+    }
+
+    int start() {
+        return start;
+    }
+
+    int end() {
+        return end;
+    }
+
+    boolean isEmpty() {
+        return start == end;
+    }
+
+    private void setLine(int from, int to) {
+        start = from;
+        end = (to > from && buf[to - 1] == '\r') ? to - 1 : to;
+    }
+}
@@ -0,0 +1,89 @@
+package com.monitoring.server.receiver;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Format binaire des datagrammes UDP de métriques (ordre réseau, big-endian).
+ *
+ *   offset 0      short   MAGIC (0x4D53, "MS")
+ *   offset 2      byte    VERSION
+ *   offset 3      byte    longueur n de l'identifiant d'agent (1..MAX_AGENT_ID_LENGTH)
+ *   offset 4      n octets identifiant d'agent (ASCII)
+ *   offset 4+n    int     numéro de séquence du datagramme pour cet agent
+ *   offset 8+n    short   nombre d'échantillons (non signé)
+ *   offset 10+n   échantillons, SAMPLE_SIZE octets chacun :
+ *                 long timestamp (ms epoch), float cpu, float mémoire, float disque
+ *
+ * Un agent incrémente sa séquence à chaque datagramme ; le serveur en déduit
+ * les datagrammes perdus, dupliqués ou arrivés dans le désordre.
+ *
+ * En cluster, un nœud relaie tel quel au nœud propriétaire de l'agent le
+ * datagramme reçu, précédé de l'adresse de l'agent :
+ *
+ *   offset 0      short   MAGIC
+ *   offset 2      byte    RELAY_VERSION
+ *   offset 3      byte    longueur a de l'adresse IP de l'agent (4 ou 16)
+ *   offset 4      a octets adresse IP de l'agent
+ *   offset 4+a    short   port de l'agent (non signé)
+ *   offset 6+a    datagramme d'origine
+ */
+public final class MetricsProtocol {
+
+    public static final short MAGIC = 0x4D53;
+    public static final byte VERSION = 1;
+    public static final byte RELAY_VERSION = (byte) 0x81;
+    public static final int MAX_AGENT_ID_LENGTH = 64;
+
+    /** Taille d'un échantillon encodé */
+    public static final int SAMPLE_SIZE = 8 + 3 * 4;
+
+    /** Taille d'un datagramme tenant dans une trame Ethernet sans fragmentation */
+    public static final int SAFE_DATAGRAM_SIZE = 1472;
+
+    /** Port UDP par défaut */
+    public static final int DEFAULT_PORT = 9876;
+
+    private MetricsProtocol() {
+    }
+
+    /**
+     * Taille de l'en-tête pour un identifiant d'agent de n octets
+     */
+    public static int headerSize(int agentIdLength) {
+        return 10 + agentIdLength;
+    }
+
+    /**
+     * Taille de l'en-tête de relais pour une adresse IP de n octets
+     */
+    public static int relayHeaderSize(int addressLength) {
+        return 6 + addressLength;
+    }
+
+    /**
+     * Écrit l'en-tête d'un datagramme (utilisé par les agents et les outils de test)
+     */
+    public static void writeHeader(ByteBuffer buffer, String agentId, int sequence, int sampleCount) {
+        byte[] id = agentId.getBytes(StandardCharsets.US_ASCII);
+        if (id.length == 0 || id.length > MAX_AGENT_ID_LENGTH) {
+            throw new IllegalArgumentException("Identifiant d'agent invalide: " + agentId);
+        }
+        buffer.putShort(MAGIC);
+        buffer.put(VERSION);
+        buffer.put((byte) id.length);
+        buffer.put(id);
+        buffer.putInt(sequence);
+        buffer.putShort((short) sampleCount);
+    }
+
+    /**
+     * Écrit un échantillon à la suite de l'en-tête
+     */
+    public static void writeSample(ByteBuffer buffer, long timestampMillis, double cpu, double memory, double disk) {
+        buffer.putLong(timestampMillis);
+        buffer.putFloat((float) cpu);
+        buffer.putFloat((float) memory);
+        buffer.putFloat((float) disk);
+    }
+}
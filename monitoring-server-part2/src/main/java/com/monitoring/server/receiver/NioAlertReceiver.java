@@ -0,0 +1,540 @@
+package com.monitoring.server.receiver;
+
+import com.monitoring.server.logging.Log;
+import com.monitoring.server.model.AgentIds;
+import com.monitoring.server.model.Alert;
+import com.monitoring.server.rules.RuleEngine;
+import com.monitoring.server.pipeline.AlertSink;
+import com.monitoring.server.pipeline.IngestQueue;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Récepteur d'alertes TCP non bloquant basé sur un Selector.
+ * Un thread accepte les connexions et les répartit sur un petit nombre
+ * fixe de threads d'E/S, au lieu de créer un thread par connexion.
+ * Supporte le mode historique et le mode session décrits dans {@link AlertProtocol}.
+ *
+ * Les alertes sont transmises depuis les threads d'E/S : la destination ne doit
+ * pas attendre (file d'ingestion en politique nack, sans attente du stockage),
+ * sans quoi un agent lent ou une file pleine bloque toutes les connexions du thread.
+ */
+public class NioAlertReceiver implements AlertReceiver {
+
+    // Connexions et alertes reçues : catégories séparées, échantillonnables sous forte charge
+    private static final Log LOG = Log.get("NIO");
+    private static final Log CONNECTION_LOG = Log.get("NIO.connexions");
+    private static final Log ALERT_LOG = Log.get("NIO.alertes");
+
+    /** Taille maximale d'une trame d'alerte (une ligne) */
+    static final int MAX_FRAME_SIZE = 1024;
+
+    /** Taille du tampon d'acquittements d'une connexion */
+    private static final int OUTPUT_BUFFER_SIZE = 1024;
+
+    /** Place réservée pour une réponse ("ALERTE_INVALIDE|" + séquence + "\n") */
+    private static final int MAX_REPLY_SIZE = 40;
+
+    private static final int ACCEPT_BACKLOG = 1024;
+    private static final long SWEEP_INTERVAL_MS = 1000;
+
+    private final int port;
+    private final AlertSink alertSink;
+    private final int idleTimeoutMs;
+    private final RuleEngine ruleEngine;
+    private final IngestQueue ingestQueue;
+    private AgentIds agentIds;
+    private final byte[] sessionOkLine;
+    private final IoLoop[] ioLoops;
+    private volatile boolean running;
+    private Selector acceptSelector;
+    private ServerSocketChannel serverChannel;
+
+    /**
+     * Constructeur
+     * @param port Port TCP sur lequel écouter (ex: 9877)
+     * @param alertSink Destination des alertes reçues (DataManager ou étage de regroupement)
+     * @param ioThreads Nombre de threads d'E/S
+     * @param idleTimeoutMs Délai d'inactivité avant fermeture d'une connexion (ms)
+     * @param ruleEngine Règles qui déterminent la sévérité des alertes reçues
+     */
+    public NioAlertReceiver(int port, AlertSink alertSink, int ioThreads, int idleTimeoutMs,
+                            RuleEngine ruleEngine) {
+        this(port, alertSink, ioThreads, idleTimeoutMs, ruleEngine, null);
+    }
+
+    /**
+     * Constructeur
+     * @param ingestQueue File d'ingestion consultée avant chaque alerte (null = toujours admise)
+     */
+    public NioAlertReceiver(int port, AlertSink alertSink, int ioThreads, int idleTimeoutMs,
+                            RuleEngine ruleEngine, IngestQueue ingestQueue) {
+        this.port = port;
+        this.alertSink = alertSink;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.ruleEngine = ruleEngine;
+        this.ingestQueue = ingestQueue;
+        this.sessionOkLine = AlertProtocol.sessionOkLine(idleTimeoutMs);
+        this.ioLoops = new IoLoop[Math.max(1, ioThreads)];
+        this.running = true;
+    }
+
+    /**
+     * Agents enregistrés : leur String canonique est réutilisée pour les alertes reçues
+     * (à installer avant le démarrage ; aucun agent n'est ajouté à la table)
+     */
+    public void setAgentIds(AgentIds agentIds) {
+        this.agentIds = agentIds;
+    }
+
+    @Override
+    public void run() {
+        Thread[] ioThreads = new Thread[ioLoops.length];
+        try {
+            acceptSelector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.configureBlocking(false);
+            serverChannel.bind(new InetSocketAddress(port), ACCEPT_BACKLOG);
+            serverChannel.register(acceptSelector, SelectionKey.OP_ACCEPT);
+
+            for (int i = 0; i < ioLoops.length; i++) {
+                ioLoops[i] = new IoLoop();
+                ioThreads[i] = new Thread(ioLoops[i], "nio-alert-io-" + i);
+                ioThreads[i].setDaemon(true);
+                ioThreads[i].start();
+            }
+            LOG.info("En écoute sur le port {} ({} thread(s) d'E/S)", port, ioLoops.length);
+
+            int next = 0;
+            while (running) {
+                acceptSelector.select();
+                acceptSelector.selectedKeys().clear();
+
+                // Accepter toutes les connexions en attente
+                SocketChannel channel;
+                while ((channel = serverChannel.accept()) != null) {
+                    channel.configureBlocking(false);
+                    channel.socket().setTcpNoDelay(true);
+                    ioLoops[next].enqueue(channel);
+                    next = (next + 1) % ioLoops.length;
+                }
+            }
+
+        } catch (ClosedSelectorException e) {
+            // Arrêt demandé
+        } catch (IOException e) {
+            if (running) {
+                LOG.error("Impossible de démarrer le serveur sur le port {}", port, e);
+            }
+        } finally {
+            stop();
+        }
+    }
+
+    /**
+     * Arrête le serveur NIO
+     */
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        for (IoLoop loop : ioLoops) {
+            if (loop != null) {
+                loop.close();
+            }
+        }
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+            if (acceptSelector != null) {
+                acceptSelector.close();
+            }
+            LOG.info("Arrêté");
+        } catch (IOException e) {
+            LOG.warn("Erreur lors de la fermeture du ServerSocketChannel");
+        }
+    }
+
+    /**
+     * Vérifie si le serveur est en cours d'exécution
+     */
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * État d'une connexion : tampons empruntés au pool du thread d'E/S,
+     * mode (historique ou session) et compteur de séquence de la session
+     */
+    private static final class Connection {
+        final SocketChannel channel;
+        final String clientAddress;
+        ByteBuffer in;
+        ByteBuffer out;
+        boolean session;
+        boolean closeAfterWrite;
+        boolean inputEnded;
+        long sequence;
+        long lastActivity;
+
+        Connection(SocketChannel channel, String clientAddress, ByteBuffer in, ByteBuffer out) {
+            this.channel = channel;
+            this.clientAddress = clientAddress;
+            this.in = in;
+            this.out = out;
+            this.lastActivity = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Boucle d'E/S : un Selector, une file de nouvelles connexions
+     * et un pool de tampons réutilisés d'une connexion à l'autre
+     */
+    private final class IoLoop implements Runnable {
+        private final Selector selector;
+        private final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+        private final ArrayDeque<ByteBuffer> inputPool = new ArrayDeque<>();
+        private final ArrayDeque<ByteBuffer> outputPool = new ArrayDeque<>();
+        private final byte[] digits = new byte[20];
+        private long lastSweep = System.currentTimeMillis();
+
+        IoLoop() throws IOException {
+            this.selector = Selector.open();
+        }
+
+        void enqueue(SocketChannel channel) {
+            pending.add(channel);
+            selector.wakeup();
+        }
+
+        void close() {
+            try {
+                for (SelectionKey key : selector.keys()) {
+                    key.channel().close();
+                }
+                selector.close();
+            } catch (IOException | ClosedSelectorException e) {
+                // Déjà fermé
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select(SWEEP_INTERVAL_MS);
+                    registerPending();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isReadable()) {
+                                onReadable(key, connection);
+                            } else if (key.isWritable()) {
+                                processInput(key, connection);
+                            }
+                        } catch (IOException e) {
+                            LOG.warn("Erreur de communication avec {}", connection.clientAddress);
+                            closeConnection(key, connection);
+                        }
+                    }
+
+                    closeIdleConnections();
+                }
+            } catch (ClosedSelectorException e) {
+                // Arrêt demandé
+            } catch (IOException e) {
+                if (running) {
+                    LOG.error("Erreur du Selector: {}", e.getMessage());
+                }
+            }
+        }
+
+        private void registerPending() {
+            SocketChannel channel;
+            while ((channel = pending.poll()) != null) {
+                try {
+                    String clientAddress = channel.socket().getInetAddress().getHostAddress();
+                    Connection connection = new Connection(channel, clientAddress,
+                            borrow(inputPool, MAX_FRAME_SIZE), borrow(outputPool, OUTPUT_BUFFER_SIZE));
+                    channel.register(selector, SelectionKey.OP_READ, connection);
+                    AlertReceiverMetrics.CONNECTIONS_ACCEPTED.increment();
+                    CONNECTION_LOG.info("Connexion acceptée de {}", clientAddress);
+                } catch (IOException e) {
+                    LOG.warn("Impossible d'enregistrer la connexion: {}", e.getMessage());
+                    closeQuietly(channel);
+                }
+            }
+        }
+
+        /**
+         * Ferme les connexions sans activité depuis plus que le délai configuré
+         */
+        private void closeIdleConnections() {
+            long now = System.currentTimeMillis();
+            if (now - lastSweep < SWEEP_INTERVAL_MS) {
+                return;
+            }
+            lastSweep = now;
+            for (SelectionKey key : selector.keys()) {
+                Connection connection = (Connection) key.attachment();
+                if (key.isValid() && now - connection.lastActivity > idleTimeoutMs) {
+                    CONNECTION_LOG.info("Connexion inactive fermée: {}", connection.clientAddress);
+                    closeConnection(key, connection);
+                }
+            }
+        }
+
+        private void onReadable(SelectionKey key, Connection connection) throws IOException {
+            int read = connection.channel.read(connection.in);
+            if (read < 0) {
+                // Répondre aux lignes reçues avant la fin du flux, puis fermer
+                connection.inputEnded = true;
+                processInput(key, connection);
+                return;
+            }
+            connection.lastActivity = System.currentTimeMillis();
+            processInput(key, connection);
+        }
+
+        /**
+         * Traite toutes les lignes complètes du tampon d'entrée puis envoie
+         * les réponses accumulées. Si le tampon de sortie est plein (agent
+         * qui ne lit pas ses acquittements), la lecture est suspendue ; dès
+         * qu'il a été entièrement envoyé, les lignes restantes sont traitées.
+         */
+        private void processInput(SelectionKey key, Connection connection) throws IOException {
+            boolean waitingForOutput;
+            do {
+                waitingForOutput = handleLines(connection);
+                if (!connection.closeAfterWrite && !waitingForOutput && !connection.in.hasRemaining()) {
+                    LOG.warn("Trame trop longue de {}", connection.clientAddress);
+                    closeConnection(key, connection);
+                    return;
+                }
+            } while (flush(key, connection) && waitingForOutput);
+        }
+
+        /**
+         * Traite les lignes complètes du tampon d'entrée et y conserve la ligne incomplète
+         * @return true si le traitement s'est arrêté faute de place pour les réponses
+         */
+        private boolean handleLines(Connection connection) {
+            ByteBuffer in = connection.in;
+            byte[] buf = in.array();
+            int limit = in.position();
+            int start = 0;
+            boolean waitingForOutput = false;
+
+            while (!connection.closeAfterWrite) {
+                int end = indexOfNewline(buf, start, limit);
+                if (end < 0) {
+                    break;
+                }
+                if (connection.out.remaining() < MAX_REPLY_SIZE) {
+                    waitingForOutput = true;
+                    break;
+                }
+                handleLine(connection, buf, start, frameEnd(buf, start, end));
+                start = end + 1;
+            }
+
+            if (connection.inputEnded && !connection.closeAfterWrite && !waitingForOutput) {
+                // Fin du flux : la dernière ligne, même sans fin de ligne, est une trame
+                if (start < limit) {
+                    if (connection.out.remaining() < MAX_REPLY_SIZE) {
+                        waitingForOutput = true;
+                    } else {
+                        handleLine(connection, buf, start, frameEnd(buf, start, limit));
+                        start = limit;
+                    }
+                }
+                if (!waitingForOutput) {
+                    connection.closeAfterWrite = true;
+                }
+            }
+
+            // Conserver la ligne incomplète en début de tampon
+            if (start > 0) {
+                System.arraycopy(buf, start, buf, 0, limit - start);
+                in.position(limit - start);
+            }
+            return waitingForOutput;
+        }
+
+        private void handleLine(Connection connection, byte[] buf, int from, int to) {
+            ByteBuffer out = connection.out;
+
+            if (!connection.session) {
+                if (AlertProtocol.matches(buf, from, to, AlertProtocol.SESSION_START_BYTES)) {
+                    connection.session = true;
+                    out.put(sessionOkLine);
+                    AlertReceiverMetrics.SESSIONS_OPENED.increment();
+                    CONNECTION_LOG.info("Session ouverte avec {}", connection.clientAddress);
+                    return;
+                }
+                // Agent historique : une alerte, une réponse, puis fermeture
+                AlertProtocol.Reply reply = handleFrame(buf, from, to, connection);
+                if (reply.line != null) {
+                    out.put(reply.line);
+                }
+                connection.closeAfterWrite = true;
+                return;
+            }
+
+            if (from == to) {
+                // Keep-alive
+                return;
+            }
+            if (AlertProtocol.matches(buf, from, to, AlertProtocol.SESSION_END_BYTES)) {
+                out.put(AlertProtocol.SESSION_END_OK_LINE);
+                connection.closeAfterWrite = true;
+                CONNECTION_LOG.info("Session terminée avec {} ({} alerte(s))", connection.clientAddress,
+                                    connection.sequence);
+                return;
+            }
+
+            long sequence = ++connection.sequence;
+            out.put(handleFrame(buf, from, to, connection).prefix);
+            putDecimal(out, sequence);
+            out.put((byte) '\n');
+        }
+
+        /**
+         * @return Réponse à l'agent : ACK, INVALID, REFUSED (file d'ingestion saturée) ou LIMITED
+         */
+        private AlertProtocol.Reply handleFrame(byte[] buf, int from, int to, Connection connection) {
+            if (from == to) {
+                return AlertProtocol.Reply.INVALID;
+            }
+            if (ingestQueue != null && !ingestQueue.admit()) {
+                AlertReceiverMetrics.ALERTS_REFUSED.increment();
+                return AlertProtocol.Reply.REFUSED;
+            }
+            long start = System.nanoTime();
+            try {
+                Alert alert = AlertFrameParser.parse(buf, from, to, ruleEngine, agentIds);
+                if (alert == null) {
+                    AlertReceiverMetrics.PARSE_FAILURES.increment();
+                    // Le tampon est réutilisé : la trame est copiée avant d'être confiée au journal
+                    LOG.warn("Format de message invalide: {}",
+                             new String(buf, from, to - from, StandardCharsets.UTF_8));
+                    return AlertProtocol.Reply.INVALID;
+                }
+
+                // Transmettre l'alerte (les doublons sont regroupés, sans être affichés)
+                AlertSink.Result result = alertSink.submit(alert);
+                AlertReceiverMetrics.ALERTS_RECEIVED.increment();
+                if (result == AlertSink.Result.DISCARDED) {
+                    AlertReceiverMetrics.ALERTS_LIMITED.increment();
+                    return AlertProtocol.Reply.LIMITED;
+                }
+                if (result == AlertSink.Result.STORED) {
+                    ALERT_LOG.info("Alerte reçue de {}: {}", alert.getAgentId(), alert.getMessage());
+                }
+                return AlertProtocol.Reply.ACK;
+
+            } catch (NumberFormatException e) {
+                AlertReceiverMetrics.PARSE_FAILURES.increment();
+                LOG.warn("Format numérique invalide dans le message de {}", connection.clientAddress);
+                return AlertProtocol.Reply.INVALID;
+            } finally {
+                AlertReceiverMetrics.ALERT_PROCESSING.recordSince(start);
+            }
+        }
+
+        /**
+         * Envoie les réponses en attente et ajuste l'intérêt du Selector
+         * @return true si tout a été envoyé et la connexion reste ouverte
+         */
+        private boolean flush(SelectionKey key, Connection connection) throws IOException {
+            ByteBuffer out = connection.out;
+            out.flip();
+            if (out.hasRemaining()) {
+                connection.channel.write(out);
+            }
+            out.compact();
+
+            if (out.position() > 0) {
+                // Socket saturée : attendre qu'elle redevienne inscriptible
+                key.interestOps(SelectionKey.OP_WRITE);
+                return false;
+            }
+            if (connection.closeAfterWrite) {
+                closeConnection(key, connection);
+                return false;
+            }
+            key.interestOps(SelectionKey.OP_READ);
+            return true;
+        }
+
+        private void putDecimal(ByteBuffer out, long value) {
+            int pos = AlertProtocol.formatDecimal(value, digits);
+            out.put(digits, pos, digits.length - pos);
+        }
+
+        private void closeConnection(SelectionKey key, Connection connection) {
+            key.cancel();
+            closeQuietly(connection.channel);
+            if (connection.in != null) {
+                AlertReceiverMetrics.CONNECTIONS_CLOSED.increment();
+                release(inputPool, connection.in);
+                release(outputPool, connection.out);
+                connection.in = null;
+                connection.out = null;
+            }
+        }
+
+        private ByteBuffer borrow(ArrayDeque<ByteBuffer> pool, int size) {
+            ByteBuffer buffer = pool.poll();
+            return buffer != null ? buffer : ByteBuffer.allocate(size);
+        }
+
+        private void release(ArrayDeque<ByteBuffer> pool, ByteBuffer buffer) {
+            buffer.clear();
+            pool.push(buffer);
+        }
+
+        private void closeQuietly(SocketChannel channel) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOG.warn("Erreur lors de la fermeture de la socket");
+            }
+        }
+    }
+
+    /**
+     * Fin de la trame terminée en end, sans le '\r' éventuel
+     */
+    private static int frameEnd(byte[] buf, int start, int end) {
+        return (end > start && buf[end - 1] == '\r') ? end - 1 : end;
+    }
+
+    private static int indexOfNewline(byte[] buf, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buf[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
\ No newline at end of file
@@ -1,152 +1,333 @@
 package com.monitoring.server.receiver;
 
+import com.monitoring.server.concurrent.ConcurrencyLimiter;
+import com.monitoring.server.concurrent.TaskThreads;
+import com.monitoring.server.logging.Log;
+import com.monitoring.server.model.AgentIds;
 import com.monitoring.server.model.Alert;
-import com.monitoring.server.storage.DataManager;
+import com.monitoring.server.rules.RuleEngine;
+import com.monitoring.server.pipeline.AlertSink;
+import com.monitoring.server.pipeline.IngestQueue;
 import java.io.*;
 import java.net.*;
-import java.time.LocalDateTime;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadFactory;
 
 /**
- * Classe qui reçoit les alertes critiques envoyées par les agents via TCP
+ * Classe qui reçoit les alertes critiques envoyées par les agents via TCP.
+ *
+ * Chaque connexion est servie par son propre thread, classique ou virtuel selon
+ * la fabrique fournie. Deux limiteurs bornent le nombre de connexions servies
+ * (au-delà, les suivantes attendent dans la file d'acceptation du noyau) et le
+ * nombre d'alertes transmises simultanément au stockage. Une alerte refusée par
+ * la file d'ingestion (politique nack, file pleine) reçoit ALERTE_REFUSEE, une
+ * alerte écartée par limitation ALERTE_LIMITEE.
  */
-public class TCPAlertReceiver implements Runnable {
+public class TCPAlertReceiver implements AlertReceiver {
+    
+    // Connexions et alertes reçues : catégories séparées, échantillonnables sous forte charge
+    private static final Log LOG = Log.get("TCP");
+    private static final Log CONNECTION_LOG = Log.get("TCP.connexions");
+    private static final Log ALERT_LOG = Log.get("TCP.alertes");
+    
+    /** Tampon de lecture d'une connexion (borne la longueur d'une ligne) */
+    private static final int INPUT_BUFFER_SIZE = 8192;
+    
+    /** Tampon des acquittements d'une connexion */
+    private static final int OUTPUT_BUFFER_SIZE = 1024;
     
     private final int port;
-    private final DataManager dataManager;
+    private final AlertSink alertSink;
+    private final int idleTimeoutMs;
+    private final RuleEngine ruleEngine;
+    private final ThreadFactory clientThreads;
+    private final ConcurrencyLimiter connectionLimiter;
+    private final ConcurrencyLimiter ingestLimiter;
+    private final IngestQueue ingestQueue;
+    private AgentIds agentIds;
     private boolean running;
     private ServerSocket serverSocket;
     
     /**
      * Constructeur
      * @param port Port TCP sur lequel écouter (ex: 9877)
-     * @param dataManager Gestionnaire de données pour stocker les alertes
+     * @param alertSink Destination des alertes reçues (DataManager ou étage de regroupement)
+     */
+    public TCPAlertReceiver(int port, AlertSink alertSink) {
+        this(port, alertSink, AlertProtocol.DEFAULT_IDLE_TIMEOUT_MS, new RuleEngine());
+    }
+    
+    /**
+     * Constructeur
+     * @param port Port TCP sur lequel écouter (ex: 9877)
+     * @param alertSink Destination des alertes reçues (DataManager ou étage de regroupement)
+     * @param idleTimeoutMs Délai d'inactivité avant fermeture d'une session (ms)
+     * @param ruleEngine Règles qui déterminent la sévérité des alertes reçues
      */
-    public TCPAlertReceiver(int port, DataManager dataManager) {
+    public TCPAlertReceiver(int port, AlertSink alertSink, int idleTimeoutMs, RuleEngine ruleEngine) {
+        this(port, alertSink, idleTimeoutMs, ruleEngine, TaskThreads.factory("tcp-client", TaskThreads.PLATFORM),
+             new ConcurrencyLimiter("tcp_connections", 0), new ConcurrencyLimiter("tcp_ingest", 0), null);
+    }
+    
+    /**
+     * Constructeur
+     * @param port Port TCP sur lequel écouter (ex: 9877)
+     * @param alertSink Destination des alertes reçues (DataManager ou étage de regroupement)
+     * @param idleTimeoutMs Délai d'inactivité avant fermeture d'une session (ms)
+     * @param ruleEngine Règles qui déterminent la sévérité des alertes reçues
+     * @param clientThreads Fabrique des threads de connexion (voir TaskThreads)
+     * @param connectionLimiter Borne le nombre de connexions servies simultanément
+     * @param ingestLimiter Borne le nombre d'alertes en cours de transmission au stockage
+     * @param ingestQueue File d'ingestion consultée avant chaque alerte (null = toujours admise)
+     */
+    public TCPAlertReceiver(int port, AlertSink alertSink, int idleTimeoutMs, RuleEngine ruleEngine,
+                            ThreadFactory clientThreads, ConcurrencyLimiter connectionLimiter,
+                            ConcurrencyLimiter ingestLimiter, IngestQueue ingestQueue) {
         this.port = port;
-        this.dataManager = dataManager;
+        this.alertSink = alertSink;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.ruleEngine = ruleEngine;
+        this.clientThreads = clientThreads;
+        this.connectionLimiter = connectionLimiter;
+        this.ingestLimiter = ingestLimiter;
+        this.ingestQueue = ingestQueue;
         this.running = true;
     }
     
+    /**
+     * Agents enregistrés : leur String canonique est réutilisée pour les alertes reçues
+     * (à installer avant le démarrage ; aucun agent n'est ajouté à la table)
+     */
+    public void setAgentIds(AgentIds agentIds) {
+        this.agentIds = agentIds;
+    }
+
     @Override
     public void run() {
         try {
             // Créer le ServerSocket
             serverSocket = new ServerSocket(port);
-            System.out.println("[TCP Alert Receiver] En écoute sur le port " + port);
+            LOG.info("En écoute sur le port {}", port);
             
             // Accepter les connexions en boucle
             while (running) {
                 try {
-                    // Attendre une connexion d'un agent
-                    Socket clientSocket = serverSocket.accept();
+                    // Limite atteinte : ne plus accepter tant qu'aucune connexion ne se termine
+                    connectionLimiter.acquire();
+                    Socket clientSocket;
+                    try {
+                        // Attendre une connexion d'un agent
+                        clientSocket = serverSocket.accept();
+                    } catch (IOException e) {
+                        connectionLimiter.release();
+                        throw e;
+                    }
                     
                     // Traiter la connexion dans un thread séparé
-                    new Thread(() -> handleClient(clientSocket)).start();
+                    startClient(clientSocket);
                     
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
                 } catch (SocketException e) {
                     if (running) {
-                        System.err.println("[TCP] Erreur de socket: " + e.getMessage());
+                        LOG.error("Erreur de socket: {}", e.getMessage());
                     }
                 } catch (IOException e) {
-                    System.err.println("[TCP] Erreur d'E/S: " + e.getMessage());
+                    LOG.error("Erreur d'E/S: {}", e.getMessage());
                 }
             }
             
         } catch (IOException e) {
-            System.err.println("[TCP] Impossible de démarrer le serveur sur le port " + port);
-            e.printStackTrace();
+            LOG.error("Impossible de démarrer le serveur sur le port {}", port, e);
         } finally {
             stop();
         }
     }
     
+    private void startClient(Socket clientSocket) {
+        try {
+            clientThreads.newThread(() -> {
+                try {
+                    handleClient(clientSocket);
+                } finally {
+                    connectionLimiter.release();
+                }
+            }).start();
+        } catch (RuntimeException | OutOfMemoryError e) {
+            // Plus de thread disponible : refuser cette connexion plutôt qu'arrêter l'écoute
+            connectionLimiter.release();
+            LOG.error("Impossible de servir la connexion de {}: {}",
+                      clientSocket.getInetAddress().getHostAddress(), e.toString());
+            try {
+                clientSocket.close();
+            } catch (IOException ignored) {
+                // Déjà fermée
+            }
+        }
+    }
+    
     /**
      * Gère la connexion d'un client (agent)
      */
     private void handleClient(Socket clientSocket) {
         String clientAddress = clientSocket.getInetAddress().getHostAddress();
-        System.out.println("[TCP] Connexion acceptée de " + clientAddress);
+        AlertReceiverMetrics.CONNECTIONS_ACCEPTED.increment();
+        CONNECTION_LOG.info("Connexion acceptée de {}", clientAddress);
         
         try (
-            BufferedReader reader = new BufferedReader(
-                new InputStreamReader(clientSocket.getInputStream())
-            );
-            PrintWriter writer = new PrintWriter(clientSocket.getOutputStream(), true)
+            InputStream input = clientSocket.getInputStream();
+            OutputStream output = new BufferedOutputStream(clientSocket.getOutputStream(), OUTPUT_BUFFER_SIZE)
         ) {
-            // Lire le message d'alerte envoyé par l'agent
-            String alertMessage = reader.readLine();
-            if (alertMessage != null && !alertMessage.isEmpty()) {
-                // Extraire les informations du message
-                // Format attendu: "AGENT_ID|CPU|85.5|MEMORY|92.3|DISK|78.9"
-                String[] parts = alertMessage.split("\\|");
+            // Lire le premier message envoyé par l'agent
+            LineInput lines = new LineInput(input, INPUT_BUFFER_SIZE);
+            if (!lines.next()) {
+                return;
+            }
+            if (AlertProtocol.matches(lines.buffer(), lines.start(), lines.end(), AlertProtocol.SESSION_START_BYTES)) {
+                // Agent récent : connexion persistante
+                handleSession(clientSocket, lines, output, clientAddress);
                 
-                if (parts.length >= 6) {
-                    String agentId = parts[0];
-                    String metricType = parts[1];
-                    double metricValue = Double.parseDouble(parts[2]);
-                    String severity = determineSeverity(metricType, metricValue);
-                    
-                    // Créer l'objet Alert
-                    Alert alert = new Alert(
-                        agentId,
-                        "[" + metricType + "] Dépasse le seuil: " + metricValue + "%",
-                        LocalDateTime.now(),
-                        severity
-                    );
-                    
-                    // Ajouter l'alerte au DataManager
-                    dataManager.addAlert(alert);
-                    
-                    // Confirmer la réception
-                    writer.println("ALERTE_RECUE");
-                    
-                    System.out.println("[TCP] Alerte reçue de " + agentId + 
-                                     ": " + metricType + " = " + metricValue + "%");
-                    
-                } else {
-                    System.err.println("[TCP] Format de message invalide: " + alertMessage);
+            } else if (!lines.isEmpty()) {
+                // Agent historique : une alerte, une réponse, puis fermeture
+                AlertProtocol.Reply reply = processAlertLine(lines.buffer(), lines.start(), lines.end());
+                if (reply.line != null) {
+                    // Confirmer la réception (ou signaler le refus)
+                    output.write(reply.line);
+                    output.flush();
                 }
             }
             
         } catch (IOException e) {
-            System.err.println("[TCP] Erreur de communication avec " + clientAddress);
-        } catch (NumberFormatException e) {
-            System.err.println("[TCP] Format numérique invalide dans le message");
+            LOG.warn("Erreur de communication avec {}", clientAddress);
         } finally {
+            AlertReceiverMetrics.CONNECTIONS_CLOSED.increment();
             try {
                 clientSocket.close();
             } catch (IOException e) {
-                System.err.println("[TCP] Erreur lors de la fermeture de la socket");
+                LOG.warn("Erreur lors de la fermeture de la socket");
             }
         }
     }
     
     /**
-     * Détermine la sévérité de l'alerte en fonction de la métrique
+     * Gère une session persistante : l'agent envoie ses alertes en rafale,
+     * chacune est acquittée avec son numéro de séquence dans la session.
+     * Les acquittements sont regroupés et envoyés dès que l'agent n'a plus
+     * de données en attente, sans bloquer la lecture des alertes suivantes.
+     */
+    private void handleSession(Socket clientSocket, LineInput lines, OutputStream output,
+                               String clientAddress) throws IOException {
+        clientSocket.setSoTimeout(idleTimeoutMs);
+        output.write(AlertProtocol.sessionOkLine(idleTimeoutMs));
+        output.flush();
+        AlertReceiverMetrics.SESSIONS_OPENED.increment();
+        CONNECTION_LOG.info("Session ouverte avec {}", clientAddress);
+        
+        byte[] digits = new byte[20];
+        long sequence = 0;
+        try {
+            while (lines.next()) {
+                byte[] buf = lines.buffer();
+                if (lines.isEmpty()) {
+                    // Keep-alive : ne pas retenir les acquittements d'une rafale qu'il termine
+                    if (!lines.ready()) {
+                        output.flush();
+                    }
+                    continue;
+                }
+                if (AlertProtocol.matches(buf, lines.start(), lines.end(), AlertProtocol.SESSION_END_BYTES)) {
+                    output.write(AlertProtocol.SESSION_END_OK_LINE);
+                    break;
+                }
+                
+                sequence++;
+                output.write(processAlertLine(buf, lines.start(), lines.end()).prefix);
+                int pos = AlertProtocol.formatDecimal(sequence, digits);
+                output.write(digits, pos, digits.length - pos);
+                output.write('\n');
+                
+                // Envoyer les acquittements accumulés quand la rafale est terminée
+                if (!lines.ready()) {
+                    output.flush();
+                }
+            }
+            output.flush();
+            
+        } catch (SocketTimeoutException e) {
+            CONNECTION_LOG.info("Session inactive fermée: {}", clientAddress);
+        }
+        CONNECTION_LOG.info("Session terminée avec {} ({} alerte(s))", clientAddress, sequence);
+    }
+    
+    /**
+     * Traite la ligne d'alerte buf[from, to[ et la transmet à l'étage d'ingestion
+     * @return Réponse à l'agent : ACK si l'alerte est valide et a été enregistrée,
+     *         INVALID si elle est mal formée, REFUSED si la file d'ingestion est saturée,
+     *         LIMITED si elle a été écartée par limitation
      */
-    private String determineSeverity(String metricType, double value) {
-        if (value >= 95) {
-            return "CRITICAL";
-        } else if (value >= 90) {
-            return "HIGH";
-        } else if (value >= 80) {
-            return "MEDIUM";
-        } else {
-            return "LOW";
+    private AlertProtocol.Reply processAlertLine(byte[] buf, int from, int to) throws IOException {
+        if (ingestQueue != null && !ingestQueue.admit()) {
+            AlertReceiverMetrics.ALERTS_REFUSED.increment();
+            return AlertProtocol.Reply.REFUSED;
+        }
+        long start = System.nanoTime();
+        try {
+            // Transmission au stockage (éventuellement bloquante en synchronisation "group")
+            ingestLimiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Arrêt pendant l'attente du stockage");
+        }
+        try {
+            return parseAndSubmit(buf, from, to);
+        } finally {
+            ingestLimiter.release();
+            AlertReceiverMetrics.ALERT_PROCESSING.recordSince(start);
+        }
+    }
+    
+    private AlertProtocol.Reply parseAndSubmit(byte[] buf, int from, int to) {
+        // Format attendu: "AGENT_ID|CPU|85.5|MEMORY|92.3|DISK|78.9"
+        try {
+            Alert alert = AlertFrameParser.parse(buf, from, to, ruleEngine, agentIds);
+            if (alert == null) {
+                AlertReceiverMetrics.PARSE_FAILURES.increment();
+                LOG.warn("Format de message invalide: {}", new String(buf, from, to - from, StandardCharsets.UTF_8));
+                return AlertProtocol.Reply.INVALID;
+            }
+            
+            // Transmettre l'alerte (les doublons sont regroupés, sans être affichés)
+            AlertSink.Result result = alertSink.submit(alert);
+            AlertReceiverMetrics.ALERTS_RECEIVED.increment();
+            if (result == AlertSink.Result.DISCARDED) {
+                AlertReceiverMetrics.ALERTS_LIMITED.increment();
+                return AlertProtocol.Reply.LIMITED;
+            }
+            if (result == AlertSink.Result.STORED) {
+                ALERT_LOG.info("Alerte reçue de {}: {}", alert.getAgentId(), alert.getMessage());
+            }
+            return AlertProtocol.Reply.ACK;
+            
+        } catch (NumberFormatException e) {
+            AlertReceiverMetrics.PARSE_FAILURES.increment();
+            LOG.warn("Format numérique invalide dans le message");
+            return AlertProtocol.Reply.INVALID;
         }
     }
     
     /**
      * Arrête le serveur TCP
      */
+    @Override
     public void stop() {
         running = false;
         if (serverSocket != null && !serverSocket.isClosed()) {
             try {
                 serverSocket.close();
-                System.out.println("[TCP Alert Receiver] Arrêté");
+                LOG.info("Arrêté");
             } catch (IOException e) {
-                System.err.println("[TCP] Erreur lors de la fermeture du ServerSocket");
+                LOG.warn("Erreur lors de la fermeture du ServerSocket");
             }
         }
     }
@@ -154,6 +335,7 @@ public class TCPAlertReceiver implements Runnable {
     /**
      * Vérifie si le serveur est en cours d'exécution
      */
+    @Override
     public boolean isRunning() {
         return running;
     }
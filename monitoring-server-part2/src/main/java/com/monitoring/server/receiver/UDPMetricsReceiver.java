@@ -0,0 +1,528 @@
+package com.monitoring.server.receiver;
+
+import com.monitoring.server.logging.Log;
+import com.monitoring.server.model.AgentIds;
+import com.monitoring.server.rules.AgentRules;
+import com.monitoring.server.rules.RuleEngine;
+import com.monitoring.server.storage.MetricsSeries;
+import com.monitoring.server.storage.MetricsStore;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Récepteur UDP des métriques des agents (format décrit dans {@link MetricsProtocol}).
+ *
+ * Un seul thread reçoit les datagrammes dans un tampon direct réutilisé et
+ * les décode directement vers la MetricsSeries de l'agent : après le premier
+ * datagramme d'un agent, aucune allocation n'est faite par échantillon.
+ * Les séquences de chaque agent permettent de compter les datagrammes perdus,
+ * dupliqués (ignorés) ou arrivés dans le désordre. Chaque échantillon est
+ * ensuite évalué par le moteur de règles avec l'état de l'agent conservé
+ * dans sa table (pas de recherche par échantillon).
+ *
+ * En cluster, les datagrammes des agents dont un autre nœud est propriétaire
+ * lui sont relayés (voir {@link Router}) ; la destination de chaque agent est
+ * conservée dans sa table et recalculée seulement quand le routage change.
+ */
+public class UDPMetricsReceiver implements Runnable {
+
+    private static final Log LOG = Log.get("UDP");
+
+    /** Taille maximale d'un datagramme UDP */
+    private static final int MAX_DATAGRAM_SIZE = 65536;
+
+    /** Fenêtre de détection des doublons et des datagrammes en retard */
+    private static final int REORDER_WINDOW = 64;
+
+    /**
+     * Notification du dernier échantillon de chaque datagramme
+     * (mise à jour du registre des agents)
+     */
+    public interface AgentListener {
+        void onMetrics(String agentId, InetSocketAddress source, long timestampMillis,
+                       double cpu, double memory, double disk);
+    }
+
+    /**
+     * Routage des agents entre les nœuds d'un cluster
+     */
+    public interface Router {
+        /** Version du routage : change quand le propriétaire d'un agent a pu changer */
+        long getVersion();
+
+        /** Adresse UDP du nœud propriétaire de l'agent, ou null si c'est ce nœud */
+        InetSocketAddress ownerAddress(String agentId);
+    }
+
+    private final int port;
+    private final MetricsStore metricsStore;
+    private final AgentListener listener;
+    private final RuleEngine ruleEngine;
+    private final int receiveBufferSize;
+    private final AgentTable agents;
+    private final Router router;
+    private AgentIds agentIds;
+    private volatile boolean running;
+    private DatagramChannel channel;
+    private ByteBuffer relayBuffer;
+
+    // Compteurs globaux : un seul écrivain (le thread de réception)
+    private volatile long datagrams;
+    private volatile long samples;
+    private volatile long malformed;
+    private volatile long rejected;
+    private volatile long lost;
+    private volatile long reordered;
+    private volatile long duplicates;
+    private volatile long relayed;
+    private volatile long relayedIn;
+
+    /**
+     * Constructeur
+     * @param port Port UDP sur lequel écouter (ex: 9876)
+     * @param metricsStore Historique des métriques alimenté par les datagrammes
+     * @param listener Notifié une fois par datagramme (peut être null)
+     * @param receiveBufferSize Taille du tampon de réception du socket (octets)
+     * @param maxAgents Nombre maximal d'agents suivis ; les datagrammes des agents en excès sont rejetés
+     * @param ruleEngine Moteur de règles évaluant chaque échantillon (null = pas d'évaluation)
+     */
+    public UDPMetricsReceiver(int port, MetricsStore metricsStore, AgentListener listener,
+                              int receiveBufferSize, int maxAgents, RuleEngine ruleEngine) {
+        this(port, metricsStore, listener, receiveBufferSize, maxAgents, ruleEngine, null);
+    }
+
+    /**
+     * Constructeur en cluster
+     * @param router Routage des agents vers leur nœud propriétaire (null = tous les agents sont locaux)
+     */
+    public UDPMetricsReceiver(int port, MetricsStore metricsStore, AgentListener listener,
+                              int receiveBufferSize, int maxAgents, RuleEngine ruleEngine, Router router) {
+        this.port = port;
+        this.metricsStore = metricsStore;
+        this.listener = listener;
+        this.ruleEngine = ruleEngine != null && ruleEngine.isEvaluatingMetrics() ? ruleEngine : null;
+        this.receiveBufferSize = receiveBufferSize;
+        this.agents = new AgentTable(maxAgents);
+        this.router = router;
+        this.running = true;
+    }
+
+    /**
+     * Agents enregistrés : leur String canonique est réutilisée pour les datagrammes reçus
+     * (à installer avant le démarrage ; aucun agent n'est ajouté à la table)
+     */
+    public void setAgentIds(AgentIds agentIds) {
+        this.agentIds = agentIds;
+    }
+
+    @Override
+    public void run() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_DATAGRAM_SIZE);
+        try {
+            channel = DatagramChannel.open();
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, receiveBufferSize);
+            channel.bind(new InetSocketAddress(port));
+            LOG.info("En écoute sur le port {}", port);
+
+            while (running) {
+                buffer.clear();
+                SocketAddress source = channel.receive(buffer);
+                if (source != null) {
+                    handleDatagram(buffer, buffer.position(), (InetSocketAddress) source);
+                }
+            }
+
+        } catch (ClosedChannelException e) {
+            // Arrêt demandé
+        } catch (IOException e) {
+            if (running) {
+                LOG.error("Impossible de démarrer le récepteur sur le port {}", port, e);
+            }
+        } finally {
+            stop();
+        }
+    }
+
+    /**
+     * Arrête le récepteur UDP
+     */
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+            LOG.info("Serveur arrêté");
+        } catch (IOException e) {
+            LOG.warn("Erreur lors de l'arrêt: {}", e.getMessage());
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Décode un datagramme du tampon [0, length[ (lectures absolues, sans copie)
+     */
+    void handleDatagram(ByteBuffer buffer, int length, InetSocketAddress source) {
+        datagrams++;
+        if (length >= MetricsProtocol.relayHeaderSize(4)
+                && buffer.getShort(0) == MetricsProtocol.MAGIC
+                && buffer.get(2) == MetricsProtocol.RELAY_VERSION) {
+            handleRelayed(buffer, length);
+            return;
+        }
+        handleMetrics(buffer, length, source, false);
+    }
+
+    /**
+     * Datagramme relayé par un autre nœud : décodé ici avec l'adresse d'origine de l'agent
+     */
+    private void handleRelayed(ByteBuffer buffer, int length) {
+        int addressLength = buffer.get(3) & 0xFF;
+        int header = MetricsProtocol.relayHeaderSize(addressLength);
+        if ((addressLength != 4 && addressLength != 16) || length < header) {
+            malformed++;
+            return;
+        }
+        byte[] address = new byte[addressLength];
+        for (int i = 0; i < addressLength; i++) {
+            address[i] = buffer.get(4 + i);
+        }
+        int sourcePort = buffer.getShort(4 + addressLength) & 0xFFFF;
+        InetSocketAddress source;
+        try {
+            source = new InetSocketAddress(InetAddress.getByAddress(address), sourcePort);
+        } catch (UnknownHostException e) {
+            malformed++;
+            return;
+        }
+        // Ramène le datagramme d'origine au début du tampon
+        buffer.limit(length).position(header);
+        buffer.compact();
+        relayedIn++;
+        handleMetrics(buffer, length - header, source, true);
+    }
+
+    /**
+     * @param relayed true si le datagramme a déjà été relayé (il n'est jamais relayé deux fois)
+     */
+    private void handleMetrics(ByteBuffer buffer, int length, InetSocketAddress source, boolean relayed) {
+        if (length < MetricsProtocol.headerSize(1)
+                || buffer.getShort(0) != MetricsProtocol.MAGIC
+                || buffer.get(2) != MetricsProtocol.VERSION) {
+            malformed++;
+            return;
+        }
+        int idLength = buffer.get(3) & 0xFF;
+        int header = MetricsProtocol.headerSize(idLength);
+        if (idLength == 0 || idLength > MetricsProtocol.MAX_AGENT_ID_LENGTH || length < header) {
+            malformed++;
+            return;
+        }
+        int sequence = buffer.getInt(4 + idLength);
+        int count = buffer.getShort(8 + idLength) & 0xFFFF;
+        if (length != header + count * MetricsProtocol.SAMPLE_SIZE) {
+            malformed++;
+            return;
+        }
+
+        AgentStream stream = agents.lookup(buffer, 4, idLength);
+        if (stream == null) {
+            stream = agents.register(buffer, 4, idLength, agentIds);
+            if (stream == null) {
+                rejected++;
+                return;
+            }
+            LOG.info("Nouvel agent: {} ({})", stream.agentId, source);
+        }
+        if (router != null && !relayed && route(stream)) {
+            relay(buffer, length, source, stream.relayTo);
+            return;
+        }
+        if (stream.series == null) {
+            stream.series = metricsStore.getOrCreateSeries(stream.agentId);
+            stream.rules = ruleEngine != null ? ruleEngine.stateFor(stream.agentId) : null;
+        }
+        if (!acceptSequence(stream, sequence) || count == 0) {
+            return;
+        }
+
+        MetricsSeries series = stream.series;
+        AgentRules rules = stream.rules;
+        int position = header;
+        long timestamp = 0;
+        double cpu = 0, memory = 0, disk = 0;
+        for (int i = 0; i < count; i++, position += MetricsProtocol.SAMPLE_SIZE) {
+            timestamp = buffer.getLong(position);
+            cpu = buffer.getFloat(position + 8);
+            memory = buffer.getFloat(position + 12);
+            disk = buffer.getFloat(position + 16);
+            timestamp = series.append(timestamp, cpu, memory, disk);
+            if (rules != null) {
+                ruleEngine.evaluate(rules, timestamp, cpu, memory, disk);
+            }
+        }
+        samples += count;
+        stream.samples += count;
+
+        if (listener != null) {
+            listener.onMetrics(stream.agentId, source, timestamp, cpu, memory, disk);
+        }
+    }
+
+    /**
+     * Recalcule la destination de l'agent si le routage a changé
+     * @return true si le datagramme doit être relayé à un autre nœud
+     */
+    private boolean route(AgentStream stream) {
+        long version = router.getVersion();
+        if (stream.routeVersion != version) {
+            InetSocketAddress owner = router.ownerAddress(stream.agentId);
+            if (owner == null && stream.relayTo != null) {
+                // L'agent revient : ses séquences ont avancé pendant son absence
+                stream.started = false;
+            }
+            stream.relayTo = owner;
+            stream.routeVersion = version;
+        }
+        return stream.relayTo != null;
+    }
+
+    /**
+     * Relaie le datagramme [0, length[ au nœud propriétaire de l'agent
+     */
+    private void relay(ByteBuffer buffer, int length, InetSocketAddress source, InetSocketAddress owner) {
+        byte[] address = source.getAddress().getAddress();
+        int header = MetricsProtocol.relayHeaderSize(address.length);
+        if (channel == null || header + length > MAX_DATAGRAM_SIZE) {
+            rejected++;
+            return;
+        }
+        if (relayBuffer == null) {
+            relayBuffer = ByteBuffer.allocateDirect(MAX_DATAGRAM_SIZE);
+        }
+        relayBuffer.clear();
+        relayBuffer.putShort(MetricsProtocol.MAGIC);
+        relayBuffer.put(MetricsProtocol.RELAY_VERSION);
+        relayBuffer.put((byte) address.length);
+        relayBuffer.put(address);
+        relayBuffer.putShort((short) source.getPort());
+        buffer.limit(length).position(0);
+        relayBuffer.put(buffer);
+        relayBuffer.flip();
+        try {
+            channel.send(relayBuffer, owner);
+            relayed++;
+        } catch (IOException e) {
+            rejected++;
+            LOG.debug("Relais vers {} impossible: {}", owner, e.getMessage());
+        }
+    }
+
+    /**
+     * Met à jour l'état de séquence de l'agent
+     * @return false si le datagramme est un doublon à ignorer
+     */
+    private boolean acceptSequence(AgentStream stream, int sequence) {
+        stream.datagrams++;
+        if (!stream.started) {
+            stream.started = true;
+            stream.lastSequence = sequence;
+            stream.window = 1L;
+            return true;
+        }
+
+        // Différence signée : supporte le passage de Integer.MAX_VALUE à Integer.MIN_VALUE
+        int delta = sequence - stream.lastSequence;
+        if (delta > 0) {
+            long missing = delta - 1;
+            stream.lost += missing;
+            lost += missing;
+            stream.window = delta >= REORDER_WINDOW ? 1L : (stream.window << delta) | 1L;
+            stream.lastSequence = sequence;
+            return true;
+        }
+        if (delta > -REORDER_WINDOW) {
+            long bit = 1L << -delta;
+            if ((stream.window & bit) != 0) {
+                stream.duplicates++;
+                duplicates++;
+                return false;
+            }
+            // Datagramme en retard : il avait été compté comme perdu
+            stream.window |= bit;
+            stream.reordered++;
+            stream.lost--;
+            reordered++;
+            lost--;
+            return true;
+        }
+
+        // Recul important de la séquence : l'agent a redémarré
+        stream.restarts++;
+        stream.lastSequence = sequence;
+        stream.window = 1L;
+        LOG.info("Redémarrage détecté pour l'agent {} (séquence {})", stream.agentId, sequence);
+        return true;
+    }
+
+    // Statistiques de réception
+    public long getDatagramCount() { return datagrams; }
+    public long getSampleCount() { return samples; }
+    public long getMalformedCount() { return malformed; }
+    public long getRejectedCount() { return rejected; }
+    public long getLostCount() { return lost; }
+    public long getReorderedCount() { return reordered; }
+    public long getDuplicateCount() { return duplicates; }
+    public long getRelayedCount() { return relayed; }
+    public long getRelayedInCount() { return relayedIn; }
+    public int getAgentCount() { return agents.size(); }
+
+    /**
+     * Résumé des statistiques de réception
+     */
+    public String getStatsSummary() {
+        return datagrams + " datagramme(s), " + samples + " échantillon(s), " +
+               lost + " perdu(s), " + reordered + " désordonné(s), " +
+               duplicates + " doublon(s), " + malformed + " invalide(s), " +
+               rejected + " rejeté(s)" +
+               (router != null ? ", " + relayed + " relayé(s), " + relayedIn + " reçu(s) d'autres nœuds" : "");
+    }
+
+    /**
+     * État de réception d'un agent (modifié uniquement par le thread de réception)
+     */
+    static final class AgentStream {
+        final String agentId;
+        final byte[] idBytes;
+        final int hash;
+        // Rattachés au premier datagramme traité localement (pas pour un agent seulement relayé)
+        MetricsSeries series;
+        AgentRules rules;
+        // Destination en cluster (null = agent local) et version du routage qui l'a donnée
+        InetSocketAddress relayTo;
+        long routeVersion = -1;
+
+        boolean started;
+        int lastSequence;
+        // Bit i : séquence (lastSequence - i) reçue
+        long window;
+
+        volatile long datagrams;
+        volatile long samples;
+        volatile long lost;
+        volatile long reordered;
+        volatile long duplicates;
+        volatile long restarts;
+
+        AgentStream(String agentId, byte[] idBytes, int hash) {
+            this.agentId = agentId;
+            this.idBytes = idBytes;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * Table d'agents à adressage ouvert indexée par les octets de l'identifiant :
+     * la recherche compare les octets du datagramme sans construire de String.
+     */
+    static final class AgentTable {
+        private final int maxAgents;
+        private AgentStream[] slots = new AgentStream[64];
+        private int size;
+
+        AgentTable(int maxAgents) {
+            this.maxAgents = maxAgents;
+        }
+
+        AgentStream lookup(ByteBuffer buffer, int offset, int length) {
+            int hash = hash(buffer, offset, length);
+            int mask = slots.length - 1;
+            for (int i = hash & mask; ; i = (i + 1) & mask) {
+                AgentStream stream = slots[i];
+                if (stream == null) {
+                    return null;
+                }
+                if (stream.hash == hash && matches(stream.idBytes, buffer, offset, length)) {
+                    return stream;
+                }
+            }
+        }
+
+        AgentStream register(ByteBuffer buffer, int offset, int length, AgentIds agentIds) {
+            if (size >= maxAgents) {
+                return null;
+            }
+            if ((size + 1) * 2 > slots.length) {
+                grow();
+            }
+            byte[] id = new byte[length];
+            for (int i = 0; i < length; i++) {
+                id[i] = buffer.get(offset + i);
+            }
+            // String canonique partagée avec les alertes TCP du même agent s'il est déjà enregistré
+            String agentId = agentIds != null ? agentIds.nameOf(id, 0, length)
+                                              : new String(id, 0, length, StandardCharsets.UTF_8);
+            AgentStream stream = new AgentStream(agentId, id, hash(buffer, offset, length));
+            insert(slots, stream);
+            size++;
+            return stream;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void grow() {
+            AgentStream[] larger = new AgentStream[slots.length * 2];
+            for (AgentStream stream : slots) {
+                if (stream != null) {
+                    insert(larger, stream);
+                }
+            }
+            slots = larger;
+        }
+
+        private static void insert(AgentStream[] table, AgentStream stream) {
+            int mask = table.length - 1;
+            int i = stream.hash & mask;
+            while (table[i] != null) {
+                i = (i + 1) & mask;
+            }
+            table[i] = stream;
+        }
+
+        private static int hash(ByteBuffer buffer, int offset, int length) {
+            int h = 1;
+            for (int i = 0; i < length; i++) {
+                h = 31 * h + buffer.get(offset + i);
+            }
+            return h ^ (h >>> 16);
+        }
+
+        private static boolean matches(byte[] id, ByteBuffer buffer, int offset, int length) {
+            if (id.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (id[i] != buffer.get(offset + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
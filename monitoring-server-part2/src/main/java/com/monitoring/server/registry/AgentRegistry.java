@@ -0,0 +1,386 @@
+package com.monitoring.server.registry;
+
+import com.monitoring.server.instrumentation.Instrumentation;
+import com.monitoring.server.logging.Log;
+import com.monitoring.server.model.Agent;
+import com.monitoring.server.model.SystemMetrics;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registre des agents réparti en shards.
+ *
+ * Chaque agent appartient à un shard (selon le hachage de son identifiant),
+ * et chaque shard n'est modifié que par son propre thread, alimenté par une
+ * file bornée : pas de verrou ni de lecture-modification-écriture concurrente.
+ * Les modifications sont appliquées par lots : chaque agent modifié est publié
+ * individuellement dans la table du shard (sans copie du reste du shard), puis
+ * la version du shard est incrémentée à la fin du lot. Les lecteurs lisent la
+ * table sans verrou ; un parcours voit chaque agent dans un état publié, mais
+ * peut voir une partie seulement d'un lot en cours. Une lecture de version
+ * suivie d'une lecture des agents voit au moins l'état de cette version.
+ *
+ * Les objets Agent publiés ne sont jamais modifiés : chaque changement produit
+ * un nouvel Agent. Ils ne doivent pas non plus être modifiés par les lecteurs.
+ *
+ * Les écritures sont asynchrones : elles sont visibles des lecteurs quelques
+ * microsecondes plus tard, dans l'ordre de soumission pour un même agent.
+ * {@link #flush()} attend que tout ce qui a été soumis soit publié.
+ */
+public final class AgentRegistry {
+
+    private static final Log LOG = Log.get("Registry");
+
+    /** Capacité de la file de chaque shard (un producteur bloque si elle est pleine) */
+    public static final int DEFAULT_QUEUE_CAPACITY = 8192;
+
+    /** Modifications appliquées au plus par lot (et donc par version publiée) */
+    private static final int BATCH_SIZE = 1024;
+
+    /**
+     * Prévenu par le thread du shard après la publication de chaque changement
+     */
+    public interface ChangeListener {
+        /**
+         * @param agent Nouvel état publié
+         * @param created true si l'agent vient d'apparaître à la suite de métriques reçues
+         */
+        void agentChanged(Agent agent, boolean created);
+    }
+
+    private final Shard[] shards;
+    private final ChangeListener listener;
+    private final LongAdder applied = new LongAdder();
+    private volatile boolean running;
+
+    /**
+     * @param shardCount Nombre de shards (un thread chacun ; typiquement le nombre de cœurs)
+     * @param queueCapacity Capacité de la file de chaque shard
+     * @param listener Prévenu de chaque changement publié (peut être null)
+     */
+    public AgentRegistry(int shardCount, int queueCapacity, ChangeListener listener) {
+        this.shards = new Shard[Math.max(1, shardCount)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(i, Math.max(16, queueCapacity));
+        }
+        this.listener = listener;
+
+        Instrumentation.gauge("agent_registry_pending", "Modifications du registre des agents en attente",
+                              this::getPendingCount);
+        Instrumentation.monotonic("agent_registry_updates_total", "Modifications appliquées au registre des agents",
+                                  applied::sum);
+    }
+
+    /**
+     * Démarre un thread par shard
+     */
+    public void start() {
+        running = true;
+        for (Shard shard : shards) {
+            shard.thread.start();
+        }
+        LOG.info("Registre des agents démarré ({} shard(s))", shards.length);
+    }
+
+    /**
+     * Applique les modifications en attente puis arrête les threads
+     */
+    public void stop() {
+        running = false;
+        for (Shard shard : shards) {
+            shard.thread.interrupt();
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------- Écritures
+
+    /**
+     * Métriques reçues d'un agent : l'agent est créé s'il est inconnu (avec cette
+     * adresse), sinon son dernier échantillon est remplacé ; il passe ONLINE
+     */
+    public void updateMetrics(String agentId, String ipAddress, SystemMetrics metrics) {
+        submit(agentId, new Update(Update.METRICS, agentId, ipAddress, metrics, null));
+    }
+
+    /**
+     * Change l'état d'un agent connu (ignoré si l'agent est inconnu ou déjà dans cet état)
+     */
+    public void setStatus(String agentId, String status) {
+        submit(agentId, new Update(Update.STATUS, agentId, status, null, null));
+    }
+
+    /**
+     * Ajoute ou remplace un agent tel quel (restauration, données de démonstration)
+     */
+    public void put(Agent agent) {
+        submit(agent.getAgentId(), new Update(Update.PUT, agent.getAgentId(), null, null, agent));
+    }
+
+    /**
+     * Attend que toutes les modifications soumises avant l'appel soient publiées
+     */
+    public void flush() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        CountDownLatch done = new CountDownLatch(shards.length);
+        for (Shard shard : shards) {
+            shard.queue.put(new Update(done));
+        }
+        done.await();
+    }
+
+    private void submit(String agentId, Update update) {
+        if (!running) {
+            LOG.debug("Registre arrêté, modification ignorée pour {}", agentId);
+            return;
+        }
+        try {
+            shardOf(agentId).queue.put(update);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn("Modification interrompue pour l'agent {}", agentId);
+        }
+    }
+
+    private Shard shardOf(String agentId) {
+        // Mélange des bits du hachage : les identifiants "AGENT-001", "AGENT-002"... se suivent
+        int hash = agentId.hashCode() * 0x9E3779B9;
+        return shards[Math.floorMod(hash ^ (hash >>> 16), shards.length)];
+    }
+
+    // ---------------------------------------------------------------- Lectures
+
+    /**
+     * État publié d'un agent, ou null s'il est inconnu
+     */
+    public Agent get(String agentId) {
+        return shardOf(agentId).agents.get(agentId);
+    }
+
+    /**
+     * Tous les agents, chacun dans un état publié
+     */
+    public List<Agent> getAll() {
+        List<Agent> all = new ArrayList<>(size());
+        for (Shard shard : shards) {
+            all.addAll(shard.agents.values());
+        }
+        return all;
+    }
+
+    /**
+     * Agents d'un shard, chacun dans son dernier état publié (traitements parallèles
+     * par shard) ; vue en lecture seule, parcourue sans verrou
+     * @param shard Indice du shard, de 0 à getShardCount() - 1
+     */
+    public Collection<Agent> getShardAgents(int shard) {
+        return Collections.unmodifiableCollection(shards[shard].agents.values());
+    }
+
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.agents.size();
+        }
+        return size;
+    }
+
+    /**
+     * Version du registre : augmente à la fin de chaque lot publié par un shard
+     */
+    public long getVersion() {
+        long version = 0;
+        for (Shard shard : shards) {
+            version += shard.version;
+        }
+        return version;
+    }
+
+    /**
+     * Modifications soumises mais pas encore appliquées
+     */
+    public long getPendingCount() {
+        long pending = 0;
+        for (Shard shard : shards) {
+            pending += shard.queue.size();
+        }
+        return pending;
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    // ---------------------------------------------------------------- Shards
+
+    /**
+     * Modification en attente dans la file d'un shard
+     */
+    private static final class Update {
+        static final int METRICS = 0;
+        static final int STATUS = 1;
+        static final int PUT = 2;
+        static final int BARRIER = 3;
+
+        final int kind;
+        final String agentId;
+        final String text; // Adresse IP (METRICS) ou état (STATUS)
+        final SystemMetrics metrics;
+        final Agent agent;
+        final CountDownLatch barrier;
+
+        Update(int kind, String agentId, String text, SystemMetrics metrics, Agent agent) {
+            this.kind = kind;
+            this.agentId = agentId;
+            this.text = text;
+            this.metrics = metrics;
+            this.agent = agent;
+            this.barrier = null;
+        }
+
+        Update(CountDownLatch barrier) {
+            this.kind = BARRIER;
+            this.agentId = null;
+            this.text = null;
+            this.metrics = null;
+            this.agent = null;
+            this.barrier = barrier;
+        }
+    }
+
+    private final class Shard implements Runnable {
+        final BlockingQueue<Update> queue;
+        final Thread thread;
+        // Agents publiés : écrits par le seul thread du shard, lus sans verrou
+        final Map<String, Agent> agents = new ConcurrentHashMap<>();
+        // Incrémentée après la publication de chaque lot (un seul écrivain)
+        volatile long version;
+
+        // Propres au thread du shard
+        private final List<Update> batch = new ArrayList<>(BATCH_SIZE);
+        // Agents modifiés dans le lot (un seul avis par agent et par lot) et ceux créés
+        private final Map<String, Agent> changed = new LinkedHashMap<>();
+        private final Set<String> created = new HashSet<>();
+        private final List<CountDownLatch> barriers = new ArrayList<>();
+
+        Shard(int index, int queueCapacity) {
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.thread = new Thread(this, "agent-shard-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    Update first = running ? queue.poll(1, TimeUnit.SECONDS) : queue.poll();
+                    if (first == null) {
+                        if (!running) {
+                            break;
+                        }
+                        continue;
+                    }
+                    batch.add(first);
+                } catch (InterruptedException e) {
+                    // Arrêt demandé : vider la file avant de sortir
+                    if (running) {
+                        continue;
+                    }
+                }
+                queue.drainTo(batch, BATCH_SIZE - batch.size());
+                applyBatch();
+            }
+        }
+
+        private void applyBatch() {
+            for (Update update : batch) {
+                // Une mise à jour en erreur ne doit ni arrêter le shard ni bloquer les barrières en attente
+                try {
+                    apply(update);
+                } catch (RuntimeException e) {
+                    LOG.error("Erreur lors de la mise à jour de {}: {}", update.agentId, e.getMessage(), e);
+                }
+            }
+            batch.clear();
+            if (!changed.isEmpty()) {
+                version = version + 1;
+                applied.add(changed.size());
+                notifyChanges();
+            }
+            for (CountDownLatch barrier : barriers) {
+                barrier.countDown();
+            }
+            barriers.clear();
+        }
+
+        private void apply(Update update) {
+            Agent current = update.agentId != null ? agents.get(update.agentId) : null;
+            switch (update.kind) {
+                case Update.METRICS:
+                    if (current == null) {
+                        record(new Agent(update.agentId, update.text, update.metrics), true);
+                    } else {
+                        record(new Agent(update.agentId, current.getIpAddress(), update.metrics), false);
+                    }
+                    break;
+                case Update.STATUS:
+                    if (current != null && !update.text.equals(current.getStatus())) {
+                        Agent agent = new Agent(update.agentId, current.getIpAddress(), current.getLastMetrics());
+                        agent.setLastUpdate(current.getLastUpdate());
+                        agent.setStatus(update.text);
+                        record(agent, false);
+                    }
+                    break;
+                case Update.PUT:
+                    record(update.agent, false);
+                    break;
+                default:
+                    barriers.add(update.barrier);
+                    break;
+            }
+        }
+
+        private void record(Agent agent, boolean isNew) {
+            agents.put(agent.getAgentId(), agent);
+            changed.put(agent.getAgentId(), agent);
+            if (isNew) {
+                created.add(agent.getAgentId());
+            }
+        }
+
+        private void notifyChanges() {
+            if (listener != null) {
+                for (Agent agent : changed.values()) {
+                    try {
+                        listener.agentChanged(agent, created.contains(agent.getAgentId()));
+                    } catch (RuntimeException e) {
+                        LOG.error("Erreur lors de la notification du changement de {}: {}",
+                                  agent.getAgentId(), e.getMessage(), e);
+                    }
+                }
+            }
+            changed.clear();
+            created.clear();
+        }
+    }
+}
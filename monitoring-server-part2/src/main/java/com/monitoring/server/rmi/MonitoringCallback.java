@@ -0,0 +1,21 @@
+package com.monitoring.server.rmi;
+
+import com.monitoring.server.model.ChangeSet;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * Interface de rappel implémentée (et exportée) par les clients abonnés
+ * aux changements du serveur via {@link MonitoringService#subscribe}
+ */
+public interface MonitoringCallback extends Remote {
+
+    /**
+     * Reçoit un lot de changements. Les appels d'un même abonnement ne se
+     * chevauchent jamais : tant que le client n'a pas répondu, les changements
+     * suivants sont regroupés dans le lot suivant.
+     * @param changes Changements depuis le lot précédent
+     * @throws RemoteException
+     */
+    void onChanges(ChangeSet changes) throws RemoteException;
+}
@@ -2,6 +2,12 @@ package com.monitoring.server.rmi;
 
 import com.monitoring.server.model.Agent;
 import com.monitoring.server.model.Alert;
+import com.monitoring.server.model.AlertPage;
+import com.monitoring.server.model.AlertQuery;
+import com.monitoring.server.model.ChangeSet;
+import com.monitoring.server.model.FleetSummary;
+import com.monitoring.server.model.FleetWindow;
+import com.monitoring.server.model.MetricsBucket;
 import com.monitoring.server.model.SystemMetrics;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
@@ -27,6 +33,24 @@ public interface MonitoringService extends Remote {
      */
     List<Alert> getAllAlerts() throws RemoteException;
     
+    /**
+     * Récupère une page d'alertes filtrée par agent, sévérité et intervalle de temps
+     * @param query Critères et curseur de pagination
+     * @return Page d'alertes et curseur pour la page suivante
+     * @throws RemoteException
+     */
+    AlertPage queryAlerts(AlertQuery query) throws RemoteException;
+    
+    /**
+     * Récupère uniquement les alertes arrivées depuis une séquence donnée
+     * (utilisation typique : sequence = nextCursor de la réponse précédente)
+     * @param sequence Dernière séquence déjà connue du client (0 au premier appel)
+     * @param maxResults Nombre maximal d'alertes retournées
+     * @return Page d'alertes et curseur pour l'appel suivant
+     * @throws RemoteException
+     */
+    AlertPage getAlertsSince(long sequence, int maxResults) throws RemoteException;
+    
     /**
      * Récupère l'historique des métriques d'un agent spécifique
      * @param agentId Identifiant de l'agent
@@ -35,6 +59,52 @@ public interface MonitoringService extends Remote {
      */
     List<SystemMetrics> getMetricsHistory(String agentId) throws RemoteException;
     
+    /**
+     * Récupère l'historique des métriques d'un agent sur un intervalle de temps
+     * (au plus les 10 000 échantillons les plus récents de l'intervalle)
+     * @param agentId Identifiant de l'agent
+     * @param fromMillis Début de l'intervalle (ms epoch, inclus)
+     * @param toMillis Fin de l'intervalle (ms epoch, inclus)
+     * @return Échantillons par ordre chronologique
+     * @throws RemoteException
+     */
+    List<SystemMetrics> getMetricsHistory(String agentId, long fromMillis, long toMillis) throws RemoteException;
+    
+    /**
+     * Récupère les agrégats (min, max, moyenne, dernière valeur, nombre) des métriques
+     * d'un agent sur un intervalle, à la résolution demandée. Le serveur choisit le
+     * niveau le moins coûteux qui couvre l'intervalle : brut, minute ou heure.
+     * @param agentId Identifiant de l'agent
+     * @param fromMillis Début de l'intervalle (ms epoch, inclus)
+     * @param toMillis Fin de l'intervalle (ms epoch, inclus)
+     * @param resolutionMillis Largeur souhaitée des seaux (0 = échantillons bruts)
+     * @return Seaux par ordre chronologique (au plus 10 000)
+     * @throws RemoteException
+     */
+    List<MetricsBucket> getMetricsRollup(String agentId, long fromMillis, long toMillis,
+                                         long resolutionMillis) throws RemoteException;
+    
+    /**
+     * Récupère l'historique archivé des métriques d'un agent (données scellées sur disque,
+     * au-delà de la fenêtre conservée en mémoire ; les dernières minutes n'y sont pas encore)
+     * @param agentId Identifiant de l'agent
+     * @param fromMillis Début de l'intervalle (ms epoch, inclus)
+     * @param toMillis Fin de l'intervalle (ms epoch, inclus)
+     * @return Échantillons par ordre chronologique (au plus les 10 000 plus récents de l'intervalle)
+     * @throws RemoteException
+     */
+    List<SystemMetrics> getArchivedMetrics(String agentId, long fromMillis, long toMillis) throws RemoteException;
+    
+    /**
+     * Récupère les alertes archivées enregistrées sur un intervalle (données scellées sur disque)
+     * @param agentId Identifiant de l'agent, ou null pour tous les agents
+     * @param fromMillis Début de l'intervalle d'enregistrement (ms epoch, inclus)
+     * @param toMillis Fin de l'intervalle d'enregistrement (ms epoch, inclus)
+     * @return Alertes par ordre d'enregistrement (au plus les 10 000 plus récentes de l'intervalle)
+     * @throws RemoteException
+     */
+    List<Alert> getArchivedAlerts(String agentId, long fromMillis, long toMillis) throws RemoteException;
+    
     /**
      * Récupère un agent spécifique par son ID
      * @param agentId Identifiant de l'agent
@@ -43,6 +113,71 @@ public interface MonitoringService extends Remote {
      */
     Agent getAgent(String agentId) throws RemoteException;
     
+    /**
+     * Récupère les agents dont la dernière valeur d'une métrique est la plus élevée
+     * (calcul sur le serveur : seuls ces agents sont transmis)
+     * @param metricType "CPU", "MEMORY" ou "DISK"
+     * @param limit Nombre d'agents (au plus 1000)
+     * @return Agents par valeur décroissante (liste vide si la métrique est inconnue)
+     * @throws RemoteException
+     */
+    List<Agent> getTopAgents(String metricType, int limit) throws RemoteException;
+    
+    /**
+     * Récupère l'état courant de la flotte : nombre d'agents par état et distribution
+     * des dernières valeurs de chaque métrique (percentiles à 1 % près)
+     * @return Résumé de taille fixe, quel que soit le nombre d'agents
+     * @throws RemoteException
+     */
+    FleetSummary getFleetSummary() throws RemoteException;
+    
+    /**
+     * Récupère l'activité récente de la flotte : distribution de tous les échantillons
+     * reçus et nombre d'alertes par sévérité sur la fenêtre (tenus à jour en continu)
+     * @param windowMillis Durée de la fenêtre, arrondie à la résolution du serveur (10 s par
+     *                     défaut) et plafonnée à sa fenêtre maximale (1 h par défaut)
+     * @return Activité de la fenêtre
+     * @throws RemoteException
+     */
+    FleetWindow getFleetWindow(long windowMillis) throws RemoteException;
+    
+    /**
+     * Récupère la version courante du flux de changements (à lire juste avant un
+     * chargement complet via getAllAgents / getAllAlerts)
+     * @return Version courante
+     * @throws RemoteException
+     */
+    long getChangeVersion() throws RemoteException;
+    
+    /**
+     * Attend des changements postérieurs à une version (long-polling) : retourne dès
+     * qu'il y en a, ou à l'expiration du délai avec un ChangeSet vide
+     * @param sinceVersion Dernière version connue du client (ChangeSet.getVersion())
+     * @param timeoutMillis Délai d'attente maximal (plafonné à 5 minutes)
+     * @return Nouvelles alertes et agents modifiés depuis sinceVersion
+     * @throws RemoteException
+     */
+    ChangeSet awaitChanges(long sinceVersion, long timeoutMillis) throws RemoteException;
+    
+    /**
+     * Abonne un client : le serveur lui pousse les changements par lots via son callback.
+     * Un client lent reçoit des lots plus gros mais ne ralentit pas le serveur ;
+     * après plusieurs échecs de livraison, l'abonnement est résilié.
+     * @param callback Objet de rappel exporté par le client
+     * @param sinceVersion Dernière version connue du client
+     * @return Identifiant de l'abonnement
+     * @throws RemoteException
+     */
+    long subscribe(MonitoringCallback callback, long sinceVersion) throws RemoteException;
+    
+    /**
+     * Résilie un abonnement
+     * @param subscriptionId Identifiant retourné par subscribe
+     * @return true si l'abonnement existait
+     * @throws RemoteException
+     */
+    boolean unsubscribe(long subscriptionId) throws RemoteException;
+    
     /**
      * Vérifie si le serveur est en ligne
      * @return Message de statut
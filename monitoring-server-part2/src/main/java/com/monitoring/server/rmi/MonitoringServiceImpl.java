@@ -1,36 +1,156 @@
 package com.monitoring.server.rmi;
 
+import com.monitoring.server.aggregate.FleetAggregator;
+import com.monitoring.server.instrumentation.Instrumentation;
+import com.monitoring.server.instrumentation.LatencyHistogram;
+import com.monitoring.server.liveness.LivenessTracker;
+import com.monitoring.server.logging.Log;
 import com.monitoring.server.model.Agent;
+import com.monitoring.server.model.AgentList;
 import com.monitoring.server.model.Alert;
+import com.monitoring.server.model.AlertList;
+import com.monitoring.server.model.AlertPage;
+import com.monitoring.server.model.AlertQuery;
+import com.monitoring.server.model.ChangeSet;
+import com.monitoring.server.model.FleetSummary;
+import com.monitoring.server.model.FleetWindow;
+import com.monitoring.server.model.MetricsBucket;
 import com.monitoring.server.model.SystemMetrics;
+import com.monitoring.server.registry.AgentRegistry;
+import com.monitoring.server.rules.RuleEngine;
 import com.monitoring.server.storage.DataManager;
+import com.monitoring.server.subscription.ChangeFeed;
+import java.net.InetSocketAddress;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Implémentation du service RMI de monitoring
  */
 public class MonitoringServiceImpl extends UnicastRemoteObject implements MonitoringService {
+    private static final long serialVersionUID = 1L;
+    
+    // Les appels RMI et mises à jour d'agents, très fréquents, sont en DEBUG
+    private static final Log LOG = Log.get("RMI");
+    
+    // Durée de traitement de chaque méthode, côté serveur (hors sérialisation RMI)
+    private static final LatencyHistogram GET_ALL_AGENTS = callTimer("getAllAgents");
+    private static final LatencyHistogram GET_ALL_ALERTS = callTimer("getAllAlerts");
+    private static final LatencyHistogram QUERY_ALERTS = callTimer("queryAlerts");
+    private static final LatencyHistogram GET_ALERTS_SINCE = callTimer("getAlertsSince");
+    private static final LatencyHistogram GET_METRICS_HISTORY = callTimer("getMetricsHistory");
+    private static final LatencyHistogram GET_METRICS_RANGE = callTimer("getMetricsHistoryRange");
+    private static final LatencyHistogram GET_METRICS_ROLLUP = callTimer("getMetricsRollup");
+    private static final LatencyHistogram GET_ARCHIVED_METRICS = callTimer("getArchivedMetrics");
+    private static final LatencyHistogram GET_ARCHIVED_ALERTS = callTimer("getArchivedAlerts");
+    private static final LatencyHistogram GET_AGENT = callTimer("getAgent");
+    private static final LatencyHistogram GET_TOP_AGENTS = callTimer("getTopAgents");
+    private static final LatencyHistogram GET_FLEET_SUMMARY = callTimer("getFleetSummary");
+    private static final LatencyHistogram GET_FLEET_WINDOW = callTimer("getFleetWindow");
+    private static final LatencyHistogram GET_CHANGE_VERSION = callTimer("getChangeVersion");
+    private static final LatencyHistogram AWAIT_CHANGES = callTimer("awaitChanges");
+    private static final LatencyHistogram SUBSCRIBE = callTimer("subscribe");
+    private static final LatencyHistogram UNSUBSCRIBE = callTimer("unsubscribe");
+    private static final LatencyHistogram PING = callTimer("ping");
+    private static final LatencyHistogram GET_AGENT_COUNT = callTimer("getAgentCount");
+    private static final LatencyHistogram GET_ALERT_COUNT = callTimer("getAlertCount");
+    private static final LatencyHistogram UPDATE_AGENT = callTimer("updateAgent");
+    private static final LatencyHistogram ON_UDP_METRICS = callTimer("onUdpMetrics");
     
     private final DataManager dataManager;
     
-    // Stockage simulé des agents (sera remplacé par le vrai DataManager plus tard)
-    private final Map<String, Agent> agents;
-    private final Map<String, List<SystemMetrics>> metricsHistory;
+    // Nombre d'échantillons retournés par getMetricsHistory(agentId)
+    private static final int HISTORY_RESPONSE_SIZE = 50;
+    
+    // Paramètres par défaut du flux de changements
+    private static final long DEFAULT_PUSH_BATCH_INTERVAL_MS = 100;
+    private static final int DEFAULT_PUSH_DELIVERY_THREADS = 4;
+    
+    // Un shard du registre des agents par cœur par défaut
+    private static final int DEFAULT_REGISTRY_SHARDS = Runtime.getRuntime().availableProcessors();
+    
+    // Registre des agents : un thread écrivain par shard, lectures sans verrou
+    private final AgentRegistry agents;
+    
+    // Changements poussés aux clients abonnés ou en long-polling
+    private final ChangeFeed changeFeed;
+    
+    // Agrégats sur tous les agents, calculés en parallèle par shard
+    private final FleetAggregator fleet;
+    
+    // Détection des agents silencieux (null = désactivée)
+    private volatile LivenessTracker liveness;
+    
+    // Évaluation des échantillons reçus par RMI (null = désactivée)
+    private volatile RuleEngine ruleEngine;
+    
+    // Réponses en lecture servies tant que les données n'ont pas changé (null = désactivé)
+    private volatile ReadCache readCache;
     
     public MonitoringServiceImpl(DataManager dataManager) throws RemoteException {
+        this(dataManager, DEFAULT_PUSH_BATCH_INTERVAL_MS, DEFAULT_PUSH_DELIVERY_THREADS, DEFAULT_REGISTRY_SHARDS);
+    }
+    
+    /**
+     * @param pushBatchIntervalMs Intervalle de regroupement des changements poussés
+     * @param pushDeliveryThreads Nombre de threads de livraison aux abonnés
+     * @param registryShards Nombre de shards (et de threads écrivains) du registre des agents
+     */
+    public MonitoringServiceImpl(DataManager dataManager, long pushBatchIntervalMs,
+                                 int pushDeliveryThreads, int registryShards) throws RemoteException {
+        this(dataManager, pushBatchIntervalMs, pushDeliveryThreads, ChangeFeed.DEFAULT_DELIVERY_TIMEOUT_MS,
+             registryShards);
+    }
+    
+    /**
+     * @param pushBatchIntervalMs Intervalle de regroupement des changements poussés
+     * @param pushDeliveryThreads Nombre de threads de livraison aux abonnés
+     * @param pushDeliveryTimeoutMs Durée d'une livraison au-delà de laquelle l'abonné est résilié
+     * @param registryShards Nombre de shards (et de threads écrivains) du registre des agents
+     */
+    public MonitoringServiceImpl(DataManager dataManager, long pushBatchIntervalMs, int pushDeliveryThreads,
+                                 long pushDeliveryTimeoutMs, int registryShards) throws RemoteException {
         super(); // Important pour RMI
         this.dataManager = dataManager;
-        this.agents = new ConcurrentHashMap<>();
-        this.metricsHistory = new ConcurrentHashMap<>();
+        this.agents = new AgentRegistry(registryShards, AgentRegistry.DEFAULT_QUEUE_CAPACITY, this::onAgentChanged);
+        this.changeFeed = new ChangeFeed(dataManager, agents::get, pushBatchIntervalMs,
+                                         DataManager.MAX_PAGE_SIZE, pushDeliveryThreads, pushDeliveryTimeoutMs);
+        agents.start();
+        this.fleet = new FleetAggregator(agents, Runtime.getRuntime().availableProcessors());
+        
+        if (dataManager.getAgentAddresses().isEmpty()) {
+            // Ajouter quelques agents de test pour démo
+            initializeSampleData();
+        } else {
+            restoreAgents();
+        }
+        try {
+            // Agents initiaux publiés (et signalés au flux de changements) avant toute requête
+            agents.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        changeFeed.start();
         
-        // Ajouter quelques agents de test pour démo
-        initializeSampleData();
+        Instrumentation.gauge("agents", "Agents du registre RMI", agents::size);
+        Instrumentation.gauge("push_subscriptions", "Abonnements aux changements", changeFeed::getSubscriptionCount);
+    }
+    
+    /**
+     * Recrée les agents restaurés par le DataManager, hors ligne jusqu'à leur prochain envoi
+     */
+    private void restoreAgents() {
+        for (Map.Entry<String, String> entry : dataManager.getAgentAddresses().entrySet()) {
+            String agentId = entry.getKey();
+            List<SystemMetrics> latest = dataManager.getMetricsHistory(agentId, Long.MIN_VALUE, Long.MAX_VALUE, 1);
+            SystemMetrics metrics = latest.isEmpty() ? new SystemMetrics(agentId, 0, 0, 0) : latest.get(0);
+            Agent agent = new Agent(agentId, entry.getValue(), metrics);
+            agent.setStatus("OFFLINE");
+            agents.put(agent);
+        }
+        LOG.info("{} agent(s) restauré(s)", dataManager.getAgentAddresses().size());
     }
     
     /**
@@ -40,60 +160,258 @@ public class MonitoringServiceImpl extends UnicastRemoteObject implements Monito
         // Agent de test 1
         SystemMetrics metrics1 = new SystemMetrics("AGENT-001", 45.2, 67.8, 55.3);
         Agent agent1 = new Agent("AGENT-001", "192.168.1.101", metrics1);
-        agents.put("AGENT-001", agent1);
+        agents.put(agent1);
+        dataManager.registerAgent("AGENT-001", "192.168.1.101");
         
         // Historique pour l'agent 1
-        List<SystemMetrics> history1 = new ArrayList<>();
-        history1.add(new SystemMetrics("AGENT-001", 42.1, 65.2, 54.8));
-        history1.add(new SystemMetrics("AGENT-001", 44.3, 66.7, 55.1));
-        history1.add(new SystemMetrics("AGENT-001", 45.2, 67.8, 55.3));
-        metricsHistory.put("AGENT-001", history1);
+        long now = System.currentTimeMillis();
+        dataManager.addMetrics("AGENT-001", now - 2000, 42.1, 65.2, 54.8);
+        dataManager.addMetrics("AGENT-001", now - 1000, 44.3, 66.7, 55.1);
+        dataManager.addMetrics("AGENT-001", now, 45.2, 67.8, 55.3);
         
         // Agent de test 2
         SystemMetrics metrics2 = new SystemMetrics("AGENT-002", 78.9, 82.4, 61.7);
         Agent agent2 = new Agent("AGENT-002", "192.168.1.102", metrics2);
         agent2.setStatus("ALERT");
-        agents.put("AGENT-002", agent2);
+        agents.put(agent2);
+        dataManager.registerAgent("AGENT-002", "192.168.1.102");
         
         // Agent de test 3
         SystemMetrics metrics3 = new SystemMetrics("AGENT-003", 23.4, 45.6, 34.2);
         Agent agent3 = new Agent("AGENT-003", "192.168.1.103", metrics3);
         agent3.setStatus("OFFLINE");
-        agents.put("AGENT-003", agent3);
+        agents.put(agent3);
+        dataManager.registerAgent("AGENT-003", "192.168.1.103");
     }
     
     @Override
     public List<Agent> getAllAgents() throws RemoteException {
-        System.out.println("[RMI] Demande de tous les agents reçue");
-        return new ArrayList<>(agents.values());
+        long start = System.nanoTime();
+        try {
+            LOG.debug("Demande de tous les agents reçue");
+            ReadCache cache = readCache;
+            if (cache == null) {
+                return agents.getAll();
+            }
+            return cache.view("agents", agents.getVersion(), () -> {
+                AgentList all = new AgentList(agents.getAll());
+                return cache.isPreSerialize() ? all.freeze() : all;
+            });
+        } finally {
+            GET_ALL_AGENTS.recordSince(start);
+        }
     }
     
     @Override
     public List<Alert> getAllAlerts() throws RemoteException {
-        System.out.println("[RMI] Demande de toutes les alertes reçue");
-        return dataManager.getAllAlerts();
+        long start = System.nanoTime();
+        try {
+            LOG.debug("Demande de toutes les alertes reçue");
+            ReadCache cache = readCache;
+            if (cache == null) {
+                return dataManager.getAllAlerts();
+            }
+            return cache.view("alerts", dataManager.getAlertVersion(), () -> {
+                AlertList all = dataManager.getAllAlerts();
+                return cache.isPreSerialize() ? all.freeze() : all;
+            });
+        } finally {
+            GET_ALL_ALERTS.recordSince(start);
+        }
+    }
+    
+    @Override
+    public AlertPage queryAlerts(AlertQuery query) throws RemoteException {
+        long start = System.nanoTime();
+        try {
+            LOG.debug("Requête d'alertes reçue: {}", query);
+            return dataManager.queryAlerts(query);
+        } finally {
+            QUERY_ALERTS.recordSince(start);
+        }
+    }
+    
+    @Override
+    public AlertPage getAlertsSince(long sequence, int maxResults) throws RemoteException {
+        long start = System.nanoTime();
+        try {
+            return dataManager.getAlertsSince(sequence, maxResults);
+        } finally {
+            GET_ALERTS_SINCE.recordSince(start);
+        }
     }
     
     @Override
     public List<SystemMetrics> getMetricsHistory(String agentId) throws RemoteException {
-        System.out.println("[RMI] Demande d'historique pour l'agent: " + agentId);
-        List<SystemMetrics> history = metricsHistory.get(agentId);
-        if (history != null) {
-            return new ArrayList<>(history);
-        } else {
-            System.out.println("[RMI] Aucun historique trouvé pour l'agent: " + agentId);
-            return new ArrayList<>();
+        long start = System.nanoTime();
+        try {
+            LOG.debug("Demande d'historique pour l'agent: {}", agentId);
+            ReadCache cache = readCache;
+            List<SystemMetrics> history = cache == null ? latestHistory(agentId)
+                    : cache.history(agentId, dataManager.getMetricsVersion(agentId), () -> latestHistory(agentId));
+            if (history.isEmpty()) {
+                LOG.debug("Aucun historique trouvé pour l'agent: {}", agentId);
+            }
+            return history;
+        } finally {
+            GET_METRICS_HISTORY.recordSince(start);
+        }
+    }
+    
+    private List<SystemMetrics> latestHistory(String agentId) {
+        return dataManager.getMetricsHistory(agentId, Long.MIN_VALUE, Long.MAX_VALUE, HISTORY_RESPONSE_SIZE);
+    }
+    
+    @Override
+    public List<SystemMetrics> getMetricsHistory(String agentId, long fromMillis, long toMillis)
+            throws RemoteException {
+        long start = System.nanoTime();
+        try {
+            LOG.debug("Demande d'historique pour l'agent: {} [{}, {}]", agentId, fromMillis, toMillis);
+            return dataManager.getMetricsHistory(agentId, fromMillis, toMillis, DataManager.MAX_PAGE_SIZE);
+        } finally {
+            GET_METRICS_RANGE.recordSince(start);
+        }
+    }
+    
+    @Override
+    public List<MetricsBucket> getMetricsRollup(String agentId, long fromMillis, long toMillis,
+                                                long resolutionMillis) throws RemoteException {
+        long start = System.nanoTime();
+        try {
+            LOG.debug("Demande d'agrégats pour l'agent: {} (résolution {} ms)", agentId, resolutionMillis);
+            return dataManager.getMetricsRollup(agentId, fromMillis, toMillis, resolutionMillis);
+        } finally {
+            GET_METRICS_ROLLUP.recordSince(start);
+        }
+    }
+    
+    @Override
+    public List<SystemMetrics> getArchivedMetrics(String agentId, long fromMillis, long toMillis)
+            throws RemoteException {
+        long start = System.nanoTime();
+        try {
+            LOG.debug("Demande d'historique archivé pour l'agent: {} [{}, {}]", agentId, fromMillis, toMillis);
+            return dataManager.getArchivedMetrics(agentId, fromMillis, toMillis, DataManager.MAX_PAGE_SIZE);
+        } finally {
+            GET_ARCHIVED_METRICS.recordSince(start);
+        }
+    }
+    
+    @Override
+    public List<Alert> getArchivedAlerts(String agentId, long fromMillis, long toMillis) throws RemoteException {
+        long start = System.nanoTime();
+        try {
+            LOG.debug("Demande d'alertes archivées: {} [{}, {}]", agentId, fromMillis, toMillis);
+            return dataManager.getArchivedAlerts(agentId, fromMillis, toMillis, DataManager.MAX_PAGE_SIZE);
+        } finally {
+            GET_ARCHIVED_ALERTS.recordSince(start);
         }
     }
     
     @Override
     public Agent getAgent(String agentId) throws RemoteException {
-        System.out.println("[RMI] Demande de l'agent: " + agentId);
-        return agents.get(agentId);
+        long start = System.nanoTime();
+        try {
+            LOG.debug("Demande de l'agent: {}", agentId);
+            return agents.get(agentId);
+        } finally {
+            GET_AGENT.recordSince(start);
+        }
+    }
+    
+    @Override
+    public List<Agent> getTopAgents(String metricType, int limit) throws RemoteException {
+        long start = System.nanoTime();
+        try {
+            LOG.debug("Demande des {} premiers agents par {}", limit, metricType);
+            return fleet.topAgents(metricType, limit);
+        } finally {
+            GET_TOP_AGENTS.recordSince(start);
+        }
+    }
+    
+    @Override
+    public FleetSummary getFleetSummary() throws RemoteException {
+        long start = System.nanoTime();
+        try {
+            return fleet.summary();
+        } finally {
+            GET_FLEET_SUMMARY.recordSince(start);
+        }
+    }
+    
+    @Override
+    public FleetWindow getFleetWindow(long windowMillis) throws RemoteException {
+        long start = System.nanoTime();
+        try {
+            return dataManager.getFleetWindow(windowMillis);
+        } finally {
+            GET_FLEET_WINDOW.recordSince(start);
+        }
+    }
+    
+    @Override
+    public long getChangeVersion() throws RemoteException {
+        long start = System.nanoTime();
+        try {
+            return changeFeed.getVersion();
+        } finally {
+            GET_CHANGE_VERSION.recordSince(start);
+        }
+    }
+    
+    @Override
+    public ChangeSet awaitChanges(long sinceVersion, long timeoutMillis) throws RemoteException {
+        long start = System.nanoTime();
+        try {
+            try {
+                return changeFeed.awaitChanges(sinceVersion, timeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RemoteException("Attente des changements interrompue", e);
+            }
+        } finally {
+            AWAIT_CHANGES.recordSince(start);
+        }
+    }
+    
+    @Override
+    public long subscribe(MonitoringCallback callback, long sinceVersion) throws RemoteException {
+        long start = System.nanoTime();
+        try {
+            LOG.debug("Demande d'abonnement aux changements");
+            return changeFeed.subscribe(callback, sinceVersion);
+        } finally {
+            SUBSCRIBE.recordSince(start);
+        }
+    }
+    
+    @Override
+    public boolean unsubscribe(long subscriptionId) throws RemoteException {
+        long start = System.nanoTime();
+        try {
+            return changeFeed.unsubscribe(subscriptionId);
+        } finally {
+            UNSUBSCRIBE.recordSince(start);
+        }
     }
     
     @Override
     public String ping() throws RemoteException {
+        long start = System.nanoTime();
+        try {
+            ReadCache cache = readCache;
+            if (cache == null) {
+                return pingMessage();
+            }
+            return cache.view("ping", agents.getVersion() + dataManager.getAlertVersion(), this::pingMessage);
+        } finally {
+            PING.recordSince(start);
+        }
+    }
+    
+    private String pingMessage() {
         return "Serveur RMI de monitoring actif - " + 
                agents.size() + " agent(s) - " + 
                dataManager.getAlertCount() + " alerte(s)";
@@ -101,42 +419,133 @@ public class MonitoringServiceImpl extends UnicastRemoteObject implements Monito
     
     @Override
     public int getAgentCount() throws RemoteException {
-        return agents.size();
+        long start = System.nanoTime();
+        try {
+            return agents.size();
+        } finally {
+            GET_AGENT_COUNT.recordSince(start);
+        }
     }
     
     @Override
     public int getAlertCount() throws RemoteException {
-        return dataManager.getAlertCount();
+        long start = System.nanoTime();
+        try {
+            return dataManager.getAlertCount();
+        } finally {
+            GET_ALERT_COUNT.recordSince(start);
+        }
     }
     
     /**
-     * Méthode pour ajouter ou mettre à jour un agent
-     * (Utilisée par UDPReceiver quand il reçoit des données)
+     * Méthode pour ajouter ou mettre à jour un agent et enregistrer ses métriques
      */
     public void updateAgent(SystemMetrics metrics, String ipAddress) {
-        String agentId = metrics.getAgentId();
-        
-        if (agents.containsKey(agentId)) {
-            // Mettre à jour l'agent existant
-            Agent agent = agents.get(agentId);
-            agent.setLastMetrics(metrics);
-            agent.setStatus("ONLINE");
-            System.out.println("[RMI] Agent " + agentId + " mis à jour");
-        } else {
-            // Créer un nouvel agent
-            Agent newAgent = new Agent(agentId, ipAddress, metrics);
-            agents.put(agentId, newAgent);
-            System.out.println("[RMI] Nouvel agent ajouté: " + agentId);
-        }
+        long start = System.nanoTime();
+        try {
+            String agentId = metrics.getAgentId();
         
-        // Ajouter aux historiques
-        metricsHistory.computeIfAbsent(agentId, k -> new ArrayList<>())
-                     .add(metrics);
+            // Création ou mise à jour par le thread du shard de l'agent
+            agents.updateMetrics(agentId, ipAddress, metrics);
+            LOG.debug("Agent {} mis à jour", agentId);
+            dataManager.registerAgent(agentId, ipAddress);
+            heartbeat(agentId);
         
-        // Garder seulement les 50 dernières métriques
-        List<SystemMetrics> history = metricsHistory.get(agentId);
-        if (history.size() > 50) {
-            history.remove(0);
+            // Ajouter à l'historique en colonnes de l'agent
+            long timestamp = dataManager.addMetrics(agentId, metrics.getTimestampMillis(), metrics.getCpuUsage(),
+                                                    metrics.getMemoryUsage(), metrics.getDiskUsage());
+            RuleEngine rules = ruleEngine;
+            if (rules != null) {
+                rules.evaluate(agentId, timestamp, metrics.getCpuUsage(), metrics.getMemoryUsage(),
+                               metrics.getDiskUsage());
+            }
+        } finally {
+            UPDATE_AGENT.recordSince(start);
+        }
+    }
+    
+    /**
+     * Met à jour le registre des agents à partir du dernier échantillon d'un datagramme
+     * (utilisée par UDPMetricsReceiver, qui a déjà enregistré l'historique)
+     */
+    public void onUdpMetrics(String agentId, InetSocketAddress source, long timestampMillis,
+                             double cpu, double memory, double disk) {
+        long start = System.nanoTime();
+        try {
+            SystemMetrics metrics = new SystemMetrics(agentId, cpu, memory, disk, timestampMillis);
+            // L'adresse n'est enregistrée dans le DataManager qu'à la création (voir onAgentChanged)
+            agents.updateMetrics(agentId, source.getAddress().getHostAddress(), metrics);
+            heartbeat(agentId);
+        } finally {
+            ON_UDP_METRICS.recordSince(start);
+        }
+    }
+    
+    /**
+     * Active la détection des agents silencieux. Les agents connus qui ne sont pas
+     * hors ligne sont suivis dès maintenant, comme s'ils venaient d'envoyer des données.
+     */
+    public void setLivenessTracker(LivenessTracker tracker) {
+        this.liveness = tracker;
+        for (Agent agent : agents.getAll()) {
+            if (!"OFFLINE".equals(agent.getStatus())) {
+                tracker.heartbeat(agent.getAgentId());
+            }
+        }
+    }
+    
+    /**
+     * Active l'évaluation des règles sur les métriques reçues par updateAgent
+     * (les métriques UDP sont évaluées par le récepteur)
+     */
+    public void setRuleEngine(RuleEngine ruleEngine) {
+        this.ruleEngine = ruleEngine;
+    }
+    
+    /**
+     * Active le cache des lectures (tous les agents, toutes les alertes, ping,
+     * historique récent d'un agent)
+     */
+    public void setReadCache(ReadCache readCache) {
+        this.readCache = readCache;
+    }
+    
+    /**
+     * Applique un changement d'état détecté par le LivenessTracker
+     */
+    public void onLivenessChange(String agentId, boolean online) {
+        agents.setStatus(agentId, online ? "ONLINE" : "OFFLINE");
+    }
+    
+    /**
+     * Appelée par le thread du shard une fois le nouvel état de l'agent publié
+     */
+    private void onAgentChanged(Agent agent, boolean created) {
+        if (created) {
+            LOG.info("Nouvel agent ajouté: {}", agent.getAgentId());
+            dataManager.registerAgent(agent.getAgentId(), agent.getIpAddress());
+        }
+        changeFeed.agentChanged(agent.getAgentId());
+    }
+    
+    private static LatencyHistogram callTimer(String method) {
+        return Instrumentation.histogram("rmi_call_seconds", "Durée des appels au service de monitoring",
+                                         "method", method);
+    }
+    
+    private void heartbeat(String agentId) {
+        LivenessTracker tracker = liveness;
+        if (tracker != null) {
+            tracker.heartbeat(agentId);
         }
     }
+    
+    /**
+     * Arrête la diffusion des changements et le registre des agents
+     */
+    public void shutdown() {
+        agents.stop();
+        changeFeed.stop();
+        fleet.shutdown();
+    }
 }
\ No newline at end of file
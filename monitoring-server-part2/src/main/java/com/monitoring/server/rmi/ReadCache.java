@@ -0,0 +1,199 @@
+package com.monitoring.server.rmi;
+
+import com.monitoring.server.instrumentation.Counter;
+import com.monitoring.server.instrumentation.Instrumentation;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Cache des réponses en lecture du service RMI.
+ *
+ * Chaque réponse est associée à la version des données dont elle est tirée
+ * (version du registre, des alertes, de l'historique d'un agent...) : tant que
+ * cette version ne change pas, la même réponse immuable est servie à tous les
+ * clients, sans recopie. Quand plusieurs appels identiques arrivent pendant une
+ * reconstruction, un seul construit la réponse et les autres l'attendent.
+ *
+ * Les réponses ne doivent pas être modifiées par les appelants. Les vues globales
+ * sont en nombre fixe ; l'historique par agent est limité aux entrées les plus
+ * récemment lues.
+ */
+public final class ReadCache {
+
+    private static final String HISTORY_PREFIX = "history:";
+
+    /**
+     * Réponse en cache et version des données à sa construction
+     */
+    private static final class Cached {
+        final long version;
+        final Object value;
+
+        Cached(long version, Object value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Reconstruction en cours, que les appels concurrents de même clé attendent
+     */
+    private static final class Build {
+        final long version;
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        Build(long version) {
+            this.version = version;
+        }
+    }
+
+    private final int historyEntries;
+    private final boolean preSerialize;
+
+    private final Map<String, Cached> views = new ConcurrentHashMap<>();
+    // Historiques par agent (ordre d'accès, LRU), protégés par leur propre verrou
+    private final Map<String, Cached> histories;
+    private final Map<String, Build> building = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter rebuilds;
+    private final Counter collapsed;
+
+    /**
+     * @param historyEntries Historiques d'agents gardés au plus
+     * @param preSerialize true pour figer les listes et garder leur forme sérialisée
+     */
+    public ReadCache(int historyEntries, boolean preSerialize) {
+        this.historyEntries = Math.max(1, historyEntries);
+        this.preSerialize = preSerialize;
+        this.histories = new LinkedHashMap<String, Cached>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+                return size() > ReadCache.this.historyEntries;
+            }
+        };
+        this.hits = Instrumentation.counter("read_cache_requests_total", "Lectures servies par le cache RMI",
+                                            "result", "hit");
+        this.rebuilds = Instrumentation.counter("read_cache_requests_total", "Lectures servies par le cache RMI",
+                                                "result", "rebuild");
+        this.collapsed = Instrumentation.counter("read_cache_requests_total", "Lectures servies par le cache RMI",
+                                                 "result", "collapsed");
+    }
+
+    /**
+     * Vue globale (tous les agents, toutes les alertes...)
+     * @param name Nom de la vue
+     * @param version Version actuelle des données de la vue
+     * @param builder Construit la vue, à une version au moins égale
+     */
+    public <V> V view(String name, long version, Supplier<V> builder) {
+        return get(name, version, builder, false);
+    }
+
+    /**
+     * Historique récent d'un agent
+     * @param version Version actuelle de l'historique de l'agent
+     */
+    public <V> V history(String agentId, long version, Supplier<V> builder) {
+        return get(HISTORY_PREFIX + agentId, version, builder, true);
+    }
+
+    /**
+     * true si les listes mises en cache doivent être figées avec leur forme sérialisée
+     */
+    public boolean isPreSerialize() {
+        return preSerialize;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> V get(String key, long version, Supplier<V> builder, boolean history) {
+        Cached entry = lookup(key, history);
+        if (entry != null && entry.version >= version) {
+            hits.increment();
+            return (V) entry.value;
+        }
+        while (true) {
+            Build current = building.get(key);
+            if (current != null && current.version >= version) {
+                // Reconstruction déjà en cours à une version suffisante : l'attendre
+                collapsed.increment();
+                return (V) await(current);
+            }
+            Build build = new Build(version);
+            boolean started = current == null ? building.putIfAbsent(key, build) == null
+                                              : building.replace(key, current, build);
+            if (!started) {
+                continue;
+            }
+            rebuilds.increment();
+            try {
+                V value = builder.get();
+                store(key, new Cached(version, value), history);
+                build.result.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                build.result.completeExceptionally(e);
+                throw e;
+            } finally {
+                building.remove(key, build);
+            }
+        }
+    }
+
+    private Cached lookup(String key, boolean history) {
+        if (!history) {
+            return views.get(key);
+        }
+        synchronized (histories) {
+            return histories.get(key);
+        }
+    }
+
+    /**
+     * Garde la réponse sauf si une réponse plus récente a été rangée entre-temps
+     */
+    private void store(String key, Cached entry, boolean history) {
+        if (!history) {
+            views.merge(key, entry, ReadCache::newest);
+            return;
+        }
+        synchronized (histories) {
+            histories.merge(key, entry, ReadCache::newest);
+        }
+    }
+
+    private static Cached newest(Cached previous, Cached entry) {
+        return entry.version >= previous.version ? entry : previous;
+    }
+
+    private static Object await(Build build) {
+        try {
+            return build.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    public int getHistoryCount() {
+        synchronized (histories) {
+            return histories.size();
+        }
+    }
+
+    public String getStatsSummary() {
+        return String.format("%d lecture(s) en cache, %d reconstruction(s), %d attente(s) groupée(s), " +
+                             "%d/%d historique(s)%s",
+                             hits.get(), rebuilds.get(), collapsed.get(), getHistoryCount(), historyEntries,
+                             preSerialize ? ", pré-sérialisé" : "");
+    }
+}
@@ -0,0 +1,50 @@
+package com.monitoring.server.rmi;
+
+import com.monitoring.server.logging.Log;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.rmi.server.RMISocketFactory;
+
+/**
+ * Délais des appels RMI sortants de cette JVM (rappels des abonnés, appels entre
+ * nœuds) : établissement de la connexion et attente de la réponse. Sans eux, un
+ * destinataire injoignable ou bloqué retiendrait le thread appelant indéfiniment.
+ */
+public final class RmiTimeouts {
+
+    private static final Log LOG = Log.get("RMI");
+
+    private RmiTimeouts() {
+    }
+
+    /**
+     * À appeler avant le premier appel RMI sortant ; un délai de réponse déjà
+     * défini par -Dsun.rmi.transport.tcp.responseTimeout est conservé
+     */
+    public static void configure(int timeoutMillis) {
+        if (System.getProperty("sun.rmi.transport.tcp.responseTimeout") == null) {
+            System.setProperty("sun.rmi.transport.tcp.responseTimeout", String.valueOf(timeoutMillis));
+        }
+        try {
+            RMISocketFactory.setSocketFactory(new RMISocketFactory() {
+                private final RMISocketFactory defaults = RMISocketFactory.getDefaultSocketFactory();
+
+                @Override
+                public Socket createSocket(String host, int port) throws IOException {
+                    Socket socket = new Socket();
+                    socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+                    return socket;
+                }
+
+                @Override
+                public ServerSocket createServerSocket(int port) throws IOException {
+                    return defaults.createServerSocket(port);
+                }
+            });
+        } catch (IOException e) {
+            LOG.warn("Fabrique de sockets RMI déjà définie : délai de connexion non appliqué");
+        }
+    }
+}
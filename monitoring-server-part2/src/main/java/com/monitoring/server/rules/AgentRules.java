@@ -0,0 +1,59 @@
+package com.monitoring.server.rules;
+
+import com.monitoring.server.model.AgentIds;
+import java.util.Arrays;
+
+/**
+ * État d'évaluation des règles pour un agent : tableaux primitifs alloués
+ * une fois par version des règles, modifiés sous le verrou de l'objet.
+ * Un rechargement des règles réinitialise l'état (durées et moyennes repartent de zéro).
+ */
+public final class AgentRules {
+
+    static final long NONE = Long.MIN_VALUE;
+
+    final String agentId;
+    // Numéro de l'agent enregistré (état de la détection d'anomalies), résolu sous le verrou de l'objet
+    int agentIndex = AgentIds.UNKNOWN;
+    RuleSet rules;
+    long groups;
+
+    // Par règle
+    boolean[] firing;
+    long[] since;
+    double[] sums;
+    int[] counts;
+    int[] positions;
+    // Fenêtres des moyennes glissantes, bout à bout
+    double[] ring;
+
+    // Par métrique : dernier échantillon (règles de variation)
+    final double[] previousValue = new double[RuleSet.METRIC_COUNT];
+    final long[] previousTime = new long[RuleSet.METRIC_COUNT];
+
+    AgentRules(String agentId, RuleSet rules) {
+        this.agentId = agentId;
+        bind(rules);
+    }
+
+    /**
+     * Associe l'état à une nouvelle version des règles
+     */
+    void bind(RuleSet newRules) {
+        int n = newRules.names.length;
+        rules = newRules;
+        groups = newRules.groupMask(agentId);
+        firing = new boolean[n];
+        since = new long[n];
+        Arrays.fill(since, NONE);
+        sums = new double[n];
+        counts = new int[n];
+        positions = new int[n];
+        ring = new double[newRules.windowStorage];
+        Arrays.fill(previousTime, NONE);
+    }
+
+    public String getAgentId() {
+        return agentId;
+    }
+}
@@ -0,0 +1,147 @@
+package com.monitoring.server.rules;
+
+import com.monitoring.server.instrumentation.Counter;
+import com.monitoring.server.instrumentation.Instrumentation;
+import com.monitoring.server.model.AgentIds;
+
+/**
+ * Détection d'anomalies par agent et par métrique, relative au comportement
+ * habituel de l'agent plutôt qu'à un seuil fixe.
+ *
+ * Pour chaque agent et chaque métrique, une moyenne et une variance à
+ * pondération exponentielle (EWMA, coefficient alpha) sont mises à jour à
+ * chaque échantillon : O(1) en mémoire et en calcul. Un échantillon dont
+ * l'écart à la moyenne dépasse zScore écarts-types est une anomalie ; elle
+ * n'est signalée qu'au moment où elle commence, et le suivi est réarmé quand
+ * l'écart redescend sous la moitié du seuil. Aucune anomalie n'est signalée
+ * pendant les warmupSamples premiers échantillons d'un agent, et l'écart-type
+ * est borné par minStdDev pour qu'un agent parfaitement stable ne déclenche
+ * pas sur une variation d'un point.
+ *
+ * L'état est rangé dans des tableaux primitifs indexés par le numéro interné
+ * de l'agent ({@link AgentIds}), par pages de PAGE_SIZE agents allouées à la
+ * demande et jamais déplacées. Les cases d'un agent ne sont modifiées que
+ * sous le verrou de son {@link AgentRules} (voir RuleEngine.evaluate).
+ */
+public final class AnomalyDetector {
+
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    private static final Counter DETECTED = Instrumentation.counter("anomalies_detected_total",
+            "Anomalies détectées par l'écart à la moyenne glissante des agents");
+
+    private final double alpha;
+    private final double zScore;
+    private final double highZScore;
+    private final int warmupSamples;
+    private final double minVariance;
+
+    private final Page[] pages = new Page[AgentIds.MAX_AGENTS >>> PAGE_BITS];
+
+    /**
+     * @param alpha Poids d'un nouvel échantillon dans la moyenne et la variance (0 < alpha < 1)
+     * @param zScore Écart, en écarts-types, à partir duquel un échantillon est une anomalie (MEDIUM)
+     * @param highZScore Écart à partir duquel l'anomalie est HIGH
+     * @param warmupSamples Échantillons observés avant de signaler une anomalie
+     * @param minStdDev Écart-type minimal pris en compte (en points de pourcentage)
+     */
+    public AnomalyDetector(double alpha, double zScore, double highZScore, int warmupSamples, double minStdDev) {
+        if (alpha <= 0 || alpha >= 1) {
+            throw new IllegalArgumentException("alpha doit être compris entre 0 et 1 exclus: " + alpha);
+        }
+        if (zScore <= 0) {
+            throw new IllegalArgumentException("zScore doit être positif: " + zScore);
+        }
+        this.alpha = alpha;
+        this.zScore = zScore;
+        this.highZScore = Math.max(highZScore, zScore);
+        this.warmupSamples = Math.max(1, warmupSamples);
+        this.minVariance = minStdDev * minStdDev;
+    }
+
+    /**
+     * Ajoute un échantillon à l'état de l'agent et de la métrique
+     * (appelée sous le verrou de l'état de règles de l'agent)
+     * @return Écart en écarts-types si une anomalie commence avec cet échantillon, NaN sinon
+     */
+    double observe(int agentIndex, int metric, double value) {
+        if (agentIndex == AgentIds.UNKNOWN || Double.isNaN(value)) {
+            return Double.NaN;
+        }
+        Page page = page(agentIndex);
+        int slot = (agentIndex & (PAGE_SIZE - 1)) * RuleSet.METRIC_COUNT + metric;
+
+        double mean = page.mean[slot];
+        double variance = page.variance[slot];
+        int samples = page.samples[slot];
+        double z = Double.NaN;
+        if (samples == 0) {
+            mean = value;
+        } else {
+            // L'échantillon est comparé à l'état précédent, puis l'état est mis à jour
+            double deviation = value - mean;
+            double score = deviation / Math.sqrt(Math.max(variance, minVariance));
+            double magnitude = Math.abs(score);
+            if (samples >= warmupSamples && magnitude >= zScore) {
+                if (!page.firing[slot]) {
+                    page.firing[slot] = true;
+                    DETECTED.increment();
+                    z = score;
+                }
+            } else if (magnitude < zScore / 2) {
+                page.firing[slot] = false;
+            }
+            double increment = alpha * deviation;
+            mean += increment;
+            variance = (1 - alpha) * (variance + deviation * increment);
+        }
+        page.mean[slot] = mean;
+        page.variance[slot] = variance;
+        if (samples < warmupSamples) {
+            page.samples[slot] = samples + 1;
+        }
+        return z;
+    }
+
+    /**
+     * Sévérité d'une anomalie selon son écart
+     */
+    String severityOf(double z) {
+        return Math.abs(z) >= highZScore ? "HIGH" : "MEDIUM";
+    }
+
+    /**
+     * Résumé lisible (pour le statut périodique du serveur)
+     */
+    public String getStatsSummary() {
+        return "z >= " + zScore + " (alpha " + alpha + "), " + DETECTED.get() + " anomalie(s)";
+    }
+
+    private Page page(int agentIndex) {
+        int index = agentIndex >>> PAGE_BITS;
+        Page page = pages[index];
+        if (page == null) {
+            synchronized (pages) {
+                page = pages[index];
+                if (page == null) {
+                    // Champs finals : une page vue par un autre thread est complète
+                    page = new Page();
+                    pages[index] = page;
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * État de PAGE_SIZE agents consécutifs, une case par agent et par métrique
+     */
+    private static final class Page {
+        final double[] mean = new double[PAGE_SIZE * RuleSet.METRIC_COUNT];
+        final double[] variance = new double[PAGE_SIZE * RuleSet.METRIC_COUNT];
+        // Échantillons vus, plafonné à warmupSamples
+        final int[] samples = new int[PAGE_SIZE * RuleSet.METRIC_COUNT];
+        final boolean[] firing = new boolean[PAGE_SIZE * RuleSet.METRIC_COUNT];
+    }
+}
@@ -0,0 +1,435 @@
+package com.monitoring.server.rules;
+
+import com.monitoring.server.instrumentation.Counter;
+import com.monitoring.server.instrumentation.Instrumentation;
+import com.monitoring.server.logging.Log;
+import com.monitoring.server.model.AgentIds;
+import com.monitoring.server.model.Alert;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Évaluation côté serveur des échantillons de métriques et des alertes des agents.
+ *
+ * Chaque échantillon est comparé aux règles de sa métrique ({@link RuleSet}) :
+ * quelques comparaisons de primitives par règle, sans allocation tant qu'aucune
+ * règle ne se déclenche. Une règle ne lève une alerte qu'au moment où elle
+ * devient vraie ; si plusieurs règles d'une même métrique se déclenchent sur
+ * le même échantillon, seule la plus sévère produit une alerte.
+ *
+ * Le fichier de règles est surveillé et rechargé à chaud : la nouvelle version
+ * est publiée d'un coup et chaque agent y rattache son état au prochain échantillon.
+ *
+ * Les alertes levées sont transmises par un thread dédié, derrière une file bornée :
+ * pendant une tempête, celles qui ne trouvent pas de place sont perdues et comptées.
+ */
+public class RuleEngine {
+
+    private static final Log LOG = Log.get("Rules");
+
+    /** Alertes levées en attente de transmission au plus, par défaut */
+    public static final int DEFAULT_ALERT_QUEUE_CAPACITY = 8192;
+
+    private static final Counter ALERTS_DROPPED = Instrumentation.counter("rules_alerts_dropped_total",
+            "Alertes levées par les règles perdues, file de transmission pleine");
+
+    private final Path rulesFile;
+    private final long reloadIntervalMs;
+    private final Consumer<Alert> alertSink;
+    private final ThreadPoolExecutor alertExecutor;
+
+    private volatile RuleSet rules;
+    // Détection des écarts au comportement habituel des agents (null = désactivée)
+    private volatile AnomalyDetector anomalies;
+    // Numéros des agents enregistrés, qui indexent l'état de la détection d'anomalies
+    private volatile AgentIds agentIds;
+    private final Map<String, AgentRules> agentStates = new ConcurrentHashMap<>();
+    private final AtomicLong firedCount = new AtomicLong();
+
+    // Dernière version du fichier chargée (surveillance par date et taille)
+    private long loadedModified = -1;
+    private long loadedSize = -1;
+
+    private volatile boolean running;
+    private Thread watcher;
+
+    /**
+     * Moteur limité aux règles par défaut (classement des alertes, sans évaluation des métriques)
+     */
+    public RuleEngine() {
+        this(null, 0, null);
+    }
+
+    /**
+     * @param rulesFile Fichier de règles (règles par défaut s'il n'existe pas)
+     * @param reloadIntervalMs Intervalle de vérification du fichier (0 = pas de rechargement)
+     * @param alertSink Reçoit les alertes levées par les règles (null = métriques non évaluées)
+     */
+    public RuleEngine(String rulesFile, long reloadIntervalMs, Consumer<Alert> alertSink) {
+        this(rulesFile, reloadIntervalMs, alertSink, DEFAULT_ALERT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param rulesFile Fichier de règles (règles par défaut s'il n'existe pas)
+     * @param reloadIntervalMs Intervalle de vérification du fichier (0 = pas de rechargement)
+     * @param alertSink Reçoit les alertes levées par les règles (null = métriques non évaluées)
+     * @param alertQueueCapacity Alertes levées en attente de transmission au plus
+     */
+    public RuleEngine(String rulesFile, long reloadIntervalMs, Consumer<Alert> alertSink, int alertQueueCapacity) {
+        this.rulesFile = rulesFile == null ? null : Paths.get(rulesFile);
+        this.reloadIntervalMs = reloadIntervalMs;
+        this.alertSink = alertSink;
+        this.rules = RuleSet.defaults(0);
+        // Les alertes sont transmises hors du thread de réception (l'ajout peut attendre le disque)
+        this.alertExecutor = alertSink == null ? null : new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, alertQueueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "rules-alerts");
+                    thread.setDaemon(true);
+                    return thread;
+                }, (task, executor) -> {
+                    // File pleine (ou arrêt en cours) : l'alerte est perdue
+                    if (!executor.isShutdown()) {
+                        ALERTS_DROPPED.increment();
+                    }
+                });
+        if (alertExecutor != null) {
+            Instrumentation.gauge("rules_alerts_pending", "Alertes levées par les règles en attente de transmission",
+                                  () -> alertExecutor.getQueue().size());
+        }
+        if (this.rulesFile != null) {
+            reload();
+        }
+    }
+
+    /**
+     * Démarre la surveillance du fichier de règles
+     */
+    public void start() {
+        if (rulesFile == null || reloadIntervalMs <= 0) {
+            return;
+        }
+        running = true;
+        watcher = new Thread(this::watchLoop, "rules-reloader");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    public void stop() {
+        running = false;
+        if (watcher != null) {
+            watcher.interrupt();
+        }
+        if (alertExecutor != null) {
+            alertExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Recharge le fichier de règles s'il a changé
+     * @return true si une nouvelle version a été publiée
+     */
+    public synchronized boolean reload() {
+        if (rulesFile == null) {
+            return false;
+        }
+        long modified;
+        long size;
+        try {
+            modified = Files.getLastModifiedTime(rulesFile).toMillis();
+            size = Files.size(rulesFile);
+        } catch (NoSuchFileException e) {
+            if (loadedModified == -1) {
+                LOG.info("{} absent, règles par défaut ({} règle(s))", rulesFile, rules.size());
+                loadedModified = 0;
+            }
+            return false;
+        } catch (IOException e) {
+            LOG.error("Impossible de lire {}: {}", rulesFile, e.getMessage());
+            return false;
+        }
+        if (modified == loadedModified && size == loadedSize) {
+            return false;
+        }
+
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(rulesFile)) {
+            properties.load(in);
+        } catch (IOException | IllegalArgumentException e) {
+            LOG.error("Fichier de règles illisible, règles inchangées: {}", e.getMessage());
+            return false;
+        }
+        loadedModified = modified;
+        loadedSize = size;
+        RuleSet compiled = RuleSet.compile(properties, rules.version + 1);
+        rules = compiled;
+        LOG.info("{} règle(s) chargée(s) depuis {} (version {})", compiled.size(), rulesFile, compiled.version);
+        return true;
+    }
+
+    private void watchLoop() {
+        while (running) {
+            try {
+                Thread.sleep(reloadIntervalMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+            reload();
+        }
+    }
+
+    /**
+     * État d'évaluation d'un agent, partagé par tous les chemins d'ingestion.
+     * Les récepteurs à fort débit le conservent pour éviter une recherche par échantillon.
+     */
+    public AgentRules stateFor(String agentId) {
+        AgentRules state = agentStates.get(agentId);
+        if (state == null) {
+            state = agentStates.computeIfAbsent(agentId, id -> new AgentRules(id, rules));
+        }
+        return state;
+    }
+
+    /**
+     * Active la détection d'anomalies sur les échantillons évalués. Une anomalie
+     * n'est signalée que si aucune règle de la métrique ne se déclenche sur le
+     * même échantillon.
+     */
+    public void setAnomalyDetector(AnomalyDetector detector) {
+        this.anomalies = detector;
+    }
+
+    /**
+     * Table des agents enregistrés : un agent n'est suivi par la détection d'anomalies
+     * qu'une fois numéroté (sans table, aucun ne l'est)
+     */
+    public void setAgentIds(AgentIds agentIds) {
+        this.agentIds = agentIds;
+    }
+
+    /**
+     * true si les échantillons doivent être évalués (une destination des alertes est configurée)
+     */
+    public boolean isEvaluatingMetrics() {
+        return alertSink != null;
+    }
+
+    /**
+     * Évalue un échantillon d'un agent
+     */
+    public void evaluate(String agentId, long timestampMillis, double cpu, double memory, double disk) {
+        if (alertSink != null) {
+            evaluate(stateFor(agentId), timestampMillis, cpu, memory, disk);
+        }
+    }
+
+    /**
+     * Évalue un échantillon avec l'état déjà résolu de l'agent
+     */
+    public void evaluate(AgentRules state, long timestampMillis, double cpu, double memory, double disk) {
+        if (alertSink == null) {
+            return;
+        }
+        RuleSet current = rules;
+        AnomalyDetector detector = anomalies;
+        synchronized (state) {
+            if (state.rules != current) {
+                state.bind(current);
+            }
+            AgentIds ids = agentIds;
+            if (detector != null && state.agentIndex == AgentIds.UNKNOWN && ids != null) {
+                // Agent enregistré depuis la création de son état
+                state.agentIndex = ids.idOf(state.agentId);
+            }
+            evaluateMetric(state, current, detector, RuleSet.CPU, timestampMillis, cpu);
+            evaluateMetric(state, current, detector, RuleSet.MEMORY, timestampMillis, memory);
+            evaluateMetric(state, current, detector, RuleSet.DISK, timestampMillis, disk);
+        }
+    }
+
+    private void evaluateMetric(AgentRules state, RuleSet set, AnomalyDetector detector, int metric, long time,
+                                double value) {
+        int best = -1;
+        double bestValue = 0;
+        long groups = state.groups;
+        long previousTime = state.previousTime[metric];
+        for (int i = set.metricStart[metric], end = set.metricStart[metric + 1]; i < end; i++) {
+            if ((set.groupMasks[i] & groups) == 0) {
+                continue;
+            }
+            boolean violated;
+            double observed = value;
+            switch (set.types[i]) {
+                case RuleSet.SUSTAINED:
+                    if (crosses(set, i, value)) {
+                        if (state.since[i] == AgentRules.NONE) {
+                            state.since[i] = time;
+                        }
+                        violated = time - state.since[i] >= set.durations[i];
+                    } else {
+                        state.since[i] = AgentRules.NONE;
+                        violated = false;
+                    }
+                    break;
+                case RuleSet.RATE:
+                    if (previousTime == AgentRules.NONE || time <= previousTime) {
+                        // Pas de variation mesurable : l'état de la règle est conservé
+                        violated = state.firing[i];
+                    } else {
+                        observed = (value - state.previousValue[metric]) * 1000.0 / (time - previousTime);
+                        violated = crosses(set, i, observed);
+                    }
+                    break;
+                case RuleSet.AVERAGE:
+                    observed = pushAverage(state, set, i, value);
+                    violated = state.counts[i] == set.windows[i] && crosses(set, i, observed);
+                    break;
+                default:
+                    violated = crosses(set, i, value);
+                    break;
+            }
+            if (!violated) {
+                state.firing[i] = false;
+            } else if (!state.firing[i]) {
+                state.firing[i] = true;
+                if (best < 0 || set.severities[i] > set.severities[best]) {
+                    best = i;
+                    bestValue = observed;
+                }
+            }
+        }
+        state.previousValue[metric] = value;
+        state.previousTime[metric] = time;
+        double z = detector != null ? detector.observe(state.agentIndex, metric, value) : Double.NaN;
+        if (best >= 0) {
+            raise(state.agentId, set, metric, best, time, bestValue);
+        } else if (!Double.isNaN(z)) {
+            raiseAnomaly(state.agentId, detector, metric, time, value, z);
+        }
+    }
+
+    private static boolean crosses(RuleSet set, int rule, double value) {
+        return set.below[rule] ? value <= set.thresholds[rule] : value >= set.thresholds[rule];
+    }
+
+    /**
+     * Ajoute une valeur à la moyenne glissante de la règle
+     * @return Moyenne courante
+     */
+    private static double pushAverage(AgentRules state, RuleSet set, int rule, double value) {
+        int window = set.windows[rule];
+        int offset = set.windowOffsets[rule];
+        int position = state.positions[rule];
+        double[] ring = state.ring;
+        if (state.counts[rule] == window) {
+            state.sums[rule] -= ring[offset + position];
+        } else {
+            state.counts[rule]++;
+        }
+        ring[offset + position] = value;
+        state.sums[rule] += value;
+        if (++position == window) {
+            position = 0;
+            // Somme recalculée à chaque tour pour ne pas accumuler d'erreurs d'arrondi
+            double sum = 0;
+            for (int k = 0; k < state.counts[rule]; k++) {
+                sum += ring[offset + k];
+            }
+            state.sums[rule] = sum;
+        }
+        state.positions[rule] = position;
+        return state.sums[rule] / state.counts[rule];
+    }
+
+    private void raise(String agentId, RuleSet set, int metric, int rule, long time, double observed) {
+        String comparison = (set.below[rule] ? " <= " : " >= ") + format(set.thresholds[rule]);
+        String description;
+        switch (set.types[rule]) {
+            case RuleSet.SUSTAINED:
+                description = format(observed) + "%" + comparison + " depuis " + set.durations[rule] / 1000 + " s";
+                break;
+            case RuleSet.RATE:
+                description = "variation " + format(observed) + "/s" + comparison;
+                break;
+            case RuleSet.AVERAGE:
+                description = "moyenne sur " + set.windows[rule] + " échantillons " + format(observed) + "%" +
+                              comparison;
+                break;
+            default:
+                description = format(observed) + "%" + comparison;
+                break;
+        }
+        Alert alert = new Alert(agentId, RuleSet.METRIC_NAMES[metric],
+                "[" + RuleSet.METRIC_NAMES[metric] + "] " + description + " (règle " + set.names[rule] + ")",
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault()),
+                RuleSet.SEVERITIES[set.severities[rule]]);
+        firedCount.incrementAndGet();
+        submit(alert);
+    }
+
+    private void raiseAnomaly(String agentId, AnomalyDetector detector, int metric, long time, double value,
+                              double z) {
+        String direction = z > 0 ? "au-dessus" : "en dessous";
+        Alert alert = new Alert(agentId, RuleSet.METRIC_NAMES[metric],
+                "[" + RuleSet.METRIC_NAMES[metric] + "] anomalie " + format(value) + "%, " + format(Math.abs(z)) +
+                " écarts-types " + direction + " de la moyenne habituelle",
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault()),
+                detector.severityOf(z));
+        submit(alert);
+    }
+
+    private void submit(Alert alert) {
+        alertExecutor.execute(() -> alertSink.accept(alert));
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    /**
+     * Sévérité d'une alerte envoyée par un agent : la plus forte des règles de seuil
+     * de la métrique franchies par la valeur, "LOW" si aucune
+     */
+    public String classify(String agentId, String metricType, double value) {
+        RuleSet current = rules;
+        AgentRules state = agentStates.get(agentId);
+        long groups = state != null && state.rules == current ? state.groups : current.groupMask(agentId);
+        int metric = RuleSet.metricIndex(metricType);
+        int severity = 0;
+        for (int i = current.metricStart[metric], end = current.metricStart[metric + 1]; i < end; i++) {
+            if (current.types[i] == RuleSet.THRESHOLD && (current.groupMasks[i] & groups) != 0
+                    && crosses(current, i, value) && current.severities[i] > severity) {
+                severity = current.severities[i];
+            }
+        }
+        return RuleSet.SEVERITIES[severity];
+    }
+
+    public RuleSet getRules() {
+        return rules;
+    }
+
+    /**
+     * Résumé lisible (pour le statut périodique du serveur)
+     */
+    public String getStatsSummary() {
+        RuleSet current = rules;
+        return current.size() + " règle(s) (version " + current.version + "), " +
+               firedCount.get() + " déclenchement(s), " + ALERTS_DROPPED.get() + " alerte(s) perdue(s)";
+    }
+}
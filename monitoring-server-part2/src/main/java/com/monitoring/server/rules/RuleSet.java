@@ -0,0 +1,358 @@
+package com.monitoring.server.rules;
+
+import com.monitoring.server.logging.Log;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Ensemble de règles compilé en tableaux plats, immuable.
+ *
+ * Format du fichier de règles (java.util.Properties) :
+ * <pre>
+ * # Groupes d'agents : identifiants exacts ou préfixes terminés par *
+ * group.web = WEB-*, AGENT-001
+ *
+ * # rule.&lt;nom&gt; = clé=valeur; clé=valeur; ...
+ * rule.cpu-critique = metric=CPU; type=threshold; value=95; severity=CRITICAL
+ * rule.cpu-soutenu  = metric=CPU; type=sustained; value=85; seconds=60; severity=HIGH; group=web
+ * rule.mem-hausse   = metric=MEMORY; type=rate; value=5; severity=MEDIUM
+ * rule.disk-moyen   = metric=DISK; type=average; window=30; value=80; severity=MEDIUM
+ * rule.cpu-bas      = metric=*; type=threshold; op=&lt;=; value=1; severity=LOW
+ * </pre>
+ * metric : CPU, MEMORY, DISK ou * (toutes) ; type : threshold (valeur),
+ * sustained (valeur au-delà du seuil depuis seconds secondes), rate (variation
+ * par seconde) ou average (moyenne glissante sur window échantillons) ;
+ * op : &gt;= (par défaut) ou &lt;= ; group : liste de groupes (tous les agents si absent).
+ *
+ * Les règles sont rangées par métrique : évaluer un échantillon ne parcourt
+ * que les règles de sa métrique, chacune réduite à un masque de groupes, un
+ * type, un seuil et quelques champs primitifs.
+ */
+public final class RuleSet {
+
+    private static final Log LOG = Log.get("Rules");
+
+    // Métriques évaluées (index dans les tableaux par métrique)
+    public static final int CPU = 0;
+    public static final int MEMORY = 1;
+    public static final int DISK = 2;
+    static final int METRIC_COUNT = 3;
+    /** Métriques inconnues (classement des alertes envoyées par les agents) */
+    static final int OTHER = 3;
+    static final String[] METRIC_NAMES = {"CPU", "MEMORY", "DISK"};
+
+    // Types de règles
+    static final byte THRESHOLD = 0;
+    static final byte SUSTAINED = 1;
+    static final byte RATE = 2;
+    static final byte AVERAGE = 3;
+    private static final String[] TYPE_NAMES = {"threshold", "sustained", "rate", "average"};
+
+    /** Sévérités, de la plus faible à la plus forte */
+    static final String[] SEVERITIES = {"LOW", "MEDIUM", "HIGH", "CRITICAL"};
+
+    /** Bit présent dans le masque de tous les agents (règles sans groupe) */
+    static final long ALL_AGENTS = 1L << 63;
+    private static final int MAX_GROUPS = 63;
+
+    /** Taille maximale d'une moyenne glissante */
+    private static final int MAX_WINDOW = 4096;
+
+    final int version;
+    private final int ruleCount;
+
+    // Règles triées par métrique : celles de la métrique m sont dans [metricStart[m], metricStart[m + 1][
+    // (la dernière tranche regroupe les règles "*", seules utilisées pour les métriques inconnues)
+    final int[] metricStart;
+    final String[] names;
+    final byte[] types;
+    final boolean[] below;
+    final double[] thresholds;
+    final long[] durations;
+    final int[] windows;
+    final int[] severities;
+    final long[] groupMasks;
+    // Position de la fenêtre de chaque moyenne glissante dans l'état d'un agent
+    final int[] windowOffsets;
+    final int windowStorage;
+
+    // Groupes d'agents : identifiants exacts et préfixes
+    private final Map<String, Long> exactGroups;
+    private final String[] groupPrefixes;
+    private final long[] prefixMasks;
+
+    private RuleSet(int version, List<Rule> rules, Map<String, Long> exactGroups,
+                    List<String> prefixes, List<Long> prefixMasks) {
+        this.version = version;
+        this.ruleCount = rules.size();
+        // Les règles "*" sont dupliquées dans chaque métrique connue
+        List<Rule> ordered = new ArrayList<>();
+        metricStart = new int[METRIC_COUNT + 2];
+        for (int m = 0; m <= OTHER; m++) {
+            metricStart[m] = ordered.size();
+            for (Rule rule : rules) {
+                if (rule.metric == m || (rule.metric == OTHER && m < OTHER)) {
+                    ordered.add(rule);
+                }
+            }
+        }
+        metricStart[OTHER + 1] = ordered.size();
+
+        int n = ordered.size();
+        names = new String[n];
+        types = new byte[n];
+        below = new boolean[n];
+        thresholds = new double[n];
+        durations = new long[n];
+        windows = new int[n];
+        severities = new int[n];
+        groupMasks = new long[n];
+        windowOffsets = new int[n];
+        int storage = 0;
+        for (int i = 0; i < n; i++) {
+            Rule rule = ordered.get(i);
+            names[i] = rule.name;
+            types[i] = rule.type;
+            below[i] = rule.below;
+            thresholds[i] = rule.threshold;
+            durations[i] = rule.durationMillis;
+            windows[i] = rule.window;
+            severities[i] = rule.severity;
+            groupMasks[i] = rule.groupMask;
+            windowOffsets[i] = storage;
+            if (rule.type == AVERAGE) {
+                storage += rule.window;
+            }
+        }
+        windowStorage = storage;
+        this.exactGroups = exactGroups;
+        this.groupPrefixes = prefixes.toArray(new String[0]);
+        this.prefixMasks = new long[prefixMasks.size()];
+        for (int i = 0; i < this.prefixMasks.length; i++) {
+            this.prefixMasks[i] = prefixMasks.get(i);
+        }
+    }
+
+    /**
+     * Règles par défaut (seuils historiques 80 / 90 / 95 sur toutes les métriques)
+     */
+    public static RuleSet defaults(int version) {
+        List<Rule> rules = new ArrayList<>();
+        rules.add(new Rule("seuil-moyen", OTHER, THRESHOLD, false, 80, 0, 0, 1, ALL_AGENTS));
+        rules.add(new Rule("seuil-eleve", OTHER, THRESHOLD, false, 90, 0, 0, 2, ALL_AGENTS));
+        rules.add(new Rule("seuil-critique", OTHER, THRESHOLD, false, 95, 0, 0, 3, ALL_AGENTS));
+        return new RuleSet(version, rules, new LinkedHashMap<>(), new ArrayList<>(), new ArrayList<>());
+    }
+
+    /**
+     * Compile les règles d'un fichier. Les règles invalides sont signalées et ignorées.
+     */
+    public static RuleSet compile(Properties properties, int version) {
+        // Groupes : un bit par groupe
+        Map<String, Long> groupBits = new LinkedHashMap<>();
+        Map<String, Long> exactGroups = new LinkedHashMap<>();
+        List<String> prefixes = new ArrayList<>();
+        List<Long> prefixMasks = new ArrayList<>();
+        // Ordre stable des clés pour des bits de groupes reproductibles
+        Map<String, String> sorted = new TreeMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            sorted.put(key, properties.getProperty(key).trim());
+        }
+        for (Map.Entry<String, String> entry : sorted.entrySet()) {
+            if (!entry.getKey().startsWith("group.")) {
+                continue;
+            }
+            String group = entry.getKey().substring("group.".length());
+            if (groupBits.size() >= MAX_GROUPS) {
+                LOG.warn("Trop de groupes, ignoré: {}", group);
+                continue;
+            }
+            long bit = 1L << groupBits.size();
+            groupBits.put(group, bit);
+            for (String member : entry.getValue().split(",")) {
+                member = member.trim();
+                if (member.isEmpty()) {
+                    continue;
+                }
+                if (member.endsWith("*")) {
+                    String prefix = member.substring(0, member.length() - 1);
+                    int index = prefixes.indexOf(prefix);
+                    if (index < 0) {
+                        prefixes.add(prefix);
+                        prefixMasks.add(bit);
+                    } else {
+                        prefixMasks.set(index, prefixMasks.get(index) | bit);
+                    }
+                } else {
+                    exactGroups.merge(member, bit, (a, b) -> a | b);
+                }
+            }
+        }
+
+        List<Rule> rules = new ArrayList<>();
+        for (Map.Entry<String, String> entry : sorted.entrySet()) {
+            if (!entry.getKey().startsWith("rule.")) {
+                continue;
+            }
+            String name = entry.getKey().substring("rule.".length());
+            try {
+                rules.add(parseRule(name, entry.getValue(), groupBits));
+            } catch (IllegalArgumentException e) {
+                LOG.warn("Règle {} ignorée: {}", name, e.getMessage());
+            }
+        }
+        return new RuleSet(version, rules, exactGroups, prefixes, prefixMasks);
+    }
+
+    private static Rule parseRule(String name, String definition, Map<String, Long> groupBits) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (String part : definition.split(";")) {
+            part = part.trim();
+            if (part.isEmpty()) {
+                continue;
+            }
+            int eq = part.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("champ invalide '" + part + "'");
+            }
+            fields.put(part.substring(0, eq).trim().toLowerCase(), part.substring(eq + 1).trim());
+        }
+
+        String metricName = required(fields, "metric").toUpperCase();
+        int metric = "*".equals(metricName) ? OTHER : Arrays.asList(METRIC_NAMES).indexOf(metricName);
+        if (metric < 0) {
+            throw new IllegalArgumentException("métrique inconnue " + metricName);
+        }
+        byte type = (byte) Arrays.asList(TYPE_NAMES).indexOf(fields.getOrDefault("type", "threshold").toLowerCase());
+        if (type < 0) {
+            throw new IllegalArgumentException("type inconnu " + fields.get("type"));
+        }
+        String op = fields.getOrDefault("op", ">=");
+        if (!">=".equals(op) && !"<=".equals(op)) {
+            throw new IllegalArgumentException("opérateur inconnu " + op);
+        }
+        double threshold = parseNumber(required(fields, "value"), "value");
+        int severity = Arrays.asList(SEVERITIES).indexOf(required(fields, "severity").toUpperCase());
+        if (severity < 0) {
+            throw new IllegalArgumentException("sévérité inconnue " + fields.get("severity"));
+        }
+
+        long duration = 0;
+        int window = 0;
+        if (type == SUSTAINED) {
+            duration = (long) (parseNumber(required(fields, "seconds"), "seconds") * 1000);
+            if (duration <= 0) {
+                throw new IllegalArgumentException("seconds doit être positif");
+            }
+        } else if (type == AVERAGE) {
+            window = (int) parseNumber(required(fields, "window"), "window");
+            if (window < 1 || window > MAX_WINDOW) {
+                throw new IllegalArgumentException("window doit être entre 1 et " + MAX_WINDOW);
+            }
+        }
+
+        long groupMask = 0;
+        String groups = fields.get("group");
+        if (groups == null || groups.isEmpty()) {
+            groupMask = ALL_AGENTS;
+        } else {
+            for (String group : groups.split(",")) {
+                Long bit = groupBits.get(group.trim());
+                if (bit == null) {
+                    throw new IllegalArgumentException("groupe inconnu " + group.trim());
+                }
+                groupMask |= bit;
+            }
+        }
+        return new Rule(name, metric, type, "<=".equals(op), threshold, duration, window, severity, groupMask);
+    }
+
+    private static String required(Map<String, String> fields, String key) {
+        String value = fields.get(key);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException(key + " manquant");
+        }
+        return value;
+    }
+
+    private static double parseNumber(String value, String key) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " invalide: " + value);
+        }
+    }
+
+    /**
+     * Masque des groupes d'un agent (calculé une fois par agent et par version)
+     */
+    long groupMask(String agentId) {
+        long mask = ALL_AGENTS;
+        Long exact = exactGroups.get(agentId);
+        if (exact != null) {
+            mask |= exact;
+        }
+        for (int i = 0; i < groupPrefixes.length; i++) {
+            if (agentId.startsWith(groupPrefixes[i])) {
+                mask |= prefixMasks[i];
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Index d'une métrique à partir de son nom (OTHER si inconnue)
+     */
+    static int metricIndex(String metricType) {
+        for (int m = 0; m < METRIC_COUNT; m++) {
+            if (METRIC_NAMES[m].equals(metricType)) {
+                return m;
+            }
+        }
+        return OTHER;
+    }
+
+    /**
+     * Nombre de règles (avant duplication des règles "*")
+     */
+    public int size() {
+        return ruleCount;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Règle en cours de compilation
+     */
+    private static final class Rule {
+        final String name;
+        final int metric;
+        final byte type;
+        final boolean below;
+        final double threshold;
+        final long durationMillis;
+        final int window;
+        final int severity;
+        final long groupMask;
+
+        Rule(String name, int metric, byte type, boolean below, double threshold,
+             long durationMillis, int window, int severity, long groupMask) {
+            this.name = name;
+            this.metric = metric;
+            this.type = type;
+            this.below = below;
+            this.threshold = threshold;
+            this.durationMillis = durationMillis;
+            this.window = window;
+            this.severity = severity;
+            this.groupMask = groupMask;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.monitoring.server.storage;
+
+import com.monitoring.server.logging.Log;
+import com.monitoring.server.model.Alert;
+import com.monitoring.server.model.AlertList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Stockage borné des alertes dans un tampon circulaire.
+ *
+ * Chaque alerte reçoit un numéro de séquence croissant (à partir de 1) qui
+ * détermine sa case dans l'anneau. Les producteurs réservent une séquence
+ * sans verrou, puis publient dans l'ordre des séquences : un lecteur qui lit
+ * la dernière séquence publiée voit donc toutes les alertes précédentes.
+ *
+ * Rétention :
+ *  - par nombre : l'anneau écrase les alertes les plus anciennes au-delà de sa capacité
+ *  - par âge : les alertes plus vieilles que maxAgeMillis sont retirées au fil des écritures
+ *
+ * L'horodatage de stockage est croissant avec la séquence, ce qui permet de
+ * convertir un intervalle de temps en intervalle de séquences par dichotomie.
+ */
+public class AlertStore {
+
+    private static final Log LOG = Log.get("Storage");
+
+    private static final int MAX_EXPIRED_PER_CALL = 64;
+
+    private final int capacity;
+    private final int mask;
+    private final long maxAgeMillis;
+    private final AtomicReferenceArray<Alert> slots;
+    private final AtomicLongArray storedAt;
+
+    // Dernière séquence réservée par un producteur
+    private final AtomicLong claimed = new AtomicLong();
+    // Dernière séquence visible par les lecteurs (toutes les précédentes le sont aussi)
+    private final AtomicLong published = new AtomicLong();
+    // Plus petite séquence encore retenue par la règle d'âge
+    private final AtomicLong ageFloor = new AtomicLong(1);
+    // Dernier horodatage de stockage (modifié uniquement pendant la publication ordonnée)
+    private long lastStoredAt;
+    private final AppendListener listener;
+
+    /**
+     * Constructeur
+     * @param capacity Nombre maximal d'alertes conservées (arrondi à la puissance de 2 supérieure)
+     * @param maxAgeMillis Âge maximal d'une alerte en ms (0 = pas de limite d'âge)
+     */
+    public AlertStore(int capacity, long maxAgeMillis) {
+        this(capacity, maxAgeMillis, null);
+    }
+
+    /**
+     * Constructeur
+     * @param capacity Nombre maximal d'alertes conservées (arrondi à la puissance de 2 supérieure)
+     * @param maxAgeMillis Âge maximal d'une alerte en ms (0 = pas de limite d'âge)
+     * @param listener Notifié de chaque ajout dans l'ordre des séquences (peut être null)
+     */
+    public AlertStore(int capacity, long maxAgeMillis, AppendListener listener) {
+        this.listener = listener;
+        this.capacity = powerOfTwoAtLeast(capacity);
+        this.mask = this.capacity - 1;
+        this.maxAgeMillis = maxAgeMillis;
+        this.slots = new AtomicReferenceArray<>(this.capacity);
+        this.storedAt = new AtomicLongArray(this.capacity);
+    }
+
+    /**
+     * Ajoute une alerte et lui attribue son numéro de séquence
+     * @return Le numéro de séquence attribué
+     */
+    public long append(Alert alert) {
+        long sequence = claimed.incrementAndGet();
+        long now = System.currentTimeMillis();
+        int index = (int) (sequence & mask);
+        alert.setSequence(sequence);
+
+        // Attendre notre tour : les séquences sont publiées dans l'ordre
+        PublishOrder.await(published, sequence - 1);
+        long time = Math.max(now, lastStoredAt);
+        lastStoredAt = time;
+        storedAt.set(index, time);
+        slots.set(index, alert);
+        notifyListener(alert, time);
+        published.set(sequence);
+
+        expireByAge(now);
+        return sequence;
+    }
+
+    /**
+     * Attend la publication de toutes les séquences déjà attribuées
+     */
+    void awaitPublished() {
+        PublishOrder.awaitAtLeast(published, claimed.get());
+    }
+
+    /**
+     * Réinsère une alerte restaurée avec sa séquence et son horodatage d'origine.
+     * Réservé à la reprise au démarrage (un seul thread, avant tout append) :
+     * les séquences déjà présentes sont ignorées, un saut de séquence rend
+     * les alertes précédentes inaccessibles.
+     */
+    void restore(Alert alert, long storedAtMillis) {
+        long sequence = alert.getSequence();
+        long last = published.get();
+        if (sequence <= last) {
+            return;
+        }
+        if (sequence != last + 1) {
+            ageFloor.set(sequence);
+        }
+        int index = (int) (sequence & mask);
+        long time = Math.max(storedAtMillis, lastStoredAt);
+        lastStoredAt = time;
+        claimed.set(sequence);
+        storedAt.set(index, time);
+        slots.set(index, alert);
+        notifyListener(alert, time);
+        published.set(sequence);
+    }
+
+    /**
+     * Horodatage de stockage d'une séquence retenue (0 si évincée)
+     */
+    long storedAtMillis(long sequence) {
+        return get(sequence) != null ? storedAt.get((int) (sequence & mask)) : 0;
+    }
+
+    /**
+     * Retourne l'alerte de séquence donnée, ou null si elle a été évincée
+     */
+    public Alert get(long sequence) {
+        if (sequence < oldestSequence() || sequence > published.get()) {
+            return null;
+        }
+        Alert alert = slots.get((int) (sequence & mask));
+        return (alert != null && alert.getSequence() == sequence) ? alert : null;
+    }
+
+    /**
+     * Première séquence retenue stockée à partir de l'instant donné
+     * (dernière séquence + 1 si aucune)
+     */
+    public long firstSequenceAtOrAfter(long timeMillis) {
+        long last = published.get();
+        long low = oldestSequence(last);
+        long high = last + 1;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (storedAt.get((int) (mid & mask)) < timeMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Dernière séquence retenue stockée au plus tard à l'instant donné
+     * (plus ancienne séquence - 1 si aucune)
+     */
+    public long lastSequenceAtOrBefore(long timeMillis) {
+        long last = published.get();
+        long low = oldestSequence(last);
+        long high = last + 1;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (storedAt.get((int) (mid & mask)) <= timeMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * Copie cohérente des alertes retenues, de la plus ancienne à la plus récente.
+     * Ne bloque pas les producteurs : si l'anneau est rattrapé pendant la copie,
+     * seule la suite contiguë la plus récente est retournée.
+     */
+    public AlertList snapshot() {
+        expireByAge(System.currentTimeMillis());
+        long last = published.get();
+        long first = oldestSequence(last);
+        AlertList result = new AlertList((int) Math.max(0, last - first + 1));
+        for (long sequence = first; sequence <= last; sequence++) {
+            Alert alert = slots.get((int) (sequence & mask));
+            if (alert != null && alert.getSequence() == sequence) {
+                result.add(alert);
+            } else {
+                // Case écrasée pendant la copie : tout ce qui précède est aussi évincé
+                result.clear();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Nombre d'alertes retenues, calculé en O(1) à partir des séquences
+     */
+    public int size() {
+        expireByAge(System.currentTimeMillis());
+        long last = published.get();
+        return (int) Math.max(0, last - oldestSequence(last) + 1);
+    }
+
+    /**
+     * Dernière séquence publiée (0 si aucune alerte)
+     */
+    public long lastSequence() {
+        return published.get();
+    }
+
+    /**
+     * Version du contenu : change à chaque publication et à chaque éviction
+     * (somme des deux bornes, qui ne font qu'augmenter)
+     */
+    public long version() {
+        expireByAge(System.currentTimeMillis());
+        long last = published.get();
+        return last + oldestSequence(last);
+    }
+
+    /**
+     * Plus ancienne séquence encore retenue
+     */
+    public long oldestSequence() {
+        return oldestSequence(published.get());
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getMaxAgeMillis() {
+        return maxAgeMillis;
+    }
+
+    private long oldestSequence(long last) {
+        return Math.max(Math.max(1, last - capacity + 1), ageFloor.get());
+    }
+
+    /**
+     * Avance la borne d'âge sur les alertes expirées (travail borné par appel)
+     */
+    private void expireByAge(long now) {
+        if (maxAgeMillis <= 0) {
+            return;
+        }
+        long limit = now - maxAgeMillis;
+        for (int i = 0; i < MAX_EXPIRED_PER_CALL; i++) {
+            long floor = ageFloor.get();
+            long last = published.get();
+            if (floor > last) {
+                return;
+            }
+            if (floor <= last - capacity) {
+                // Déjà écrasée par l'anneau : rattraper directement la borne de capacité
+                ageFloor.compareAndSet(floor, last - capacity + 1);
+                continue;
+            }
+            int index = (int) (floor & mask);
+            Alert alert = slots.get(index);
+            if (alert == null || alert.getSequence() != floor || storedAt.get(index) >= limit) {
+                return;
+            }
+            if (ageFloor.compareAndSet(floor, floor + 1)) {
+                // Libérer la référence pour le GC
+                slots.compareAndSet(index, alert, null);
+            }
+        }
+    }
+
+    /**
+     * Observateur des ajouts, appelé dans l'ordre strict des séquences
+     * juste avant leur publication (un seul appel à la fois)
+     */
+    public interface AppendListener {
+        void onAppend(Alert alert, long storedAtMillis);
+    }
+
+    /**
+     * Appelé pendant la publication ordonnée : une erreur de l'observateur est
+     * journalisée sans être propagée, sans quoi la séquence ne serait jamais
+     * publiée et tous les écrivains suivants attendraient indéfiniment leur tour
+     */
+    private void notifyListener(Alert alert, long time) {
+        if (listener == null) {
+            return;
+        }
+        try {
+            listener.onAppend(alert, time);
+        } catch (RuntimeException e) {
+            LOG.error("Observateur des alertes en échec (séquence {}): {}", alert.getSequence(), e.toString());
+        }
+    }
+
+    private static int powerOfTwoAtLeast(int value) {
+        int capacity = 1;
+        while (capacity < value && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,463 @@
+package com.monitoring.server.storage;
+
+import com.monitoring.server.instrumentation.Counter;
+import com.monitoring.server.instrumentation.Instrumentation;
+import com.monitoring.server.instrumentation.LatencyHistogram;
+import com.monitoring.server.logging.Log;
+import com.monitoring.server.model.Alert;
+import com.monitoring.server.model.AlertList;
+import com.monitoring.server.model.MetricsHistory;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Archive longue durée des alertes et des métriques, au-delà de la fenêtre
+ * retenue en mémoire.
+ *
+ * Un thread d'arrière-plan scelle périodiquement dans un segment immuable
+ * ({@link ArchiveSegment}) tout ce qui a été publié depuis le scellement
+ * précédent : alertes par séquence, échantillons de chaque série par position.
+ * Ces repères sont enregistrés dans chaque segment et dans un petit fichier
+ * d'état : après un redémarrage, l'archivage reprend là où il s'était arrêté
+ * (les données en mémoire étant elles-mêmes restaurées par la persistance).
+ * L'intervalle de scellement doit rester inférieur à la durée retenue en mémoire ;
+ * les données évincées avant d'être archivées sont comptées comme perdues.
+ *
+ * Les lectures ne portent que sur les données scellées : elles ne projettent en
+ * mémoire que les segments qui recoupent l'intervalle demandé (et, pour un agent,
+ * dont le filtre de Bloom ne l'exclut pas).
+ */
+public class Archive {
+
+    private static final Log LOG = Log.get("Archive");
+
+    private static final long STATE_MAGIC = 0x4D4F4E4152435354L;
+    private static final String STATE_FILE = "archive.state";
+
+    /** Échantillons au plus par segment (un scellement peut produire plusieurs segments) */
+    private static final int MAX_SEGMENT_SAMPLES = 4 * 1024 * 1024;
+
+    private static final Counter SAMPLES_ARCHIVED = Instrumentation.counter("archive_samples_total",
+            "Échantillons de métriques scellés dans l'archive");
+    private static final Counter ALERTS_ARCHIVED = Instrumentation.counter("archive_alerts_total",
+            "Alertes scellées dans l'archive");
+    private static final Counter MISSED = Instrumentation.counter("archive_missed_total",
+            "Échantillons et alertes évincés de la mémoire avant d'être archivés");
+    private static final Counter SEGMENTS_MAPPED = Instrumentation.counter("archive_segments_read_total",
+            "Segments de l'archive projetés en mémoire par les requêtes", "result", "mapped");
+    private static final Counter SEGMENTS_SKIPPED = Instrumentation.counter("archive_segments_read_total",
+            "Segments de l'archive projetés en mémoire par les requêtes", "result", "bloom_skip");
+    private static final LatencyHistogram SEAL = Instrumentation.histogram("archive_seal_seconds",
+            "Durée d'un scellement de l'archive");
+    private static final LatencyHistogram QUERY = Instrumentation.histogram("archive_query_seconds",
+            "Durée des requêtes sur l'archive");
+
+    private final Path directory;
+    private final long sealIntervalMs;
+    private final long maxAgeMillis;
+
+    // Segments par ordre chronologique (remplacé à chaque changement, lu sans verrou)
+    private volatile List<ArchiveSegment> segments = Collections.emptyList();
+
+    // Repères de reprise (modifiés uniquement sous le verrou de seal)
+    private final Map<String, Long> positions = new HashMap<>();
+    private long alertSequence;
+    private long nextSegmentId = 1;
+
+    private DataManager dataManager;
+    private Thread sealThread;
+    private volatile boolean running;
+
+    /**
+     * @param directory Répertoire des segments (créé si nécessaire)
+     * @param sealIntervalMs Intervalle entre deux scellements
+     * @param maxAgeMillis Durée de conservation des segments (0 = illimitée)
+     */
+    public Archive(String directory, long sealIntervalMs, long maxAgeMillis) {
+        this.directory = Paths.get(directory);
+        this.sealIntervalMs = Math.max(1000, sealIntervalMs);
+        this.maxAgeMillis = maxAgeMillis;
+
+        Instrumentation.gauge("archive_segments", "Segments de l'archive", () -> segments.size());
+    }
+
+    /**
+     * Relit les repères de reprise, rattache l'archive au DataManager (après sa
+     * restauration) et démarre le thread de scellement
+     */
+    public void open(DataManager dataManager) throws IOException {
+        this.dataManager = dataManager;
+        Files.createDirectories(directory);
+        List<ArchiveSegment> found = ArchiveSegment.list(directory);
+        synchronized (this) {
+            long stateSegmentId = readState();
+            for (ArchiveSegment segment : found) {
+                nextSegmentId = Math.max(nextSegmentId, segment.id + 1);
+                if (segment.id > stateSegmentId) {
+                    // Scellé après le dernier état enregistré : ses repères font foi
+                    try {
+                        ArchiveSegment.Mapped mapped = segment.map();
+                        positions.putAll(mapped.nextPositions());
+                        alertSequence = Math.max(alertSequence, mapped.lastAlertSequence);
+                    } catch (IOException | RuntimeException e) {
+                        LOG.warn("Segment ignoré ({}): {}", segment.file.getFileName(), e.getMessage());
+                    }
+                }
+            }
+        }
+        segments = Collections.unmodifiableList(found);
+        LOG.info("Archive ouverte: {} segment(s), {} agent(s), séquence d'alerte {}",
+                 found.size(), positions.size(), alertSequence);
+
+        dataManager.attachArchive(this);
+        running = true;
+        sealThread = new Thread(this::sealLoop, "storage-archive");
+        sealThread.setDaemon(true);
+        sealThread.start();
+    }
+
+    /**
+     * Scelle ce qui reste puis arrête le thread (avant la fermeture de la persistance)
+     */
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        sealThread.interrupt();
+        try {
+            sealThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        seal();
+    }
+
+    /**
+     * Scelle dans un ou plusieurs segments tout ce qui a été publié depuis le
+     * scellement précédent, puis supprime les segments trop anciens
+     */
+    public synchronized void seal() {
+        long start = System.nanoTime();
+        try {
+            ArchiveSegment.Builder builder = new ArchiveSegment.Builder();
+            AlertStore alerts = dataManager.getAlertStore();
+            long last = alerts.lastSequence();
+            if (last < alertSequence) {
+                // Alertes renumérotées depuis (serveur redémarré sans persistance)
+                alertSequence = 0;
+            }
+            long first = Math.max(alertSequence + 1, alerts.oldestSequence());
+            if (first > alertSequence + 1) {
+                MISSED.add(first - alertSequence - 1);
+            }
+            for (long sequence = first; sequence <= last; sequence++) {
+                Alert alert = alerts.get(sequence);
+                long storedAt = alerts.storedAtMillis(sequence);
+                if (alert == null || storedAt == 0) {
+                    MISSED.increment();
+                } else {
+                    builder.addAlert(alert, storedAt);
+                }
+            }
+            builder.setLastAlertSequence(Math.max(last, alertSequence));
+
+            for (MetricsSeries series : dataManager.getMetricsStore().getAllSeries()) {
+                String agentId = series.getAgentId();
+                long next = positions.getOrDefault(agentId, 0L);
+                long published = series.getVersion();
+                if (published < next) {
+                    // Série recréée depuis (serveur redémarré sans persistance)
+                    next = 0;
+                }
+                if (published == next) {
+                    continue;
+                }
+                MetricsSeries.Samples samples = series.retainedFrom(next);
+                if (samples.getFirstPosition() > next) {
+                    MISSED.add(samples.getFirstPosition() - next);
+                }
+                builder.addSeries(agentId, samples.getFirstPosition(), samples, 0);
+                if (builder.getSampleCount() >= MAX_SEGMENT_SAMPLES) {
+                    builder = flush(builder);
+                }
+            }
+            flush(builder);
+            writeState();
+            expire();
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Échec du scellement de l'archive: {}", e.getMessage());
+        } finally {
+            SEAL.recordSince(start);
+        }
+    }
+
+    /**
+     * Écrit le segment en cours (s'il n'est pas vide), avance les repères et retourne un segment vide
+     */
+    private ArchiveSegment.Builder flush(ArchiveSegment.Builder builder) throws IOException {
+        if (!builder.isEmpty()) {
+            ArchiveSegment segment = builder.write(directory, nextSegmentId++);
+            positions.putAll(builder.nextPositions());
+            SAMPLES_ARCHIVED.add(builder.getSampleCount());
+            ALERTS_ARCHIVED.add(builder.getAlertCount());
+            List<ArchiveSegment> updated = new ArrayList<>(segments);
+            updated.add(segment);
+            segments = Collections.unmodifiableList(updated);
+            LOG.debug("Segment {} scellé: {} échantillon(s), {} alerte(s)", segment.file.getFileName(),
+                      builder.getSampleCount(), builder.getAlertCount());
+        }
+        alertSequence = Math.max(alertSequence, builder.getLastAlertSequence());
+        ArchiveSegment.Builder next = new ArchiveSegment.Builder();
+        next.setLastAlertSequence(alertSequence);
+        return next;
+    }
+
+    /**
+     * Supprime les segments entièrement antérieurs à la durée de conservation
+     */
+    private void expire() throws IOException {
+        if (maxAgeMillis <= 0) {
+            return;
+        }
+        long limit = System.currentTimeMillis() - maxAgeMillis;
+        List<ArchiveSegment> kept = new ArrayList<>(segments.size());
+        int deleted = 0;
+        for (ArchiveSegment segment : segments) {
+            if (segment.maxTime < limit) {
+                Files.deleteIfExists(segment.file);
+                deleted++;
+            } else {
+                kept.add(segment);
+            }
+        }
+        if (deleted > 0) {
+            segments = Collections.unmodifiableList(kept);
+            LOG.info("{} segment(s) d'archive expiré(s) supprimé(s)", deleted);
+        }
+    }
+
+    // ---------------------------------------------------------------- Lectures
+
+    /**
+     * Échantillons archivés d'un agent sur [fromMillis, toMillis], par ordre chronologique
+     * @param maxSamples Nombre maximal d'échantillons (les plus récents de l'intervalle)
+     */
+    public MetricsHistory queryMetrics(String agentId, long fromMillis, long toMillis, int maxSamples) {
+        long start = System.nanoTime();
+        try {
+            List<ArchiveSegment> current = segments;
+            List<MetricsHistory> parts = new ArrayList<>();
+            int total = 0;
+            for (int i = current.size() - 1; i >= 0 && total < maxSamples; i--) {
+                ArchiveSegment segment = current.get(i);
+                if (!segment.overlaps(fromMillis, toMillis)) {
+                    continue;
+                }
+                try {
+                    if (!segment.mightContain(agentId)) {
+                        SEGMENTS_SKIPPED.increment();
+                        continue;
+                    }
+                    MetricsHistory part = new MetricsHistory(agentId, 0);
+                    segment.map().readMetrics(agentId, fromMillis, toMillis, part);
+                    SEGMENTS_MAPPED.increment();
+                    if (!part.isEmpty()) {
+                        parts.add(part);
+                        total += part.size();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    unreadable(segment, e);
+                }
+            }
+            // Parties du plus récent au plus ancien : ne garder que les maxSamples derniers
+            MetricsHistory result = new MetricsHistory(agentId, Math.min(total, maxSamples));
+            int skip = Math.max(0, total - maxSamples);
+            for (int p = parts.size() - 1; p >= 0; p--) {
+                MetricsHistory part = parts.get(p);
+                for (int i = 0; i < part.size(); i++) {
+                    if (skip > 0) {
+                        skip--;
+                    } else {
+                        result.append(part.getTimestampMillis(i), part.getCpuUsage(i),
+                                      part.getMemoryUsage(i), part.getDiskUsage(i));
+                    }
+                }
+            }
+            return result;
+        } finally {
+            QUERY.recordSince(start);
+        }
+    }
+
+    /**
+     * Alertes archivées stockées dans [fromMillis, toMillis], par séquence croissante
+     * @param agentId Agent des alertes (null = tous)
+     * @param maxResults Nombre maximal d'alertes (les plus récentes de l'intervalle)
+     */
+    public AlertList queryAlerts(String agentId, long fromMillis, long toMillis, int maxResults) {
+        long start = System.nanoTime();
+        try {
+            List<ArchiveSegment> current = segments;
+            List<AlertList> parts = new ArrayList<>();
+            int total = 0;
+            for (int i = current.size() - 1; i >= 0 && total < maxResults; i--) {
+                ArchiveSegment segment = current.get(i);
+                if (!segment.overlaps(fromMillis, toMillis)) {
+                    continue;
+                }
+                try {
+                    if (agentId != null && !segment.mightContain(agentId)) {
+                        SEGMENTS_SKIPPED.increment();
+                        continue;
+                    }
+                    AlertList part = new AlertList(0);
+                    segment.map().readAlerts(agentId, fromMillis, toMillis, part);
+                    SEGMENTS_MAPPED.increment();
+                    if (!part.isEmpty()) {
+                        parts.add(part);
+                        total += part.size();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    unreadable(segment, e);
+                }
+            }
+            AlertList result = new AlertList(Math.min(total, maxResults));
+            int skip = Math.max(0, total - maxResults);
+            for (int p = parts.size() - 1; p >= 0; p--) {
+                for (Alert alert : parts.get(p)) {
+                    if (skip > 0) {
+                        skip--;
+                    } else {
+                        result.add(alert);
+                    }
+                }
+            }
+            return result;
+        } finally {
+            QUERY.recordSince(start);
+        }
+    }
+
+    private void unreadable(ArchiveSegment segment, Exception e) {
+        if (e instanceof NoSuchFileException) {
+            // Supprimé par l'expiration pendant la requête
+            return;
+        }
+        LOG.warn("Segment d'archive illisible ({}): {}", segment.file.getFileName(), e.toString());
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    public String getStatsSummary() {
+        List<ArchiveSegment> current = segments;
+        long bytes = 0;
+        for (ArchiveSegment segment : current) {
+            try {
+                bytes += Files.size(segment.file);
+            } catch (IOException e) {
+                // Segment supprimé entre-temps
+            }
+        }
+        return String.format("%d segment(s), %.1f Mo, %d échantillon(s) et %d alerte(s) scellés, %d perdu(s)",
+                             current.size(), bytes / (1024.0 * 1024.0), SAMPLES_ARCHIVED.get(),
+                             ALERTS_ARCHIVED.get(), MISSED.get());
+    }
+
+    // ---------------------------------------------------------------- État
+
+    /**
+     * Fichier d'état : MAGIC, dernier segment pris en compte, séquence d'alerte,
+     * nombre d'agents puis (agentId, prochaine position), CRC32 de ce qui précède
+     */
+    private void writeState() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + positions.size() * 32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(STATE_MAGIC);
+        out.writeLong(nextSegmentId - 1);
+        out.writeLong(alertSequence);
+        out.writeInt(positions.size());
+        for (Map.Entry<String, Long> entry : positions.entrySet()) {
+            byte[] agentId = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(agentId.length);
+            out.write(agentId);
+            out.writeLong(entry.getValue());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+
+        Path target = directory.resolve(STATE_FILE);
+        Path temporary = directory.resolve(STATE_FILE + ".tmp");
+        Files.write(temporary, bytes.toByteArray());
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Relit le fichier d'état
+     * @return Identifiant du dernier segment qu'il prend en compte (0 sans état valide)
+     */
+    private long readState() {
+        Path file = directory.resolve(STATE_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try {
+            byte[] content = Files.readAllBytes(file);
+            if (content.length < 32) {
+                throw new IOException("état tronqué");
+            }
+            ByteBuffer in = ByteBuffer.wrap(content);
+            CRC32 crc = new CRC32();
+            crc.update(content, 0, content.length - 4);
+            if (in.getLong() != STATE_MAGIC || (int) crc.getValue() != in.getInt(content.length - 4)) {
+                throw new IOException("état invalide");
+            }
+            long segmentId = in.getLong();
+            long sequence = in.getLong();
+            int count = in.getInt();
+            Map<String, Long> read = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                byte[] agentId = new byte[in.getInt()];
+                in.get(agentId);
+                read.put(new String(agentId, StandardCharsets.UTF_8), in.getLong());
+            }
+            alertSequence = sequence;
+            positions.putAll(read);
+            return segmentId;
+        } catch (IOException | RuntimeException e) {
+            // Reprise à partir des seuls segments
+            LOG.warn("État de l'archive ignoré: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    private void sealLoop() {
+        while (running) {
+            try {
+                Thread.sleep(sealIntervalMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (running) {
+                seal();
+            }
+        }
+    }
+}
@@ -0,0 +1,733 @@
+package com.monitoring.server.storage;
+
+import com.monitoring.server.model.Alert;
+import com.monitoring.server.model.AlertList;
+import com.monitoring.server.model.MetricsHistory;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Segment de l'archive : fichier immuable, en colonnes et compressé, couvrant
+ * les données scellées en une fois sur [minTime, maxTime].
+ *
+ *   en-tête  : MAGIC, VERSION, identifiant, minTime, maxTime, nombre d'échantillons
+ *              et d'alertes, position et taille de l'index, du filtre de Bloom, CRC32 de l'index
+ *   données  : blocs de métriques (au plus CHUNK_SIZE échantillons d'un agent, voir
+ *              {@link GorillaCodec}) puis blocs d'alertes (au plus CHUNK_SIZE alertes)
+ *   Bloom    : filtre des agents présents (métriques ou alertes)
+ *   index    : dernière séquence d'alerte archivée, table de chaînes, agents (position
+ *              du premier échantillon, nombre, blocs), puis index temporel clairsemé
+ *              des blocs (premier et dernier horodatage, nombre, position, taille)
+ *
+ * Un bloc d'alertes contient les horodatages de stockage et les séquences (codés
+ * comme des horodatages), puis les autres colonnes compressées par Deflate.
+ * Les bornes de temps figurent dans le nom du fichier : une requête ne projette
+ * en mémoire que les segments qui recoupent son intervalle, et ne lit que les
+ * blocs qui le recoupent.
+ */
+final class ArchiveSegment {
+
+    static final long MAGIC = 0x4D4F4E4152434831L;
+    static final int VERSION = 1;
+
+    /** Échantillons ou alertes par bloc (granularité de l'index temporel) */
+    static final int CHUNK_SIZE = 256;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int METRIC_COLUMNS = 3;
+    private static final String FILE_PREFIX = "archive-";
+    private static final String FILE_SUFFIX = ".seg";
+    private static final int BLOOM_BITS_PER_AGENT = 10;
+    private static final int BLOOM_HASHES = 4;
+
+    final Path file;
+    final long id;
+    final long minTime;
+    final long maxTime;
+
+    private ArchiveSegment(Path file, long id, long minTime, long maxTime) {
+        this.file = file;
+        this.id = id;
+        this.minTime = minTime;
+        this.maxTime = maxTime;
+    }
+
+    boolean overlaps(long fromMillis, long toMillis) {
+        return minTime <= toMillis && maxTime >= fromMillis;
+    }
+
+    /**
+     * Segments du répertoire, par identifiant croissant (donc par ordre chronologique)
+     */
+    static List<ArchiveSegment> list(Path directory) throws IOException {
+        List<ArchiveSegment> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String[] parts = name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length())
+                                     .split("_");
+                try {
+                    segments.add(new ArchiveSegment(file, Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                                                    Long.parseLong(parts[2])));
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    // Fichier étranger à l'archive
+                }
+            }
+        }
+        segments.sort((a, b) -> Long.compare(a.id, b.id));
+        return segments;
+    }
+
+    /**
+     * Consulte le filtre de Bloom sans projeter le fichier (lecture de l'en-tête et du filtre)
+     * @return false si l'agent n'a certainement aucune donnée dans ce segment
+     */
+    boolean mightContain(String agentId) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+            checkHeader(header);
+            int bloomOffset = header.getInt(52);
+            int bloomLongs = header.getInt(56);
+            if (bloomOffset < HEADER_SIZE || bloomLongs <= 0 || bloomLongs > channel.size() / 8) {
+                throw new IOException("Filtre de Bloom invalide");
+            }
+            ByteBuffer bloom = readFully(channel, bloomOffset, bloomLongs * 8);
+            return bloomContains(bloom, 0, bloomLongs, agentId);
+        }
+    }
+
+    /**
+     * Projette le segment en mémoire et lit son index
+     */
+    Mapped map() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Taille de segment invalide: " + size);
+            }
+            return new Mapped(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Segment tronqué");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void checkHeader(ByteBuffer header) throws IOException {
+        if (header.getLong(0) != MAGIC || header.getInt(8) != VERSION) {
+            throw new IOException("En-tête de segment invalide");
+        }
+    }
+
+    // ---------------------------------------------------------------- Lecture
+
+    /**
+     * Segment projeté en mémoire ; les blocs ne sont décodés qu'à la demande
+     */
+    static final class Mapped {
+        private final MappedByteBuffer buffer;
+        final long lastAlertSequence;
+        private final String[] strings;
+        // Agent -> {position du premier échantillon, nombre, premier bloc, nombre de blocs}
+        private final Map<String, long[]> agents;
+        private final int metricChunksAt;
+        private final int alertChunksAt;
+        private final int alertChunkCount;
+
+        private Mapped(MappedByteBuffer buffer) throws IOException {
+            this.buffer = buffer;
+            checkHeader(buffer);
+            int indexOffset = buffer.getInt(44);
+            int indexLength = buffer.getInt(48);
+            if (indexOffset < HEADER_SIZE || indexLength < 0 || indexOffset > buffer.capacity() - indexLength) {
+                throw new IOException("Index de segment invalide");
+            }
+            CRC32 crc = new CRC32();
+            ByteBuffer index = buffer.duplicate();
+            index.position(indexOffset).limit(indexOffset + indexLength);
+            crc.update(index);
+            if ((int) crc.getValue() != buffer.getInt(60)) {
+                throw new IOException("Index de segment corrompu");
+            }
+
+            ByteBuffer in = buffer.duplicate();
+            in.position(indexOffset).limit(indexOffset + indexLength);
+            lastAlertSequence = in.getLong();
+            strings = new String[in.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[in.getInt()];
+                in.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            int agentCount = in.getInt();
+            agents = new HashMap<>(agentCount * 2);
+            for (int i = 0; i < agentCount; i++) {
+                String agentId = strings[in.getInt()];
+                agents.put(agentId, new long[] {in.getLong(), in.getInt(), in.getInt(), in.getInt()});
+            }
+            int metricChunkCount = in.getInt();
+            metricChunksAt = in.position();
+            in.position(metricChunksAt + metricChunkCount * ChunkIndex.SIZE);
+            alertChunkCount = in.getInt();
+            alertChunksAt = in.position();
+            if (alertChunksAt + alertChunkCount * ChunkIndex.SIZE > indexOffset + indexLength) {
+                throw new IOException("Index de segment tronqué");
+            }
+        }
+
+        /**
+         * Prochaine position à archiver pour chaque agent du segment
+         */
+        Map<String, Long> nextPositions() {
+            Map<String, Long> positions = new HashMap<>();
+            for (Map.Entry<String, long[]> entry : agents.entrySet()) {
+                positions.put(entry.getKey(), entry.getValue()[0] + entry.getValue()[1]);
+            }
+            return positions;
+        }
+
+        /**
+         * Ajoute à history les échantillons de l'agent dans [fromMillis, toMillis]
+         */
+        void readMetrics(String agentId, long fromMillis, long toMillis, MetricsHistory history) {
+            long[] agent = agents.get(agentId);
+            if (agent == null) {
+                return;
+            }
+            int first = (int) agent[2];
+            int end = first + (int) agent[3];
+            for (int chunk = first; chunk < end; chunk++) {
+                int at = metricChunksAt + chunk * ChunkIndex.SIZE;
+                if (buffer.getLong(at) > toMillis) {
+                    break;
+                }
+                if (buffer.getLong(at + 8) < fromMillis) {
+                    continue;
+                }
+                int count = buffer.getInt(at + 16);
+                GorillaCodec.Reader reader = new GorillaCodec.Reader(buffer, buffer.getInt(at + 20),
+                                                                     buffer.getInt(at + 24), METRIC_COLUMNS);
+                for (int i = 0; i < count; i++) {
+                    long time = reader.readTimestamp();
+                    double cpu = reader.readValue(0);
+                    double memory = reader.readValue(1);
+                    double disk = reader.readValue(2);
+                    if (time >= fromMillis && time <= toMillis) {
+                        history.append(time, cpu, memory, disk);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Ajoute à alerts les alertes stockées dans [fromMillis, toMillis]
+         * @param agentId Agent des alertes (null = tous)
+         */
+        void readAlerts(String agentId, long fromMillis, long toMillis, AlertList alerts) {
+            for (int chunk = 0; chunk < alertChunkCount; chunk++) {
+                int at = alertChunksAt + chunk * ChunkIndex.SIZE;
+                if (buffer.getLong(at) > toMillis) {
+                    break;
+                }
+                if (buffer.getLong(at + 8) >= fromMillis) {
+                    readAlertChunk(at, agentId, fromMillis, toMillis, alerts);
+                }
+            }
+        }
+
+        private void readAlertChunk(int at, String agentId, long fromMillis, long toMillis, AlertList alerts) {
+            int count = buffer.getInt(at + 16);
+            int offset = buffer.getInt(at + 20);
+            int timesLength = buffer.getInt(offset);
+            GorillaCodec.Reader times = new GorillaCodec.Reader(buffer, offset + 4, timesLength, 0);
+            offset += 4 + timesLength;
+            int sequencesLength = buffer.getInt(offset);
+            GorillaCodec.Reader sequences = new GorillaCodec.Reader(buffer, offset + 4, sequencesLength, 0);
+            offset += 4 + sequencesLength;
+            ByteBuffer columns = ByteBuffer.wrap(inflate(buffer, offset));
+
+            for (int i = 0; i < count; i++) {
+                long storedAt = times.readTimestamp();
+                long sequence = sequences.readTimestamp();
+                String agent = strings[(int) getVarLong(columns)];
+                String metricType = stringOrNull((int) getVarLong(columns));
+                String severity = stringOrNull((int) getVarLong(columns));
+                int occurrences = (int) getVarLong(columns);
+                long timestampNanos = storedAt * 1_000_000L + zigZagDecode(getVarLong(columns));
+                long firstOffsetNanos = zigZagDecode(getVarLong(columns));
+                int messageLength = (int) getVarLong(columns);
+                String message = null;
+                if (messageLength > 0) {
+                    message = new String(columns.array(), columns.position(), messageLength - 1,
+                                         StandardCharsets.UTF_8);
+                    columns.position(columns.position() + messageLength - 1);
+                }
+                if (storedAt < fromMillis || storedAt > toMillis || (agentId != null && !agentId.equals(agent))) {
+                    continue;
+                }
+                LocalDateTime timestamp = fromNanos(timestampNanos);
+                Alert alert = new Alert(agent, metricType, message, timestamp, severity);
+                alert.setSequence(sequence);
+                alert.setCount(occurrences);
+                if (firstOffsetNanos != 0) {
+                    alert.setFirstTimestamp(fromNanos(timestampNanos - firstOffsetNanos));
+                }
+                alerts.add(alert);
+            }
+        }
+
+        private String stringOrNull(int index) {
+            return index == 0 ? null : strings[index - 1];
+        }
+    }
+
+    // ---------------------------------------------------------------- Écriture
+
+    /**
+     * Contenu d'un segment en cours de construction (un seul thread)
+     */
+    static final class Builder {
+        private final Output data = new Output(1 << 16);
+        private final Output metricChunks = new Output(1024);
+        private final Output alertChunks = new Output(1024);
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final List<long[]> agents = new ArrayList<>();
+        private final Set<String> agentIds = new HashSet<>();
+        private final List<Alert> pendingAlerts = new ArrayList<>(CHUNK_SIZE);
+        private final long[] pendingStoredAt = new long[CHUNK_SIZE];
+        private int metricChunkCount;
+        private int alertChunkCount;
+        private int sampleCount;
+        private int alertCount;
+        private long minTime = Long.MAX_VALUE;
+        private long maxTime = Long.MIN_VALUE;
+        private long lastAlertSequence;
+
+        /**
+         * Ajoute les échantillons [from, samples.size()[ d'un agent, tous à la suite
+         * @param firstPosition Position dans la série de l'échantillon d'indice from
+         */
+        void addSeries(String agentId, long firstPosition, MetricsSeries.Samples samples, int from) {
+            int count = samples.size() - from;
+            if (count <= 0) {
+                return;
+            }
+            agentIds.add(agentId);
+            agents.add(new long[] {stringIndex(agentId), firstPosition, count, metricChunkCount,
+                                   (count + CHUNK_SIZE - 1) / CHUNK_SIZE});
+            for (int start = from; start < samples.size(); start += CHUNK_SIZE) {
+                int end = Math.min(samples.size(), start + CHUNK_SIZE);
+                GorillaCodec.Writer writer = new GorillaCodec.Writer(METRIC_COLUMNS);
+                for (int i = start; i < end; i++) {
+                    writer.writeTimestamp(samples.getTimestamp(i));
+                    writer.writeValue(0, samples.getCpu(i));
+                    writer.writeValue(1, samples.getMemory(i));
+                    writer.writeValue(2, samples.getDisk(i));
+                }
+                int offset = HEADER_SIZE + data.size();
+                data.put(writer.array(), 0, writer.size());
+                ChunkIndex.put(metricChunks, samples.getTimestamp(start), samples.getTimestamp(end - 1),
+                               end - start, offset, writer.size());
+                metricChunkCount++;
+            }
+            sampleCount += count;
+            minTime = Math.min(minTime, samples.getTimestamp(from));
+            maxTime = Math.max(maxTime, samples.getTimestamp(samples.size() - 1));
+        }
+
+        /**
+         * Ajoute une alerte (par séquence croissante)
+         */
+        void addAlert(Alert alert, long storedAtMillis) {
+            pendingStoredAt[pendingAlerts.size()] = storedAtMillis;
+            pendingAlerts.add(alert);
+            if (pendingAlerts.size() == CHUNK_SIZE) {
+                flushAlerts();
+            }
+        }
+
+        void setLastAlertSequence(long sequence) {
+            lastAlertSequence = sequence;
+        }
+
+        long getLastAlertSequence() {
+            return lastAlertSequence;
+        }
+
+        int getSampleCount() {
+            return sampleCount;
+        }
+
+        /**
+         * Alertes écrites dans les blocs (toutes après write)
+         */
+        int getAlertCount() {
+            return alertCount;
+        }
+
+        boolean isEmpty() {
+            return sampleCount == 0 && alertCount == 0 && pendingAlerts.isEmpty();
+        }
+
+        /**
+         * Prochaine position à archiver pour chaque agent ajouté
+         */
+        Map<String, Long> nextPositions() {
+            String[] names = strings.keySet().toArray(new String[0]);
+            Map<String, Long> positions = new HashMap<>();
+            for (long[] agent : agents) {
+                positions.put(names[(int) agent[0]], agent[1] + agent[2]);
+            }
+            return positions;
+        }
+
+        private void flushAlerts() {
+            if (pendingAlerts.isEmpty()) {
+                return;
+            }
+            GorillaCodec.Writer times = new GorillaCodec.Writer(0);
+            GorillaCodec.Writer sequences = new GorillaCodec.Writer(0);
+            Output columns = new Output(pendingAlerts.size() * 64);
+            for (int i = 0; i < pendingAlerts.size(); i++) {
+                Alert alert = pendingAlerts.get(i);
+                long storedAt = pendingStoredAt[i];
+                times.writeTimestamp(storedAt);
+                sequences.writeTimestamp(alert.getSequence());
+                String agentId = String.valueOf(alert.getAgentId());
+                agentIds.add(agentId);
+                columns.putVarLong(stringIndex(agentId));
+                columns.putVarLong(alert.getMetricType() == null ? 0 : stringIndex(alert.getMetricType()) + 1);
+                columns.putVarLong(alert.getSeverity() == null ? 0 : stringIndex(alert.getSeverity()) + 1);
+                columns.putVarLong(Math.max(0, alert.getCount()));
+                long timestampNanos = toNanos(alert.getTimestamp(), storedAt);
+                columns.putVarLong(zigZagEncode(timestampNanos - storedAt * 1_000_000L));
+                columns.putVarLong(zigZagEncode(timestampNanos - toNanos(alert.getFirstTimestamp(), storedAt)));
+                if (alert.getMessage() == null) {
+                    columns.putVarLong(0);
+                } else {
+                    byte[] message = alert.getMessage().getBytes(StandardCharsets.UTF_8);
+                    columns.putVarLong(message.length + 1L);
+                    columns.put(message, 0, message.length);
+                }
+                minTime = Math.min(minTime, storedAt);
+                maxTime = Math.max(maxTime, storedAt);
+            }
+            int offset = HEADER_SIZE + data.size();
+            data.putInt(times.size());
+            data.put(times.array(), 0, times.size());
+            data.putInt(sequences.size());
+            data.put(sequences.array(), 0, sequences.size());
+            deflate(columns, data);
+            ChunkIndex.put(alertChunks, pendingStoredAt[0], pendingStoredAt[pendingAlerts.size() - 1],
+                           pendingAlerts.size(), offset, HEADER_SIZE + data.size() - offset);
+            alertChunkCount++;
+            alertCount += pendingAlerts.size();
+            pendingAlerts.clear();
+        }
+
+        private int stringIndex(String value) {
+            return strings.computeIfAbsent(value, key -> strings.size());
+        }
+
+        /**
+         * Écrit le segment sous un nom temporaire puis le renomme atomiquement
+         * @return Segment créé
+         */
+        ArchiveSegment write(Path directory, long id) throws IOException {
+            flushAlerts();
+
+            int bloomLongs = Math.max(1, (agentIds.size() * BLOOM_BITS_PER_AGENT + 63) / 64);
+            long[] bits = new long[bloomLongs];
+            for (String agentId : agentIds) {
+                bloomAdd(bits, agentId);
+            }
+            Output bloom = new Output(bloomLongs * 8);
+            for (long word : bits) {
+                bloom.putLong(word);
+            }
+            String[] names = strings.keySet().toArray(new String[0]);
+
+            Output index = new Output(1024 + metricChunks.size() + alertChunks.size());
+            index.putLong(lastAlertSequence);
+            index.putInt(names.length);
+            for (String name : names) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                index.putInt(bytes.length);
+                index.put(bytes, 0, bytes.length);
+            }
+            index.putInt(agents.size());
+            for (long[] agent : agents) {
+                index.putInt((int) agent[0]);
+                index.putLong(agent[1]);
+                index.putInt((int) agent[2]);
+                index.putInt((int) agent[3]);
+                index.putInt((int) agent[4]);
+            }
+            index.putInt(metricChunkCount);
+            index.put(metricChunks.bytes, 0, metricChunks.size());
+            index.putInt(alertChunkCount);
+            index.put(alertChunks.bytes, 0, alertChunks.size());
+
+            int bloomOffset = HEADER_SIZE + data.size();
+            int indexOffset = bloomOffset + bloom.size();
+            CRC32 crc = new CRC32();
+            crc.update(index.bytes, 0, index.size());
+            long first = minTime == Long.MAX_VALUE ? 0 : minTime;
+            long last = maxTime == Long.MIN_VALUE ? 0 : maxTime;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putLong(MAGIC).putInt(VERSION).putLong(id).putLong(first).putLong(last)
+                  .putInt(sampleCount).putInt(alertCount).putInt(indexOffset).putInt(index.size())
+                  .putInt(bloomOffset).putInt(bloomLongs).putInt((int) crc.getValue());
+            header.flip();
+
+            Path target = directory.resolve(FILE_PREFIX + id + "_" + first + "_" + last + FILE_SUFFIX);
+            Path temporary = directory.resolve(target.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(channel, header);
+                writeFully(channel, ByteBuffer.wrap(data.bytes, 0, data.size()));
+                writeFully(channel, ByteBuffer.wrap(bloom.bytes, 0, bloom.size()));
+                writeFully(channel, ByteBuffer.wrap(index.bytes, 0, index.size()));
+                channel.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return new ArchiveSegment(target, id, first, last);
+        }
+    }
+
+    // ---------------------------------------------------------------- Utilitaires
+
+    /**
+     * Entrée de l'index temporel clairsemé : premier et dernier horodatage du bloc,
+     * nombre d'éléments, position et taille du bloc dans le fichier
+     */
+    private static final class ChunkIndex {
+        static final int SIZE = 8 + 8 + 4 + 4 + 4;
+
+        static void put(Output out, long firstTime, long lastTime, int count, int offset, int length) {
+            out.putLong(firstTime);
+            out.putLong(lastTime);
+            out.putInt(count);
+            out.putInt(offset);
+            out.putInt(length);
+        }
+    }
+
+    /**
+     * Tampon d'écriture extensible (grand-boutiste, comme ByteBuffer)
+     */
+    private static final class Output {
+        byte[] bytes;
+        private int size;
+
+        Output(int capacity) {
+            this.bytes = new byte[Math.max(16, capacity)];
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                long capacity = Math.max((long) bytes.length * 2, (long) size + extra);
+                if (capacity > Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("Segment d'archive trop volumineux");
+                }
+                byte[] larger = new byte[(int) capacity];
+                System.arraycopy(bytes, 0, larger, 0, size);
+                bytes = larger;
+            }
+        }
+
+        void put(byte[] source, int offset, int length) {
+            ensure(length);
+            System.arraycopy(source, offset, bytes, size, length);
+            size += length;
+        }
+
+        void putInt(int value) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        void putLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        void putVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+    }
+
+    private static long getVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Entier variable invalide");
+    }
+
+    private static long zigZagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long zigZagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Horodatage en nanosecondes epoch (UTC, comme les enregistrements du journal) ;
+     * fallbackMillis si l'horodatage est absent
+     */
+    private static long toNanos(LocalDateTime timestamp, long fallbackMillis) {
+        if (timestamp == null) {
+            return fallbackMillis * 1_000_000L;
+        }
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + timestamp.getNano();
+    }
+
+    private static LocalDateTime fromNanos(long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                                           (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+
+    /**
+     * Ajoute à out la taille brute, la taille compressée puis les colonnes compressées
+     */
+    private static void deflate(Output columns, Output out) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(columns.bytes, 0, columns.size());
+            deflater.finish();
+            byte[] compressed = new byte[columns.size() + 64];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            out.putInt(columns.size());
+            out.putInt(length);
+            out.put(compressed, 0, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(ByteBuffer buffer, int offset) {
+        int rawLength = buffer.getInt(offset);
+        int length = buffer.getInt(offset + 4);
+        byte[] compressed = new byte[length];
+        ByteBuffer source = buffer.duplicate();
+        source.position(offset + 8);
+        source.get(compressed);
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int done = 0;
+            while (done < rawLength) {
+                int n = inflater.inflate(raw, done, rawLength - done);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IllegalStateException("Bloc d'alertes tronqué");
+                }
+                done += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Bloc d'alertes corrompu", e);
+        } finally {
+            inflater.end();
+        }
+        return raw;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // Filtre de Bloom : double hachage d'un FNV-1a 64 bits de l'identifiant
+
+    private static long hash(String agentId) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : agentId.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static void bloomAdd(long[] bits, String agentId) {
+        long hash = hash(agentId);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long size = bits.length * 64L;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, size);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    private static boolean bloomContains(ByteBuffer bloom, int offset, int longs, String agentId) {
+        long hash = hash(agentId);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long size = longs * 64L;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, size);
+            if ((bloom.getLong(offset + (int) (bit >>> 6) * 8) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,28 +1,450 @@
 package com.monitoring.server.storage;
 
+import com.monitoring.server.instrumentation.Counter;
+import com.monitoring.server.instrumentation.Instrumentation;
+import com.monitoring.server.instrumentation.LatencyHistogram;
+import com.monitoring.server.logging.Log;
+import com.monitoring.server.model.AgentIds;
 import com.monitoring.server.model.Alert;
+import com.monitoring.server.model.AlertList;
+import com.monitoring.server.model.AlertPage;
+import com.monitoring.server.model.AlertQuery;
+import com.monitoring.server.model.FleetWindow;
+import com.monitoring.server.model.MetricsBucket;
+import com.monitoring.server.model.MetricsHistory;
+import com.monitoring.server.model.SystemMetrics;
+import com.monitoring.server.pipeline.AlertSink;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class DataManager implements AlertSink {
+
+    private static final Log LOG = Log.get("DataManager");
+
+    // Mesures internes
+    private static final Counter ALERTS_STORED = Instrumentation.counter("alerts_stored_total",
+            "Alertes enregistrées");
+    private static final LatencyHistogram ALERT_STORE = Instrumentation.histogram("alert_store_seconds",
+            "Enregistrement d'une alerte, attente de durabilité comprise");
+    private static final LatencyHistogram ALERT_QUERY = Instrumentation.histogram("alert_query_seconds",
+            "Requêtes paginées sur les alertes");
+
+    /** Nombre d'alertes conservées par défaut */
+    public static final int DEFAULT_ALERT_CAPACITY = 65536;
+
+    /** Âge maximal par défaut d'une alerte conservée (24 h) */
+    public static final long DEFAULT_ALERT_MAX_AGE_MS = 24L * 60 * 60 * 1000;
+
+    /** Nombre d'échantillons de métriques conservés par agent par défaut (1 h à 1 Hz) */
+    public static final int DEFAULT_METRICS_DEPTH = 4096;
+
+    /** Nombre de seaux d'une minute conservés par agent par défaut (24 h) */
+    public static final int DEFAULT_MINUTE_BUCKETS = 1440;
+
+    /** Nombre de seaux d'une heure conservés par agent par défaut (30 jours) */
+    public static final int DEFAULT_HOUR_BUCKETS = 720;
+
+    /** Alertes enregistrées entre deux retraits des index d'agents ou de sévérités sans alerte conservée */
+    private static final int INDEX_PRUNE_INTERVAL = 4096;
+
+    /** Taille maximale d'une page de résultats */
+    public static final int MAX_PAGE_SIZE = 10000;
+
+    private final AlertStore alerts;
+    private final MetricsStore metrics;
+
+    // Index secondaires (séquences croissantes), mis à jour dans l'ordre de publication
+    private final Map<String, SequenceIndex> alertsByAgent = new ConcurrentHashMap<>();
+    private final Map<String, SequenceIndex> alertsBySeverity = new ConcurrentHashMap<>();
+
+    // Adresse IP connue de chaque agent (persistée avec le reste de l'état)
+    private final Map<String, String> agentAddresses = new ConcurrentHashMap<>();
+    // Numéros et Strings canoniques des agents enregistrés, partagés avec les récepteurs
+    private final AgentIds agentIds;
+
+    // Journalisation, active une fois la reprise terminée (null si pas de persistance)
+    private volatile PersistenceManager persistence;
+
+    // Activité récente de la flotte (null si non suivie)
+    private volatile FleetWindows fleetWindows;
+
+    // Lectures au-delà des données en mémoire (null tant que l'archive n'est pas ouverte)
+    private volatile Archive archive;
 
-public class DataManager {
-    private List<Alert> alerts;
-    
     public DataManager() {
-        // Utiliser CopyOnWriteArrayList pour la thread-safety
-        this.alerts = new CopyOnWriteArrayList<>();
+        this(DEFAULT_ALERT_CAPACITY, DEFAULT_ALERT_MAX_AGE_MS, DEFAULT_METRICS_DEPTH,
+             DEFAULT_MINUTE_BUCKETS, DEFAULT_HOUR_BUCKETS);
     }
-    
+
+    /**
+     * @param alertCapacity Nombre maximal d'alertes conservées
+     * @param alertMaxAgeMillis Âge maximal d'une alerte en ms (0 = illimité)
+     * @param metricsDepth Nombre d'échantillons de métriques conservés par agent
+     * @param minuteBuckets Nombre d'agrégats d'une minute conservés par agent
+     * @param hourBuckets Nombre d'agrégats d'une heure conservés par agent
+     */
+    public DataManager(int alertCapacity, long alertMaxAgeMillis, int metricsDepth,
+                       int minuteBuckets, int hourBuckets) {
+        this(alertCapacity, alertMaxAgeMillis, metricsDepth, minuteBuckets, hourBuckets, AgentIds.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param maxAgentIds Agents enregistrés numérotés au plus (voir AgentIds)
+     */
+    public DataManager(int alertCapacity, long alertMaxAgeMillis, int metricsDepth,
+                       int minuteBuckets, int hourBuckets, int maxAgentIds) {
+        this.agentIds = new AgentIds(maxAgentIds);
+        // Tampon circulaire borné : ajout sans copie, lecture sans bloquer les écrivains
+        this.alerts = new AlertStore(alertCapacity, alertMaxAgeMillis, this::indexAlert);
+        // Séries en colonnes primitives, une par agent, avec agrégats 1 min / 1 h
+        this.metrics = new MetricsStore(metricsDepth, minuteBuckets, hourBuckets);
+
+        Instrumentation.gauge("alerts_in_store", "Alertes conservées", alerts::size);
+        Instrumentation.gauge("metric_series", "Séries de métriques (une par agent)", metrics::getSeriesCount);
+        Instrumentation.gauge("agents_known", "Agents connus du DataManager", agentAddresses::size);
+        Instrumentation.gauge("agent_ids", "Agents enregistrés numérotés", agentIds::size);
+    }
+
+    /**
+     * Enregistre l'alerte telle quelle (sans regroupement ni limitation)
+     */
+    @Override
+    public Result submit(Alert alert) {
+        addAlert(alert);
+        return Result.STORED;
+    }
+
     public void addAlert(Alert alert) {
-        alerts.add(alert);
-        System.out.println("[DataManager] Alerte ajoutée: " + alert);
+        long start = System.nanoTime();
+        alerts.append(alert);
+        PersistenceManager journal = persistence;
+        if (journal != null) {
+            journal.awaitDurable();
+        }
+        ALERTS_STORED.increment();
+        ALERT_STORE.recordSince(start);
+        LOG.debug("Alerte ajoutée: {}", alert);
+    }
+
+    /**
+     * Enregistre un lot d'alertes ; en synchronisation "group", une seule attente
+     * du disque pour tout le lot
+     */
+    @Override
+    public void submitAll(List<Alert> batch) {
+        for (Alert alert : batch) {
+            alerts.append(alert);
+        }
+        PersistenceManager journal = persistence;
+        if (journal != null) {
+            journal.awaitDurable();
+        }
+        ALERTS_STORED.add(batch.size());
     }
-    
-    public List<Alert> getAllAlerts() {
-        return new ArrayList<>(alerts);
+
+    public AlertList getAllAlerts() {
+        return alerts.snapshot();
     }
-    
+
     public int getAlertCount() {
         return alerts.size();
     }
+
+    /**
+     * Version des alertes retenues : change à chaque ajout et à chaque éviction
+     */
+    public long getAlertVersion() {
+        return alerts.version();
+    }
+
+    /**
+     * Enregistre un échantillon de métriques dans l'historique de l'agent
+     * @return Horodatage effectivement retenu (ms epoch)
+     */
+    public long addMetrics(String agentId, long timestampMillis, double cpu, double memory, double disk) {
+        return metrics.append(agentId, timestampMillis, cpu, memory, disk);
+    }
+
+    /**
+     * Historique des métriques d'un agent sur un intervalle de temps
+     * @param maxSamples Nombre maximal d'échantillons (les plus récents de l'intervalle)
+     */
+    public List<SystemMetrics> getMetricsHistory(String agentId, long fromMillis, long toMillis, int maxSamples) {
+        return metrics.getHistory(agentId, fromMillis, toMillis, Math.min(maxSamples, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Agrégats des métriques d'un agent à la résolution demandée
+     * (le niveau le moins coûteux couvrant l'intervalle est choisi automatiquement)
+     */
+    public List<MetricsBucket> getMetricsRollup(String agentId, long fromMillis, long toMillis,
+                                                long resolutionMillis) {
+        return metrics.getRollup(agentId, fromMillis, toMillis, resolutionMillis, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Version de l'historique d'un agent : change à chaque échantillon ajouté (0 sans historique)
+     */
+    public long getMetricsVersion(String agentId) {
+        MetricsSeries series = metrics.getSeries(agentId);
+        return series == null ? 0 : series.getVersion();
+    }
+
+    public MetricsStore getMetricsStore() {
+        return metrics;
+    }
+
+    /**
+     * Suit l'activité récente de la flotte : chaque échantillon ajouté et chaque alerte enregistrée
+     * (à installer avant la reprise pour compter les alertes récentes restaurées)
+     */
+    public void setFleetWindows(FleetWindows windows) {
+        this.fleetWindows = windows;
+        metrics.addAppendListener(windows);
+    }
+
+    /**
+     * Activité de la flotte sur les dernières windowMillis millisecondes (vide si non suivie)
+     */
+    public FleetWindow getFleetWindow(long windowMillis) {
+        FleetWindows windows = fleetWindows;
+        if (windows == null) {
+            long now = System.currentTimeMillis();
+            return new FleetWindow(now, now);
+        }
+        return windows.window(windowMillis);
+    }
+
+    /**
+     * Enregistre l'adresse IP d'un agent (journalisée uniquement si elle change)
+     */
+    public void registerAgent(String agentId, String ipAddress) {
+        agentIds.intern(agentId);
+        String previous = agentAddresses.put(agentId, ipAddress == null ? "" : ipAddress);
+        PersistenceManager journal = persistence;
+        if (journal != null && !Objects.equals(previous, agentAddresses.get(agentId))) {
+            journal.logAgent(agentId, ipAddress);
+        }
+    }
+
+    /**
+     * Agents connus et leur dernière adresse IP (y compris ceux restaurés au démarrage)
+     */
+    public Map<String, String> getAgentAddresses() {
+        return Collections.unmodifiableMap(agentAddresses);
+    }
+
+    /**
+     * Table des agents enregistrés, consultée par les récepteurs
+     */
+    public AgentIds getAgentIds() {
+        return agentIds;
+    }
+
+    AlertStore getAlertStore() {
+        return alerts;
+    }
+
+    /**
+     * Active la journalisation des ajouts (après la reprise)
+     */
+    void attachPersistence(PersistenceManager persistence) {
+        this.persistence = persistence;
+        metrics.addAppendListener(persistence);
+    }
+
+    /**
+     * Attend que les alertes et échantillons en cours d'ajout soient publiés : tout
+     * ce qui a été journalisé avant l'appel est alors visible dans les lectures
+     */
+    void awaitPublications() {
+        alerts.awaitPublished();
+        for (MetricsSeries series : metrics.getAllSeries()) {
+            series.awaitPublished();
+        }
+    }
+
+    /**
+     * Active les lectures dans l'archive (après la reprise)
+     */
+    void attachArchive(Archive archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Échantillons archivés d'un agent sur un intervalle (vide sans archive)
+     * @param maxSamples Nombre maximal d'échantillons (les plus récents de l'intervalle)
+     */
+    public MetricsHistory getArchivedMetrics(String agentId, long fromMillis, long toMillis, int maxSamples) {
+        Archive current = archive;
+        if (current == null) {
+            return new MetricsHistory(agentId, 0);
+        }
+        return current.queryMetrics(agentId, fromMillis, toMillis, Math.min(maxSamples, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Alertes archivées stockées sur un intervalle (vide sans archive)
+     * @param agentId Agent des alertes (null = tous)
+     * @param maxResults Nombre maximal d'alertes (les plus récentes de l'intervalle)
+     */
+    public AlertList getArchivedAlerts(String agentId, long fromMillis, long toMillis, int maxResults) {
+        Archive current = archive;
+        if (current == null) {
+            return new AlertList(0);
+        }
+        return current.queryAlerts(agentId, fromMillis, toMillis, Math.min(maxResults, MAX_PAGE_SIZE));
+    }
+
+    void restoreAlert(Alert alert, long storedAtMillis) {
+        alerts.restore(alert, storedAtMillis);
+    }
+
+    void restoreAgent(String agentId, String ipAddress) {
+        agentIds.intern(agentId);
+        agentAddresses.put(agentId, ipAddress == null ? "" : ipAddress);
+    }
+
+    /**
+     * Dernière séquence d'alerte publiée (0 si aucune)
+     */
+    public long getLastAlertSequence() {
+        return alerts.lastSequence();
+    }
+
+    /**
+     * Alertes publiées après la séquence donnée
+     */
+    public AlertPage getAlertsSince(long sequence, int limit) {
+        return queryAlerts(AlertQuery.since(sequence, limit));
+    }
+
+    /**
+     * Requête paginée et filtrée. L'intervalle de temps est converti en
+     * intervalle de séquences par dichotomie, puis l'index par agent ou par
+     * sévérité fournit directement les séquences candidates.
+     */
+    public AlertPage queryAlerts(AlertQuery query) {
+        long start = System.nanoTime();
+        try {
+            return runQuery(query);
+        } finally {
+            ALERT_QUERY.recordSince(start);
+        }
+    }
+
+    private AlertPage runQuery(AlertQuery query) {
+        int limit = query.getLimit() <= 0 ? AlertQuery.DEFAULT_LIMIT : Math.min(query.getLimit(), MAX_PAGE_SIZE);
+        long last = alerts.lastSequence();
+
+        // Bornes ]after, upTo] en séquences
+        long after = Math.max(query.getAfterSequence(), alerts.oldestSequence() - 1);
+        if (query.getFromMillis() > 0) {
+            after = Math.max(after, alerts.firstSequenceAtOrAfter(query.getFromMillis()) - 1);
+        }
+        long upTo = last;
+        if (query.getToMillis() > 0) {
+            upTo = Math.min(upTo, alerts.lastSequenceAtOrBefore(query.getToMillis()));
+        }
+
+        String severity = query.getSeverity();
+        PageCollector collector = new PageCollector(limit, after,
+                query.getAgentId() != null ? severity : null);
+
+        if (query.getAgentId() != null) {
+            SequenceIndex index = alertsByAgent.get(query.getAgentId());
+            if (index != null) {
+                index.forEachBetween(after, upTo, collector);
+            }
+        } else if (severity != null) {
+            SequenceIndex index = alertsBySeverity.get(severity);
+            if (index != null) {
+                index.forEachBetween(after, upTo, collector);
+            }
+        } else {
+            for (long sequence = after + 1; sequence <= upTo; sequence++) {
+                if (!collector.visit(sequence)) {
+                    break;
+                }
+            }
+        }
+
+        // Page incomplète : tout l'intervalle a été parcouru
+        long nextCursor = collector.hasMore ? collector.cursor : Math.max(collector.cursor, upTo);
+        return new AlertPage(collector.page, nextCursor, collector.hasMore, last);
+    }
+
+    /**
+     * Journalisation et mise à jour des index, appelées par l'AlertStore avant publication
+     */
+    private void indexAlert(Alert alert, long storedAtMillis) {
+        PersistenceManager journal = persistence;
+        if (journal != null) {
+            journal.logAlert(alert, storedAtMillis);
+        }
+        long sequence = alert.getSequence();
+        if (alert.getAgentId() != null) {
+            alertsByAgent.computeIfAbsent(alert.getAgentId(), k -> new SequenceIndex(alerts.getCapacity()))
+                         .add(sequence);
+        }
+        if (alert.getSeverity() != null) {
+            alertsBySeverity.computeIfAbsent(alert.getSeverity(), k -> new SequenceIndex(alerts.getCapacity()))
+                            .add(sequence);
+        }
+        FleetWindows windows = fleetWindows;
+        if (windows != null) {
+            windows.recordAlert(alert, storedAtMillis);
+        }
+        if (sequence % INDEX_PRUNE_INTERVAL == 0) {
+            pruneIndexes(alertsByAgent);
+            pruneIndexes(alertsBySeverity);
+        }
+    }
+
+    /**
+     * Retire les index dont toutes les alertes ont été évincées (écrasées ou expirées).
+     * Appelée depuis indexAlert, seul écrivain des index : aucun ajout ne peut viser un
+     * index pendant son retrait ; un lecteur qui le détient encore n'y trouve que des
+     * séquences évincées.
+     */
+    private void pruneIndexes(Map<String, SequenceIndex> indexes) {
+        long oldest = alerts.oldestSequence();
+        indexes.values().removeIf(index -> index.last() < oldest);
+    }
+
+    /**
+     * Accumule une page d'alertes à partir des séquences candidates
+     */
+    private final class PageCollector implements SequenceIndex.Visitor {
+        final int limit;
+        final String severity;
+        final List<Alert> page;
+        long cursor;
+        boolean hasMore;
+
+        PageCollector(int limit, long after, String severity) {
+            this.limit = limit;
+            this.cursor = after;
+            this.severity = severity;
+            this.page = new ArrayList<>(Math.min(limit, 64));
+        }
+
+        @Override
+        public boolean visit(long sequence) {
+            Alert alert = alerts.get(sequence);
+            if (alert != null && (severity == null || severity.equals(alert.getSeverity()))) {
+                if (page.size() == limit) {
+                    hasMore = true;
+                    return false;
+                }
+                page.add(alert);
+            }
+            cursor = sequence;
+            return true;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,139 @@
+package com.monitoring.server.storage;
+
+import com.monitoring.server.model.Alert;
+import com.monitoring.server.model.FleetWindow;
+import com.monitoring.server.model.MetricsBucket;
+import com.monitoring.server.model.QuantileSketch;
+import java.util.Arrays;
+
+/**
+ * Activité récente de la flotte, tenue à jour à chaque échantillon et à chaque
+ * alerte enregistrée : un anneau de tranches de temps (slotMillis chacune),
+ * avec par tranche un résumé de distribution par métrique et un compteur
+ * d'alertes par sévérité.
+ *
+ * Une requête sur une fenêtre fusionne les tranches qu'elle couvre : son coût
+ * ne dépend que du nombre de tranches, ni du nombre d'agents ni du débit.
+ * Les tranches sont datées à l'heure de réception du serveur ; une tranche
+ * trop ancienne est vidée au moment où l'anneau la réutilise.
+ */
+public final class FleetWindows implements MetricsSeries.AppendListener {
+
+    // Mêmes valeurs que les sévérités des règles (RuleSet), plus les sévérités inconnues
+    private static final String[] SEVERITIES = {"LOW", "MEDIUM", "HIGH", "CRITICAL", "OTHER"};
+
+    private final long slotMillis;
+    private final Slot[] slots;
+
+    /**
+     * @param slotMillis Largeur d'une tranche (résolution des fenêtres)
+     * @param slotCount Nombre de tranches conservées (fenêtre maximale = slotMillis * slotCount)
+     */
+    public FleetWindows(long slotMillis, int slotCount) {
+        this.slotMillis = Math.max(1, slotMillis);
+        this.slots = new Slot[Math.max(1, slotCount)];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    @Override
+    public void onAppend(MetricsSeries series, long position, long timestampMillis,
+                        double cpu, double memory, double disk) {
+        long epoch = Math.floorDiv(System.currentTimeMillis(), slotMillis);
+        Slot slot = slotOf(epoch);
+        synchronized (slot) {
+            if (slot.epoch < epoch) {
+                slot.reset(epoch);
+            }
+            slot.samples[MetricsBucket.CPU].add(cpu);
+            slot.samples[MetricsBucket.MEMORY].add(memory);
+            slot.samples[MetricsBucket.DISK].add(disk);
+        }
+    }
+
+    /**
+     * Compte une alerte enregistrée
+     * @param storedAtMillis Heure d'enregistrement (les alertes restaurées hors fenêtre sont ignorées)
+     */
+    public void recordAlert(Alert alert, long storedAtMillis) {
+        long epoch = Math.floorDiv(storedAtMillis, slotMillis);
+        if (epoch <= Math.floorDiv(System.currentTimeMillis(), slotMillis) - slots.length) {
+            return;
+        }
+        int severity = severityIndex(alert.getSeverity());
+        Slot slot = slotOf(epoch);
+        synchronized (slot) {
+            if (slot.epoch < epoch) {
+                slot.reset(epoch);
+            }
+            if (slot.epoch == epoch) {
+                slot.alerts[severity]++;
+            }
+        }
+    }
+
+    /**
+     * Activité des dernières windowMillis millisecondes (arrondies à la tranche,
+     * plafonnées à l'anneau), tranche en cours comprise
+     */
+    public FleetWindow window(long windowMillis) {
+        long now = System.currentTimeMillis();
+        long last = Math.floorDiv(now, slotMillis);
+        int count = (int) Math.max(1, Math.min(slots.length, (windowMillis + slotMillis - 1) / slotMillis));
+        long first = last - count + 1;
+        FleetWindow window = new FleetWindow(first * slotMillis, now);
+        for (long epoch = first; epoch <= last; epoch++) {
+            Slot slot = slotOf(epoch);
+            synchronized (slot) {
+                if (slot.epoch == epoch) {
+                    window.add(slot.samples, SEVERITIES, slot.alerts);
+                }
+            }
+        }
+        return window;
+    }
+
+    /**
+     * Fenêtre maximale couverte par l'anneau
+     */
+    public long getMaxWindowMillis() {
+        return slotMillis * slots.length;
+    }
+
+    private Slot slotOf(long epoch) {
+        return slots[(int) Math.floorMod(epoch, (long) slots.length)];
+    }
+
+    private static int severityIndex(String severity) {
+        for (int i = 0; i < SEVERITIES.length - 1; i++) {
+            if (SEVERITIES[i].equals(severity)) {
+                return i;
+            }
+        }
+        return SEVERITIES.length - 1;
+    }
+
+    /**
+     * Tranche de temps (modifiée sous son verrou)
+     */
+    private static final class Slot {
+        long epoch = Long.MIN_VALUE;
+        final QuantileSketch[] samples = new QuantileSketch[MetricsBucket.METRIC_COUNT];
+        final long[] alerts = new long[SEVERITIES.length];
+
+        Slot() {
+            for (int metric = 0; metric < samples.length; metric++) {
+                samples[metric] = new QuantileSketch();
+            }
+        }
+
+        void reset(long newEpoch) {
+            epoch = newEpoch;
+            for (QuantileSketch sketch : samples) {
+                sketch.clear();
+            }
+            Arrays.fill(alerts, 0);
+        }
+    }
+}
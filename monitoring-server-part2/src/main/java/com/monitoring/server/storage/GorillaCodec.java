@@ -0,0 +1,233 @@
+package com.monitoring.server.storage;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Compression des séries temporelles de l'archive, à la manière de Gorilla.
+ *
+ * Les horodatages sont codés en différence de différences : pour des échantillons
+ * réguliers, chaque horodatage coûte un bit (préfixe 0), quelques bits de plus
+ * pour une gigue de quelques millisecondes.
+ *
+ *   0                      : même écart que le précédent
+ *   10   + 7 bits          : différence dans [-63, 64]
+ *   110  + 9 bits          : différence dans [-255, 256]
+ *   1110 + 12 bits         : différence dans [-2047, 2048]
+ *   1111 + 64 bits         : autre différence
+ *
+ * Chaque colonne de valeurs est codée par XOR avec la valeur précédente : une
+ * valeur inchangée coûte un bit, une valeur proche ne garde que les bits
+ * significatifs du XOR (réutilisant la fenêtre de bits de la valeur précédente
+ * quand elle suffit).
+ *
+ *   0                              : même valeur
+ *   10 + bits significatifs        : XOR dans la fenêtre précédente
+ *   11 + 5 bits (zéros de tête) + 6 bits (longueur - 1) + bits significatifs
+ *
+ * Le premier horodatage et la première valeur de chaque colonne sont écrits
+ * en entier. Les bits sont rangés du poids fort au poids faible de chaque octet.
+ */
+final class GorillaCodec {
+
+    private GorillaCodec() {
+    }
+
+    /**
+     * Écriture d'un bloc : pour chaque échantillon, writeTimestamp puis writeValue de chaque colonne
+     */
+    static final class Writer {
+        private byte[] bytes = new byte[256];
+        private int bits;
+
+        private int samples;
+        private long previousTime;
+        private long previousDelta;
+        private final long[] previousValue;
+        private final int[] leading;
+        private final int[] trailing;
+
+        Writer(int columns) {
+            this.previousValue = new long[columns];
+            this.leading = new int[columns];
+            this.trailing = new int[columns];
+            Arrays.fill(leading, -1);
+        }
+
+        void writeTimestamp(long time) {
+            samples++;
+            if (samples == 1) {
+                writeBits(time, 64);
+                previousTime = time;
+                return;
+            }
+            long delta = time - previousTime;
+            long deltaOfDelta = delta - previousDelta;
+            if (deltaOfDelta == 0) {
+                writeBits(0, 1);
+            } else if (deltaOfDelta >= -63 && deltaOfDelta <= 64) {
+                writeBits(0b10, 2);
+                writeBits(deltaOfDelta + 63, 7);
+            } else if (deltaOfDelta >= -255 && deltaOfDelta <= 256) {
+                writeBits(0b110, 3);
+                writeBits(deltaOfDelta + 255, 9);
+            } else if (deltaOfDelta >= -2047 && deltaOfDelta <= 2048) {
+                writeBits(0b1110, 4);
+                writeBits(deltaOfDelta + 2047, 12);
+            } else {
+                writeBits(0b1111, 4);
+                writeBits(deltaOfDelta, 64);
+            }
+            previousDelta = delta;
+            previousTime = time;
+        }
+
+        void writeValue(int column, double value) {
+            long current = Double.doubleToLongBits(value);
+            if (samples == 1) {
+                writeBits(current, 64);
+                previousValue[column] = current;
+                return;
+            }
+            long xor = current ^ previousValue[column];
+            previousValue[column] = current;
+            if (xor == 0) {
+                writeBits(0, 1);
+                return;
+            }
+            int lead = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trail = Long.numberOfTrailingZeros(xor);
+            if (leading[column] >= 0 && lead >= leading[column] && trail >= trailing[column]) {
+                writeBits(0b10, 2);
+                writeBits(xor >>> trailing[column], 64 - leading[column] - trailing[column]);
+            } else {
+                int significant = 64 - lead - trail;
+                writeBits(0b11, 2);
+                writeBits(lead, 5);
+                writeBits(significant - 1, 6);
+                writeBits(xor >>> trail, significant);
+                leading[column] = lead;
+                trailing[column] = trail;
+            }
+        }
+
+        /**
+         * Écrit les count bits de poids faible de value (count ≤ 64)
+         */
+        private void writeBits(long value, int count) {
+            while (count > 0) {
+                int index = bits >>> 3;
+                if (index == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+                int free = 8 - (bits & 7);
+                int n = Math.min(free, count);
+                int chunk = (int) (value >>> (count - n)) & ((1 << n) - 1);
+                bytes[index] |= (byte) (chunk << (free - n));
+                bits += n;
+                count -= n;
+            }
+        }
+
+        int getSampleCount() {
+            return samples;
+        }
+
+        /**
+         * Taille du bloc en octets (dernier octet complété par des zéros)
+         */
+        int size() {
+            return (bits + 7) >>> 3;
+        }
+
+        byte[] array() {
+            return bytes;
+        }
+    }
+
+    /**
+     * Lecture d'un bloc écrit par Writer, directement dans le fichier projeté
+     */
+    static final class Reader {
+        private final ByteBuffer buffer;
+        private final int offset;
+        private final int limit;
+        private long bit;
+
+        private int samples;
+        private long previousTime;
+        private long previousDelta;
+        private final long[] previousValue;
+        private final int[] leading;
+        private final int[] trailing;
+
+        /**
+         * @param buffer Contenu (positions absolues)
+         * @param offset Début du bloc
+         * @param length Taille du bloc en octets
+         */
+        Reader(ByteBuffer buffer, int offset, int length, int columns) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.limit = offset + length;
+            this.previousValue = new long[columns];
+            this.leading = new int[columns];
+            this.trailing = new int[columns];
+        }
+
+        long readTimestamp() {
+            samples++;
+            if (samples == 1) {
+                previousTime = readBits(64);
+                return previousTime;
+            }
+            long deltaOfDelta;
+            if (readBits(1) == 0) {
+                deltaOfDelta = 0;
+            } else if (readBits(1) == 0) {
+                deltaOfDelta = readBits(7) - 63;
+            } else if (readBits(1) == 0) {
+                deltaOfDelta = readBits(9) - 255;
+            } else if (readBits(1) == 0) {
+                deltaOfDelta = readBits(12) - 2047;
+            } else {
+                deltaOfDelta = readBits(64);
+            }
+            previousDelta += deltaOfDelta;
+            previousTime += previousDelta;
+            return previousTime;
+        }
+
+        double readValue(int column) {
+            if (samples == 1) {
+                previousValue[column] = readBits(64);
+            } else if (readBits(1) == 1) {
+                if (readBits(1) == 1) {
+                    leading[column] = (int) readBits(5);
+                    int significant = (int) readBits(6) + 1;
+                    trailing[column] = 64 - leading[column] - significant;
+                }
+                int significant = 64 - leading[column] - trailing[column];
+                previousValue[column] ^= readBits(significant) << trailing[column];
+            }
+            return Double.longBitsToDouble(previousValue[column]);
+        }
+
+        private long readBits(int count) {
+            long value = 0;
+            while (count > 0) {
+                int index = offset + (int) (bit >>> 3);
+                if (index >= limit) {
+                    throw new IllegalStateException("Bloc compressé tronqué");
+                }
+                int available = 8 - (int) (bit & 7);
+                int n = Math.min(available, count);
+                int chunk = ((buffer.get(index) & 0xFF) >>> (available - n)) & ((1 << n) - 1);
+                value = (value << n) | chunk;
+                bit += n;
+                count -= n;
+            }
+            return value;
+        }
+    }
+}
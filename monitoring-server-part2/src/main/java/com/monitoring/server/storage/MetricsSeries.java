@@ -0,0 +1,413 @@
+package com.monitoring.server.storage;
+
+import com.monitoring.server.instrumentation.Counter;
+import com.monitoring.server.instrumentation.Instrumentation;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Série temporelle des métriques d'un agent, stockée en colonnes de types
+ * primitifs (timestamps en ms epoch, cpu, mémoire, disque) dans un anneau.
+ *
+ * Les colonnes grandissent par doublement jusqu'à la profondeur configurée,
+ * puis l'anneau écrase les échantillons les plus anciens : une fois la
+ * profondeur atteinte, un ajout n'alloue plus rien.
+ *
+ * Comme pour l'AlertStore, les écrivains réservent une position sans verrou
+ * et publient dans l'ordre ; les lecteurs copient sans bloquer puis écartent
+ * les positions écrasées pendant la copie. L'écrivain qui a réservé la position
+ * p écrase la case de p - capacité avant de publier : les lecteurs se fondent
+ * donc sur les positions réservées, et non publiées, pour écarter les cases.
+ *
+ * Les horodatages sont forcés croissants ; un horodatage trop en avance sur
+ * l'horloge du serveur est ramené à celle-ci, sans quoi un seul échantillon
+ * daté du futur figerait la série à cette date.
+ *
+ * Chaque ajout met aussi à jour les agrégats par minute et par heure
+ * (RollupTier), dont la taille est fixe quelle que soit la durée couverte.
+ */
+public class MetricsSeries {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** Avance maximale d'un horodatage sur l'horloge du serveur, par défaut */
+    public static final long DEFAULT_MAX_FUTURE_SKEW_MS = 5 * 60_000L;
+
+    private static final Counter FUTURE_TIMESTAMPS = Instrumentation.counter("metrics_future_timestamps_total",
+            "Échantillons datés trop loin dans le futur, ramenés à l'heure du serveur");
+
+    /** Largeur des seaux des niveaux d'agrégation */
+    public static final long MINUTE_MILLIS = 60_000L;
+    public static final long HOUR_MILLIS = 3_600_000L;
+
+    private final String agentId;
+    private final byte[] agentIdBytes;
+    private final int depth;
+    private final RollupTier minuteTier;
+    private final RollupTier hourTier;
+
+    // Colonnes courantes, remplacées (jamais modifiées en place) lors d'un agrandissement
+    private volatile Columns columns;
+
+    private final AtomicLong claimed = new AtomicLong();
+    // Nombre d'échantillons publiés ; l'écriture volatile publie les colonnes
+    private final AtomicLong published = new AtomicLong();
+    // Dernier timestamp écrit (les timestamps sont forcés croissants)
+    private long lastTimestamp;
+    private volatile AppendListener listener;
+    private volatile long maxFutureSkewMillis = DEFAULT_MAX_FUTURE_SKEW_MS;
+
+    /**
+     * @param agentId Identifiant de l'agent
+     * @param depth Nombre maximal d'échantillons conservés (arrondi à la puissance de 2 supérieure)
+     * @param minuteBuckets Nombre de seaux d'une minute conservés
+     * @param hourBuckets Nombre de seaux d'une heure conservés
+     */
+    public MetricsSeries(String agentId, int depth, int minuteBuckets, int hourBuckets) {
+        this.agentId = agentId;
+        this.agentIdBytes = agentId.getBytes(StandardCharsets.UTF_8);
+        this.depth = powerOfTwoAtLeast(depth);
+        this.columns = new Columns(Math.min(INITIAL_CAPACITY, this.depth));
+        this.minuteTier = new RollupTier(MINUTE_MILLIS, minuteBuckets);
+        this.hourTier = new RollupTier(HOUR_MILLIS, hourBuckets);
+    }
+
+    /**
+     * Ajoute un échantillon
+     * @return Horodatage effectivement retenu (jamais inférieur au précédent, ni en
+     *         avance de plus de maxFutureSkewMillis sur l'horloge du serveur)
+     */
+    public long append(long timestampMillis, double cpu, double memory, double disk) {
+        long position = claimed.getAndIncrement();
+        PublishOrder.await(published, position);
+
+        Columns current = columns;
+        if (position >= current.capacity() && current.capacity() < depth) {
+            current = current.grow(position);
+            columns = current;
+        }
+        long now = System.currentTimeMillis();
+        if (timestampMillis - now > maxFutureSkewMillis) {
+            FUTURE_TIMESTAMPS.increment();
+            timestampMillis = now;
+        }
+        long time = Math.max(timestampMillis, lastTimestamp);
+        lastTimestamp = time;
+
+        int index = (int) (position & current.mask);
+        current.timestamps[index] = time;
+        current.cpu[index] = cpu;
+        current.memory[index] = memory;
+        current.disk[index] = disk;
+
+        // Agrégats incrémentaux, toujours dans l'ordre de publication
+        minuteTier.add(position, time, cpu, memory, disk);
+        hourTier.add(position, time, cpu, memory, disk);
+        AppendListener observer = listener;
+        if (observer != null) {
+            observer.onAppend(this, position, time, cpu, memory, disk);
+        }
+        published.set(position + 1);
+        return time;
+    }
+
+    /**
+     * Attend la publication de toutes les positions déjà réservées
+     */
+    void awaitPublished() {
+        PublishOrder.awaitAtLeast(published, claimed.get());
+    }
+
+    /**
+     * Réinsère un échantillon restauré à sa position d'origine.
+     * Réservé à la reprise au démarrage (un seul thread, avant tout append) :
+     * les positions déjà présentes sont ignorées, et chaque niveau d'agrégation
+     * n'intègre que les positions qu'il ne contient pas encore.
+     */
+    void restore(long position, long timestampMillis, double cpu, double memory, double disk) {
+        long count = published.get();
+        if (position < count) {
+            return;
+        }
+        Columns current = columns;
+        while (position >= current.capacity() && current.capacity() < depth) {
+            current = current.grow(count);
+            columns = current;
+        }
+        long time = Math.max(timestampMillis, lastTimestamp);
+        lastTimestamp = time;
+        int index = (int) (position & current.mask);
+        current.timestamps[index] = time;
+        current.cpu[index] = cpu;
+        current.memory[index] = memory;
+        current.disk[index] = disk;
+        if (position >= minuteTier.getApplied()) {
+            minuteTier.add(position, time, cpu, memory, disk);
+        }
+        if (position >= hourTier.getApplied()) {
+            hourTier.add(position, time, cpu, memory, disk);
+        }
+        claimed.set(position + 1);
+        published.set(position + 1);
+    }
+
+    /**
+     * Copie de tous les échantillons retenus ({@link Samples#getFirstPosition()} donne
+     * la position du premier dans la série)
+     */
+    Samples retained() {
+        return retainedFrom(0);
+    }
+
+    /**
+     * Copie des échantillons retenus à partir d'une position (ou du plus ancien retenu
+     * s'il est postérieur : {@link Samples#getFirstPosition()} donne la position du premier)
+     */
+    Samples retainedFrom(long fromPosition) {
+        long count = published.get();
+        Columns current = columns;
+        long start = Math.min(count, Math.max(fromPosition, oldestIntact(current, count)));
+        Samples samples = new Samples(agentId, (int) (count - start));
+        for (long p = start; p < count; p++) {
+            int index = (int) (p & current.mask);
+            samples.add(current.timestamps[index], current.cpu[index],
+                        current.memory[index], current.disk[index]);
+        }
+        samples.firstPosition = start;
+        long overwritten = overwrittenFrom(current, start);
+        if (overwritten > 0) {
+            int dropped = (int) Math.min(overwritten, samples.size());
+            samples.dropFirst(dropped);
+            samples.firstPosition += dropped;
+        }
+        return samples;
+    }
+
+    void setAppendListener(AppendListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Avance maximale acceptée d'un horodatage sur l'horloge du serveur
+     */
+    void setMaxFutureSkew(long millis) {
+        this.maxFutureSkewMillis = Math.max(0, millis);
+    }
+
+    /**
+     * Identifiant de l'agent encodé en UTF-8 (calculé une seule fois)
+     */
+    byte[] getAgentIdBytes() {
+        return agentIdBytes;
+    }
+
+    /**
+     * Copie les échantillons les plus récents de l'intervalle [fromMillis, toMillis]
+     * @param maxSamples Nombre maximal d'échantillons retournés
+     */
+    public Samples read(long fromMillis, long toMillis, int maxSamples) {
+        long count = published.get();
+        Columns current = columns;
+        // La recherche dichotomique suppose des horodatages croissants : ignorer la case en cours d'écrasement
+        long first = Math.min(count, oldestIntact(current, count));
+
+        long start = firstPositionAtOrAfter(current, first, count, fromMillis);
+        long end = firstPositionAtOrAfter(current, start, count, toMillis == Long.MAX_VALUE ? toMillis : toMillis + 1);
+        start = Math.max(start, end - maxSamples);
+
+        Samples samples = new Samples(agentId, (int) Math.max(0, end - start));
+        for (long p = start; p < end; p++) {
+            int index = (int) (p & current.mask);
+            samples.add(current.timestamps[index], current.cpu[index],
+                        current.memory[index], current.disk[index]);
+        }
+
+        // Écarter les positions que les écrivains ont pu écraser pendant la copie
+        long overwritten = overwrittenFrom(current, start);
+        if (overwritten > 0) {
+            samples.dropFirst((int) Math.min(overwritten, samples.size()));
+        }
+        return samples;
+    }
+
+    /**
+     * Plus ancienne position qu'aucun écrivain n'a encore commencé à écraser
+     * (un écrivain qui a réservé la position p écrit la case de p - capacité)
+     */
+    private long oldestIntact(Columns current, long count) {
+        return Math.max(0, Math.max(count, claimed.get()) - current.capacity());
+    }
+
+    /**
+     * Nombre de positions à partir de start qu'un écrivain a pu écraser depuis
+     * le début de la copie (à appeler une fois la copie terminée)
+     */
+    private long overwrittenFrom(Columns current, long start) {
+        // Les lectures des colonnes doivent précéder celle des positions réservées
+        VarHandle.acquireFence();
+        return claimed.get() - current.capacity() - start;
+    }
+
+    /**
+     * Copie les derniers échantillons
+     */
+    public Samples latest(int maxSamples) {
+        return read(Long.MIN_VALUE, Long.MAX_VALUE, maxSamples);
+    }
+
+    /**
+     * Horodatage du plus ancien échantillon brut encore retenu (Long.MAX_VALUE si aucun)
+     */
+    public long oldestTimestamp() {
+        long count = published.get();
+        if (count == 0) {
+            return Long.MAX_VALUE;
+        }
+        Columns current = columns;
+        long first = Math.min(count - 1, oldestIntact(current, count));
+        return current.timestamps[(int) (first & current.mask)];
+    }
+
+    RollupTier getMinuteTier() {
+        return minuteTier;
+    }
+
+    RollupTier getHourTier() {
+        return hourTier;
+    }
+
+    /**
+     * Nombre d'échantillons actuellement retenus
+     */
+    public int size() {
+        return (int) Math.min(published.get(), columns.capacity());
+    }
+
+    /**
+     * Version de la série : nombre d'échantillons publiés depuis sa création
+     */
+    public long getVersion() {
+        return published.get();
+    }
+
+    public String getAgentId() {
+        return agentId;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Observateur des ajouts, appelé dans l'ordre strict des positions
+     * juste avant leur publication (un seul appel à la fois par série)
+     */
+    public interface AppendListener {
+        void onAppend(MetricsSeries series, long position, long timestampMillis,
+                      double cpu, double memory, double disk);
+    }
+
+    private static long firstPositionAtOrAfter(Columns current, long low, long high, long timeMillis) {
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (current.timestamps[(int) (mid & current.mask)] < timeMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int powerOfTwoAtLeast(int value) {
+        int capacity = 1;
+        while (capacity < value && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Colonnes primitives de même capacité (puissance de 2)
+     */
+    private static final class Columns {
+        final int mask;
+        final long[] timestamps;
+        final double[] cpu;
+        final double[] memory;
+        final double[] disk;
+
+        Columns(int capacity) {
+            this.mask = capacity - 1;
+            this.timestamps = new long[capacity];
+            this.cpu = new double[capacity];
+            this.memory = new double[capacity];
+            this.disk = new double[capacity];
+        }
+
+        int capacity() {
+            return mask + 1;
+        }
+
+        /**
+         * Copie les positions [count - capacité, count[ dans des colonnes deux fois plus grandes
+         */
+        Columns grow(long count) {
+            Columns larger = new Columns(capacity() * 2);
+            for (long p = Math.max(0, count - capacity()); p < count; p++) {
+                int from = (int) (p & mask);
+                int to = (int) (p & larger.mask);
+                larger.timestamps[to] = timestamps[from];
+                larger.cpu[to] = cpu[from];
+                larger.memory[to] = memory[from];
+                larger.disk[to] = disk[from];
+            }
+            return larger;
+        }
+    }
+
+    /**
+     * Copie d'une plage d'échantillons, en colonnes, par ordre chronologique
+     */
+    public static final class Samples {
+        private final String agentId;
+        private final long[] timestamps;
+        private final double[] cpu;
+        private final double[] memory;
+        private final double[] disk;
+        private int offset;
+        private int size;
+        long firstPosition;
+
+        Samples(String agentId, int capacity) {
+            this.agentId = agentId;
+            this.timestamps = new long[capacity];
+            this.cpu = new double[capacity];
+            this.memory = new double[capacity];
+            this.disk = new double[capacity];
+        }
+
+        void add(long timestamp, double cpuValue, double memoryValue, double diskValue) {
+            int index = offset + size;
+            timestamps[index] = timestamp;
+            cpu[index] = cpuValue;
+            memory[index] = memoryValue;
+            disk[index] = diskValue;
+            size++;
+        }
+
+        void dropFirst(int count) {
+            offset += count;
+            size -= count;
+        }
+
+        public String getAgentId() { return agentId; }
+        public int size() { return size; }
+        long getFirstPosition() { return firstPosition; }
+        public long getTimestamp(int i) { return timestamps[offset + i]; }
+        public double getCpu(int i) { return cpu[offset + i]; }
+        public double getMemory(int i) { return memory[offset + i]; }
+        public double getDisk(int i) { return disk[offset + i]; }
+    }
+}
\ No newline at end of file
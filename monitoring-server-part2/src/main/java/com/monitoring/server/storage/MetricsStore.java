@@ -0,0 +1,178 @@
+package com.monitoring.server.storage;
+
+import com.monitoring.server.model.MetricsBucket;
+import com.monitoring.server.model.MetricsHistory;
+import com.monitoring.server.model.SystemMetrics;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Historique des métriques de tous les agents : une MetricsSeries par agent
+ * (échantillons bruts + agrégats par minute et par heure)
+ */
+public class MetricsStore {
+
+    private final int depth;
+    private final int minuteBuckets;
+    private final int hourBuckets;
+    private final Map<String, MetricsSeries> series = new ConcurrentHashMap<>();
+    private volatile MetricsSeries.AppendListener listener;
+    private volatile long maxFutureSkewMillis = MetricsSeries.DEFAULT_MAX_FUTURE_SKEW_MS;
+
+    /**
+     * @param depth Nombre d'échantillons bruts conservés par agent
+     * @param minuteBuckets Nombre de seaux d'une minute conservés par agent
+     * @param hourBuckets Nombre de seaux d'une heure conservés par agent
+     */
+    public MetricsStore(int depth, int minuteBuckets, int hourBuckets) {
+        this.depth = depth;
+        this.minuteBuckets = minuteBuckets;
+        this.hourBuckets = hourBuckets;
+    }
+
+    /**
+     * Ajoute un échantillon à la série de l'agent (créée au premier échantillon)
+     * @return Horodatage effectivement retenu
+     */
+    public long append(String agentId, long timestampMillis, double cpu, double memory, double disk) {
+        return getOrCreateSeries(agentId).append(timestampMillis, cpu, memory, disk);
+    }
+
+    /**
+     * Retourne la série d'un agent, créée si nécessaire. Les récepteurs à fort débit
+     * la conservent pour ajouter leurs échantillons sans recherche par agent.
+     */
+    public MetricsSeries getOrCreateSeries(String agentId) {
+        MetricsSeries agentSeries = series.get(agentId);
+        if (agentSeries == null) {
+            agentSeries = series.computeIfAbsent(agentId, this::createSeries);
+        }
+        return agentSeries;
+    }
+
+    private MetricsSeries createSeries(String agentId) {
+        MetricsSeries created = new MetricsSeries(agentId, depth, minuteBuckets, hourBuckets);
+        created.setAppendListener(listener);
+        created.setMaxFutureSkew(maxFutureSkewMillis);
+        return created;
+    }
+
+    /**
+     * Avance maximale d'un horodatage sur l'horloge du serveur, pour les séries
+     * existantes et futures : au-delà, l'échantillon est daté de l'heure du serveur
+     */
+    public synchronized void setMaxFutureSkew(long millis) {
+        this.maxFutureSkewMillis = millis;
+        for (MetricsSeries agentSeries : series.values()) {
+            agentSeries.setMaxFutureSkew(millis);
+        }
+    }
+
+    /**
+     * Ajoute un observateur des ajouts sur les séries existantes et futures
+     * (appelé après ceux déjà installés)
+     */
+    public synchronized void addAppendListener(MetricsSeries.AppendListener added) {
+        MetricsSeries.AppendListener previous = listener;
+        MetricsSeries.AppendListener combined = previous == null ? added
+                : (agentSeries, position, time, cpu, memory, disk) -> {
+                    previous.onAppend(agentSeries, position, time, cpu, memory, disk);
+                    added.onAppend(agentSeries, position, time, cpu, memory, disk);
+                };
+        this.listener = combined;
+        for (MetricsSeries agentSeries : series.values()) {
+            agentSeries.setAppendListener(combined);
+        }
+    }
+
+    /**
+     * Séries de tous les agents
+     */
+    public Collection<MetricsSeries> getAllSeries() {
+        return series.values();
+    }
+
+    /**
+     * Retourne la série d'un agent, ou null si l'agent n'a jamais envoyé de métriques
+     */
+    public MetricsSeries getSeries(String agentId) {
+        return series.get(agentId);
+    }
+
+    /**
+     * Échantillons de l'intervalle [fromMillis, toMillis], en colonnes
+     * (les objets SystemMetrics ne sont construits qu'à la lecture de la liste)
+     * @param maxSamples Nombre maximal d'échantillons (les plus récents de l'intervalle)
+     */
+    public List<SystemMetrics> getHistory(String agentId, long fromMillis, long toMillis, int maxSamples) {
+        MetricsSeries agentSeries = series.get(agentId);
+        if (agentSeries == null) {
+            return new MetricsHistory(agentId, 0);
+        }
+        MetricsSeries.Samples samples = agentSeries.read(fromMillis, toMillis, maxSamples);
+        MetricsHistory history = new MetricsHistory(agentId, samples.size());
+        for (int i = 0; i < samples.size(); i++) {
+            history.append(samples.getTimestamp(i), samples.getCpu(i), samples.getMemory(i), samples.getDisk(i));
+        }
+        return history;
+    }
+
+    /**
+     * Agrégats de l'intervalle [fromMillis, toMillis] à la résolution demandée.
+     * Le niveau source est le plus grossier dont la largeur ne dépasse pas la
+     * résolution ; s'il ne remonte pas jusqu'à fromMillis, un niveau plus
+     * grossier (qui conserve plus longtemps) est utilisé à la place.
+     * @param resolutionMillis Largeur des seaux retournés (0 = échantillons bruts)
+     * @param maxBuckets Nombre maximal de seaux retournés (les plus récents)
+     */
+    public List<MetricsBucket> getRollup(String agentId, long fromMillis, long toMillis,
+                                         long resolutionMillis, int maxBuckets) {
+        MetricsSeries agentSeries = series.get(agentId);
+        if (agentSeries == null) {
+            return new ArrayList<>();
+        }
+
+        RollupTier tier = null;
+        if (resolutionMillis >= MetricsSeries.HOUR_MILLIS) {
+            tier = agentSeries.getHourTier();
+        } else if (resolutionMillis >= MetricsSeries.MINUTE_MILLIS) {
+            tier = agentSeries.getMinuteTier();
+        }
+        // Remonter vers un niveau plus grossier si l'intervalle dépasse la rétention
+        if (tier == null && agentSeries.oldestTimestamp() > fromMillis
+                && agentSeries.getMinuteTier().oldestMillis() < agentSeries.oldestTimestamp()) {
+            tier = agentSeries.getMinuteTier();
+        }
+        if (tier == agentSeries.getMinuteTier() && tier.oldestMillis() > fromMillis
+                && agentSeries.getHourTier().oldestMillis() < tier.oldestMillis()) {
+            tier = agentSeries.getHourTier();
+        }
+
+        long width = tier == null ? resolutionMillis : Math.max(resolutionMillis, tier.getWidthMillis());
+        RollupBuilder builder = new RollupBuilder(agentId, width, maxBuckets);
+        if (tier != null) {
+            tier.read(fromMillis, toMillis, builder);
+        } else {
+            MetricsSeries.Samples samples = agentSeries.read(fromMillis, toMillis, depth);
+            for (int i = 0; i < samples.size(); i++) {
+                builder.addSample(samples.getTimestamp(i), samples.getCpu(i),
+                                  samples.getMemory(i), samples.getDisk(i));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Nombre d'agents disposant d'un historique
+     */
+    public int getSeriesCount() {
+        return series.size();
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,265 @@
+package com.monitoring.server.storage;
+
+import com.monitoring.server.logging.Log;
+import com.monitoring.server.model.Alert;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Persistance du DataManager : journal d'écriture anticipée + snapshots périodiques.
+ *
+ * Au démarrage, le snapshot valide le plus récent est projeté en mémoire et
+ * rechargé, puis seule la fin du journal (postérieure au snapshot) est rejouée.
+ * Ensuite chaque alerte, échantillon de métriques et agent est journalisé au
+ * moment de sa publication. Un thread d'arrière-plan prend un snapshot
+ * périodiquement (ou quand le journal a trop grossi) puis supprime les
+ * segments et snapshots devenus inutiles.
+ */
+public class PersistenceManager implements MetricsSeries.AppendListener {
+
+    private static final Log LOG = Log.get("Storage");
+
+    /** Nombre de snapshots conservés (le précédent sert de secours si le dernier est illisible) */
+    private static final int SNAPSHOTS_KEPT = 2;
+
+    private static final long SNAPSHOT_CHECK_MS = 1000;
+
+    private final Path directory;
+    private final boolean groupCommit;
+    private final long snapshotIntervalMs;
+    private final long snapshotLogBytes;
+    private final WriteAheadLog log;
+    private final ThreadLocal<ByteBuffer> scratch =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(RecordCodec.MAX_RECORD_SIZE));
+
+    private DataManager dataManager;
+    private Thread snapshotThread;
+    private volatile boolean running;
+    private volatile boolean failed;
+    private volatile long lastSnapshotLsn;
+    private volatile long lastSnapshotMillis;
+
+    /**
+     * @param directory Répertoire des données (créé si nécessaire)
+     * @param segmentBytes Taille d'un segment du journal
+     * @param groupCommit true : addAlert attend que l'alerte soit sur disque (validation groupée)
+     * @param syncIntervalMs Intervalle maximal entre deux synchronisations du journal
+     * @param snapshotIntervalMs Intervalle entre deux snapshots
+     * @param snapshotLogBytes Volume de journal déclenchant un snapshot anticipé
+     */
+    public PersistenceManager(String directory, int segmentBytes, boolean groupCommit, long syncIntervalMs,
+                              long snapshotIntervalMs, long snapshotLogBytes) {
+        this.directory = Paths.get(directory);
+        this.groupCommit = groupCommit;
+        this.snapshotIntervalMs = snapshotIntervalMs;
+        this.snapshotLogBytes = snapshotLogBytes;
+        this.log = new WriteAheadLog(this.directory, segmentBytes, syncIntervalMs);
+    }
+
+    /**
+     * Restaure l'état persisté dans le DataManager (vide), puis active la journalisation
+     */
+    public void open(DataManager dataManager) throws IOException {
+        this.dataManager = dataManager;
+        Files.createDirectories(directory);
+        long start = System.nanoTime();
+
+        long lsn = 0;
+        for (Path snapshot : SnapshotFile.list(directory)) {
+            try {
+                lsn = SnapshotFile.load(snapshot, dataManager);
+                LOG.info("Snapshot chargé: {}", snapshot.getFileName());
+                break;
+            } catch (IOException | RuntimeException e) {
+                LOG.warn("Snapshot ignoré ({}): {}", snapshot.getFileName(), e.getMessage());
+            }
+        }
+        lastSnapshotLsn = lsn;
+        lastSnapshotMillis = System.currentTimeMillis();
+
+        long replayed = log.recover(lsn, this::replay);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        LOG.info("Reprise terminée en {} ms : {} alerte(s), {} série(s), {} enregistrement(s) rejoué(s) depuis le journal",
+                 elapsedMs, dataManager.getAlertCount(), dataManager.getMetricsStore().getSeriesCount(), replayed);
+
+        log.start();
+        dataManager.attachPersistence(this);
+        running = true;
+        snapshotThread = new Thread(this::snapshotLoop, "storage-snapshot");
+        snapshotThread.setDaemon(true);
+        snapshotThread.start();
+    }
+
+    /**
+     * Prend un snapshot final, synchronise le journal et arrête les threads
+     */
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        snapshotThread.interrupt();
+        try {
+            snapshotThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!failed) {
+            snapshot();
+        }
+        log.close();
+        LOG.info("Journal fermé (LSN {})", log.durableLsn());
+    }
+
+    /**
+     * Prend un snapshot puis supprime les segments et anciens snapshots inutiles
+     */
+    public synchronized void snapshot() {
+        try {
+            long lsn = log.writtenLsn();
+            if (lsn == lastSnapshotLsn && !SnapshotFile.list(directory).isEmpty()) {
+                lastSnapshotMillis = System.currentTimeMillis();
+                return;
+            }
+            long start = System.nanoTime();
+            // Un enregistrement est journalisé avant la publication de sa donnée : attendre que
+            // celles journalisées avant lsn soient publiées, sans quoi le snapshot les omettrait
+            // alors que la reprise ne rejouera le journal qu'à partir de lsn
+            dataManager.awaitPublications();
+            Path file = SnapshotFile.write(directory, lsn, dataManager);
+            lastSnapshotLsn = lsn;
+            lastSnapshotMillis = System.currentTimeMillis();
+            int deleted = compact();
+            LOG.info("Snapshot {} écrit en {} ms, {} segment(s) supprimé(s)", file.getFileName(),
+                     (System.nanoTime() - start) / 1_000_000, deleted);
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Échec du snapshot: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Journalise une alerte (appelé dans l'ordre des séquences)
+     */
+    void logAlert(Alert alert, long storedAtMillis) {
+        if (failed) {
+            return;
+        }
+        ByteBuffer buffer = scratch.get();
+        buffer.clear();
+        RecordCodec.encodeAlert(buffer, alert, storedAtMillis);
+        write(buffer);
+    }
+
+    /**
+     * Journalise l'adresse d'un agent
+     */
+    void logAgent(String agentId, String ipAddress) {
+        if (failed) {
+            return;
+        }
+        ByteBuffer buffer = scratch.get();
+        buffer.clear();
+        RecordCodec.encodeAgent(buffer, agentId, ipAddress);
+        write(buffer);
+    }
+
+    /**
+     * Journalise un échantillon de métriques (appelé dans l'ordre des positions de la série)
+     */
+    @Override
+    public void onAppend(MetricsSeries series, long position, long timestampMillis,
+                         double cpu, double memory, double disk) {
+        if (failed) {
+            return;
+        }
+        ByteBuffer buffer = scratch.get();
+        buffer.clear();
+        RecordCodec.encodeMetrics(buffer, series.getAgentIdBytes(), position, timestampMillis, cpu, memory, disk);
+        write(buffer);
+    }
+
+    /**
+     * En mode validation groupée, attend que tout ce qui a été journalisé soit sur disque
+     */
+    void awaitDurable() {
+        if (groupCommit && !failed) {
+            log.awaitDurable(log.writtenLsn());
+        }
+    }
+
+    public long getWrittenLsn() {
+        return log.writtenLsn();
+    }
+
+    public long getDurableLsn() {
+        return log.durableLsn();
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    private void write(ByteBuffer buffer) {
+        buffer.flip();
+        try {
+            log.append(buffer);
+        } catch (RuntimeException e) {
+            // Appelé pendant une publication ordonnée : ne jamais propager
+            failed = true;
+            LOG.error("Journalisation désactivée après une erreur: {}", e.toString());
+        }
+    }
+
+    private void replay(long lsn, ByteBuffer record) {
+        byte type = record.get();
+        switch (type) {
+            case RecordCodec.ALERT:
+            case RecordCodec.ALERT_V2:
+                long storedAt = record.getLong();
+                dataManager.restoreAlert(RecordCodec.decodeAlert(record, type), storedAt);
+                break;
+            case RecordCodec.METRICS:
+                MetricsSeries series = dataManager.getMetricsStore().getOrCreateSeries(RecordCodec.getString(record));
+                series.restore(record.getLong(), record.getLong(), record.getDouble(),
+                               record.getDouble(), record.getDouble());
+                break;
+            case RecordCodec.AGENT:
+                dataManager.restoreAgent(RecordCodec.getString(record), RecordCodec.getString(record));
+                break;
+            default:
+                LOG.warn("Enregistrement inconnu au LSN {} (type {})", lsn, type);
+        }
+    }
+
+    /**
+     * Supprime les snapshots au-delà des SNAPSHOTS_KEPT plus récents et les segments
+     * antérieurs au plus ancien snapshot conservé
+     */
+    private int compact() throws IOException {
+        List<Path> snapshots = SnapshotFile.list(directory);
+        for (int i = SNAPSHOTS_KEPT; i < snapshots.size(); i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+        Path oldestKept = snapshots.get(Math.min(SNAPSHOTS_KEPT, snapshots.size()) - 1);
+        return log.deleteSegmentsBefore(SnapshotFile.lsnOf(oldestKept));
+    }
+
+    private void snapshotLoop() {
+        while (running) {
+            try {
+                Thread.sleep(SNAPSHOT_CHECK_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long logged = log.writtenLsn() - lastSnapshotLsn;
+            boolean due = System.currentTimeMillis() - lastSnapshotMillis >= snapshotIntervalMs;
+            if (running && !failed && logged > 0 && (due || logged >= snapshotLogBytes)) {
+                snapshot();
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.monitoring.server.storage;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Attente du tour de publication pour les anneaux multi-écrivains :
+ * chaque écrivain attend que la position précédente soit publiée.
+ * Attente active courte, puis yield, puis mise en sommeil brève pour
+ * laisser le processeur à l'écrivain en retard sur une machine chargée.
+ */
+final class PublishOrder {
+
+    private static final int SPIN_LIMIT = 100;
+    private static final int YIELD_LIMIT = 200;
+    private static final long PARK_NANOS = 10_000;
+
+    private PublishOrder() {
+    }
+
+    /**
+     * Attend que published atteigne la valeur attendue
+     */
+    static void await(AtomicLong published, long expected) {
+        int attempts = 0;
+        while (published.get() != expected) {
+            attempts = pause(attempts);
+        }
+    }
+
+    /**
+     * Attend que published atteigne au moins la valeur attendue (pour un observateur
+     * extérieur, pendant que les écrivains continuent de publier)
+     */
+    static void awaitAtLeast(AtomicLong published, long expected) {
+        int attempts = 0;
+        while (published.get() < expected) {
+            attempts = pause(attempts);
+        }
+    }
+
+    private static int pause(int attempts) {
+        attempts++;
+        if (attempts < SPIN_LIMIT) {
+            Thread.onSpinWait();
+        } else if (attempts < YIELD_LIMIT) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return attempts;
+    }
+}
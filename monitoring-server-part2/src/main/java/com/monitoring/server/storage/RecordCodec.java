@@ -0,0 +1,134 @@
+package com.monitoring.server.storage;
+
+import com.monitoring.server.model.Alert;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Encodage binaire des enregistrements persistés (journal et snapshots).
+ *
+ *   ALERT   : type, storedAt, séquence, timestamp (s + ns), agentId, sévérité, message
+ *   ALERT_V2: ALERT suivi de la métrique, du nombre d'occurrences et de la première occurrence (s + ns)
+ *   METRICS : type, agentId, position dans la série, timestamp, cpu, mémoire, disque
+ *   AGENT   : type, agentId, adresse IP
+ *
+ * Les chaînes sont précédées de leur longueur en octets UTF-8 (-1 pour null)
+ * et tronquées à MAX_STRING_BYTES, sans couper un caractère.
+ */
+final class RecordCodec {
+
+    static final byte ALERT = 1;
+    static final byte METRICS = 2;
+    static final byte AGENT = 3;
+    static final byte ALERT_V2 = 4;
+
+    /** Taille maximale encodée d'une chaîne */
+    static final int MAX_STRING_BYTES = 8192;
+
+    /** Taille maximale d'un enregistrement encodé */
+    static final int MAX_RECORD_SIZE = 64 + 4 * (4 + MAX_STRING_BYTES);
+
+    private RecordCodec() {
+    }
+
+    static void encodeAlert(ByteBuffer buffer, Alert alert, long storedAtMillis) {
+        buffer.put(ALERT_V2);
+        buffer.putLong(storedAtMillis);
+        buffer.putLong(alert.getSequence());
+        putTimestamp(buffer, alert.getTimestamp());
+        putString(buffer, alert.getAgentId());
+        putString(buffer, alert.getSeverity());
+        putString(buffer, alert.getMessage());
+        putString(buffer, alert.getMetricType());
+        buffer.putInt(alert.getCount());
+        putTimestamp(buffer, alert.getFirstTimestamp());
+    }
+
+    /**
+     * Décode une alerte ALERT ou ALERT_V2 (le type et l'horodatage de stockage ont déjà été lus)
+     */
+    static Alert decodeAlert(ByteBuffer buffer, byte type) {
+        long sequence = buffer.getLong();
+        LocalDateTime timestamp = getTimestamp(buffer);
+        String agentId = getString(buffer);
+        String severity = getString(buffer);
+        String message = getString(buffer);
+        Alert alert = new Alert(agentId, message, timestamp, severity);
+        alert.setSequence(sequence);
+        if (type == ALERT_V2) {
+            alert.setMetricType(getString(buffer));
+            alert.setCount(buffer.getInt());
+            LocalDateTime first = getTimestamp(buffer);
+            if (first != null && !first.equals(timestamp)) {
+                alert.setFirstTimestamp(first);
+            }
+        }
+        return alert;
+    }
+
+    private static void putTimestamp(ByteBuffer buffer, LocalDateTime timestamp) {
+        buffer.putLong(timestamp == null ? Long.MIN_VALUE : timestamp.toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(timestamp == null ? 0 : timestamp.getNano());
+    }
+
+    private static LocalDateTime getTimestamp(ByteBuffer buffer) {
+        long seconds = buffer.getLong();
+        int nanos = buffer.getInt();
+        return seconds == Long.MIN_VALUE ? null : LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    static void encodeMetrics(ByteBuffer buffer, byte[] agentId, long position, long timestampMillis,
+                              double cpu, double memory, double disk) {
+        buffer.put(METRICS);
+        putBytes(buffer, agentId);
+        buffer.putLong(position);
+        buffer.putLong(timestampMillis);
+        buffer.putDouble(cpu);
+        buffer.putDouble(memory);
+        buffer.putDouble(disk);
+    }
+
+    static void encodeAgent(ByteBuffer buffer, String agentId, String ipAddress) {
+        buffer.put(AGENT);
+        putString(buffer, agentId);
+        putString(buffer, ipAddress);
+    }
+
+    static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        } else {
+            putBytes(buffer, value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        int length = Math.min(bytes.length, MAX_STRING_BYTES);
+        // Coupure avant le premier octet du caractère tronqué (octets de suite UTF-8 : 10xxxxxx)
+        while (length < bytes.length && length > 0 && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        buffer.putInt(length);
+        buffer.put(bytes, 0, length);
+    }
+
+    static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                               StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+}
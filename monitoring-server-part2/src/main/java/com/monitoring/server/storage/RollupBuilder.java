@@ -0,0 +1,108 @@
+package com.monitoring.server.storage;
+
+import com.monitoring.server.model.MetricsBucket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fusionne des seaux (ou des échantillons bruts) reçus par ordre chronologique
+ * en seaux de la résolution demandée.
+ */
+final class RollupBuilder {
+
+    private final String agentId;
+    private final long widthMillis;
+    private final int maxBuckets;
+    private final List<MetricsBucket> buckets = new ArrayList<>();
+
+    // Seau en cours de construction
+    private long start = Long.MIN_VALUE;
+    private long duration;
+    private long count;
+    private final double[] min = new double[MetricsBucket.METRIC_COUNT];
+    private final double[] max = new double[MetricsBucket.METRIC_COUNT];
+    private final double[] sum = new double[MetricsBucket.METRIC_COUNT];
+    private final double[] last = new double[MetricsBucket.METRIC_COUNT];
+    private final double[] sample = new double[MetricsBucket.METRIC_COUNT * RollupTier.STATS];
+
+    /**
+     * @param widthMillis Largeur des seaux produits (0 = conserver les seaux reçus tels quels)
+     * @param maxBuckets Nombre maximal de seaux retournés (les plus récents)
+     */
+    RollupBuilder(String agentId, long widthMillis, int maxBuckets) {
+        this.agentId = agentId;
+        this.widthMillis = widthMillis;
+        this.maxBuckets = maxBuckets;
+    }
+
+    /**
+     * Ajoute un échantillon brut (seau de durée nulle contenant une valeur)
+     */
+    void addSample(long timestampMillis, double cpu, double memory, double disk) {
+        fill(MetricsBucket.CPU, cpu);
+        fill(MetricsBucket.MEMORY, memory);
+        fill(MetricsBucket.DISK, disk);
+        addBucket(timestampMillis, 0, 1, sample, 0);
+    }
+
+    private void fill(int metric, double value) {
+        int offset = metric * RollupTier.STATS;
+        sample[offset + RollupTier.MIN] = value;
+        sample[offset + RollupTier.MAX] = value;
+        sample[offset + RollupTier.SUM] = value;
+        sample[offset + RollupTier.LAST] = value;
+    }
+
+    /**
+     * Ajoute un seau dont les statistiques suivent la disposition de RollupTier
+     */
+    void addBucket(long bucketStart, long bucketDuration, long bucketCount, double[] stats, int offset) {
+        long targetStart = widthMillis > 0 ? Math.floorDiv(bucketStart, widthMillis) * widthMillis : bucketStart;
+        if (targetStart != start || widthMillis <= 0) {
+            flush();
+            start = targetStart;
+            duration = widthMillis > 0 ? widthMillis : bucketDuration;
+            count = 0;
+        }
+        for (int metric = 0; metric < MetricsBucket.METRIC_COUNT; metric++) {
+            int base = offset + metric * RollupTier.STATS;
+            double bucketMin = stats[base + RollupTier.MIN];
+            double bucketMax = stats[base + RollupTier.MAX];
+            if (count == 0) {
+                min[metric] = bucketMin;
+                max[metric] = bucketMax;
+                sum[metric] = 0;
+            } else {
+                min[metric] = Math.min(min[metric], bucketMin);
+                max[metric] = Math.max(max[metric], bucketMax);
+            }
+            sum[metric] += stats[base + RollupTier.SUM];
+            last[metric] = stats[base + RollupTier.LAST];
+        }
+        count += bucketCount;
+    }
+
+    private void flush() {
+        if (count == 0) {
+            return;
+        }
+        double[] avg = new double[MetricsBucket.METRIC_COUNT];
+        for (int metric = 0; metric < avg.length; metric++) {
+            avg[metric] = sum[metric] / count;
+        }
+        buckets.add(new MetricsBucket(agentId, start, duration, count,
+                                      min.clone(), max.clone(), avg, last.clone()));
+        count = 0;
+    }
+
+    /**
+     * Termine la construction et retourne les seaux les plus récents
+     */
+    List<MetricsBucket> build() {
+        flush();
+        if (buckets.size() > maxBuckets) {
+            return new ArrayList<>(buckets.subList(buckets.size() - maxBuckets, buckets.size()));
+        }
+        return buckets;
+    }
+}
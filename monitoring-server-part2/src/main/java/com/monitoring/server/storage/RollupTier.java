@@ -0,0 +1,295 @@
+package com.monitoring.server.storage;
+
+import com.monitoring.server.model.MetricsBucket;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Niveau d'agrégation d'une série : un anneau de seaux de largeur fixe
+ * (ex : 1 minute) contenant min, max, somme, dernière valeur et nombre
+ * d'échantillons pour chaque métrique. Les seaux sont mis à jour au fil
+ * des ajouts, sans jamais relire les échantillons bruts.
+ *
+ * Un seul écrivain (appelé dans l'ordre de publication de la MetricsSeries) ;
+ * les lecteurs utilisent un compteur de version (seqlock) et recommencent
+ * leur copie si un ajout a eu lieu pendant la lecture.
+ */
+final class RollupTier {
+
+    // Disposition des statistiques d'un seau : métrique * STATS + statistique
+    static final int MIN = 0;
+    static final int MAX = 1;
+    static final int SUM = 2;
+    static final int LAST = 3;
+    static final int STATS = 4;
+    static final int STRIDE = MetricsBucket.METRIC_COUNT * STATS;
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int MAX_READ_ATTEMPTS = 16;
+
+    private final long widthMillis;
+    private final int maxBuckets;
+
+    private volatile Table table;
+    // Impair pendant une écriture
+    private volatile long version;
+    private volatile long lastKey = Long.MIN_VALUE;
+    // Position (dans la série) du prochain échantillon à intégrer
+    private volatile long applied;
+
+    /**
+     * @param widthMillis Largeur d'un seau (ms)
+     * @param maxBuckets Nombre de seaux conservés (arrondi à la puissance de 2 supérieure)
+     */
+    RollupTier(long widthMillis, int maxBuckets) {
+        this.widthMillis = widthMillis;
+        int capacity = 1;
+        while (capacity < maxBuckets && capacity < (1 << 24)) {
+            capacity <<= 1;
+        }
+        this.maxBuckets = capacity;
+        this.table = new Table(Math.min(INITIAL_CAPACITY, capacity));
+    }
+
+    /**
+     * Intègre l'échantillon de position donnée dans la série (timestamps croissants)
+     */
+    void add(long position, long timestampMillis, double cpu, double memory, double disk) {
+        long key = Math.floorDiv(timestampMillis, widthMillis);
+        version++;
+        try {
+            Table current = table;
+            int slot = (int) (key & current.mask);
+            if (current.keys[slot] != key) {
+                // Nouveau seau : agrandir si le seau écrasé est encore dans la fenêtre
+                long evicted = current.keys[slot];
+                if (evicted != Table.EMPTY && key - evicted < current.capacity() * 2L
+                        && current.capacity() < maxBuckets) {
+                    current = current.grow();
+                    table = current;
+                    slot = (int) (key & current.mask);
+                }
+                current.reset(slot, key, cpu, memory, disk);
+            } else {
+                current.update(slot, cpu, memory, disk);
+            }
+            lastKey = key;
+            applied = position + 1;
+        } finally {
+            version++;
+        }
+    }
+
+    /**
+     * Début du plus ancien seau encore conservé (Long.MAX_VALUE si aucun)
+     */
+    long oldestMillis() {
+        if (lastKey == Long.MIN_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        return (lastKey - table.capacity() + 1) * widthMillis;
+    }
+
+    long getWidthMillis() {
+        return widthMillis;
+    }
+
+    /**
+     * Position du prochain échantillon à intégrer (les précédents le sont déjà)
+     */
+    long getApplied() {
+        return applied;
+    }
+
+    /**
+     * Copie cohérente de tous les seaux conservés, par ordre chronologique (pour les snapshots)
+     */
+    Image image() {
+        for (int attempt = 0; ; attempt++) {
+            long before = version;
+            if ((before & 1) != 0 && attempt < MAX_READ_ATTEMPTS) {
+                Thread.onSpinWait();
+                continue;
+            }
+            Table current = table;
+            long last = lastKey;
+            long position = applied;
+            Table copy = last == Long.MIN_VALUE
+                    ? new Table(1)
+                    : current.copyRange(last - current.capacity() + 1, last);
+            VarHandle.acquireFence();
+            if (version == before || attempt >= MAX_READ_ATTEMPTS) {
+                return new Image(position, copy);
+            }
+        }
+    }
+
+    /**
+     * Recharge une image produite par {@link #image()} (reprise au démarrage, avant tout ajout)
+     */
+    void restore(long position, int size, long[] keys, long[] counts, double[] stats) {
+        long span = size == 0 ? 1 : keys[size - 1] - keys[0] + 1;
+        int capacity = table.capacity();
+        while (capacity < span && capacity < maxBuckets) {
+            capacity <<= 1;
+        }
+        Table restored = new Table(capacity);
+        for (int i = 0; i < size; i++) {
+            int slot = (int) (keys[i] & restored.mask);
+            restored.keys[slot] = keys[i];
+            restored.counts[slot] = counts[i];
+            System.arraycopy(stats, i * STRIDE, restored.stats, slot * STRIDE, STRIDE);
+        }
+        table = restored;
+        if (size > 0) {
+            lastKey = keys[size - 1];
+        }
+        applied = position;
+    }
+
+    /**
+     * Transmet au constructeur les seaux chevauchant [fromMillis, toMillis], par ordre chronologique
+     */
+    void read(long fromMillis, long toMillis, RollupBuilder builder) {
+        for (int attempt = 0; ; attempt++) {
+            long before = version;
+            if ((before & 1) != 0 && attempt < MAX_READ_ATTEMPTS) {
+                Thread.onSpinWait();
+                continue;
+            }
+            Table current = table;
+            long last = lastKey;
+            if (last == Long.MIN_VALUE) {
+                return;
+            }
+            long firstKey = Math.max(Math.floorDiv(fromMillis, widthMillis), last - current.capacity() + 1);
+            long endKey = Math.min(Math.floorDiv(toMillis, widthMillis), last);
+
+            Table copy = current.copyRange(firstKey, endKey);
+            VarHandle.acquireFence();
+            if (version == before || attempt >= MAX_READ_ATTEMPTS) {
+                for (int i = 0; i < copy.keys.length; i++) {
+                    if (copy.keys[i] != Table.EMPTY) {
+                        builder.addBucket(copy.keys[i] * widthMillis, widthMillis, copy.counts[i],
+                                          copy.stats, i * STRIDE);
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Copie des seaux conservés : les size premières entrées sont remplies, par clé croissante
+     */
+    static final class Image {
+        final long applied;
+        final int size;
+        final long[] keys;
+        final long[] counts;
+        final double[] stats;
+
+        private Image(long applied, Table copy) {
+            int filled = 0;
+            while (filled < copy.keys.length && copy.keys[filled] != Table.EMPTY) {
+                filled++;
+            }
+            this.applied = applied;
+            this.size = filled;
+            this.keys = copy.keys;
+            this.counts = copy.counts;
+            this.stats = copy.stats;
+        }
+    }
+
+    /**
+     * Colonnes des seaux : clé (numéro de seau depuis l'epoch), nombre d'échantillons, statistiques
+     */
+    private static final class Table {
+        static final long EMPTY = Long.MIN_VALUE;
+
+        final int mask;
+        final long[] keys;
+        final long[] counts;
+        final double[] stats;
+
+        Table(int capacity) {
+            this.mask = capacity - 1;
+            this.keys = new long[capacity];
+            this.counts = new long[capacity];
+            this.stats = new double[capacity * STRIDE];
+            Arrays.fill(keys, EMPTY);
+        }
+
+        int capacity() {
+            return mask + 1;
+        }
+
+        void reset(int slot, long key, double cpu, double memory, double disk) {
+            keys[slot] = key;
+            counts[slot] = 1;
+            int base = slot * STRIDE;
+            set(base + MetricsBucket.CPU * STATS, cpu);
+            set(base + MetricsBucket.MEMORY * STATS, memory);
+            set(base + MetricsBucket.DISK * STATS, disk);
+        }
+
+        private void set(int offset, double value) {
+            stats[offset + MIN] = value;
+            stats[offset + MAX] = value;
+            stats[offset + SUM] = value;
+            stats[offset + LAST] = value;
+        }
+
+        void update(int slot, double cpu, double memory, double disk) {
+            counts[slot]++;
+            int base = slot * STRIDE;
+            merge(base + MetricsBucket.CPU * STATS, cpu);
+            merge(base + MetricsBucket.MEMORY * STATS, memory);
+            merge(base + MetricsBucket.DISK * STATS, disk);
+        }
+
+        private void merge(int offset, double value) {
+            if (value < stats[offset + MIN]) {
+                stats[offset + MIN] = value;
+            }
+            if (value > stats[offset + MAX]) {
+                stats[offset + MAX] = value;
+            }
+            stats[offset + SUM] += value;
+            stats[offset + LAST] = value;
+        }
+
+        Table grow() {
+            Table larger = new Table(capacity() * 2);
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != EMPTY) {
+                    larger.copyFrom(this, slot, (int) (keys[slot] & larger.mask));
+                }
+            }
+            return larger;
+        }
+
+        /**
+         * Copie compacte des seaux de clés [firstKey, endKey] (les clés absentes restent vides)
+         */
+        Table copyRange(long firstKey, long endKey) {
+            int length = (int) Math.max(0, endKey - firstKey + 1);
+            Table copy = new Table(Math.max(1, Integer.highestOneBit(Math.max(1, length)) << 1));
+            int target = 0;
+            for (long key = firstKey; key <= endKey; key++) {
+                int slot = (int) (key & mask);
+                if (keys[slot] == key) {
+                    copy.copyFrom(this, slot, target++);
+                }
+            }
+            return copy;
+        }
+
+        private void copyFrom(Table source, int sourceSlot, int targetSlot) {
+            keys[targetSlot] = source.keys[sourceSlot];
+            counts[targetSlot] = source.counts[sourceSlot];
+            System.arraycopy(source.stats, sourceSlot * STRIDE, stats, targetSlot * STRIDE, STRIDE);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,97 @@
+package com.monitoring.server.storage;
+
+/**
+ * Index secondaire : liste croissante de numéros de séquence d'alertes
+ * (par agent ou par sévérité), dans un anneau qui grandit jusqu'à une
+ * capacité maximale puis écrase ses entrées les plus anciennes.
+ *
+ * Un seul écrivain à la fois (l'AlertStore appelle add() dans l'ordre de
+ * publication) ; les lecteurs ne prennent aucun verrou.
+ */
+final class SequenceIndex {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int maxCapacity;
+    private volatile long[] sequences = new long[INITIAL_CAPACITY];
+    // Nombre total d'ajouts ; l'écriture volatile publie la nouvelle entrée
+    private volatile long count;
+
+    SequenceIndex(int maxCapacity) {
+        this.maxCapacity = maxCapacity;
+    }
+
+    /**
+     * Ajoute une séquence (toujours supérieure aux précédentes)
+     */
+    void add(long sequence) {
+        long[] current = sequences;
+        long n = count;
+        if (n >= current.length && current.length < maxCapacity) {
+            current = grow(current, n);
+            sequences = current;
+        }
+        current[(int) (n & (current.length - 1))] = sequence;
+        count = n + 1;
+    }
+
+    /**
+     * Dernière séquence ajoutée (0 si aucune) ; à appeler depuis l'écrivain
+     */
+    long last() {
+        long n = count;
+        long[] current = sequences;
+        return n == 0 ? 0 : current[(int) ((n - 1) & (current.length - 1))];
+    }
+
+    private static long[] grow(long[] current, long n) {
+        long[] larger = new long[current.length * 2];
+        for (long p = n - current.length; p < n; p++) {
+            larger[(int) (p & (larger.length - 1))] = current[(int) (p & (current.length - 1))];
+        }
+        return larger;
+    }
+
+    /**
+     * Parcourt dans l'ordre croissant les séquences de ]after, upTo]
+     */
+    void forEachBetween(long after, long upTo, Visitor visitor) {
+        long n = count;
+        long[] current = sequences;
+        int mask = current.length - 1;
+        long first = Math.max(0, n - current.length);
+
+        // Recherche dichotomique de la première position > after
+        long low = first;
+        long high = n;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (current[(int) (mid & mask)] <= after) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        for (long p = low; p < n; p++) {
+            long sequence = current[(int) (p & mask)];
+            // Entrée écrasée pendant le parcours : l'alerte est de toute façon évincée
+            if (count - current.length > p) {
+                continue;
+            }
+            if (sequence > upTo) {
+                break;
+            }
+            if (!visitor.visit(sequence)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Visiteur de séquences ; retourne false pour arrêter le parcours
+     */
+    interface Visitor {
+        boolean visit(long sequence);
+    }
+}
\ No newline at end of file
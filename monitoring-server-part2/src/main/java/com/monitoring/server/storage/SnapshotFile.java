@@ -0,0 +1,249 @@
+package com.monitoring.server.storage;
+
+import com.monitoring.server.model.Alert;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Snapshot binaire compact de l'état du DataManager.
+ *
+ *   en-tête  : MAGIC, VERSION, LSN du journal au début du snapshot, date de création
+ *   agents   : nombre, puis (agentId, adresse IP)
+ *   alertes  : nombre, puis enregistrements ALERT (voir {@link RecordCodec})
+ *   séries   : nombre, puis pour chaque agent : agentId, niveaux minute et heure
+ *              (position intégrée + seaux), échantillons bruts (première position + colonnes)
+ *   fin      : MAGIC, puis CRC32 de tout ce qui précède
+ *
+ * Le snapshot est pris sans bloquer les écrivains : il peut contenir des
+ * enregistrements postérieurs à son LSN. La relecture du journal les ignore
+ * grâce aux séquences d'alertes et aux positions dans les séries.
+ * Le fichier est écrit sous un nom temporaire puis renommé atomiquement.
+ */
+final class SnapshotFile {
+
+    static final long MAGIC = 0x4D4F4E534E415031L;
+    static final int VERSION = 1;
+
+    private static final String FILE_PREFIX = "snapshot-";
+    private static final String FILE_SUFFIX = ".snap";
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int RAW_SAMPLE_SIZE = 8 + 3 * 8;
+    private static final int BUCKET_SIZE = 16 + RollupTier.STRIDE * 8;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Écrit un snapshot de l'état courant
+     * @param lsn LSN du journal lu avant la capture
+     * @return Fichier créé
+     */
+    static Path write(Path directory, long lsn, DataManager dataManager) throws IOException {
+        Path target = directory.resolve(String.format("%s%020d%s", FILE_PREFIX, lsn, FILE_SUFFIX));
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(channel);
+            out.ensure(28);
+            out.buffer.putLong(MAGIC).putInt(VERSION).putLong(lsn).putLong(System.currentTimeMillis());
+
+            List<Map.Entry<String, String>> agents = new ArrayList<>(dataManager.getAgentAddresses().entrySet());
+            out.ensure(4);
+            out.buffer.putInt(agents.size());
+            for (Map.Entry<String, String> agent : agents) {
+                out.ensure(RecordCodec.MAX_RECORD_SIZE);
+                RecordCodec.putString(out.buffer, agent.getKey());
+                RecordCodec.putString(out.buffer, agent.getValue());
+            }
+
+            AlertStore alertStore = dataManager.getAlertStore();
+            List<Alert> alerts = alertStore.snapshot();
+            out.ensure(4);
+            out.buffer.putInt(alerts.size());
+            for (Alert alert : alerts) {
+                out.ensure(RecordCodec.MAX_RECORD_SIZE);
+                RecordCodec.encodeAlert(out.buffer, alert, alertStore.storedAtMillis(alert.getSequence()));
+            }
+
+            List<MetricsSeries> allSeries = new ArrayList<>(dataManager.getMetricsStore().getAllSeries());
+            out.ensure(4);
+            out.buffer.putInt(allSeries.size());
+            for (MetricsSeries series : allSeries) {
+                out.ensure(RecordCodec.MAX_RECORD_SIZE);
+                RecordCodec.putBytes(out.buffer, series.getAgentIdBytes());
+                // Niveaux capturés avant les échantillons bruts : leur position est inférieure ou égale
+                writeTier(out, series.getMinuteTier().image());
+                writeTier(out, series.getHourTier().image());
+                MetricsSeries.Samples samples = series.retained();
+                out.ensure(12);
+                out.buffer.putLong(samples.getFirstPosition()).putInt(samples.size());
+                for (int i = 0; i < samples.size(); i++) {
+                    out.ensure(RAW_SAMPLE_SIZE);
+                    out.buffer.putLong(samples.getTimestamp(i)).putDouble(samples.getCpu(i))
+                              .putDouble(samples.getMemory(i)).putDouble(samples.getDisk(i));
+                }
+            }
+
+            out.ensure(8);
+            out.buffer.putLong(MAGIC);
+            out.finish();
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return target;
+    }
+
+    /**
+     * Vérifie puis charge un snapshot dans le DataManager (vide)
+     * @return LSN à partir duquel relire le journal
+     */
+    static long load(Path file, DataManager dataManager) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 40 || size > Integer.MAX_VALUE) {
+                throw new IOException("Taille de snapshot invalide: " + size);
+            }
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int end = (int) size - 4;
+            CRC32 crc = new CRC32();
+            ByteBuffer body = in.duplicate();
+            body.limit(end);
+            crc.update(body);
+            if ((int) crc.getValue() != in.getInt(end) || in.getLong(0) != MAGIC
+                    || in.getLong(end - 8) != MAGIC) {
+                throw new IOException("Snapshot corrompu: " + file.getFileName());
+            }
+            if (in.getInt(8) != VERSION) {
+                throw new IOException("Version de snapshot non supportée: " + in.getInt(8));
+            }
+            in.position(12);
+            long lsn = in.getLong();
+            in.getLong();
+
+            int agentCount = in.getInt();
+            for (int i = 0; i < agentCount; i++) {
+                dataManager.restoreAgent(RecordCodec.getString(in), RecordCodec.getString(in));
+            }
+
+            int alertCount = in.getInt();
+            for (int i = 0; i < alertCount; i++) {
+                byte type = in.get();
+                long storedAt = in.getLong();
+                dataManager.restoreAlert(RecordCodec.decodeAlert(in, type), storedAt);
+            }
+
+            int seriesCount = in.getInt();
+            for (int i = 0; i < seriesCount; i++) {
+                MetricsSeries series = dataManager.getMetricsStore().getOrCreateSeries(RecordCodec.getString(in));
+                readTier(in, series.getMinuteTier());
+                readTier(in, series.getHourTier());
+                long position = in.getLong();
+                int samples = in.getInt();
+                for (int s = 0; s < samples; s++) {
+                    series.restore(position + s, in.getLong(), in.getDouble(), in.getDouble(), in.getDouble());
+                }
+            }
+            return lsn;
+        }
+    }
+
+    /**
+     * Snapshots présents, du plus récent au plus ancien
+     */
+    static List<Path> list(Path directory) throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                snapshots.add(file);
+            }
+        }
+        // Noms de longueur fixe : l'ordre lexicographique suit le LSN
+        snapshots.sort((a, b) -> b.getFileName().toString().compareTo(a.getFileName().toString()));
+        return snapshots;
+    }
+
+    /**
+     * LSN encodé dans le nom d'un snapshot
+     */
+    static long lsnOf(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+    }
+
+    private static void writeTier(Output out, RollupTier.Image image) throws IOException {
+        out.ensure(12);
+        out.buffer.putLong(image.applied).putInt(image.size);
+        for (int i = 0; i < image.size; i++) {
+            out.ensure(BUCKET_SIZE);
+            out.buffer.putLong(image.keys[i]).putLong(image.counts[i]);
+            for (int k = 0; k < RollupTier.STRIDE; k++) {
+                out.buffer.putDouble(image.stats[i * RollupTier.STRIDE + k]);
+            }
+        }
+    }
+
+    private static void readTier(ByteBuffer in, RollupTier tier) {
+        long applied = in.getLong();
+        int size = in.getInt();
+        long[] keys = new long[size];
+        long[] counts = new long[size];
+        double[] stats = new double[size * RollupTier.STRIDE];
+        for (int i = 0; i < size; i++) {
+            keys[i] = in.getLong();
+            counts[i] = in.getLong();
+            for (int k = 0; k < RollupTier.STRIDE; k++) {
+                stats[i * RollupTier.STRIDE + k] = in.getDouble();
+            }
+        }
+        tier.restore(applied, size, keys, counts, stats);
+    }
+
+    /**
+     * Écriture tamponnée avec calcul du CRC au fil de l'eau
+     */
+    private static final class Output {
+        final FileChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        final CRC32 crc = new CRC32();
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                drain();
+            }
+        }
+
+        void finish() throws IOException {
+            drain();
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            crc.update(buffer.array(), 0, buffer.limit());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
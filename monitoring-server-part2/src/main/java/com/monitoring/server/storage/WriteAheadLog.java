@@ -0,0 +1,432 @@
+package com.monitoring.server.storage;
+
+import com.monitoring.server.logging.Log;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Journal d'écriture anticipée en segments de taille fixe projetés en mémoire.
+ *
+ * Chaque enregistrement est précédé de sa longueur et de son CRC32 ; une
+ * longueur nulle marque la fin des données d'un segment. La position d'un
+ * enregistrement dans le journal (LSN) est l'offset global en octets : le
+ * segment "wal-&lt;LSN de début&gt;.log" couvre [début, début + taille[.
+ *
+ * Les écritures vont dans la projection mémoire (le noyau les conserve même
+ * si le processus s'arrête brutalement) ; un thread unique appelle force()
+ * périodiquement, ou dès qu'un écrivain attend la durabilité : toutes les
+ * écritures accumulées pendant un force() sont validées par le suivant
+ * (group commit).
+ */
+final class WriteAheadLog {
+
+    private static final Log LOG = Log.get("WAL");
+
+    static final int HEADER_SIZE = 8;
+
+    private static final String FILE_PREFIX = "wal-";
+    private static final String FILE_SUFFIX = ".log";
+
+    /**
+     * Reçoit les enregistrements relus (données entre position et limit)
+     */
+    interface RecordVisitor {
+        void visit(long lsn, ByteBuffer record);
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long syncIntervalMs;
+    private final CRC32 crc = new CRC32();
+
+    // Protège l'écriture ; sert aussi à réveiller le thread de synchronisation
+    private final Object lock = new Object();
+    // Attente de la durabilité : verrou java.util.concurrent plutôt que wait(), qui
+    // immobiliserait le thread porteur d'un écrivain exécuté sur un thread virtuel
+    private final ReentrantLock durableLock = new ReentrantLock();
+    private final Condition durableAdvanced = durableLock.newCondition();
+    private Segment current;
+    private int writeOffset;
+    private long written;
+    private final List<Segment> unsynced = new ArrayList<>();
+    private boolean flushRequested;
+    private volatile boolean closed;
+    private volatile long durable;
+    private Thread syncThread;
+
+    /**
+     * @param directory Répertoire des segments
+     * @param segmentSize Taille d'un segment en octets
+     * @param syncIntervalMs Intervalle maximal entre deux force() quand personne n'attend
+     */
+    WriteAheadLog(Path directory, int segmentSize, long syncIntervalMs) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.syncIntervalMs = Math.max(1, syncIntervalMs);
+    }
+
+    /**
+     * Relit le journal à partir de fromLsn, tronque une éventuelle fin corrompue
+     * et positionne l'écriture après le dernier enregistrement valide.
+     * @return Nombre d'enregistrements transmis au visiteur
+     */
+    long recover(long fromLsn, RecordVisitor visitor) throws IOException {
+        List<Long> bases = listSegments();
+        long replayed = 0;
+        Segment last = null;
+        int lastEnd = 0;
+
+        for (int i = 0; i < bases.size(); i++) {
+            Segment segment = Segment.open(segmentPath(bases.get(i)), bases.get(i), 0);
+            if (last != null && segment.base != last.base + last.size()) {
+                LOG.warn("Segment non contigu ignoré: {}", segment.path.getFileName());
+                segment.close();
+                deleteFrom(bases, i);
+                break;
+            }
+            ByteBuffer view = segment.buffer.duplicate();
+            int offset = 0;
+            boolean corrupted = false;
+            while (offset + HEADER_SIZE <= segment.size()) {
+                int length = view.getInt(offset);
+                if (length == 0) {
+                    break;
+                }
+                if (length < 0 || offset + HEADER_SIZE + length > segment.size()) {
+                    corrupted = true;
+                    break;
+                }
+                view.limit(offset + HEADER_SIZE + length).position(offset + HEADER_SIZE);
+                crc.reset();
+                crc.update(view);
+                if ((int) crc.getValue() != view.getInt(offset + 4)) {
+                    corrupted = true;
+                    break;
+                }
+                long lsn = segment.base + offset;
+                if (lsn >= fromLsn) {
+                    view.limit(offset + HEADER_SIZE + length).position(offset + HEADER_SIZE);
+                    visitor.visit(lsn, view);
+                    replayed++;
+                }
+                view.clear();
+                offset += HEADER_SIZE + length;
+            }
+            if (last != null) {
+                last.close();
+            }
+            last = segment;
+            lastEnd = offset;
+            if (corrupted) {
+                LOG.warn("Fin de journal corrompue tronquée au LSN {}", segment.base + offset);
+                segment.zeroFrom(offset);
+                deleteFrom(bases, i + 1);
+                break;
+            }
+        }
+
+        if (last == null || last.base + lastEnd < fromLsn) {
+            // Journal absent ou antérieur au snapshot : repartir au LSN du snapshot
+            if (last != null) {
+                last.close();
+            }
+            if (!bases.isEmpty() && bases.get(0) > fromLsn) {
+                LOG.warn("Trou entre le snapshot (LSN {}) et le journal", fromLsn);
+            }
+            last = Segment.open(segmentPath(fromLsn), fromLsn, segmentSize);
+            lastEnd = 0;
+        } else if (!bases.isEmpty() && bases.get(0) > fromLsn) {
+            LOG.warn("Trou entre le snapshot (LSN {}) et le journal", fromLsn);
+        }
+
+        current = last;
+        writeOffset = lastEnd;
+        written = current.base + writeOffset;
+        durable = written;
+        return replayed;
+    }
+
+    /**
+     * Démarre le thread de synchronisation
+     */
+    void start() {
+        syncThread = new Thread(this::syncLoop, "wal-sync");
+        syncThread.setDaemon(true);
+        syncThread.start();
+    }
+
+    /**
+     * Ajoute un enregistrement (données entre position et limit du tampon)
+     * @return LSN de fin de l'enregistrement (à passer à awaitDurable)
+     */
+    long append(ByteBuffer record) {
+        int length = record.remaining();
+        int start = record.position();
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Journal fermé");
+            }
+            if (writeOffset + HEADER_SIZE + length > current.size()) {
+                roll(length);
+            }
+            crc.reset();
+            crc.update(record);
+            record.position(start);
+
+            MappedByteBuffer target = current.buffer;
+            target.position(writeOffset + HEADER_SIZE);
+            target.put(record);
+            target.putInt(writeOffset + 4, (int) crc.getValue());
+            // Longueur écrite en dernier : un enregistrement incomplet reste invisible
+            target.putInt(writeOffset, length);
+            writeOffset += HEADER_SIZE + length;
+            written = current.base + writeOffset;
+            return written;
+        }
+    }
+
+    /**
+     * Attend que tout le journal jusqu'au LSN donné soit écrit sur disque
+     */
+    void awaitDurable(long lsn) {
+        if (durable >= lsn) {
+            return;
+        }
+        synchronized (lock) {
+            flushRequested = true;
+            lock.notifyAll();
+        }
+        durableLock.lock();
+        try {
+            while (durable < lsn && !closed) {
+                try {
+                    durableAdvanced.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    /**
+     * LSN de fin du dernier enregistrement écrit
+     */
+    long writtenLsn() {
+        synchronized (lock) {
+            return written;
+        }
+    }
+
+    long durableLsn() {
+        return durable;
+    }
+
+    /**
+     * Supprime les segments entièrement antérieurs au LSN donné (sauf le segment courant)
+     * @return Nombre de segments supprimés
+     */
+    int deleteSegmentsBefore(long lsn) throws IOException {
+        long currentBase;
+        synchronized (lock) {
+            currentBase = current.base;
+        }
+        int deleted = 0;
+        for (long base : listSegments()) {
+            Path path = segmentPath(base);
+            if (base < currentBase && base + Files.size(path) <= lsn) {
+                Files.deleteIfExists(path);
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Synchronise tout le journal puis arrête le thread de synchronisation
+     */
+    void close() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        if (syncThread != null) {
+            try {
+                syncThread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (lock) {
+            for (Segment segment : unsynced) {
+                segment.force();
+                segment.close();
+            }
+            unsynced.clear();
+            current.force();
+            current.close();
+        }
+        advanceDurable(written);
+    }
+
+    private void roll(int length) {
+        if (HEADER_SIZE + length > segmentSize) {
+            throw new IllegalArgumentException("Enregistrement trop grand: " + length + " octets");
+        }
+        long base = current.base + current.size();
+        try {
+            Segment next = Segment.open(segmentPath(base), base, segmentSize);
+            unsynced.add(current);
+            current = next;
+            writeOffset = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void syncLoop() {
+        while (true) {
+            List<Segment> toSync;
+            long target;
+            synchronized (lock) {
+                if (!flushRequested && !closed) {
+                    try {
+                        lock.wait(syncIntervalMs);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                flushRequested = false;
+                if (closed) {
+                    return;
+                }
+                if (written == durable) {
+                    continue;
+                }
+                target = written;
+                toSync = new ArrayList<>(unsynced);
+                unsynced.clear();
+                toSync.add(current);
+            }
+
+            // force() hors verrou : les écrivains continuent pendant l'écriture disque
+            for (Segment segment : toSync) {
+                segment.force();
+                if (segment != toSync.get(toSync.size() - 1)) {
+                    segment.close();
+                }
+            }
+            advanceDurable(target);
+        }
+    }
+
+    private void advanceDurable(long lsn) {
+        durableLock.lock();
+        try {
+            durable = lsn;
+            durableAdvanced.signalAll();
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> bases = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    bases.add(Long.parseLong(name.substring(FILE_PREFIX.length(),
+                                                            name.length() - FILE_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    LOG.warn("Fichier ignoré: {}", name);
+                }
+            }
+        }
+        bases.sort(null);
+        return bases;
+    }
+
+    private void deleteFrom(List<Long> bases, int index) throws IOException {
+        for (int i = index; i < bases.size(); i++) {
+            Files.deleteIfExists(segmentPath(bases.get(i)));
+        }
+    }
+
+    private Path segmentPath(long base) {
+        return directory.resolve(String.format("%s%020d%s", FILE_PREFIX, base, FILE_SUFFIX));
+    }
+
+    /**
+     * Fichier de segment projeté en mémoire
+     */
+    private static final class Segment {
+        final long base;
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+
+        private Segment(long base, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.base = base;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Ouvre un segment existant, ou le crée avec la taille donnée
+         */
+        static Segment open(Path path, long base, int sizeIfNew) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = channel.size();
+            if (size == 0 && sizeIfNew > 0) {
+                // Fichier creux : les blocs ne sont alloués qu'à l'écriture
+                channel.write(ByteBuffer.allocate(1), sizeIfNew - 1);
+                size = sizeIfNew;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new Segment(base, path, channel, buffer);
+        }
+
+        int size() {
+            return buffer.capacity();
+        }
+
+        void zeroFrom(int offset) {
+            for (int i = offset; i < buffer.capacity(); i++) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.force();
+        }
+
+        void force() {
+            buffer.force();
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOG.error("Erreur à la fermeture de {}: {}", path.getFileName(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.monitoring.server.subscription;
+
+import com.monitoring.server.logging.Log;
+import com.monitoring.server.model.Agent;
+import com.monitoring.server.model.Alert;
+import com.monitoring.server.model.AlertPage;
+import com.monitoring.server.model.ChangeSet;
+import com.monitoring.server.rmi.MonitoringCallback;
+import com.monitoring.server.storage.DataManager;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Flux de changements pour les clients RMI (abonnements et long-polling).
+ *
+ * Les versions sont attribuées par un seul thread, à intervalle régulier :
+ * chaque version regroupe les alertes publiées et les agents modifiés depuis
+ * la précédente. Côté ingestion, signaler un changement d'agent coûte un
+ * drapeau et au plus une insertion dans une file ; les alertes ne coûtent
+ * rien (le thread relit la dernière séquence du DataManager).
+ *
+ * Un agent modifié plusieurs fois n'est transmis qu'une fois, dans son état
+ * courant. Chaque abonné a au plus une livraison en cours, exécutée sur un
+ * petit pool : un abonné lent reçoit des lots plus gros, sans ralentir
+ * l'ingestion ni les autres abonnés. Un abonné dont la livraison dépasse le
+ * délai de livraison est résilié ; le thread qu'il retient est libéré par le
+ * délai de réponse des appels RMI sortants ({@link com.monitoring.server.rmi.RmiTimeouts}).
+ */
+public class ChangeFeed {
+
+    private static final Log LOG = Log.get("Push");
+
+    /** Nombre de versions dont on sait retrouver les alertes */
+    private static final int VERSION_HISTORY = 1 << 16;
+
+    /** Durée maximale d'attente d'un long-polling */
+    public static final long MAX_WAIT_MS = 5 * 60 * 1000L;
+
+    /** Échecs de livraison consécutifs avant résiliation d'un abonnement */
+    private static final int MAX_DELIVERY_FAILURES = 3;
+
+    /** Durée maximale d'une livraison à un abonné, par défaut */
+    public static final int DEFAULT_DELIVERY_TIMEOUT_MS = 10000;
+
+    private final DataManager dataManager;
+    private final Function<String, Agent> agentLookup;
+    private final long batchIntervalMs;
+    private final int maxAlertsPerBatch;
+    private final long deliveryTimeoutNanos;
+
+    // Dernière séquence d'alerte couverte par chaque version (anneau)
+    private final long[] alertSequenceAt = new long[VERSION_HISTORY];
+    // Version publiée : toutes ses données sont visibles
+    private volatile long version;
+
+    private final Map<String, AgentEntry> agentEntries = new ConcurrentHashMap<>();
+    private final Queue<AgentEntry> dirtyAgents = new ConcurrentLinkedQueue<>();
+
+    private final Map<Long, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicLong nextSubscriptionId = new AtomicLong();
+    private final ExecutorService deliveryPool;
+    private final Object versionMonitor = new Object();
+    private volatile boolean running;
+    private Thread dispatcher;
+
+    /**
+     * @param dataManager Source des alertes
+     * @param agentLookup Retourne l'état courant d'un agent
+     * @param batchIntervalMs Intervalle entre deux versions (regroupement des changements)
+     * @param maxAlertsPerBatch Nombre maximal d'alertes par lot
+     * @param deliveryThreads Nombre de threads de livraison aux abonnés
+     * @param deliveryTimeoutMs Durée d'une livraison au-delà de laquelle l'abonné est résilié
+     */
+    public ChangeFeed(DataManager dataManager, Function<String, Agent> agentLookup,
+                      long batchIntervalMs, int maxAlertsPerBatch, int deliveryThreads, long deliveryTimeoutMs) {
+        this.dataManager = dataManager;
+        this.agentLookup = agentLookup;
+        this.batchIntervalMs = Math.max(1, batchIntervalMs);
+        this.maxAlertsPerBatch = Math.max(1, maxAlertsPerBatch);
+        this.deliveryTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, deliveryTimeoutMs));
+        this.alertSequenceAt[0] = dataManager.getLastAlertSequence();
+        this.deliveryPool = Executors.newFixedThreadPool(Math.max(1, deliveryThreads), runnable -> {
+            Thread thread = new Thread(runnable, "change-delivery");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Démarre le thread d'attribution des versions
+     */
+    public void start() {
+        running = true;
+        dispatcher = new Thread(this::dispatchLoop, "change-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    public void stop() {
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+        deliveryPool.shutdownNow();
+        synchronized (versionMonitor) {
+            versionMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * Signale que l'état d'un agent a changé (appelé sur le chemin d'ingestion)
+     */
+    public void agentChanged(String agentId) {
+        AgentEntry entry = agentEntries.get(agentId);
+        if (entry == null) {
+            entry = agentEntries.computeIfAbsent(agentId, AgentEntry::new);
+        }
+        if (entry.dirty.compareAndSet(false, true)) {
+            dirtyAgents.offer(entry);
+        }
+    }
+
+    /**
+     * Version courante (à passer à awaitChanges ou subscribe pour ne recevoir que la suite)
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Attend qu'une version postérieure à sinceVersion soit publiée, au plus timeoutMillis
+     * @return Changements depuis sinceVersion (éventuellement vides si le délai a expiré)
+     */
+    public ChangeSet awaitChanges(long sinceVersion, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + Math.min(Math.max(0, timeoutMillis), MAX_WAIT_MS);
+        synchronized (versionMonitor) {
+            long remaining;
+            while (version <= sinceVersion && running
+                    && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                versionMonitor.wait(remaining);
+            }
+        }
+        return changesSince(sinceVersion);
+    }
+
+    /**
+     * Changements publiés depuis sinceVersion (sans attendre)
+     */
+    public ChangeSet changesSince(long sinceVersion) {
+        long current = version;
+        if (sinceVersion == current) {
+            return new ChangeSet(sinceVersion, current, Collections.emptyList(), Collections.emptyList(), false, false);
+        }
+        if (sinceVersion < 0 || sinceVersion > current || current - sinceVersion >= VERSION_HISTORY) {
+            return resync(sinceVersion, current);
+        }
+
+        // Étendre le lot version par version tant que les alertes tiennent dans la limite
+        long fromSequence = alertSequenceAt[index(sinceVersion)];
+        long upTo = sinceVersion + 1;
+        while (upTo < current
+                && alertSequenceAt[index(upTo + 1)] - fromSequence <= maxAlertsPerBatch) {
+            upTo++;
+        }
+        long toSequence = alertSequenceAt[index(upTo)];
+        if (version - sinceVersion >= VERSION_HISTORY) {
+            // Anneau réécrit pendant la lecture
+            return resync(sinceVersion, version);
+        }
+
+        List<Alert> alerts = Collections.emptyList();
+        boolean truncated = false;
+        if (toSequence > fromSequence) {
+            AlertPage page = dataManager.getAlertsSince(fromSequence, maxAlertsPerBatch);
+            alerts = new ArrayList<>(page.getAlerts().size());
+            for (Alert alert : page.getAlerts()) {
+                if (alert.getSequence() <= toSequence) {
+                    alerts.add(alert);
+                }
+            }
+            // Page pleine avant la fin de l'intervalle : une seule version dépasse la limite
+            truncated = page.hasMore()
+                    && (alerts.isEmpty() || alerts.get(alerts.size() - 1).getSequence() < toSequence);
+        }
+
+        List<Agent> agents = new ArrayList<>();
+        for (AgentEntry entry : agentEntries.values()) {
+            long changedAt = entry.version;
+            if (changedAt > sinceVersion && changedAt <= upTo) {
+                Agent agent = agentLookup.apply(entry.agentId);
+                if (agent != null) {
+                    agents.add(agent);
+                }
+            }
+        }
+        return new ChangeSet(sinceVersion, upTo, alerts, agents, truncated, false);
+    }
+
+    /**
+     * Abonne un client : ses changements lui seront poussés par lots
+     * @param sinceVersion Version déjà connue du client (getVersion() après un chargement complet)
+     * @return Identifiant de l'abonnement
+     */
+    public long subscribe(MonitoringCallback callback, long sinceVersion) {
+        long id = nextSubscriptionId.incrementAndGet();
+        subscriptions.put(id, new Subscription(id, callback, sinceVersion));
+        LOG.info("Abonnement {} créé (version {})", id, sinceVersion);
+        return id;
+    }
+
+    public boolean unsubscribe(long subscriptionId) {
+        boolean removed = subscriptions.remove(subscriptionId) != null;
+        if (removed) {
+            LOG.info("Abonnement {} résilié", subscriptionId);
+        }
+        return removed;
+    }
+
+    public int getSubscriptionCount() {
+        return subscriptions.size();
+    }
+
+    private ChangeSet resync(long sinceVersion, long current) {
+        List<Agent> agents = new ArrayList<>();
+        for (AgentEntry entry : agentEntries.values()) {
+            Agent agent = agentLookup.apply(entry.agentId);
+            if (agent != null) {
+                agents.add(agent);
+            }
+        }
+        return new ChangeSet(sinceVersion, current, Collections.emptyList(), agents, false, true);
+    }
+
+    private static int index(long version) {
+        return (int) (version & (VERSION_HISTORY - 1));
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                Thread.sleep(batchIntervalMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+            publishVersion();
+            deliverToSubscribers();
+        }
+    }
+
+    /**
+     * Attribue une nouvelle version si des alertes ou des agents ont changé
+     */
+    private void publishVersion() {
+        long current = version;
+        long lastSequence = dataManager.getLastAlertSequence();
+        boolean changed = lastSequence != alertSequenceAt[index(current)] || !dirtyAgents.isEmpty();
+        if (!changed) {
+            return;
+        }
+        long next = current + 1;
+        alertSequenceAt[index(next)] = lastSequence;
+        AgentEntry entry;
+        while ((entry = dirtyAgents.poll()) != null) {
+            // Effacer le drapeau avant de dater : une modification concurrente sera reprise au tour suivant
+            entry.dirty.set(false);
+            entry.version = next;
+        }
+        synchronized (versionMonitor) {
+            version = next;
+            versionMonitor.notifyAll();
+        }
+    }
+
+    private void deliverToSubscribers() {
+        long current = version;
+        long now = System.nanoTime();
+        for (Subscription subscription : subscriptions.values()) {
+            if (subscription.version < current && subscription.inFlight.compareAndSet(false, true)) {
+                deliveryPool.execute(() -> deliver(subscription));
+            } else if (isOverdue(subscription, now) && subscriptions.remove(subscription.id, subscription)) {
+                LOG.warn("Abonnement {} résilié : livraison bloquée depuis plus de {} ms", subscription.id,
+                         TimeUnit.NANOSECONDS.toMillis(deliveryTimeoutNanos));
+            }
+        }
+    }
+
+    /**
+     * true si la livraison en cours (commencée, pas seulement en attente d'un thread) a dépassé le délai
+     */
+    private boolean isOverdue(Subscription subscription, long now) {
+        long start = subscription.deliveryStart;
+        return start != 0 && now - start > deliveryTimeoutNanos;
+    }
+
+    private void deliver(Subscription subscription) {
+        subscription.deliveryStart = System.nanoTime();
+        try {
+            ChangeSet changes = changesSince(subscription.version);
+            subscription.callback.onChanges(changes);
+            subscription.version = changes.getVersion();
+            subscription.failures = 0;
+        } catch (RemoteException | RuntimeException e) {
+            if (++subscription.failures >= MAX_DELIVERY_FAILURES) {
+                subscriptions.remove(subscription.id);
+                LOG.warn("Abonnement {} résilié après {} échecs: {}", subscription.id, subscription.failures,
+                         e.getMessage());
+            }
+        } finally {
+            subscription.deliveryStart = 0;
+            subscription.inFlight.set(false);
+        }
+    }
+
+    /**
+     * Dernière version à laquelle un agent a changé
+     */
+    private static final class AgentEntry {
+        final String agentId;
+        final AtomicBoolean dirty = new AtomicBoolean();
+        volatile long version;
+
+        AgentEntry(String agentId) {
+            this.agentId = agentId;
+        }
+    }
+
+    private static final class Subscription {
+        final long id;
+        final MonitoringCallback callback;
+        final AtomicBoolean inFlight = new AtomicBoolean();
+        volatile long version;
+        // Début de la livraison en cours (System.nanoTime, 0 si aucune n'a commencé)
+        volatile long deliveryStart;
+        int failures;
+
+        Subscription(long id, MonitoringCallback callback, long version) {
+            this.id = id;
+            this.callback = callback;
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.monitoring.server.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Format compact des objets RMI : aller-retour par un flux d'objets, champs null,
+ * table de chaînes partagée et différences négatives
+ */
+class WireFormatRoundTripTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 3, 10, 14, 30, 15, 123_000_000);
+
+    @Test
+    void alertWithAllFields() throws Exception {
+        Alert alert = new Alert("agent-1", "CPU", "[CPU] Dépasse le seuil: 91.5%", T0, "HIGH");
+        alert.setSequence(42);
+        alert.setCount(7);
+        alert.setFirstTimestamp(T0.minusMinutes(3));
+
+        assertAlert(alert, roundTrip(alert));
+    }
+
+    @Test
+    void alertWithNullFields() throws Exception {
+        Alert alert = new Alert(null, null, null, null, null);
+        alert.setSequence(-5);
+        Alert copy = roundTrip(alert);
+        assertAlert(alert, copy);
+        assertNull(copy.getTimestamp());
+        assertNull(copy.getFirstTimestamp());
+        assertEquals(1, copy.getCount());
+
+        // Sans horodatage, la date de première occurrence n'est pas transmise
+        Alert withoutTimestamp = new Alert("agent-1", "DISK", "m", null, "LOW");
+        withoutTimestamp.setFirstTimestamp(T0);
+        assertNull(roundTrip(withoutTimestamp).getFirstTimestamp());
+    }
+
+    @Test
+    void alertSeverities() throws Exception {
+        for (String severity : Arrays.asList("LOW", "MEDIUM", "HIGH", "CRITICAL", "URGENT", "", null)) {
+            Alert copy = roundTrip(new Alert("agent-1", "CPU", "m", T0, severity));
+            assertEquals(severity, copy.getSeverity());
+        }
+        // Les sévérités connues sont rendues sous forme de constantes partagées
+        assertSame(roundTrip(new Alert("a", "m", T0, new String("HIGH"))).getSeverity(),
+                   roundTrip(new Alert("b", "m", T0, new String("HIGH"))).getSeverity());
+    }
+
+    @Test
+    void timestampsKeepMillisecondPrecision() throws Exception {
+        LocalDateTime precise = T0.plusNanos(456_789);
+        assertEquals(T0, roundTrip(new Alert("agent-1", "m", precise, "LOW")).getTimestamp());
+        LocalDateTime beforeEpoch = LocalDateTime.of(1969, 12, 31, 23, 59, 59, 1_000_000);
+        assertEquals(beforeEpoch, roundTrip(new Alert("agent-1", "m", beforeEpoch, "LOW")).getTimestamp());
+    }
+
+    @Test
+    void alertPageWithNegativeDeltasAndSharedStrings() throws Exception {
+        List<Alert> alerts = new ArrayList<>();
+        // Séquences et horodatages décroissants, puis très éloignés : différences négatives et grandes
+        long[] sequences = {1000, 999, 3, Long.MAX_VALUE / 2, 0, -7};
+        for (int i = 0; i < sequences.length; i++) {
+            Alert alert = new Alert(i % 2 == 0 ? "agent-1" : "agent-2", i == 4 ? null : "MEMORY",
+                                    "message " + i, T0.minusHours(i * 1000L), "MEDIUM");
+            alert.setSequence(sequences[i]);
+            if (i == 3) {
+                alert.setTimestamp(LocalDateTime.of(1970, 1, 1, 0, 0));
+            }
+            alerts.add(alert);
+        }
+        alerts.add(new Alert(null, null, null, null, null));
+
+        AlertPage copy = roundTrip(new AlertPage(alerts, -1, true, 1234));
+        assertEquals(-1, copy.getNextCursor());
+        assertTrue(copy.hasMore());
+        assertEquals(1234, copy.getLastSequence());
+        assertAlerts(alerts, copy.getAlerts());
+
+        // Identifiants répétés : une seule chaîne à la lecture
+        List<Alert> read = copy.getAlerts();
+        assertSame(read.get(0).getAgentId(), read.get(2).getAgentId());
+        assertSame(read.get(1).getAgentId(), read.get(3).getAgentId());
+        assertSame(read.get(0).getMetricType(), read.get(5).getMetricType());
+    }
+
+    @Test
+    void emptyAlertPage() throws Exception {
+        AlertPage copy = roundTrip(new AlertPage(Collections.emptyList(), 0, false, 0));
+        assertTrue(copy.getAlerts().isEmpty());
+        assertFalse(copy.hasMore());
+    }
+
+    @Test
+    void frozenAlertListKeepsTheSameSerializedForm() throws Exception {
+        AlertList list = new AlertList(3);
+        for (int i = 0; i < 3; i++) {
+            Alert alert = new Alert("agent-" + (i % 2), "CPU", "m" + i, T0.plusSeconds(i), "LOW");
+            alert.setSequence(10 - i);
+            list.add(alert);
+        }
+        byte[] mutable = serialize(list);
+        list.freeze();
+        assertArrayEquals(mutable, serialize(list));
+        assertThrows(UnsupportedOperationException.class, () -> list.add(new Alert()));
+        assertAlerts(list, roundTrip(list));
+    }
+
+    @Test
+    void changeSetWithAgentsAndNullFields() throws Exception {
+        Alert alert = new Alert("agent-1", "CPU", "m", T0, "CRITICAL");
+        alert.setSequence(9);
+
+        Agent online = new Agent("agent-1", "10.0.0.1", new SystemMetrics("agent-1", 12.5, 40, 3, 1_700_000_000_000L));
+        online.setLastUpdate(T0);
+        // Échantillon attribué à un autre agent que celui qui le porte
+        Agent foreign = new Agent("agent-2", null, new SystemMetrics("agent-1", -0.0, Double.NaN, 100, -1));
+        foreign.setStatus("OFFLINE");
+        Agent empty = new Agent();
+        Agent anonymous = new Agent(null, "10.0.0.3", new SystemMetrics(null, 1, 2, 3, 4));
+        anonymous.setLastUpdate(null);
+        List<Agent> agents = Arrays.asList(online, foreign, empty, anonymous);
+
+        ChangeSet copy = roundTrip(new ChangeSet(5, 8, Collections.singletonList(alert), agents, true, false));
+        assertEquals(5, copy.getFromVersion());
+        assertEquals(8, copy.getVersion());
+        assertTrue(copy.isAlertsTruncated());
+        assertFalse(copy.isResync());
+        assertAlerts(Collections.singletonList(alert), copy.getAlerts());
+        assertEquals(agents.size(), copy.getAgents().size());
+        for (int i = 0; i < agents.size(); i++) {
+            assertAgent(agents.get(i), copy.getAgents().get(i));
+        }
+        // Table de chaînes partagée entre agents : identifiant et état répétés
+        assertSame(copy.getAgents().get(0).getAgentId(), copy.getAgents().get(1).getLastMetrics().getAgentId());
+        assertSame(copy.getAgents().get(0).getStatus(), copy.getAgents().get(3).getStatus());
+
+        ChangeSet resync = roundTrip(new ChangeSet(0, 1, Collections.emptyList(), Collections.emptyList(), false,
+                                                   true));
+        assertTrue(resync.isResync());
+        assertFalse(resync.isAlertsTruncated());
+        assertFalse(resync.isEmpty());
+    }
+
+    @Test
+    void metricsHistoryWithNegativeDeltasAndSpecialValues() throws Exception {
+        MetricsHistory history = new MetricsHistory("agent-1", 2);
+        long[] timestamps = {1_700_000_000_000L, 1_700_000_001_000L, 1_699_999_000_000L, 0, -86_400_000L,
+                             Long.MAX_VALUE, Long.MIN_VALUE};
+        for (int i = 0; i < timestamps.length; i++) {
+            history.append(timestamps[i], i * 10.5, i == 3 ? Double.NaN : -0.0, i == 4 ? Double.POSITIVE_INFINITY : i);
+        }
+        MetricsHistory copy = roundTrip(history);
+        assertEquals("agent-1", copy.getAgentId());
+        assertEquals(history.size(), copy.size());
+        for (int i = 0; i < history.size(); i++) {
+            assertEquals(history.getTimestampMillis(i), copy.getTimestampMillis(i));
+            assertEquals(history.getCpuUsage(i), copy.getCpuUsage(i));
+            assertEquals(history.getMemoryUsage(i), copy.getMemoryUsage(i));
+            assertEquals(history.getDiskUsage(i), copy.getDiskUsage(i));
+        }
+        assertEquals(Double.doubleToRawLongBits(-0.0), Double.doubleToRawLongBits(copy.getMemoryUsage(0)));
+
+        MetricsHistory anonymous = roundTrip(new MetricsHistory(null, 0));
+        assertNull(anonymous.getAgentId());
+        assertEquals(0, anonymous.size());
+    }
+
+    @Test
+    void signedVarLongsRoundTrip() throws IOException {
+        long[] values = {0, 1, -1, 63, -64, 64, -65, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE,
+                         Long.MIN_VALUE};
+        for (long value : values) {
+            byte[] bytes = WireFormat.encode(out -> WireFormat.writeSignedVarLong(out, value));
+            assertEquals(value, WireFormat.readSignedVarLong(input(bytes)));
+        }
+        // Zigzag : les petites différences négatives tiennent sur un octet
+        assertEquals(1, WireFormat.encode(out -> WireFormat.writeSignedVarLong(out, -64)).length);
+        assertEquals(10, WireFormat.encode(out -> WireFormat.writeSignedVarLong(out, Long.MIN_VALUE)).length);
+    }
+
+    @Test
+    void sharedStringsAreWrittenOnce() throws IOException {
+        WireFormat.Context writer = new WireFormat.Context();
+        byte[] bytes = WireFormat.encode(out -> {
+            writer.writeShared(out, "agent-1");
+            writer.writeShared(out, null);
+            writer.writeShared(out, "agent-1");
+            writer.writeShared(out, "é");
+            writer.writeShared(out, "agent-1");
+        });
+        // Première occurrence : marqueur, longueur et octets ; les suivantes : leur indice seul
+        assertEquals(1 + 1 + 7 + 1 + 1 + 1 + 1 + 2 + 1, bytes.length);
+
+        WireFormat.Context reader = new WireFormat.Context();
+        DataInputStream in = input(bytes);
+        String first = reader.readShared(in);
+        assertEquals("agent-1", first);
+        assertNull(reader.readShared(in));
+        assertSame(first, reader.readShared(in));
+        assertEquals("é", reader.readShared(in));
+        assertSame(first, reader.readShared(in));
+    }
+
+    @Test
+    void invalidSharedStringReferenceIsRejected() {
+        byte[] bytes = WireFormat.encode(out -> WireFormat.writeVarInt(out, 2));
+        assertThrows(InvalidObjectException.class, () -> new WireFormat.Context().readShared(input(bytes)));
+    }
+
+    private static DataInputStream input(byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    private static byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T roundTrip(T value) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialize(value)))) {
+            return (T) in.readObject();
+        }
+    }
+
+    private static void assertAlerts(List<Alert> expected, List<Alert> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertAlert(expected.get(i), actual.get(i));
+        }
+    }
+
+    private static void assertAlert(Alert expected, Alert actual) {
+        assertEquals(expected.getAgentId(), actual.getAgentId());
+        assertEquals(expected.getMetricType(), actual.getMetricType());
+        assertEquals(expected.getMessage(), actual.getMessage());
+        assertEquals(expected.getSeverity(), actual.getSeverity());
+        assertEquals(expected.getSequence(), actual.getSequence());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getFirstTimestamp(), actual.getFirstTimestamp());
+        assertEquals(expected.getCount(), actual.getCount());
+    }
+
+    private static void assertAgent(Agent expected, Agent actual) {
+        assertEquals(expected.getAgentId(), actual.getAgentId());
+        assertEquals(expected.getIpAddress(), actual.getIpAddress());
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.getLastUpdate() == null ? null : WireFormat.toMillis(expected.getLastUpdate()),
+                     actual.getLastUpdate() == null ? null : WireFormat.toMillis(actual.getLastUpdate()));
+        SystemMetrics metrics = expected.getLastMetrics();
+        if (metrics == null) {
+            assertNull(actual.getLastMetrics());
+            return;
+        }
+        // Un échantillon sans agent est attribué à l'agent qui le porte
+        assertEquals(metrics.getAgentId() != null ? metrics.getAgentId() : expected.getAgentId(),
+                     actual.getLastMetrics().getAgentId());
+        assertEquals(metrics.getTimestampMillis(), actual.getLastMetrics().getTimestampMillis());
+        assertEquals(metrics.getCpuUsage(), actual.getLastMetrics().getCpuUsage());
+        assertEquals(metrics.getMemoryUsage(), actual.getLastMetrics().getMemoryUsage());
+        assertEquals(metrics.getDiskUsage(), actual.getLastMetrics().getDiskUsage());
+    }
+}
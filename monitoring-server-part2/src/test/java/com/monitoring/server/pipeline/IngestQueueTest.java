@@ -0,0 +1,306 @@
+package com.monitoring.server.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.monitoring.server.model.Alert;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * File d'ingestion : politiques block, drop-low et nack, attente du stockage et producteurs concurrents
+ */
+class IngestQueueTest {
+
+    private static final int PRODUCERS = 4;
+    private static final int ALERTS_PER_PRODUCER = 5000;
+
+    private final Storage storage = new Storage();
+    private IngestQueue queue;
+
+    @AfterEach
+    void stop() {
+        storage.open();
+        if (queue != null) {
+            queue.stop();
+        }
+    }
+
+    @Test
+    void blockPolicyWaitsForAFreeSlot() throws Exception {
+        fill(IngestQueue.BLOCK, false);
+        Alert last = alert("agent-4", "HIGH");
+        Thread producer = submitInBackground(last, new AtomicReference<>());
+        await(() -> queue.getBlockedCount() == 1);
+        assertTrue(producer.isAlive());
+
+        storage.open();
+        producer.join(5000);
+        assertFalse(producer.isAlive());
+        await(() -> storage.received.size() == 4);
+        assertSame(last, storage.received.get(3));
+        assertEquals(0, queue.getDroppedCount());
+    }
+
+    @Test
+    void dropLowReplacesTheOldestPendingLowAlert() throws Exception {
+        queue = start(IngestQueue.DROP_LOW, false);
+        Alert first = alert("agent-0", "HIGH");
+        queue.submit(first);
+        storage.awaitEntered();
+        queue.submit(alert("agent-1", "LOW"));
+        Alert high = alert("agent-2", "HIGH");
+        queue.submit(high);
+
+        // File pleine : chaque alerte prend la place de l'alerte LOW la plus ancienne
+        assertEquals(AlertSink.Result.STORED, queue.submit(alert("agent-3", "LOW")));
+        assertEquals(AlertSink.Result.STORED, queue.submit(alert("agent-4", "LOW")));
+        Alert replacement = alert("agent-5", "CRITICAL");
+        assertEquals(AlertSink.Result.STORED, queue.submit(replacement));
+        // Plus aucune alerte LOW en attente : une nouvelle alerte LOW est perdue sans attendre
+        assertEquals(AlertSink.Result.DISCARDED, queue.submit(alert("agent-6", "LOW")));
+        assertEquals(4, queue.getDroppedCount());
+
+        storage.open();
+        await(() -> storage.received.size() == 3);
+        assertSame(first, storage.received.get(0));
+        assertSame(replacement, storage.received.get(1));
+        assertSame(high, storage.received.get(2));
+    }
+
+    @Test
+    void nackRefusesAgentAlertsOnlyWhileFull() throws Exception {
+        queue = start(IngestQueue.NACK, false);
+        assertTrue(queue.admit());
+        queue.submit(alert("agent-0", "HIGH"));
+        storage.awaitEntered();
+        queue.submit(alert("agent-1", "HIGH"));
+        assertTrue(queue.admit());
+        queue.submit(alert("agent-2", "HIGH"));
+
+        assertFalse(queue.admit());
+        assertFalse(queue.admit());
+        assertEquals(2, queue.getNackedCount());
+
+        storage.open();
+        await(() -> queue.getDepth() == 0);
+        assertTrue(queue.admit());
+        assertEquals(3, storage.received.size());
+    }
+
+    @Test
+    void waitForStorageReturnsOnceTheBatchIsStored() throws Exception {
+        queue = start(IngestQueue.BLOCK, true);
+        Alert alert = alert("agent-1", "HIGH");
+        AtomicReference<AlertSink.Result> result = new AtomicReference<>();
+        Thread producer = submitInBackground(alert, result);
+        storage.awaitEntered();
+        producer.join(100);
+        assertTrue(producer.isAlive());
+
+        storage.open();
+        producer.join(5000);
+        assertEquals(AlertSink.Result.STORED, result.get());
+        assertTrue(storage.stored.contains(alert));
+    }
+
+    @Test
+    void waitForStorageCoversReplacedLowAlerts() throws Exception {
+        fill(IngestQueue.DROP_LOW, true);
+        // La dernière alerte occupe la case d'une alerte LOW en attente : son producteur attend le lot
+        Alert replacement = alert("agent-4", "HIGH");
+        AtomicReference<AlertSink.Result> result = new AtomicReference<>();
+        Thread producer = submitInBackground(replacement, result);
+        await(() -> queue.getDroppedCount() == 1);
+        producer.join(100);
+        assertTrue(producer.isAlive());
+
+        storage.open();
+        producer.join(5000);
+        assertEquals(AlertSink.Result.STORED, result.get());
+        assertTrue(storage.stored.contains(replacement));
+    }
+
+    @Test
+    void concurrentProducersWithBlockPolicy() throws Exception {
+        storage.open();
+        queue = new IngestQueue(storage, 64, IngestQueue.BLOCK, true);
+        queue.start();
+        AtomicInteger stored = new AtomicInteger();
+        runProducers(alert -> {
+            assertEquals(AlertSink.Result.STORED, queue.submit(alert));
+            assertTrue(storage.stored.contains(alert));
+            stored.incrementAndGet();
+        }, "HIGH");
+
+        assertEquals(PRODUCERS * ALERTS_PER_PRODUCER, stored.get());
+        assertEquals(PRODUCERS * ALERTS_PER_PRODUCER, storage.stored.size());
+        assertEquals(0, queue.getDroppedCount());
+    }
+
+    @Test
+    void concurrentProducersWithDropLowPolicy() throws Exception {
+        storage.open();
+        queue = new IngestQueue(storage, 64, IngestQueue.DROP_LOW, true);
+        queue.start();
+        Set<Alert> accepted = ConcurrentHashMap.newKeySet();
+        runProducers(alert -> {
+            if (queue.submit(alert) == AlertSink.Result.STORED) {
+                accepted.add(alert);
+                // Une alerte HIGH est stockée avant que submit ne rende la main, même quand elle a
+                // pris la case d'une alerte LOW (une alerte LOW acceptée peut encore être remplacée)
+                if ("HIGH".equals(alert.getSeverity())) {
+                    assertTrue(storage.stored.contains(alert), alert.getAgentId());
+                }
+            } else {
+                assertEquals("LOW", alert.getSeverity());
+            }
+        }, "LOW", "HIGH");
+
+        int total = PRODUCERS * ALERTS_PER_PRODUCER;
+        assertEquals(total, storage.stored.size() + queue.getDroppedCount());
+        assertTrue(accepted.containsAll(storage.stored));
+        // Seules des alertes LOW sont perdues
+        long high = storage.stored.stream().filter(alert -> "HIGH".equals(alert.getSeverity())).count();
+        assertEquals(total / 2, high);
+    }
+
+    @Test
+    void concurrentProducersWithNackPolicy() throws Exception {
+        storage.open();
+        queue = new IngestQueue(storage, 64, IngestQueue.NACK, false);
+        queue.start();
+        runProducers(alert -> {
+            // Un agent refusé renvoie son alerte plus tard
+            while (!queue.admit()) {
+                Thread.yield();
+            }
+            assertEquals(AlertSink.Result.STORED, queue.submit(alert));
+        }, "HIGH");
+
+        await(() -> storage.stored.size() == PRODUCERS * ALERTS_PER_PRODUCER);
+        assertEquals(0, queue.getDroppedCount());
+    }
+
+    /**
+     * Démarre une file de 2 cases dont le consommateur est retenu dans le stockage par une
+     * première alerte, puis la remplit avec une alerte LOW et une alerte HIGH
+     */
+    private void fill(String policy, boolean waitForStorage) throws Exception {
+        queue = start(policy, waitForStorage);
+        submitInBackground(alert("agent-0", "HIGH"), new AtomicReference<>());
+        storage.awaitEntered();
+        submitInBackground(alert("agent-1", "LOW"), new AtomicReference<>());
+        submitInBackground(alert("agent-2", "HIGH"), new AtomicReference<>());
+        await(() -> queue.getDepth() == 2);
+    }
+
+    private IngestQueue start(String policy, boolean waitForStorage) {
+        IngestQueue started = new IngestQueue(storage, 2, policy, waitForStorage);
+        started.start();
+        return started;
+    }
+
+    private Thread submitInBackground(Alert alert, AtomicReference<AlertSink.Result> result) {
+        Thread thread = new Thread(() -> result.set(queue.submit(alert)), "ingest-test-" + alert.getAgentId());
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Producteurs concurrents ; chacun alterne les sévérités données
+     */
+    private static void runProducers(Producer producer, String... severities) throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            String agentId = "agent-" + p;
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int i = 0; i < ALERTS_PER_PRODUCER; i++) {
+                        producer.submit(alert(agentId + "-" + i, severities[i % severities.length]));
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            }, "ingest-test-producer-" + p);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(60_000);
+            assertFalse(thread.isAlive());
+        }
+        if (!failures.isEmpty()) {
+            throw new AssertionError(failures.get(0));
+        }
+    }
+
+    private static Alert alert(String agentId, String severity) {
+        return new Alert(agentId, "CPU", "[CPU] Dépasse le seuil: 90.0%", LocalDateTime.now(), severity);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Condition non atteinte");
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private interface Producer {
+        void submit(Alert alert);
+    }
+
+    /**
+     * Stockage dont le premier lot reste bloqué jusqu'à open()
+     */
+    private static final class Storage implements AlertSink {
+        final List<Alert> received = new CopyOnWriteArrayList<>();
+        final Set<Alert> stored = ConcurrentHashMap.newKeySet();
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        @Override
+        public Result submit(Alert alert) {
+            received.add(alert);
+            stored.add(alert);
+            return Result.STORED;
+        }
+
+        @Override
+        public void submitAll(List<Alert> alerts) {
+            entered.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            AlertSink.super.submitAll(alerts);
+        }
+
+        void awaitEntered() throws InterruptedException {
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+        }
+
+        void open() {
+            released.countDown();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.monitoring.server.receiver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.monitoring.server.model.AgentIds;
+import com.monitoring.server.model.Alert;
+import com.monitoring.server.rules.RuleEngine;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Décodage des trames d'alerte : champs manquants, valeurs numériques, identifiants et message
+ */
+class AlertFrameParserTest {
+
+    private final RuleEngine rules = new RuleEngine();
+
+    @Test
+    void frameWithTooFewFieldsIsRejected() {
+        assertNull(parse("agent-1|CPU|85.5|MEMORY|92.3"));
+        assertNull(parse("agent-1"));
+        assertNull(parse(""));
+    }
+
+    @Test
+    void nonNumericValueThrows() {
+        assertThrows(NumberFormatException.class, () -> parse("agent-1|CPU|abc|MEMORY|92.3|DISK|78.9"));
+        assertThrows(NumberFormatException.class, () -> parse("agent-1|CPU||MEMORY|92.3|DISK|78.9"));
+        assertThrows(NumberFormatException.class, () -> parse("agent-1|CPU|  |MEMORY|92.3|DISK|78.9"));
+        assertThrows(NumberFormatException.class, () -> parse("agent-1|CPU|-|MEMORY|92.3|DISK|78.9"));
+    }
+
+    @Test
+    void parseDoubleMatchesDoubleParseDouble() {
+        // Chemin rapide, puis formes déléguées à Double.parseDouble (exposant, trop de chiffres, spéciales)
+        String[] values = {"85.5", "-3", "+7", "100.25", "0", "0.0", "-0.0", ".5", "5.", " 42.1 ", "99.99999",
+                           "1e2", "-2.5E-3", "1234567890123456", "0.12345678901234567890", "123456789012345678901",
+                           "NaN", "Infinity", "0x1p3"};
+        for (String value : values) {
+            byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+            assertEquals(Double.parseDouble(value), AlertFrameParser.parseDouble(bytes, 0, bytes.length), value);
+        }
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            String value = String.valueOf(random.nextInt(100_000) / Math.pow(10, random.nextInt(6)));
+            byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+            assertEquals(Double.parseDouble(value), AlertFrameParser.parseDouble(bytes, 0, bytes.length), value);
+        }
+    }
+
+    @Test
+    void messageMatchesHistoricalFormat() {
+        String[] values = {"85.5", "90", "100.0", "1e2", "73.123456789", "-0.5"};
+        for (String value : values) {
+            Alert alert = parse("agent-1|CPU|" + value + "|MEMORY|92.3|DISK|78.9");
+            double parsed = Double.parseDouble(value);
+            assertEquals("[CPU] Dépasse le seuil: " + parsed + "%", alert.getMessage());
+        }
+        Alert unknownMetric = parse("agent-1|NETWORK|12.5|MEMORY|92.3|DISK|78.9");
+        assertEquals("NETWORK", unknownMetric.getMetricType());
+        assertEquals("[NETWORK] Dépasse le seuil: 12.5%", unknownMetric.getMessage());
+    }
+
+    @Test
+    void nonAsciiAgentIdIsDecodedAsUtf8() {
+        Alert alert = parse("serveur-é™-東京|DISK|97|MEMORY|10|CPU|10");
+        assertEquals("serveur-é™-東京", alert.getAgentId());
+        assertEquals("DISK", alert.getMetricType());
+        assertEquals(AgentIds.UNKNOWN, alert.getAgentIndex());
+    }
+
+    @Test
+    void frameEndingWithCrLfIsParsedByReceivers() {
+        // Les récepteurs retirent "\r\n" ; un '\r' restant n'appartient qu'au dernier champ, ignoré
+        byte[] frame = "agent-1|MEMORY|91.5|CPU|1|DISK|1\r\n".getBytes(StandardCharsets.UTF_8);
+        Alert alert = AlertFrameParser.parse(frame, 0, frame.length - 2, rules);
+        assertEquals("agent-1", alert.getAgentId());
+        assertEquals("MEMORY", alert.getMetricType());
+        assertEquals("[MEMORY] Dépasse le seuil: 91.5%", alert.getMessage());
+        assertEquals(alert.getMessage(), AlertFrameParser.parse(frame, 0, frame.length - 1, rules).getMessage());
+    }
+
+    @Test
+    void onlyRegisteredAgentsShareTheCanonicalString() {
+        AgentIds agentIds = new AgentIds(16);
+        String registered = new String("agent-1");
+        int id = agentIds.intern(registered);
+
+        byte[] frame = "agent-1|CPU|85.5|MEMORY|92.3|DISK|78.9".getBytes(StandardCharsets.UTF_8);
+        Alert alert = AlertFrameParser.parse(frame, 0, frame.length, rules, agentIds);
+        assertSame(registered, alert.getAgentId());
+        assertEquals(id, alert.getAgentIndex());
+
+        byte[] other = "agent-2|CPU|85.5|MEMORY|92.3|DISK|78.9".getBytes(StandardCharsets.UTF_8);
+        Alert unknown = AlertFrameParser.parse(other, 0, other.length, rules, agentIds);
+        assertEquals("agent-2", unknown.getAgentId());
+        assertEquals(AgentIds.UNKNOWN, unknown.getAgentIndex());
+        // Le décodage n'ajoute aucun agent à la table
+        assertEquals(1, agentIds.size());
+        assertNotSame(unknown.getAgentId(), AlertFrameParser.parse(other, 0, other.length, rules, agentIds)
+                                                            .getAgentId());
+    }
+
+    private Alert parse(String frame) {
+        byte[] bytes = frame.getBytes(StandardCharsets.UTF_8);
+        return AlertFrameParser.parse(bytes, 0, bytes.length, rules);
+    }
+}
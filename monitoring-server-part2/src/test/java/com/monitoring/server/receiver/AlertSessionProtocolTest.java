@@ -0,0 +1,86 @@
+package com.monitoring.server.receiver;
+
+import static com.monitoring.server.receiver.NioAlertReceiverTest.awaitListening;
+import static com.monitoring.server.receiver.NioAlertReceiverTest.connect;
+import static com.monitoring.server.receiver.NioAlertReceiverTest.freePort;
+import static com.monitoring.server.receiver.NioAlertReceiverTest.reader;
+import static com.monitoring.server.receiver.NioAlertReceiverTest.write;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.monitoring.server.model.Alert;
+import com.monitoring.server.pipeline.AlertSink;
+import com.monitoring.server.rules.RuleEngine;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Même dialogue de session pour les deux récepteurs TCP : ouverture, acquittements
+ * numérotés, alertes invalides, keep-alive et fin de session
+ */
+class AlertSessionProtocolTest {
+
+    private static final int IDLE_TIMEOUT_MS = 30_000;
+
+    private final List<Alert> received = new CopyOnWriteArrayList<>();
+    private final AlertSink sink = alert -> {
+        received.add(alert);
+        return AlertSink.Result.STORED;
+    };
+
+    @Test
+    void classicReceiverSession() throws Exception {
+        int port = freePort();
+        runSession(new TCPAlertReceiver(port, sink, IDLE_TIMEOUT_MS, new RuleEngine()), port);
+    }
+
+    @Test
+    void nioReceiverSession() throws Exception {
+        int port = freePort();
+        runSession(new NioAlertReceiver(port, sink, 1, IDLE_TIMEOUT_MS, new RuleEngine()), port);
+    }
+
+    private void runSession(AlertReceiver receiver, int port) throws Exception {
+        Thread thread = new Thread(receiver, "session-test-receiver");
+        thread.setDaemon(true);
+        thread.start();
+        try {
+            awaitListening(port);
+            try (Socket socket = connect(port)) {
+                BufferedReader reader = reader(socket);
+                write(socket, AlertProtocol.SESSION_START + "\n");
+                assertEquals(AlertProtocol.SESSION_OK + "|" + IDLE_TIMEOUT_MS, reader.readLine());
+
+                // Rafale : valide, trop peu de champs, valeur non numérique, valide
+                write(socket, "agent-1|CPU|85.5|MEMORY|92.3|DISK|78.9\n"
+                              + "agent-1|CPU|85.5\n"
+                              + "agent-1|CPU|abc|MEMORY|92.3|DISK|78.9\n"
+                              + "agent-2|DISK|97|MEMORY|10|CPU|10\n");
+                assertEquals(AlertProtocol.ACK + "|1", reader.readLine());
+                assertEquals(AlertProtocol.INVALID + "|2", reader.readLine());
+                assertEquals(AlertProtocol.INVALID + "|3", reader.readLine());
+                assertEquals(AlertProtocol.ACK + "|4", reader.readLine());
+
+                // Le keep-alive qui suit une alerte ne retient pas son acquittement et n'est pas acquitté
+                write(socket, "agent-3|MEMORY|91|CPU|1|DISK|1\n\n");
+                assertEquals(AlertProtocol.ACK + "|5", reader.readLine());
+                write(socket, "\n");
+                write(socket, "agent-3|MEMORY|92|CPU|1|DISK|1\n");
+                assertEquals(AlertProtocol.ACK + "|6", reader.readLine());
+
+                write(socket, AlertProtocol.SESSION_END + "\n");
+                assertEquals(AlertProtocol.SESSION_END_OK, reader.readLine());
+                assertNull(reader.readLine());
+            }
+        } finally {
+            receiver.stop();
+        }
+        assertEquals(4, received.size());
+        assertEquals("agent-2", received.get(1).getAgentId());
+        assertEquals("DISK", received.get(1).getMetricType());
+    }
+}
@@ -0,0 +1,179 @@
+package com.monitoring.server.receiver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.monitoring.server.model.Alert;
+import com.monitoring.server.pipeline.AlertSink;
+import com.monitoring.server.rules.RuleEngine;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Récepteur NIO en boucle locale : mode historique, rafales en pipeline, trames trop longues et fin de session
+ */
+class NioAlertReceiverTest {
+
+    private static final int IDLE_TIMEOUT_MS = 30_000;
+    private static final String FRAME = "agent-1|CPU|85.5|MEMORY|92.3|DISK|78.9";
+
+    private final List<Alert> received = new CopyOnWriteArrayList<>();
+    private NioAlertReceiver receiver;
+    private int port;
+
+    @BeforeEach
+    void start() throws Exception {
+        port = freePort();
+        AlertSink sink = alert -> {
+            received.add(alert);
+            return AlertSink.Result.STORED;
+        };
+        receiver = new NioAlertReceiver(port, sink, 1, IDLE_TIMEOUT_MS, new RuleEngine());
+        Thread thread = new Thread(receiver, "nio-test-accept");
+        thread.setDaemon(true);
+        thread.start();
+        awaitListening(port);
+    }
+
+    @AfterEach
+    void stop() {
+        receiver.stop();
+    }
+
+    @Test
+    void legacyAlertWithTrailingNewline() throws IOException {
+        try (Socket socket = connect(port)) {
+            write(socket, FRAME + "\n");
+            BufferedReader reader = reader(socket);
+            assertEquals(AlertProtocol.ACK, reader.readLine());
+            assertNull(reader.readLine());
+        }
+        assertEquals(1, received.size());
+        assertEquals("agent-1", received.get(0).getAgentId());
+    }
+
+    @Test
+    void legacyAlertWithoutNewlineIsHandledAtEndOfStream() throws IOException {
+        try (Socket socket = connect(port)) {
+            write(socket, FRAME);
+            socket.shutdownOutput();
+            BufferedReader reader = reader(socket);
+            assertEquals(AlertProtocol.ACK, reader.readLine());
+            assertNull(reader.readLine());
+        }
+        assertEquals(1, received.size());
+        assertEquals("CPU", received.get(0).getMetricType());
+    }
+
+    @Test
+    void pipelinedBurstLargerThanOutputBufferIsFullyAcknowledged() throws IOException {
+        int count = 2000;
+        // Trames plus courtes que leurs acquittements : le tampon d'entrée contient plus de
+        // lignes que le tampon de sortie ne peut en acquitter d'un coup
+        StringBuilder burst = new StringBuilder(AlertProtocol.SESSION_START).append('\n');
+        for (int i = 0; i < count; i++) {
+            burst.append(i % 10).append("|C|1|M|1|D\n");
+        }
+        try (Socket socket = connect(port)) {
+            // Toute la rafale avant de lire la moindre réponse
+            write(socket, burst.toString());
+            BufferedReader reader = reader(socket);
+            assertEquals(AlertProtocol.SESSION_OK + "|" + IDLE_TIMEOUT_MS, reader.readLine());
+            for (int i = 1; i <= count; i++) {
+                assertEquals(AlertProtocol.ACK + "|" + i, reader.readLine());
+            }
+            write(socket, AlertProtocol.SESSION_END + "\n");
+            assertEquals(AlertProtocol.SESSION_END_OK, reader.readLine());
+            assertNull(reader.readLine());
+        }
+        assertEquals(count, received.size());
+    }
+
+    @Test
+    void oversizedFrameClosesConnection() throws IOException {
+        char[] frame = new char[NioAlertReceiver.MAX_FRAME_SIZE * 2];
+        Arrays.fill(frame, 'x');
+        try (Socket socket = connect(port)) {
+            write(socket, new String(frame));
+            assertEndOfStream(socket);
+        }
+        assertEquals(Collections.emptyList(), received);
+    }
+
+    @Test
+    void sessionEndIsAcknowledgedThenClosed() throws IOException {
+        try (Socket socket = connect(port)) {
+            write(socket, AlertProtocol.SESSION_START + "\n");
+            BufferedReader reader = reader(socket);
+            assertEquals(AlertProtocol.SESSION_OK + "|" + IDLE_TIMEOUT_MS, reader.readLine());
+            write(socket, FRAME + "\r\n" + AlertProtocol.SESSION_END + "\r\n");
+            assertEquals(AlertProtocol.ACK + "|1", reader.readLine());
+            assertEquals(AlertProtocol.SESSION_END_OK, reader.readLine());
+            assertNull(reader.readLine());
+        }
+        assertEquals(1, received.size());
+    }
+
+    static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Attend que le récepteur, démarré dans son thread, accepte les connexions
+     */
+    static void awaitListening(int port) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            try (Socket probe = new Socket("localhost", port)) {
+                return;
+            } catch (IOException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new AssertionError("Récepteur non démarré sur le port " + port, e);
+                }
+                Thread.sleep(20);
+            }
+        }
+    }
+
+    static Socket connect(int port) throws IOException {
+        Socket socket = new Socket("localhost", port);
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    static BufferedReader reader(Socket socket) throws IOException {
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    static void write(Socket socket, String text) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /**
+     * Connexion fermée par le serveur, sans réponse (fin de flux ou réinitialisation)
+     */
+    private static void assertEndOfStream(Socket socket) throws IOException {
+        try {
+            assertEquals(-1, socket.getInputStream().read());
+        } catch (SocketException e) {
+            // Réinitialisée : le serveur a fermé avec des octets non lus
+        }
+    }
+}
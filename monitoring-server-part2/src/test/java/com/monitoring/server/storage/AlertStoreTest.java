@@ -0,0 +1,179 @@
+package com.monitoring.server.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.monitoring.server.model.Alert;
+import com.monitoring.server.model.AlertList;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Anneau des alertes : séquences, éviction, et lectures concurrentes des publications
+ */
+class AlertStoreTest {
+
+    private static final int WRITERS = 4;
+    private static final int ALERTS_PER_WRITER = 20_000;
+
+    @Test
+    void sequencesStartAtOneAndOldestAreEvicted() {
+        AlertStore store = new AlertStore(6, 0);
+        assertEquals(8, store.getCapacity());
+        List<Alert> appended = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Alert alert = alert("agent", i);
+            assertEquals(i + 1, store.append(alert));
+            appended.add(alert);
+        }
+        assertEquals(20, store.lastSequence());
+        assertEquals(13, store.oldestSequence());
+        assertEquals(8, store.size());
+        assertNull(store.get(12));
+        assertSame(appended.get(12), store.get(13));
+        assertNull(store.get(21));
+
+        AlertList snapshot = store.snapshot();
+        assertEquals(8, snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            assertEquals(13 + i, snapshot.get(i).getSequence());
+        }
+    }
+
+    @Test
+    void listenerSeesEverySequenceInOrder() throws InterruptedException {
+        List<Long> notified = new ArrayList<>();
+        // Appelé pendant la publication ordonnée : une liste simple suffit
+        AlertStore store = new AlertStore(1024, 0, (alert, storedAt) -> notified.add(alert.getSequence()));
+        runWriters(store, 10_000);
+        assertEquals(WRITERS * 10_000, notified.size());
+        for (int i = 0; i < notified.size(); i++) {
+            assertEquals(i + 1, notified.get(i));
+        }
+    }
+
+    @Test
+    void failingListenerDoesNotBlockLaterWriters() throws InterruptedException {
+        AlertStore store = new AlertStore(1024, 0, (alert, storedAt) -> {
+            if (alert.getSequence() % 100 == 0) {
+                throw new IllegalStateException("index en échec");
+            }
+        });
+        runWriters(store, 1000);
+        assertEquals(WRITERS * 1000, store.lastSequence());
+        assertEquals(4000, store.get(4000).getSequence());
+    }
+
+    @Test
+    void concurrentReadersSeeContiguousPublishedAlerts() throws InterruptedException {
+        AlertStore store = new AlertStore(1024, 0);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 2; r++) {
+            Thread reader = new Thread(() -> {
+                try {
+                    while (!done.get()) {
+                        checkSnapshot(store);
+                        checkGet(store);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            readers.add(reader);
+            reader.start();
+        }
+
+        Set<Long> sequences = runWriters(store, ALERTS_PER_WRITER);
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError("Lecture incohérente", failure.get());
+        }
+        assertEquals(WRITERS * ALERTS_PER_WRITER, sequences.size());
+        assertEquals(WRITERS * ALERTS_PER_WRITER, store.lastSequence());
+        assertEquals(store.getCapacity(), store.size());
+        checkSnapshot(store);
+    }
+
+    /**
+     * Copie contiguë, séquences croissantes sans trou, et ordre de chaque producteur respecté
+     */
+    private static void checkSnapshot(AlertStore store) {
+        long before = store.lastSequence();
+        AlertList snapshot = store.snapshot();
+        long after = store.lastSequence();
+        if (snapshot.isEmpty()) {
+            return;
+        }
+        long last = snapshot.get(snapshot.size() - 1).getSequence();
+        assertTrue(last >= before && last <= after, "dernière séquence hors des publications");
+        assertTrue(snapshot.size() <= store.getCapacity());
+        Map<String, Integer> lastIndex = new HashMap<>();
+        for (int i = 0; i < snapshot.size(); i++) {
+            Alert alert = snapshot.get(i);
+            assertEquals(last - snapshot.size() + 1 + i, alert.getSequence());
+            int index = Integer.parseInt(alert.getMessage());
+            Integer previous = lastIndex.put(alert.getAgentId(), index);
+            assertTrue(previous == null || previous < index, "ordre d'un producteur inversé");
+        }
+    }
+
+    /**
+     * Une séquence publiée et retenue retourne son alerte, jamais celle d'une autre séquence
+     */
+    private static void checkGet(AlertStore store) {
+        long last = store.lastSequence();
+        for (long sequence = Math.max(1, last - 2000); sequence <= last + 1; sequence++) {
+            Alert alert = store.get(sequence);
+            if (alert != null) {
+                assertEquals(sequence, alert.getSequence());
+            }
+        }
+        if (last > 0) {
+            // Bornes lues l'une après l'autre : la plus ancienne ne dépasse jamais la dernière
+            long oldest = store.oldestSequence();
+            assertTrue(oldest >= 1 && oldest <= store.lastSequence());
+        }
+    }
+
+    /**
+     * Lance WRITERS producteurs de count alertes chacun
+     * @return Séquences attribuées
+     */
+    private static Set<Long> runWriters(AlertStore store, int count) throws InterruptedException {
+        Set<Long> sequences = ConcurrentHashMap.newKeySet();
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            String agentId = "agent-" + w;
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < count; i++) {
+                    sequences.add(store.append(alert(agentId, i)));
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        return sequences;
+    }
+
+    private static Alert alert(String agentId, int index) {
+        return new Alert(agentId, "CPU", String.valueOf(index), LocalDateTime.now(), "WARNING");
+    }
+}
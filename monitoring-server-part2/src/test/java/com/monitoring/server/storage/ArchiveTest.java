@@ -0,0 +1,109 @@
+package com.monitoring.server.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.monitoring.server.model.Alert;
+import com.monitoring.server.model.AlertList;
+import com.monitoring.server.model.MetricsHistory;
+import com.monitoring.server.model.SystemMetrics;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Scellement puis relecture de l'archive, y compris après une réouverture
+ */
+class ArchiveTest {
+
+    private static final long NO_PERIODIC_SEAL = Long.MAX_VALUE / 2;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void sealedSamplesAndAlertsReadBackIdentically() throws IOException {
+        DataManager dataManager = new DataManager();
+        Archive archive = new Archive(directory.toString(), NO_PERIODIC_SEAL, 0);
+        archive.open(dataManager);
+        try {
+            long base = System.currentTimeMillis() - 3_600_000;
+            append(dataManager, base, 0, 500);
+            for (int i = 0; i < 20; i++) {
+                dataManager.addAlert(new Alert("agent-" + (i % 2), "CPU", "alerte " + i, LocalDateTime.now(),
+                                               "CRITICAL"));
+            }
+            archive.seal();
+
+            for (String agentId : new String[] {"agent-0", "agent-1"}) {
+                assertSameSamples(dataManager.getMetricsHistory(agentId, 0, Long.MAX_VALUE, 10000),
+                                  archive.queryMetrics(agentId, 0, Long.MAX_VALUE, 10000));
+            }
+            AlertList alerts = archive.queryAlerts(null, 0, Long.MAX_VALUE, 100);
+            assertEquals(20, alerts.size());
+            for (int i = 0; i < alerts.size(); i++) {
+                assertEquals("alerte " + i, alerts.get(i).getMessage());
+            }
+            assertEquals(10, archive.queryAlerts("agent-1", 0, Long.MAX_VALUE, 100).size());
+            assertTrue(archive.queryMetrics("agent-unknown", 0, Long.MAX_VALUE, 100).isEmpty());
+
+            // Fenêtre partielle et limite : les plus récents de l'intervalle
+            MetricsHistory window = archive.queryMetrics("agent-0", base + 100_000, base + 199_000, 50);
+            assertEquals(50, window.size());
+            assertEquals(base + 199_000, window.getTimestampMillis(49));
+        } finally {
+            archive.close();
+        }
+    }
+
+    @Test
+    void successiveSealsAndReopenDoNotDuplicate() throws IOException {
+        DataManager dataManager = new DataManager();
+        long base = System.currentTimeMillis() - 3_600_000;
+        Archive archive = new Archive(directory.toString(), NO_PERIODIC_SEAL, 0);
+        archive.open(dataManager);
+        append(dataManager, base, 0, 300);
+        archive.seal();
+        append(dataManager, base, 300, 600);
+        archive.seal();
+        archive.seal();
+        archive.close();
+
+        Archive reopened = new Archive(directory.toString(), NO_PERIODIC_SEAL, 0);
+        reopened.open(dataManager);
+        try {
+            append(dataManager, base, 600, 700);
+            reopened.seal();
+            for (String agentId : new String[] {"agent-0", "agent-1"}) {
+                List<SystemMetrics> expected = dataManager.getMetricsHistory(agentId, 0, Long.MAX_VALUE, 10000);
+                assertEquals(700, expected.size());
+                assertSameSamples(expected, reopened.queryMetrics(agentId, 0, Long.MAX_VALUE, 10000));
+            }
+        } finally {
+            reopened.close();
+        }
+    }
+
+    /**
+     * Échantillons [from, to[ pour agent-0 et agent-1, une seconde d'écart
+     */
+    private static void append(DataManager dataManager, long base, int from, int to) {
+        for (int i = from; i < to; i++) {
+            dataManager.addMetrics("agent-0", base + i * 1000L, i % 100, 40.0 + (i % 7), 75.25);
+            dataManager.addMetrics("agent-1", base + i * 1000L + (i % 5), Math.sqrt(i), 12.5, i / 3.0);
+        }
+    }
+
+    private static void assertSameSamples(List<SystemMetrics> expected, MetricsHistory actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getTimestampMillis(), actual.getTimestampMillis(i));
+            assertEquals(expected.get(i).getCpuUsage(), actual.getCpuUsage(i));
+            assertEquals(expected.get(i).getMemoryUsage(), actual.getMemoryUsage(i));
+            assertEquals(expected.get(i).getDiskUsage(), actual.getDiskUsage(i));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.monitoring.server.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Aller-retour Writer / Reader du codec de l'archive
+ */
+class GorillaCodecTest {
+
+    private static final int COLUMNS = 3;
+
+    @Test
+    void everyTimestampEncodingRoundTrips() {
+        // Différences de différences couvrant chacun des cinq codages
+        long[] deltaOfDeltas = {0, 1, -63, 64, -64, 65, -255, 256, -256, 257, -2047, 2048, -2048, 2049,
+                                1L << 40, -(1L << 40)};
+        long[] times = new long[deltaOfDeltas.length + 2];
+        times[0] = 1_700_000_000_000L;
+        times[1] = times[0] + 10_000;
+        long delta = 10_000;
+        for (int i = 0; i < deltaOfDeltas.length; i++) {
+            delta += deltaOfDeltas[i];
+            times[i + 2] = times[i + 1] + delta;
+        }
+        double[][] values = new double[times.length][COLUMNS];
+        for (int i = 0; i < times.length; i++) {
+            values[i] = new double[] {i, 50.0, i * 0.1};
+        }
+        assertRoundTrip(times, values, 0);
+    }
+
+    @Test
+    void specialAndRandomValuesRoundTripBitForBit() {
+        double[] specials = {0.0, -0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                             Double.MIN_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, 1.0, 1.0 + Math.ulp(1.0)};
+        Random random = new Random(42);
+        int count = 5000;
+        long[] times = new long[count];
+        double[][] values = new double[count][COLUMNS];
+        long time = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            time += 1000 + random.nextInt(7) - 3;
+            times[i] = time;
+            values[i][0] = specials[random.nextInt(specials.length)];
+            values[i][1] = random.nextDouble() * 100;
+            // Valeurs proches : la fenêtre de bits précédente est souvent réutilisée
+            values[i][2] = i == 0 ? 42.5 : values[i - 1][2] + (random.nextInt(3) - 1) * 0.25;
+        }
+        assertRoundTrip(times, values, 0);
+        assertRoundTrip(times, values, 13);
+    }
+
+    @Test
+    void regularConstantSeriesCostsAboutOneBitPerField() {
+        int count = 8000;
+        GorillaCodec.Writer writer = new GorillaCodec.Writer(COLUMNS);
+        for (int i = 0; i < count; i++) {
+            writer.writeTimestamp(1_700_000_000_000L + i * 1000L);
+            for (int column = 0; column < COLUMNS; column++) {
+                writer.writeValue(column, 12.5);
+            }
+        }
+        assertEquals(count, writer.getSampleCount());
+        // En-tête complet du premier échantillon, puis un bit par champ
+        assertTrue(writer.size() <= 8 * (1 + COLUMNS) + 2 + count * (1 + COLUMNS) / 8);
+    }
+
+    @Test
+    void truncatedBlockIsRejected() {
+        GorillaCodec.Writer writer = new GorillaCodec.Writer(1);
+        writer.writeTimestamp(1000);
+        writer.writeValue(0, 1.0);
+        writer.writeTimestamp(5000);
+        writer.writeValue(0, 3.0);
+        // Bloc coupé juste après le premier échantillon (64 + 64 bits)
+        GorillaCodec.Reader reader = new GorillaCodec.Reader(ByteBuffer.wrap(writer.array()), 0, 16, 1);
+        reader.readTimestamp();
+        reader.readValue(0);
+        assertThrows(IllegalStateException.class, reader::readTimestamp);
+    }
+
+    /**
+     * Encode puis relit le bloc placé à offset dans un tampon plus grand
+     */
+    private static void assertRoundTrip(long[] times, double[][] values, int offset) {
+        GorillaCodec.Writer writer = new GorillaCodec.Writer(COLUMNS);
+        for (int i = 0; i < times.length; i++) {
+            writer.writeTimestamp(times[i]);
+            for (int column = 0; column < COLUMNS; column++) {
+                writer.writeValue(column, values[i][column]);
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(offset + writer.size() + 16);
+        buffer.position(offset);
+        buffer.put(writer.array(), 0, writer.size());
+
+        GorillaCodec.Reader reader = new GorillaCodec.Reader(buffer, offset, writer.size(), COLUMNS);
+        for (int i = 0; i < times.length; i++) {
+            assertEquals(times[i], reader.readTimestamp(), "horodatage " + i);
+            for (int column = 0; column < COLUMNS; column++) {
+                assertEquals(Double.doubleToLongBits(values[i][column]),
+                             Double.doubleToLongBits(reader.readValue(column)),
+                             "valeur " + i + " colonne " + column);
+            }
+        }
+    }
+}
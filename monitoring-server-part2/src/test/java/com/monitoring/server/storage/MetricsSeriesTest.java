@@ -0,0 +1,190 @@
+package com.monitoring.server.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Série de métriques : horodatages, rétention, et lectures concurrentes des publications
+ */
+class MetricsSeriesTest {
+
+    private static final int WRITERS = 4;
+    private static final int SAMPLES_PER_WRITER = 25_000;
+
+    @Test
+    void timestampsAreForcedNonDecreasing() {
+        MetricsSeries series = new MetricsSeries("agent", 64, 10, 10);
+        long now = System.currentTimeMillis();
+        assertEquals(now - 1000, series.append(now - 1000, 1, 1, 1));
+        assertEquals(now - 1000, series.append(now - 5000, 2, 2, 2));
+        assertEquals(now - 500, series.append(now - 500, 3, 3, 3));
+    }
+
+    @Test
+    void farFutureTimestampsAreClampedToServerClock() {
+        MetricsSeries series = new MetricsSeries("agent", 64, 10, 10);
+        long now = System.currentTimeMillis();
+        // Dans la tolérance par défaut : conservé tel quel
+        assertEquals(now + 60_000, series.append(now + 60_000, 1, 1, 1));
+
+        MetricsSeries clamped = new MetricsSeries("agent", 64, 10, 10);
+        clamped.setMaxFutureSkew(1000);
+        long kept = clamped.append(now + 3_600_000, 1, 1, 1);
+        assertTrue(kept >= now && kept <= System.currentTimeMillis());
+        // Les échantillons suivants ne restent pas figés une heure dans le futur
+        long next = System.currentTimeMillis();
+        assertTrue(clamped.append(next, 2, 2, 2) <= next + 1000);
+    }
+
+    @Test
+    void oldestSamplesAreEvictedBeyondDepth() {
+        MetricsSeries series = new MetricsSeries("agent", 100, 10, 10);
+        assertEquals(128, series.getDepth());
+        long base = System.currentTimeMillis() - 1_000_000;
+        for (int i = 0; i < 300; i++) {
+            series.append(base + i * 1000L, i, i, i);
+        }
+        assertEquals(128, series.size());
+        assertEquals(300, series.getVersion());
+        assertEquals(base + 172 * 1000L, series.oldestTimestamp());
+        MetricsSeries.Samples latest = series.latest(10);
+        assertEquals(10, latest.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(290 + i, latest.getCpu(i));
+        }
+        MetricsSeries.Samples window = series.read(base + 200_000, base + 209_000, 1000);
+        assertEquals(10, window.size());
+        assertEquals(base + 200_000, window.getTimestamp(0));
+    }
+
+    @Test
+    void slotUnderOverwriteIsExcludedFromReads() throws InterruptedException {
+        MetricsSeries series = new MetricsSeries("agent", 64, 10, 10);
+        long base = System.currentTimeMillis() - 1_000_000;
+        for (int i = 0; i < 64; i++) {
+            series.append(base + i * 1000L, i, i, i);
+        }
+        // Écrivain retenu après avoir écrasé la case de la position 0, avant de publier la position 64
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        series.setAppendListener((s, position, time, cpu, memory, disk) -> {
+            written.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Thread writer = new Thread(() -> series.append(base + 64_000, 64, 64, 64));
+        writer.start();
+        try {
+            assertTrue(written.await(5, TimeUnit.SECONDS));
+            assertEquals(64, series.getVersion());
+
+            MetricsSeries.Samples latest = series.latest(64);
+            assertEquals(63, latest.size());
+            for (int i = 0; i < latest.size(); i++) {
+                assertEquals(i + 1, latest.getCpu(i));
+            }
+            MetricsSeries.Samples oldest = series.read(base, base + 10_000, 100);
+            assertEquals(10, oldest.size());
+            assertEquals(base + 1000, oldest.getTimestamp(0));
+            assertEquals(base + 1000, series.oldestTimestamp());
+        } finally {
+            release.countDown();
+            writer.join();
+        }
+        assertEquals(64, series.latest(64).getCpu(63));
+    }
+
+    @Test
+    void concurrentReadersNeverSeeTornOrReorderedSamples() throws InterruptedException {
+        // Petite profondeur : l'anneau grandit puis est écrasé de nombreuses fois pendant les lectures
+        MetricsSeries series = new MetricsSeries("agent", 256, 10, 10);
+        long base = System.currentTimeMillis() - 10_000_000;
+        AtomicLong clock = new AtomicLong(base);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 2; r++) {
+            Thread reader = new Thread(() -> {
+                try {
+                    while (!done.get()) {
+                        check(series.latest(series.getDepth()));
+                        long recent = clock.get();
+                        check(series.read(recent - 200, recent, 100));
+                        // Laisser passer les écrivains, qui publient chacun à leur tour
+                        Thread.yield();
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            readers.add(reader);
+            reader.start();
+        }
+
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < SAMPLES_PER_WRITER; i++) {
+                    double value = encode(writer, i);
+                    series.append(clock.incrementAndGet(), value, value, value);
+                }
+            });
+            writers.add(thread);
+            thread.start();
+        }
+        for (Thread thread : writers) {
+            thread.join();
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError("Lecture incohérente", failure.get());
+        }
+        assertEquals(WRITERS * SAMPLES_PER_WRITER, series.getVersion());
+        assertEquals(series.getDepth(), series.size());
+        MetricsSeries.Samples retained = series.latest(series.getDepth());
+        assertEquals(series.getDepth(), retained.size());
+        check(retained);
+    }
+
+    /**
+     * Colonnes d'un même échantillon cohérentes, horodatages croissants, ordre de chaque producteur respecté
+     */
+    private static void check(MetricsSeries.Samples samples) {
+        int[] lastIndex = new int[WRITERS];
+        Arrays.fill(lastIndex, -1);
+        long previousTime = Long.MIN_VALUE;
+        for (int i = 0; i < samples.size(); i++) {
+            double cpu = samples.getCpu(i);
+            assertEquals(cpu, samples.getMemory(i), "échantillon déchiré");
+            assertEquals(cpu, samples.getDisk(i), "échantillon déchiré");
+            assertTrue(samples.getTimestamp(i) >= previousTime, "horodatages non croissants");
+            previousTime = samples.getTimestamp(i);
+            int writer = (int) cpu % WRITERS;
+            int index = (int) cpu / WRITERS;
+            assertTrue(index > lastIndex[writer], "ordre d'un producteur inversé");
+            lastIndex[writer] = index;
+        }
+    }
+
+    private static double encode(int writer, int index) {
+        return (double) index * WRITERS + writer;
+    }
+}
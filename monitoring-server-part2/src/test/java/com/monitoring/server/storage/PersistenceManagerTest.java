@@ -0,0 +1,239 @@
+package com.monitoring.server.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.monitoring.server.model.Alert;
+import com.monitoring.server.model.SystemMetrics;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Journal + snapshots : aller-retour complet et reprise après un arrêt brutal
+ */
+class PersistenceManagerTest {
+
+    private static final int SEGMENT_BYTES = 1 << 20;
+    private static final long NO_PERIODIC_SNAPSHOT = Long.MAX_VALUE / 2;
+
+    @TempDir
+    Path root;
+
+    @Test
+    void closeAndReopenRestoresAlertsMetricsAndAgents() throws IOException {
+        Path directory = root.resolve("data");
+        long base = System.currentTimeMillis() - 60_000;
+        DataManager first = new DataManager();
+        PersistenceManager persistence = open(directory, first, false);
+        for (int i = 0; i < 100; i++) {
+            first.addAlert(alert("agent-" + (i % 4), "alerte " + i));
+            first.addMetrics("agent-" + (i % 4), base + i * 100L, i, i / 2.0, i / 3.0);
+        }
+        first.registerAgent("agent-0", "10.0.0.1");
+        persistence.close();
+
+        DataManager restored = new DataManager();
+        PersistenceManager reopened = open(directory, restored, false);
+        try {
+            assertEquals(messages(first), messages(restored));
+            assertEquals("10.0.0.1", restored.getAgentAddresses().get("agent-0"));
+            for (int agent = 0; agent < 4; agent++) {
+                String agentId = "agent-" + agent;
+                assertSameHistory(first.getMetricsHistory(agentId, 0, Long.MAX_VALUE, 1000),
+                                  restored.getMetricsHistory(agentId, 0, Long.MAX_VALUE, 1000));
+            }
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void journalIsReplayedWithoutSnapshot() throws IOException {
+        Path directory = root.resolve("data");
+        DataManager first = new DataManager();
+        PersistenceManager persistence = open(directory, first, true);
+        try {
+            for (int i = 0; i < 50; i++) {
+                first.addAlert(alert("agent-1", "alerte " + i));
+            }
+            assertTrue(listSnapshots(directory).isEmpty());
+
+            // Arrêt brutal : seuls les fichiers déjà sur disque sont repris
+            Path crashed = copyOf(directory, root.resolve("crashed"));
+            DataManager restored = new DataManager();
+            PersistenceManager reopened = open(crashed, restored, false);
+            try {
+                assertEquals(messages(first), messages(restored));
+            } finally {
+                reopened.close();
+            }
+        } finally {
+            persistence.close();
+        }
+    }
+
+    @Test
+    void appendsConcurrentWithSnapshotAreNotLost() throws Exception {
+        Path directory = root.resolve("data");
+        DataManager first = new DataManager();
+        PersistenceManager persistence = open(directory, first, true);
+        int writers = 4;
+        int alertsPerWriter = 2000;
+        long base = System.currentTimeMillis() - 600_000;
+        AtomicInteger written = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        try {
+            for (int w = 0; w < writers; w++) {
+                String agentId = "agent-" + w;
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < alertsPerWriter; i++) {
+                        first.addMetrics(agentId, base + i * 10L, i, i, i);
+                        first.addAlert(alert(agentId, agentId + " alerte " + i));
+                        written.incrementAndGet();
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            // Snapshots pris pendant la première moitié des ajouts : le dernier sert à la reprise
+            do {
+                persistence.snapshot();
+            } while (written.get() < writers * alertsPerWriter / 2);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            // Reprise depuis le dernier snapshot et la fin du journal, sans snapshot de fermeture
+            Path crashed = copyOf(directory, root.resolve("crashed"));
+            assertFalse(listSnapshots(crashed).isEmpty());
+            DataManager restored = new DataManager();
+            PersistenceManager reopened = open(crashed, restored, false);
+            try {
+                assertEquals(writers * alertsPerWriter, restored.getAlertCount());
+                assertEquals(messages(first), messages(restored));
+                for (int w = 0; w < writers; w++) {
+                    String agentId = "agent-" + w;
+                    assertSameHistory(first.getMetricsHistory(agentId, 0, Long.MAX_VALUE, alertsPerWriter),
+                                      restored.getMetricsHistory(agentId, 0, Long.MAX_VALUE, alertsPerWriter));
+                }
+            } finally {
+                reopened.close();
+            }
+        } finally {
+            persistence.close();
+        }
+    }
+
+    @Test
+    void snapshotWaitsForSampleLoggedButNotYetPublished() throws Exception {
+        Path directory = root.resolve("data");
+        DataManager first = new DataManager();
+        PersistenceManager persistence = open(directory, first, true);
+        CountDownLatch logged = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        long time = System.currentTimeMillis() - 1000;
+        try {
+            // Écouteur ajouté après la journalisation : retient l'échantillon entre son
+            // enregistrement dans le journal et sa publication
+            first.getMetricsStore().addAppendListener((series, position, timestampMillis, cpu, memory, disk) -> {
+                if (series.getAgentId().equals("agent-held")) {
+                    logged.countDown();
+                    awaitQuietly(release);
+                }
+            });
+            Thread writer = new Thread(() -> first.addMetrics("agent-held", time, 42, 43, 44));
+            writer.start();
+            assertTrue(logged.await(5, TimeUnit.SECONDS));
+
+            // Le snapshot lit un LSN postérieur à l'échantillon : il doit attendre sa publication
+            Thread snapshot = new Thread(persistence::snapshot);
+            snapshot.start();
+            snapshot.join(200);
+            release.countDown();
+            writer.join();
+            snapshot.join();
+
+            Path crashed = copyOf(directory, root.resolve("crashed"));
+            DataManager restored = new DataManager();
+            PersistenceManager reopened = open(crashed, restored, false);
+            try {
+                List<SystemMetrics> history = restored.getMetricsHistory("agent-held", 0, Long.MAX_VALUE, 10);
+                assertEquals(1, history.size());
+                assertEquals(42, history.get(0).getCpuUsage());
+            } finally {
+                reopened.close();
+            }
+        } finally {
+            release.countDown();
+            persistence.close();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static PersistenceManager open(Path directory, DataManager dataManager, boolean groupCommit)
+            throws IOException {
+        PersistenceManager persistence = new PersistenceManager(directory.toString(), SEGMENT_BYTES, groupCommit,
+                                                                2, NO_PERIODIC_SNAPSHOT, Long.MAX_VALUE);
+        persistence.open(dataManager);
+        return persistence;
+    }
+
+    private static Alert alert(String agentId, String message) {
+        return new Alert(agentId, "CPU", message, LocalDateTime.now(), "WARNING");
+    }
+
+    private static Set<String> messages(DataManager dataManager) {
+        Set<String> messages = new HashSet<>();
+        for (Alert alert : dataManager.getAllAlerts()) {
+            messages.add(alert.getAgentId() + "|" + alert.getMessage());
+        }
+        return messages;
+    }
+
+    private static void assertSameHistory(List<SystemMetrics> expected, List<SystemMetrics> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getTimestamp(), actual.get(i).getTimestamp());
+            assertEquals(expected.get(i).getCpuUsage(), actual.get(i).getCpuUsage());
+            assertEquals(expected.get(i).getMemoryUsage(), actual.get(i).getMemoryUsage());
+            assertEquals(expected.get(i).getDiskUsage(), actual.get(i).getDiskUsage());
+        }
+    }
+
+    private static List<Path> listSnapshots(Path directory) throws IOException {
+        return SnapshotFile.list(directory);
+    }
+
+    /**
+     * Copie des fichiers tels qu'ils sont sur disque à cet instant
+     */
+    private static Path copyOf(Path source, Path target) throws IOException {
+        Files.createDirectory(target);
+        try (Stream<Path> files = Files.list(source)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.copy(file, target.resolve(file.getFileName()));
+            }
+        }
+        return target;
+    }
+}
@@ -0,0 +1,57 @@
+package com.monitoring.server.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Chaînes des enregistrements du journal : null, chaînes courtes et troncature UTF-8
+ */
+class RecordCodecTest {
+
+    @Test
+    void shortAndNullStringsRoundTrip() {
+        for (String value : new String[] {null, "", "agent-1", "serveur-é™-東京-😀"}) {
+            assertEquals(value, roundTrip(value));
+        }
+    }
+
+    @Test
+    void truncationNeverSplitsACharacter() {
+        // Caractères de 2, 3 et 4 octets placés à cheval sur la limite
+        for (String character : new String[] {"é", "™", "😀"}) {
+            int width = character.getBytes(StandardCharsets.UTF_8).length;
+            for (int shift = 1; shift < width; shift++) {
+                String value = "x".repeat(RecordCodec.MAX_STRING_BYTES - shift) + character + "suite";
+                String decoded = roundTrip(value);
+                assertEquals("x".repeat(RecordCodec.MAX_STRING_BYTES - shift), decoded, character + " " + shift);
+                assertTrue(decoded.getBytes(StandardCharsets.UTF_8).length <= RecordCodec.MAX_STRING_BYTES);
+            }
+            // Caractère entièrement sous la limite : conservé
+            String fits = "x".repeat(RecordCodec.MAX_STRING_BYTES - width) + character + "suite";
+            assertEquals("x".repeat(RecordCodec.MAX_STRING_BYTES - width) + character, roundTrip(fits));
+        }
+    }
+
+    @Test
+    void asciiIsTruncatedAtTheLimit() {
+        String value = "a".repeat(RecordCodec.MAX_STRING_BYTES + 10);
+        assertEquals(RecordCodec.MAX_STRING_BYTES, roundTrip(value).length());
+    }
+
+    private static String roundTrip(String value) {
+        ByteBuffer buffer = ByteBuffer.allocate(RecordCodec.MAX_RECORD_SIZE);
+        RecordCodec.putString(buffer, value);
+        buffer.flip();
+        String decoded = RecordCodec.getString(buffer);
+        assertEquals(0, buffer.remaining());
+        if (value == null) {
+            assertNull(decoded);
+        }
+        return decoded;
+    }
+}